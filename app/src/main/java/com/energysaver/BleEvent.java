@@ -0,0 +1,55 @@
+package com.energysaver;
+
+// BleEventBus 로 전달되는 이벤트 한 건. 풀에서 재사용되므로
+// 리스너는 콜백이 끝난 뒤 이 객체를 들고 있으면 안 된다 (필요하면 값을 복사).
+public final class BleEvent {
+
+    public enum Type {
+        STATE,      // 연결 상태 (CONNECTING / CONNECTED / READY / DISCONNECTED)
+        LOG,        // 서비스 내부 로그
+        MESSAGE     // 기기에서 받은 메시지 (ACK ON, PONG ...)
+    }
+
+    private Type type;
+    private String mac;
+    private String text;
+    private long timeMs;
+
+    // 남은 전달 횟수. 0 이 되면 풀로 돌아간다.
+    int pendingDeliveries;
+
+    BleEvent() {
+    }
+
+    void set(Type type, String mac, String text, long timeMs) {
+        this.type = type;
+        this.mac = mac;
+        this.text = text;
+        this.timeMs = timeMs;
+    }
+
+    void clear() {
+        type = null;
+        mac = null;
+        text = null;
+        timeMs = 0;
+        pendingDeliveries = 0;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getMac() {
+        return mac;
+    }
+
+    // STATE 이면 상태 이름, 그 외에는 로그/메시지 문자열
+    public String getText() {
+        return text;
+    }
+
+    public long getTimeMs() {
+        return timeMs;
+    }
+}
@@ -0,0 +1,146 @@
+package com.energysaver;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+// 서비스 → 화면 이벤트 전달 (같은 프로세스 안에서만).
+// sendBroadcast 처럼 시스템 서버를 거치지 않고, 이벤트 객체와 전달용 Runnable 은 풀에서 꺼내 쓴다.
+// 리스너 목록은 배열 스냅샷이라 publish 는 복사하지 않는다 (추가/삭제 때만 새로 만든다).
+public class BleEventBus {
+
+    public interface Listener {
+        void onBleEvent(BleEvent event);
+    }
+
+    private static final int POOL_SIZE = 32;
+    // 리스너 두셋 × 대기 중인 이벤트
+    private static final int DELIVERY_POOL_SIZE = POOL_SIZE * 2;
+
+    private static final Registration[] NO_REGISTRATIONS = new Registration[0];
+
+    private static final class Registration {
+        final Listener listener;
+        final Executor executor;
+        volatile boolean active = true;
+
+        Registration(Listener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+    }
+
+    // 리스너 하나에 이벤트 하나를 전달하는 작업. 실행이 끝나면 풀로 돌아간다.
+    private final class Delivery implements Runnable {
+        Registration registration;
+        BleEvent event;
+
+        @Override
+        public void run() {
+            Registration r = registration;
+            BleEvent e = event;
+            try {
+                // 실행 대기 중에 해제된 리스너에는 전달하지 않음
+                if (r.active) {
+                    r.listener.onBleEvent(e);
+                }
+            } finally {
+                release(this, e);
+            }
+        }
+    }
+
+    private volatile Registration[] registrations = NO_REGISTRATIONS;
+
+    private final ArrayDeque<BleEvent> pool = new ArrayDeque<>(POOL_SIZE);
+    private final ArrayDeque<Delivery> deliveries = new ArrayDeque<>(DELIVERY_POOL_SIZE);
+    private int allocated = 0;
+    private int deliveriesAllocated = 0;
+
+    // executor 는 리스너가 호출될 스레드. 메인 스레드면 ContextCompat.getMainExecutor()
+    public synchronized void addListener(Listener listener, Executor executor) {
+        if (listener == null || executor == null) return;
+        removeListener(listener);
+        Registration[] current = registrations;
+        Registration[] next = new Registration[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = new Registration(listener, executor);
+        registrations = next;
+    }
+
+    public synchronized void removeListener(Listener listener) {
+        Registration[] current = registrations;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].listener != listener) continue;
+            current[i].active = false;
+            if (current.length == 1) {
+                registrations = NO_REGISTRATIONS;
+            } else {
+                Registration[] next = new Registration[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                registrations = next;
+            }
+            return;
+        }
+    }
+
+    public boolean hasListeners() {
+        return registrations.length > 0;
+    }
+
+    public void publish(BleEvent.Type type, String mac, String text, long timeMs) {
+        Registration[] targets = registrations;
+        if (targets.length == 0) return;
+
+        BleEvent event = obtain(targets.length);
+        event.set(type, mac, text, timeMs);
+
+        for (Registration r : targets) {
+            r.executor.execute(obtainDelivery(r, event));
+        }
+    }
+
+    private synchronized BleEvent obtain(int deliveryCount) {
+        BleEvent e = pool.pollFirst();
+        if (e == null) {
+            e = new BleEvent();
+            allocated++;
+        }
+        e.pendingDeliveries = deliveryCount;
+        return e;
+    }
+
+    private synchronized Delivery obtainDelivery(Registration r, BleEvent e) {
+        Delivery d = deliveries.pollFirst();
+        if (d == null) {
+            d = new Delivery();
+            deliveriesAllocated++;
+        }
+        d.registration = r;
+        d.event = e;
+        return d;
+    }
+
+    private synchronized void release(Delivery d, BleEvent e) {
+        d.registration = null;
+        d.event = null;
+        if (deliveries.size() < DELIVERY_POOL_SIZE) {
+            deliveries.addFirst(d);
+        }
+        if (--e.pendingDeliveries > 0) return;
+        e.clear();
+        if (pool.size() < POOL_SIZE) {
+            pool.addFirst(e);
+        }
+    }
+
+    // 지금까지 새로 만든 이벤트 객체 수 (풀이 제 역할을 하는지 확인용)
+    public synchronized int getAllocatedCount() {
+        return allocated;
+    }
+
+    // 지금까지 새로 만든 전달 작업 수
+    public synchronized int getAllocatedDeliveryCount() {
+        return deliveriesAllocated;
+    }
+}
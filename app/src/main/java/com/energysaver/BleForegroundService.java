@@ -1,57 +1,127 @@
 package com.energysaver;
 
+import android.app.AlarmManager;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
 import android.bluetooth.BluetoothAdapter;
-import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothGatt;
-import android.bluetooth.BluetoothGattCallback;
-import android.bluetooth.BluetoothGattCharacteristic;
-import android.bluetooth.BluetoothGattDescriptor;
-import android.bluetooth.BluetoothGattService;
 import android.bluetooth.BluetoothProfile;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.os.Binder;
 import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.energysaver.core.BleTransport;
+import com.energysaver.core.CommandTracker;
+import com.energysaver.core.ConnectionState;
+import com.energysaver.core.ConnectionStateModel;
+import com.energysaver.core.ConnectionScheduler;
+import com.energysaver.core.DeviceMetrics;
+import com.energysaver.core.EventJournal;
+import com.energysaver.core.GattOperation;
+import com.energysaver.core.GattOperationQueue;
+import com.energysaver.core.GroupCommand;
+import com.energysaver.core.HeartbeatScheduler;
+import com.energysaver.core.LatencyHistogram;
+import com.energysaver.core.LongHashMap;
+import com.energysaver.core.MacUtils;
+import com.energysaver.core.PowerSchedule;
+import com.energysaver.core.PresenceDetector;
+import com.energysaver.core.ReconnectPolicy;
+import com.energysaver.core.RttEstimator;
+import com.energysaver.core.ScanResultCache;
+import com.energysaver.core.SmartStrip;
+import com.energysaver.core.StripRegistry;
+import com.energysaver.core.StripStore;
+import com.energysaver.core.TimingWheel;
+import com.energysaver.core.UartCodec;
+import com.energysaver.core.UartStreamDecoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
 
 public class BleForegroundService extends Service {
 
     public static final String TAG = "BleForegroundService";
 
-    private static final UUID UART_SERVICE_UUID =
-            UUID.fromString("0000FFE0-0000-1000-8000-00805F9B34FB");
-    private static final UUID UART_CHAR_UUID =
-            UUID.fromString("0000FFE1-0000-1000-8000-00805F9B34FB");
-    private static final UUID CCCD_UUID =
-            UUID.fromString("00002902-0000-1000-8000-00805F9B34FB");
-
     private static final String CHANNEL_ID = "ble_foreground_channel";
     private static final int NOTIFICATION_ID = 1001;
 
     private final IBinder binder = new LocalBinder();
 
+    // 스레드 구조
+    // - 메인: 화면 API 호출, 스캐너, 멀티탭 목록(StripRegistry)
+    // - BLE 작업 스레드(worker): 연결 상태 전부. GATT 콜백도 이쪽으로 넘긴다.
+    // 화면으로 가는 것은 이벤트 버스(리스너의 executor)와 명령 결과 콜백뿐이다.
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private BleWorker worker;
+    private Handler bleHandler;
+
+    // worker 의 모든 타이머 (하트비트, 재연결, GATT 타임아웃, 전원 병합, 사용자 예약).
+    // 핸들러에는 다음 만료 시각에 timerTick 하나만 걸어 둔다. worker 에서만 사용.
+    private static final long TIMER_TICK_MS = 10;
+    private static final int TIMER_WHEEL_SIZE = 512;
+    private TimingWheel timers;
+    private final Runnable timerTick = () -> timers.advance();
+
+    // 기기와의 링크를 만드는 곳. 기본은 안드로이드 GATT, 시험할 때는 StripSimulator (worker 에서만 읽음)
+    private BleTransport.Factory transportFactory;
+
+    // MacUtils.toLong(mac) → 연결. 추가/삭제는 worker 에서만, 조회는 어디서나 (connections 로 잠금)
+    private final LongHashMap<DeviceConnection> connections = new LongHashMap<>();
+
+    // 등록된 멀티탭 목록 (화면과 공유). 서비스만으로도 재연결/상태 동기화를 할 수 있다.
+    private StripStore stripStore;
+    private StripRegistry registry;
+
+    // 예전 버전이 멀티탭 목록을 JSON 으로 저장하던 곳 (한 번 옮긴 뒤 지운다)
+    private static final String LEGACY_PREFS_NAME = "smart_strips_prefs";
+    private static final String LEGACY_KEY_STRIPS_JSON = "strips_json";
+    private static final String STRIP_STORE_FILE = "strips.db";
+
+    // 화면 쪽 리스너로 상태/로그/수신 메시지를 전달
+    private final BleEventBus eventBus = new BleEventBus();
 
-    private final Map<String, DeviceConnection> connections = new HashMap<>();
+    // 기기별 연결 단계 / 마지막 수신 시각 / RSSI. worker 가 바꾸고 화면은 Delta 를 관찰한다.
+    private final ConnectionStateModel connectionStates = new ConnectionStateModel();
+
+    // 기기별 이력 (앱을 다시 켜도 남는다). 열지 못하면 null
+    @Nullable
+    private volatile EventJournal journal;
+
+    // 기기 추가 화면과 재연결이 같이 쓰는 스캐너
+    private BleScanner scanner;
 
     private BroadcastReceiver bluetoothStateReceiver;
+    private BroadcastReceiver timeChangeReceiver;
+
+    // 전원 예약은 벽시계 알람으로 (휠은 uptime 이라 기기가 잠든 동안 멈춘다)
+    private AlarmManager alarmManager;
 
     public class LocalBinder extends Binder {
         public BleForegroundService getService() {
@@ -65,38 +135,144 @@ public class BleForegroundService extends Service {
         return binder;
     }
 
+    public void addEventListener(BleEventBus.Listener listener, Executor executor) {
+        eventBus.addListener(listener, executor);
+    }
+
+    public void removeEventListener(BleEventBus.Listener listener) {
+        eventBus.removeListener(listener);
+    }
 
-    private final long HEARTBEAT_INTERVAL_MS = 5000;
+
+    // device.ino 의 fail-safe 타임아웃. CAPS 에 값이 없을 때(구형 펌웨어, 텍스트 모드) 쓴다.
+    private static final long DEFAULT_FAILSAFE_TIMEOUT_MS = 10000;
+    // 여러 기기의 PING 을 한 번에 깨어나서 보내는 창, 기기 사이 간격과 jitter
+    private static final long HEARTBEAT_ALIGN_WINDOW_MS = 1000;
+    private static final long HEARTBEAT_SPACING_MS = 20;
+    private static final long HEARTBEAT_JITTER_MS = 30;
+
+    private final Random random = new Random();
+
+    private final HeartbeatScheduler heartbeat = new HeartbeatScheduler(
+            HEARTBEAT_ALIGN_WINDOW_MS, HEARTBEAT_SPACING_MS, HEARTBEAT_JITTER_MS, random);
+    private TimingWheel.Timer heartbeatTimer;
+
+    // 동시에 진행하는 connectGatt 수. 나머지는 우선순위 큐에서 기다린다.
+    private static final int DEFAULT_MAX_CONCURRENT_CONNECTS = 2;
+    // 시작한 연결이 이 시간 안에 READY/실패가 안 되면 자리를 비워 다음 기기를 들여보낸다
+    private static final long CONNECT_SLOT_TIMEOUT_MS = 15000;
+    // 사용자가 조작한 뒤 이 시간 동안은 그 기기를 먼저 연결한다
+    private static final long USER_ACTION_BOOST_MS = 60000;
+
+    private volatile int connectQueueDepth = 0;
+    private volatile int connectingCount = 0;
+
+    // 자동 재연결: 2초부터 최대 1분까지 지수적으로 (jitter 포함).
+    // 8번 연속 실패하면 10분 쉬고, 쉬고 나서도 실패하면 두 배씩 최대 1시간까지 쉰다.
+    private static final long RECONNECT_BASE_MS = 2000;
+    private static final long RECONNECT_CAP_MS = 60000;
+    private static final int RECONNECT_FAILURE_THRESHOLD = 8;
+    private static final long RECONNECT_PARK_MS = 10 * 60 * 1000L;
+    private static final long RECONNECT_MAX_PARK_MS = 60 * 60 * 1000L;
+    // 재연결 대기에 들어갈 때 이 안에 광고가 보였으면 스캔 없이 바로 연결
+    private static final long ADVERTISEMENT_FRESH_MS = 3000;
+
+    private final ConnectionScheduler connectScheduler = new ConnectionScheduler(
+            DEFAULT_MAX_CONCURRENT_CONNECTS, this::onConnectAdmitted);
+    // 화면에 보이는 기기 (MacUtils.toLong)
+    private final LongHashMap<Boolean> visibleDevices = new LongHashMap<>();
+
+    // GATT 요청 재시도
+    private static final int MAX_OP_ATTEMPTS = 3;
+    private static final long OP_RETRY_DELAY_MS = 100;
+
+    // 전원 명령 병합: 마지막 토글 후 이 시간 동안 조용하면 전송
+    private static final long POWER_SETTLE_MS = 300;
+    // device.ino 의 서보 1회 누름 시간 (400ms x 2)
+    private static final long SERVO_PRESS_MS = 800;
+
+    // 바이너리 프레임 핸드셰이크 응답 대기 (없으면 텍스트 모드 유지)
+    private static final long HANDSHAKE_TIMEOUT_MS = 2000;
+
+    // ATT MTU: 기본 23 (payload 20). HM-10 은 보통 23 그대로 응답한다.
+    private static final int DEFAULT_ATT_MTU = 23;
+    private static final int REQUESTED_MTU = 247;
+    private static final int ATT_WRITE_OVERHEAD = 3;
 
     @Override
     public void onCreate() {
         super.onCreate();
         Log.d(TAG, "onCreate");
 
+        worker = new BleWorker("ble-worker");
+        bleHandler = worker.getHandler();
+        timers = new TimingWheel(TIMER_TICK_MS, TIMER_WHEEL_SIZE, SystemClock::uptimeMillis,
+                atMs -> {
+                    bleHandler.removeCallbacks(timerTick);
+                    bleHandler.postAtTime(timerTick, atMs);
+                });
+        heartbeatTimer = timers.newTimer(this::runHeartbeat);
+        transportFactory = GattTransport.factory(this);
+
         registerBluetoothStateReceiver();
+        registerTimeChangeReceiver();
+        alarmManager = getSystemService(AlarmManager.class);
+        scanner = new BleScanner(this);
+
+        try {
+            journal = new EventJournal(new File(getFilesDir(), "journal"));
+        } catch (IOException e) {
+            Log.w(TAG, "event journal disabled", e);
+        }
+
+        loadRegistry();
+        for (SmartStrip strip : registry.getStrips()) {
+            connect(strip.getMacAddress(), ConnectionScheduler.PRIORITY_BACKGROUND);
+        }
+        armPowerSchedules();
 
-        startHeartbeat();
     }
 
-    private void startHeartbeat() {
-        mainHandler.postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                for (Map.Entry<String, DeviceConnection> entry : connections.entrySet()) {
-                    String mac = entry.getKey();
-                    DeviceConnection dc = entry.getValue();
-                    if (dc.isReady()) {
-                        dc.send("PING\n");
-                    }
-                }
-                mainHandler.postDelayed(this, HEARTBEAT_INTERVAL_MS);
-            }
-        }, HEARTBEAT_INTERVAL_MS);
+    // ───────────────────── 하트비트 ─────────────────────
+
+    // 기기는 타임아웃 안에 아무 메시지도 못 받으면 전원을 끈다. 절반마다 한 번은 보낸다.
+    private static long heartbeatIntervalFor(long failSafeTimeoutMs) {
+        return failSafeTimeoutMs / 2;
+    }
+
+    private final HeartbeatScheduler.Sink heartbeatSink = (key, delayMs) -> {
+        DeviceConnection dc = connectionFor(key);
+        if (dc == null) return;
+        if (delayMs == 0) {
+            dc.sendHeartbeat();
+        } else {
+            dc.heartbeatPing.schedule(delayMs);
+        }
+    };
+
+    private void runHeartbeat() {
+        heartbeat.poll(SystemClock.uptimeMillis(), heartbeatSink);
+        rescheduleHeartbeat();
+    }
+
+    // 다음 PING 이 필요한 시각에 한 번만 깨어난다. 기기가 추가되거나 주기가 바뀌면 다시 잡는다.
+    private void rescheduleHeartbeat() {
+        long next = heartbeat.nextDueMs();
+        if (next >= 0) {
+            heartbeatTimer.scheduleAt(next);
+        } else {
+            heartbeatTimer.cancel();
+        }
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         Log.d(TAG, "onStartCommand");
+        if (intent != null && ACTION_RUN_POWER_SCHEDULE.equals(intent.getAction())) {
+            // 알람이 startForegroundService 로 깨웠다: 5초 안에 포그라운드로 올라가야 한다
+            startForegroundInternal();
+            runPowerSchedule(intent.getLongExtra(EXTRA_SCHEDULE_ID, -1));
+        }
         return START_STICKY;
     }
 
@@ -110,11 +286,110 @@ public class BleForegroundService extends Service {
                 unregisterReceiver(bluetoothStateReceiver);
             } catch (IllegalArgumentException ignored) {}
         }
+        if (timeChangeReceiver != null) {
+            try {
+                unregisterReceiver(timeChangeReceiver);
+            } catch (IllegalArgumentException ignored) {}
+        }
 
-        for (DeviceConnection dc : connections.values()) {
-            dc.close();
+        scanner.stopAll();
+
+        if (stripStore != null) {
+            try {
+                stripStore.close();
+            } catch (IOException ignored) {}
+            stripStore = null;
         }
-        connections.clear();
+
+        // 연결 정리와 저널 닫기는 worker 의 마지막 작업으로
+        worker.execute(() -> {
+            timers.clear();
+            bleHandler.removeCallbacksAndMessages(null);
+            for (DeviceConnection dc : connectionList()) {
+                dc.close();
+            }
+            synchronized (connections) {
+                connections.clear();
+            }
+            EventJournal j = journal;
+            journal = null;
+            if (j != null) {
+                try {
+                    j.close();
+                } catch (IOException ignored) {}
+            }
+        });
+        worker.quit();
+    }
+
+    // ───────────────────── 멀티탭 목록 ─────────────────────
+
+    private void loadRegistry() {
+        try {
+            stripStore = new StripStore(new File(getFilesDir(), STRIP_STORE_FILE));
+        } catch (IOException e) {
+            Log.w(TAG, "strip store unavailable", e);
+            stripStore = null;
+        }
+
+        List<SmartStrip> loaded = Collections.emptyList();
+        List<PowerSchedule> loadedSchedules = Collections.emptyList();
+        if (stripStore != null) {
+            try {
+                loaded = stripStore.load();
+                loadedSchedules = stripStore.getLoadedSchedules();
+            } catch (IOException e) {
+                // 슬롯 배치를 모르는 파일에 쓰면 멀쩡한 기록을 덮을 수 있다: 이번 실행은 저장하지 않는다
+                Log.w(TAG, "strip store load failed, changes will not be saved", e);
+                try {
+                    stripStore.close();
+                } catch (IOException ignored) {}
+                stripStore = null;
+            }
+        }
+        registry = new StripRegistry(stripStore);
+        registry.load(loaded, loadedSchedules);
+        if (registry.size() == 0) {
+            migrateLegacyStrips();
+        }
+        Log.d(TAG, "registry loaded: " + registry.size() + " strips, "
+                + registry.getSchedules().size() + " schedules");
+    }
+
+    // 예전 버전이 SharedPreferences 에 JSON 으로 저장한 목록을 옮긴다. 한 번만 실행됨.
+    private void migrateLegacyStrips() {
+        SharedPreferences prefs = getSharedPreferences(LEGACY_PREFS_NAME, MODE_PRIVATE);
+        String json = prefs.getString(LEGACY_KEY_STRIPS_JSON, null);
+        if (json == null || json.isEmpty() || stripStore == null) {
+            return;
+        }
+
+        try {
+            JSONArray arr = new JSONArray(json);
+            for (int i = 0; i < arr.length(); i++) {
+                registry.add(legacyStripFromJson(arr.getJSONObject(i)));
+            }
+            stripStore.sync();
+            prefs.edit().remove(LEGACY_KEY_STRIPS_JSON).apply();
+            Log.d(TAG, "migrated " + registry.size() + " strips from prefs");
+        } catch (JSONException | IOException e) {
+            Log.w(TAG, "legacy strip migration failed", e);
+        }
+    }
+
+    // 예전 SmartStrip.toJson() 형식: {"name", "mac", "on"}
+    private static SmartStrip legacyStripFromJson(JSONObject obj) throws JSONException {
+        String name = obj.optString("name", "이름 없음");
+        String mac = obj.getString("mac");
+        boolean on = obj.optBoolean("on", false);
+        return new SmartStrip(name, mac, on);
+    }
+
+    // [fromMs, toMs) 구간의 이력을 gzip 텍스트로 내보낸다. 백그라운드 스레드에서 호출.
+    public int exportJournal(long fromMs, long toMs, OutputStream out) throws IOException {
+        EventJournal j = journal;
+        if (j == null) throw new IOException("journal not available");
+        return j.exportGzip(fromMs, toMs, out);
     }
 
 
@@ -131,7 +406,10 @@ public class BleForegroundService extends Service {
 
                     if (state == BluetoothAdapter.STATE_ON) {
                         Log.d(TAG, "Bluetooth STATE_ON -> reconnect all devices");
-                        onBluetoothTurnedOn();
+                        worker.execute(BleForegroundService.this::onBluetoothTurnedOn);
+                    } else if (state == BluetoothAdapter.STATE_TURNING_OFF) {
+                        // 구독자들에게 끝났다고 알리고 스캔 정리
+                        scanner.stopAll();
                     }
                 }
             }
@@ -141,18 +419,59 @@ public class BleForegroundService extends Service {
         registerReceiver(bluetoothStateReceiver, filter);
     }
 
-    private void onBluetoothTurnedOn() {
-        for (Map.Entry<String, DeviceConnection> entry : connections.entrySet()) {
-            String mac = entry.getKey();
-            DeviceConnection dc = entry.getValue();
+    // RTC 알람은 시계 변경을 따라가지만, 시간대가 바뀌면 같은 "23:00" 이 다른 순간이 된다
+    private void registerTimeChangeReceiver() {
+        timeChangeReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                Log.d(TAG, intent.getAction() + " -> re-arm power schedules");
+                armPowerSchedules();
+            }
+        };
 
+        IntentFilter filter = new IntentFilter(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        registerReceiver(timeChangeReceiver, filter);
+    }
+
+    private void onBluetoothTurnedOn() {
+        // 꺼질 때 진행 중이던 연결은 콜백 없이 사라졌다
+        connectScheduler.resetInFlight();
+        publishConnectStats();
+        for (DeviceConnection dc : connectionList()) {
             if (!dc.userRequestedClose) {
-                broadcastLog(mac, "Bluetooth ON → reconnect");
-                dc.connect();
+                // 꺼져 있던 동안의 판단은 믿을 수 없다: 다시 모두 보고할 때까지 UNKNOWN
+                presence.reset(dc.key);
+                broadcastLog(dc.mac, "Bluetooth ON → reconnect");
+                dc.connect(ConnectionScheduler.PRIORITY_BACKGROUND);
             }
         }
     }
 
+    // ───────────────────── 연결 순서 ─────────────────────
+
+    private void onConnectAdmitted(long key) {
+        DeviceConnection dc = connectionFor(key);
+        if (dc == null) {
+            connectScheduler.onFinished(key);
+            publishConnectStats();
+            return;
+        }
+        dc.connectSlotTimeout.schedule(CONNECT_SLOT_TIMEOUT_MS);
+        dc.startConnect();
+    }
+
+    private int effectivePriority(long key, int priority, long lastUserActionAt) {
+        if (lastUserActionAt > 0
+                && SystemClock.uptimeMillis() - lastUserActionAt < USER_ACTION_BOOST_MS) {
+            return ConnectionScheduler.PRIORITY_USER;
+        }
+        if (priority > ConnectionScheduler.PRIORITY_VISIBLE && visibleDevices.containsKey(key)) {
+            return ConnectionScheduler.PRIORITY_VISIBLE;
+        }
+        return priority;
+    }
+
     // ───────────────────── Foreground 알림 설정 ─────────────────────
 
     private void startForegroundInternal() {
@@ -191,223 +510,1243 @@ public class BleForegroundService extends Service {
 
     // ───────────────────── 외부에서 사용할 공개 API ─────────────────────
 
+    public StripRegistry getRegistry() {
+        return registry;
+    }
+
+    public BleScanner getScanner() {
+        return scanner;
+    }
+
+    public ConnectionStateModel getConnectionStates() {
+        return connectionStates;
+    }
+
+    // 사용자가 직접 요청한 연결 (새 기기 등록 등)
     public void connect(String macAddress) {
-        if (macAddress == null) return;
-        Log.d(TAG, "connect() requested for mac=" + macAddress);
+        connect(macAddress, ConnectionScheduler.PRIORITY_USER);
+    }
 
-        DeviceConnection dc = connections.get(macAddress);
-        if (dc == null) {
-            dc = new DeviceConnection(macAddress);
-            connections.put(macAddress, dc);
+    private void connect(String macAddress, int priority) {
+        String mac = MacUtils.normalize(macAddress);
+        if (mac == null) {
+            Log.w(TAG, "connect: invalid mac=" + macAddress);
+            return;
+        }
+        Log.d(TAG, "connect() requested for mac=" + mac);
+
+        worker.execute(() -> {
+            long key = MacUtils.toLong(mac);
+            DeviceConnection dc = connectionFor(key);
+            if (dc == null) {
+                dc = new DeviceConnection(mac);
+                synchronized (connections) {
+                    connections.put(key, dc);
+                }
+            }
+            // 연결 순서를 기다리는 동안에도 집 전체 판단에 넣는다
+            presence.track(key);
+            dc.connect(priority);
+        });
+    }
+
+    // 화면에 보이는 멀티탭. 연결 대기 중이면 앞으로 당긴다.
+    public void setVisibleDevices(List<String> macAddresses) {
+        long[] keys = new long[macAddresses.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = MacUtils.toLong(macAddresses.get(i));
+        }
+        worker.execute(() -> {
+            visibleDevices.clear();
+            for (long key : keys) {
+                if (key == MacUtils.INVALID) continue;
+                visibleDevices.put(key, Boolean.TRUE);
+                DeviceConnection dc = connectionFor(key);
+                if (dc != null && connectScheduler.isQueued(key)) {
+                    dc.requestConnect(ConnectionScheduler.PRIORITY_VISIBLE);
+                }
+            }
+        });
+    }
+
+    // 이후에 시작하는 연결부터 적용된다. 이미 연결된 기기는 다시 연결해야 바뀐다.
+    public void setTransportFactory(BleTransport.Factory factory) {
+        if (factory == null) throw new IllegalArgumentException("factory == null");
+        worker.execute(() -> transportFactory = factory);
+    }
+
+    public void setMaxConcurrentConnects(int max) {
+        if (max < 1) throw new IllegalArgumentException("max < 1");
+        worker.execute(() -> {
+            connectScheduler.setMaxInFlight(max);
+            publishConnectStats();
+        });
+    }
+
+    // 연결 차례를 기다리는 기기 수 / 진행 중인 연결 시도 수 (어느 스레드에서나)
+    public int getConnectQueueDepth() {
+        return connectQueueDepth;
+    }
+
+    public int getConnectingCount() {
+        return connectingCount;
+    }
+
+    // 스케줄러는 worker 전용이라 밖에서 읽을 값만 따로 둔다
+    private void publishConnectStats() {
+        connectQueueDepth = connectScheduler.getQueueDepth();
+        connectingCount = connectScheduler.getInFlightCount();
+    }
+
+    @Nullable
+    private DeviceConnection connectionFor(String macAddress) {
+        return connectionFor(MacUtils.toLong(macAddress));
+    }
+
+    @Nullable
+    private DeviceConnection connectionFor(long key) {
+        synchronized (connections) {
+            return connections.get(key);
         }
-        dc.connect();
+    }
+
+    // 잠근 채로 연결을 다루지 않도록 목록을 복사해서 돌려준다
+    private List<DeviceConnection> connectionList() {
+        ArrayList<DeviceConnection> list = new ArrayList<>();
+        synchronized (connections) {
+            connections.forEach((key, dc) -> list.add(dc));
+        }
+        return list;
     }
 
     public void sendCommand(String macAddress, String msg) {
+        sendCommand(macAddress, msg, null);
+    }
+
+    // callback 은 기기 응답(ACK/PONG/상태)이 오거나 실패가 확정되면 메인 스레드에서 호출된다.
+    public void sendCommand(String macAddress, String msg,
+                            @Nullable CommandTracker.Callback callback) {
         if (macAddress == null || msg == null) return;
 
-        DeviceConnection dc = connections.get(macAddress);
+        CommandTracker.Callback uiCallback = callback == null ? null
+                : (cmd, result, rttMs) -> mainHandler.post(
+                        () -> callback.onCommandComplete(cmd, result, rttMs));
+        worker.execute(() -> sendCommandOnWorker(macAddress, msg, uiCallback));
+    }
+
+    private void sendCommandOnWorker(String macAddress, String msg,
+                                     @Nullable CommandTracker.Callback callback) {
+        DeviceConnection dc = connectionFor(macAddress);
         if (dc != null) {
-            dc.send(msg);
+            dc.touchByUser();
+            dc.sendOrQueue(msg, callback);
         } else {
             Log.w(TAG, "sendCommand: no connection object for mac=" + macAddress);
             broadcastLog(macAddress,
                     "sendCommand 호출됨, 하지만 아직 DeviceConnection 없음.");
+            if (callback != null) {
+                callback.onCommandComplete(msg.trim(), CommandTracker.Result.FAILED, -1);
+            }
+        }
+    }
+
+    // ───────────────────── 그룹 명령 ("모두 끄기") ─────────────────────
+
+    // 그룹 명령 마감 전에 연결이 끊긴 기기에 다시 보내는 횟수 (처음 포함)
+    private static final int GROUP_MAX_ATTEMPTS = 3;
+
+    // 여러 기기에 같은 명령을 동시에 보낸다. 기기마다 자기 연결의 큐로 들어가므로
+    // READY 인 기기는 바로, 아닌 기기는 사용자 우선순위로 연결한 뒤 보낸다.
+    // 전체 시간은 가장 느린 기기만큼 걸린다 (합이 아님).
+    // listener 는 모두 끝났거나 timeoutMs 가 지나면 메인 스레드에서 한 번 호출된다.
+    // 마감까지 끝나지 않은 기기는 PENDING 으로 보고되고, 명령은 큐에 남아 연결되면 나간다.
+    public void sendGroupCommand(Collection<String> macAddresses, String msg, long timeoutMs,
+                                 @Nullable GroupCommand.Listener listener) {
+        if (macAddresses == null || msg == null) return;
+        List<String> macs = new ArrayList<>(macAddresses);
+        worker.execute(() -> sendGroupCommandOnWorker(macs, msg, timeoutMs, listener));
+    }
+
+    private void sendGroupCommandOnWorker(List<String> macs, String msg, long timeoutMs,
+                                          @Nullable GroupCommand.Listener listener) {
+        long now = SystemClock.uptimeMillis();
+        String command = msg.trim();
+        GroupCommand group = new GroupCommand(command, macs, now, timeoutMs, GROUP_MAX_ATTEMPTS);
+        TimingWheel.Timer deadline = timers.newTimer(() -> {
+            group.expire();
+            finishGroup(group, listener);
+        });
+
+        for (String mac : group.getMacs()) {
+            DeviceConnection dc = connectionFor(mac);
+            if (dc == null) {
+                group.onResult(mac, CommandTracker.Result.FAILED, -1, now);
+                continue;
+            }
+            dc.touchByUser();
+            dc.sendOrQueue(msg, new CommandTracker.Callback() {
+                @Override
+                public void onCommandComplete(String cmd, CommandTracker.Result result, long rttMs) {
+                    if (group.onResult(mac, result, rttMs, SystemClock.uptimeMillis())) {
+                        // 응답 전에 끊김: 재연결되면 나가도록 다시 넣는다 (연결 정리가 끝난 뒤에)
+                        broadcastLog(mac, "그룹 명령 " + command + " 다시 대기 (연결 끊김)");
+                        CommandTracker.Callback self = this;
+                        bleHandler.post(() -> dc.sendOrQueue(msg, self));
+                        return;
+                    }
+                    if (group.isFinished()) {
+                        deadline.cancel();
+                        finishGroup(group, listener);
+                    }
+                }
+            });
+        }
+
+        if (group.isFinished()) {
+            finishGroup(group, listener);
+        } else {
+            deadline.schedule(timeoutMs);
+        }
+    }
+
+    // 처음 끝났을 때 한 번만 알린다 (마감 뒤에 늦게 온 응답은 무시)
+    private void finishGroup(GroupCommand group, @Nullable GroupCommand.Listener listener) {
+        if (!group.takeCompletion()) return;
+        GroupCommand.Result result = group.snapshot(SystemClock.uptimeMillis());
+        Log.d(TAG, "group " + result.getCommand()
+                + ": ok=" + result.count(GroupCommand.Outcome.SUCCEEDED)
+                + " failed=" + result.count(GroupCommand.Outcome.FAILED)
+                + " pending=" + result.count(GroupCommand.Outcome.PENDING)
+                + " " + result.getElapsedMs() + "ms");
+        if (listener != null) {
+            mainHandler.post(() -> listener.onGroupComplete(result));
+        }
+    }
+
+    // ───────────────────── 전원 예약 ─────────────────────
+
+    // AlarmManager 가 서비스로 보내는 예약 실행 요청 (requestCode = 예약 id).
+    // 서비스가 멈춰 있어도 시작되도록 O 부터는 포그라운드 서비스로 보낸다.
+    private static final String ACTION_RUN_POWER_SCHEDULE = "com.energysaver.action.RUN_POWER_SCHEDULE";
+    private static final String EXTRA_SCHEDULE_ID = "schedule_id";
+
+    // 매일 예약을 실행한 직후 다음 시각을 잡을 때 더하는 여유.
+    // 알람은 정각이나 그 뒤에 오지만, 그 직후 시계가 조금 뒤로 보정되면(NTP) 방금 실행한 시각이
+    // 다시 잡힐 수 있다 (같은 날 두 번 실행 방지).
+    private static final long SCHEDULE_REARM_GUARD_MS = 60_000;
+
+    // 예약을 등록하고 다음 실행 시각에 건다. 멀티탭이 등록되어 있지 않으면 null. 메인 스레드에서 호출.
+    @Nullable
+    public PowerSchedule addPowerSchedule(PowerSchedule schedule) {
+        PowerSchedule stored = registry.addSchedule(schedule);
+        if (stored == null) return null;
+        broadcastLog(stored.getMacAddress(),
+                "예약 추가: " + stored.describe(TimeZone.getDefault()));
+        armPowerSchedule(stored, System.currentTimeMillis());
+        return stored;
+    }
+
+    // 멀티탭 삭제: 목록과 저장소에서 지우고 (예약 포함) 걸려 있던 예약 알람도 취소한 뒤 연결을 끊는다.
+    // 메인 스레드에서 호출.
+    @Nullable
+    public SmartStrip removeStrip(String macAddress) {
+        List<PowerSchedule> schedules = registry.getSchedules(macAddress);
+        SmartStrip removed = registry.remove(macAddress);
+        if (removed == null) return null;
+        for (PowerSchedule p : schedules) {
+            cancelScheduleAlarm(p.getId());
+        }
+        disconnect(removed.getMacAddress());
+        return removed;
+    }
+
+    public boolean removePowerSchedule(long id) {
+        PowerSchedule removed = registry.removeSchedule(id);
+        if (removed == null) return false;
+        broadcastLog(removed.getMacAddress(),
+                "예약 삭제: " + removed.describe(TimeZone.getDefault()));
+        cancelScheduleAlarm(id);
+        return true;
+    }
+
+    public List<PowerSchedule> getPowerSchedules(String macAddress) {
+        return registry.getSchedules(macAddress);
+    }
+
+    // 시작할 때와 시계/시간대가 바뀌었을 때 전부 다시 건다
+    private void armPowerSchedules() {
+        long now = System.currentTimeMillis();
+        for (PowerSchedule p : registry.getSchedules()) {
+            armPowerSchedule(p, now);
+        }
+    }
+
+    // 다음 벽시계 시각에 RTC_WAKEUP 알람을 건다 (같은 예약의 이전 알람은 대체).
+    // 화면이 꺼져 잠든 동안에도 제시각에 깨어난다. 이미 지난 한 번 예약은 바로 실행된다.
+    private void armPowerSchedule(PowerSchedule p, long afterEpochMs) {
+        if (alarmManager == null) return;
+        long at = p.nextFireAfter(afterEpochMs, TimeZone.getDefault());
+        PendingIntent pi = scheduleIntent(p.getId(), PendingIntent.FLAG_UPDATE_CURRENT);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarmManager.canScheduleExactAlarms()) {
+            // 정확한 알람 권한이 꺼져 있으면 Doze 에서도 울리는 부정확한 알람 (몇 분 늦을 수 있음)
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, at, pi);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, at, pi);
+        } else {
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, at, pi);
         }
     }
 
+    private void cancelScheduleAlarm(long id) {
+        if (alarmManager == null) return;
+        PendingIntent pi = scheduleIntent(id, PendingIntent.FLAG_NO_CREATE);
+        if (pi != null) {
+            alarmManager.cancel(pi);
+            pi.cancel();
+        }
+    }
+
+    private PendingIntent scheduleIntent(long id, int flags) {
+        Intent intent = new Intent(this, BleForegroundService.class)
+                .setAction(ACTION_RUN_POWER_SCHEDULE)
+                .putExtra(EXTRA_SCHEDULE_ID, id);
+        int piFlags = flags | (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+                ? PendingIntent.FLAG_IMMUTABLE : 0);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            return PendingIntent.getForegroundService(this, (int) id, intent, piFlags);
+        }
+        return PendingIntent.getService(this, (int) id, intent, piFlags);
+    }
+
+    // 메인 스레드: 화면에서 토글한 것과 같은 경로 (목록 상태 → sendCommand)
+    private void runPowerSchedule(long id) {
+        if (registry == null) return;
+        PowerSchedule p = registry.getSchedule(id);
+        if (p == null) return;   // 그사이 지워짐
+
+        String mac = p.getMacAddress();
+        String what = p.describe(TimeZone.getDefault());
+        if (p.getRepeat() == PowerSchedule.Repeat.ONCE) {
+            registry.removeSchedule(id);
+            cancelScheduleAlarm(id);
+        } else {
+            armPowerSchedule(p, System.currentTimeMillis() + SCHEDULE_REARM_GUARD_MS);
+        }
+
+        broadcastLog(mac, "예약 실행: " + what);
+        registry.setOn(mac, p.isOn());
+        sendCommand(mac, p.getCommand() + "\n", (cmd, result, rttMs) -> {
+            if (result != CommandTracker.Result.ACKED
+                    && result != CommandTracker.Result.SUPERSEDED) {
+                broadcastLog(mac, "예약 " + what + " 실패: " + result);
+            }
+        });
+    }
+
+    // 기기별 링크 왕복시간 (서보 동작 시간 제외). 측정값이 없으면 -1
+    public long getSmoothedRttMs(String macAddress) {
+        DeviceConnection dc = connectionFor(macAddress);
+        return dc != null ? dc.tracker.getRtt().getSrttMs() : -1;
+    }
+
+    public long getRetransmitTimeoutMs(String macAddress) {
+        DeviceConnection dc = connectionFor(macAddress);
+        return dc != null ? dc.tracker.getRtt().getRtoMs() : RttEstimator.INITIAL_RTO_MS;
+    }
+
+    public long[] getRttHistogram(String macAddress) {
+        DeviceConnection dc = connectionFor(macAddress);
+        return dc != null ? dc.tracker.getHistogram().snapshot()
+                : new long[LatencyHistogram.BUCKETS];
+    }
+
+    // 기기별 연결 품질 (진단 화면). 어느 스레드에서나 호출 가능
+    public List<DeviceMetrics.Snapshot> getMetricsSnapshots() {
+        List<DeviceMetrics.Snapshot> list = new ArrayList<>();
+        for (DeviceConnection dc : connectionList()) {
+            list.add(dc.metrics.snapshot());
+        }
+        return list;
+    }
+
+    @Nullable
+    public DeviceMetrics.Snapshot getMetricsSnapshot(String macAddress) {
+        DeviceConnection dc = connectionFor(macAddress);
+        return dc != null ? dc.metrics.snapshot() : null;
+    }
+
+    // 설정을 바꾸기 전후를 비교할 때
+    public void resetMetrics() {
+        for (DeviceConnection dc : connectionList()) {
+            dc.metrics.reset();
+        }
+    }
+
+    private static Boolean parsePowerCommand(String msg) {
+        String cmd = msg.trim();
+        if ("ON".equalsIgnoreCase(cmd)) return Boolean.TRUE;
+        if ("OFF".equalsIgnoreCase(cmd)) return Boolean.FALSE;
+        return null;
+    }
+
+    // 다시 보내도 상태가 바뀌지 않는 명령은 write-without-response 로 보낸다.
+    private static boolean isIdempotent(String msg) {
+        String cmd = msg.trim();
+        return "PING".equalsIgnoreCase(cmd)
+                || "STATUS".equalsIgnoreCase(cmd)
+                || UartCodec.HELLO_TEXT.equalsIgnoreCase(cmd);
+    }
+
+    // 응답 전에 기기가 소비하는 시간. 구형 펌웨어는 ON/OFF 의 서보 동작이 끝난 뒤 ACK 를 보낸다.
+    // (명령 큐가 있는 펌웨어는 받자마자 ACK 하므로 0)
+    private static long processingTimeFor(String command) {
+        return parsePowerCommand(command) != null ? SERVO_PRESS_MS : 0;
+    }
+
+    private static GattOperation.Priority priorityFor(String msg) {
+        String cmd = msg.trim();
+        if ("OFF".equalsIgnoreCase(cmd)) return GattOperation.Priority.SAFETY;
+        if ("PING".equalsIgnoreCase(cmd)) return GattOperation.Priority.BACKGROUND;
+        return GattOperation.Priority.COMMAND;
+    }
+
     public void disconnect(String macAddress) {
         if (macAddress == null) return;
 
-        DeviceConnection dc = connections.get(macAddress);
-        if (dc != null) {
-            dc.manualClose();
-        }
+        worker.execute(() -> {
+            DeviceConnection dc = connectionFor(macAddress);
+            if (dc != null) {
+                dc.manualClose();
+            }
+        });
     }
 
     public boolean isConnected(String macAddress) {
-        DeviceConnection dc = connections.get(macAddress);
-        return dc != null && dc.isReady();
+        DeviceConnection dc = connectionFor(macAddress);
+        return dc != null && dc.uartReady;
+    }
+
+    // ───────────────────── 재실 감지 (RSSI) ─────────────────────
+    // 연결된 멀티탭의 RSSI 로 집을 떠났는지 본다. 모두 DEPARTED 가 되면 연결된 멀티탭을 끈다.
+    // 이때 끄는 것은 일시적이라 저장된 ON/OFF 는 바꾸지 않고, 돌아오면 저장된 상태로 복원한다.
+    // 한 멀티탭만 약해진 것(다른 방)으로는 끄지 않는다. 연결을 기다리는 멀티탭도 판단 대상이라
+    // 먼저 연결된 하나만으로는 집 전체가 DEPARTED 가 되지 않는다. worker 에서만 사용.
+
+    private final PresenceDetector presence = new PresenceDetector(
+            PresenceDetector.Config.DEFAULT, new PresenceDetector.Listener() {
+        @Override
+        public void onPresenceChanged(long key, PresenceDetector.Presence p) {
+            broadcastLog(MacUtils.toString(key), "재실 판단: " + p
+                    + " (RSSI " + presence.getFilteredRssi(key) + "dBm)");
+        }
+
+        @Override
+        public void onHomePresenceChanged(PresenceDetector.Presence p) {
+            homePresence = p;
+            if (p == PresenceDetector.Presence.DEPARTED) {
+                onHomeDeparted();
+            } else if (p == PresenceDetector.Presence.PRESENT && departureOffActive) {
+                onHomeReturned();
+            }
+        }
+    });
+
+    private volatile PresenceDetector.Presence homePresence = PresenceDetector.Presence.UNKNOWN;
+    private volatile boolean autoOffOnDeparture = true;
+    private boolean departureOffActive = false;   // 떠나서 꺼 둔 상태 (worker 전용)
+
+    public PresenceDetector.Presence getHomePresence() {
+        return homePresence;
+    }
+
+    // 문턱/유지 시간/샘플링 간격 변경. 다음 샘플부터 적용된다.
+    public void setPresenceConfig(PresenceDetector.Config config) {
+        if (config == null) return;
+        worker.execute(() -> presence.setConfig(config));
+    }
+
+    // false 면 판단만 하고 끄지 않는다 (기기의 연결 끊김 타임아웃만 동작)
+    public void setAutoOffOnDeparture(boolean enabled) {
+        autoOffOnDeparture = enabled;
+    }
+
+    private void onHomeDeparted() {
+        if (!autoOffOnDeparture) {
+            broadcastLog(null, "집을 떠난 것으로 판단 (자동 끄기 꺼짐)");
+            return;
+        }
+        departureOffActive = true;
+        broadcastLog(null, "집을 떠난 것으로 판단 → 연결된 멀티탭 모두 끄기 (저장된 ON/OFF 는 유지)");
+        for (DeviceConnection dc : connectionList()) {
+            if (dc.isReady()) dc.requestPower(false, null);
+        }
+    }
+
+    private void onHomeReturned() {
+        departureOffActive = false;
+        broadcastLog(null, "돌아온 것으로 판단 → 저장된 상태로 복원");
+        for (DeviceConnection dc : connectionList()) {
+            if (dc.isReady()) dc.syncPowerState();
+        }
     }
 
     // ───────────────────── 기기별 연결 관리 클래스 ─────────────────────
 
-    private class DeviceConnection extends BluetoothGattCallback {
+    private class DeviceConnection implements BleTransport.Callback, UartStreamDecoder.Listener {
 
         private final String mac;
-        private BluetoothGatt gatt;
-        private BluetoothGattCharacteristic uartChar;
+        private final long key;            // MacUtils.toLong(mac)
+        private BleTransport link;
+        private boolean uartFound = false;  // 서비스 탐색에서 UART 특성을 찾았는지
 
         private boolean userRequestedClose = false;
 
-        // 재연결 관련
-        private int reconnectAttempts = 0;
-        private final int maxReconnectAttempts = 5;
-        private final long baseDelayMs = 2000;           // 2초
-        private final long maxDelayMs  = 30000;          // 최대 30초
+        // GATT 요청 큐 (in-flight 최대 1개, 콜백으로 완료 처리)
+        private final GattOperationQueue opQueue = new GattOperationQueue();
+        private final TimingWheel.Timer opTimeout = timers.newTimer(this::onOperationTimeout);
+        private final TimingWheel.Timer drainLater = timers.newTimer(this::drainQueue);
+        private volatile boolean uartReady = false;   // 화면 스레드에서도 읽음
+
+        // 전원 명령 병합 상태
+        private Boolean pendingPower;          // 아직 보내지 않은 마지막 요청
+        private Boolean lastSentPower;         // 이번 연결에서 마지막으로 보낸 상태
+        private int supersededPower = 0;       // 병합되어 사라진 요청 수
+        private CommandTracker.Callback pendingPowerCallback;
+        private long lastPowerTxAt = 0;
+        // 기기의 명령 큐 (CAPS 의 Q=). -1 = 큐 없는 구형 펌웨어: 서보가 끝날 때까지 다음 명령을 보내지 않는다
+        private int deviceQueueSize = -1;
+        private int deviceQueueDepth = 0;     // 마지막 응답에 실린 대기 + 실행 중 명령 수
+        private final TimingWheel.Timer powerFlush = timers.newTimer(this::flushPower);
+
+        // UART 프로토콜: READY 후 HELLO → CAPS 응답이 오면 바이너리 프레임 사용
+        private final UartStreamDecoder decoder = new UartStreamDecoder(this);
+        private boolean binaryMode = false;
+        private int txSeq = 0;
+        private final TimingWheel.Timer handshakeTimeout =
+                timers.newTimer(this::onHandshakeTimeout);
+
+        // 협상된 ATT MTU (한 번에 쓸 수 있는 바이트 = mtu - 3)
+        private int mtu = DEFAULT_ATT_MTU;
+
+        // 명령 ↔ 응답 매칭, RTT 측정, 재전송
+        private final CommandTracker tracker = new CommandTracker();
+        private final TimingWheel.Timer retransmitCheck = timers.newTimer(this::checkRetransmits);
+
+        // 재연결 관련. 예약은 항상 하나뿐이다 (새로 잡기 전에 reconnectTimeout 을 취소)
+        private final ReconnectPolicy reconnect = new ReconnectPolicy(RECONNECT_BASE_MS,
+                RECONNECT_CAP_MS, RECONNECT_FAILURE_THRESHOLD, RECONNECT_PARK_MS,
+                RECONNECT_MAX_PARK_MS, random);
+        @Nullable
+        private TimingWheel.Timeout reconnectTimeout;
+        private BleScanner.Subscription advertisingWatch;   // 메인 스레드 전용
+
+        // 연결 순서: 사용자가 마지막으로 조작한 시각, 연결 시도 자리 반환
+        private long lastUserActionAt = 0;
+        private final TimingWheel.Timer connectSlotTimeout =
+                timers.newTimer(this::releaseConnectSlot);
+
+        // 기기가 알려준 fail-safe 타임아웃 (하트비트 주기의 기준)
+        private long failSafeTimeoutMs = DEFAULT_FAILSAFE_TIMEOUT_MS;
+        private final TimingWheel.Timer heartbeatPing = timers.newTimer(this::sendHeartbeat);
+        // RSSI 샘플링 (간격은 PresenceDetector 가 신호 세기에 따라 정한다)
+        private final TimingWheel.Timer rssiSample = timers.newTimer(this::sampleRssi);
+        private final CommandTracker.Callback heartbeatResult = this::onHeartbeatResult;
+
+        // 연결 품질 지표 (진단 화면)
+        private final DeviceMetrics metrics;
 
         DeviceConnection(String mac) {
             this.mac = mac;
+            this.key = MacUtils.toLong(mac);
+            this.metrics = new DeviceMetrics(mac, tracker.getHistogram());
         }
 
         boolean isReady() {
-            return (gatt != null && uartChar != null);
+            return (link != null && uartFound && uartReady);
         }
 
-        void connect() {
+        // 예약된 재시도는 취소하고 쉬는 중이던 circuit breaker 도 닫는다
+        void connect(int priority) {
             Log.d(TAG, "DeviceConnection.connect() mac=" + mac);
             userRequestedClose = false;
-            reconnectAttempts = 0;
-            startConnect();
+            cancelReconnect();
+            reconnect.reset();
+            if (isReady()) return;
+            requestConnect(priority);
         }
 
-        private void startConnect() {
-            BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
-            if (adapter == null || !adapter.isEnabled()) {
-                Log.w(TAG, "BluetoothAdapter not ready for connect: " + mac);
-                broadcastLog(mac, "BluetoothAdapter not ready, 연결 불가");
-                return;
-            }
-            BluetoothDevice device;
-            try {
-                device = adapter.getRemoteDevice(mac);
-            } catch (IllegalArgumentException e) {
-                Log.e(TAG, "getRemoteDevice 실패 mac=" + mac, e);
-                broadcastLog(mac, "getRemoteDevice 실패: " + e.getMessage());
-                return;
-            }
-
-            if (device == null) {
-                Log.w(TAG, "No BluetoothDevice for mac=" + mac);
-                broadcastLog(mac, "mac에 해당하는 BluetoothDevice 없음");
-                return;
+        // 바로 connectGatt 하지 않고 순서를 기다린다 (차례가 오면 startConnect)
+        void requestConnect(int priority) {
+            connectScheduler.request(key, effectivePriority(key, priority, lastUserActionAt),
+                    lastUserActionAt);
+            publishConnectStats();
+            if (connectScheduler.isQueued(key)) {
+                broadcastLog(mac, "연결 대기 (진행 " + connectScheduler.getInFlightCount()
+                        + ", 대기 " + connectScheduler.getQueueDepth() + ")");
             }
+        }
 
-            Log.d(TAG, "connectGatt() mac=" + mac);
+        // READY 가 되었거나 시도가 끝남: 다음 기기에게 차례를 넘긴다
+        private void releaseConnectSlot() {
+            connectSlotTimeout.cancel();
+            connectScheduler.onFinished(key);
+            publishConnectStats();
+        }
 
-            if (gatt != null) {
-                gatt.close();
-                gatt = null;
+        private void startConnect() {
+            cancelReconnect();
+            if (link != null) {
+                link.close();
+                link = null;
             }
+            resetLink();
 
-            // 실제 연결 시작
-            gatt = device.connectGatt(BleForegroundService.this, false, this);
+            // 실제 연결 시작 (콜백은 이 작업이 끝난 뒤에 worker 에서 처리된다)
+            link = transportFactory.connect(mac, this);
+            if (link == null) {
+                broadcastLog(mac, "연결을 시작할 수 없음 (블루투스 꺼짐 또는 잘못된 주소)");
+                releaseConnectSlot();
+                return;
+            }
+            metrics.onConnectStarted(SystemClock.uptimeMillis());
+            setPhase(ConnectionState.Phase.CONNECTING);
             broadcastState(mac, "CONNECTING");
         }
 
         void manualClose() {
             Log.d(TAG, "manualClose() mac=" + mac);
             userRequestedClose = true;
-            reconnectAttempts = 0;
+            cancelReconnect();
+            reconnect.reset();
+            connectSlotTimeout.cancel();
+            connectScheduler.cancel(key);
+            publishConnectStats();
+            powerFlush.cancel();
+            pendingPower = null;
+            supersededPower = 0;
+            notifyPendingPower(CommandTracker.Result.DISCONNECTED);
+            opQueue.clear();
+            tracker.completeAll(CommandTracker.Result.DISCONNECTED);
             close();
+            presence.remove(key);
+            setPhase(ConnectionState.Phase.DISCONNECTED);
             broadcastState(mac, "DISCONNECTED");
         }
 
         void close() {
-            if (gatt != null) {
-                try {
-                    gatt.close();
-                } catch (Exception ignored) {
-                }
-                gatt = null;
+            if (link != null) {
+                link.close();
+                link = null;
+            }
+            resetLink();
+        }
+
+        private void resetLink() {
+            opTimeout.cancel();
+            drainLater.cancel();
+            retransmitCheck.cancel();
+            for (GattOperation dropped : opQueue.resetForReconnect()) {
+                tracker.complete(dropped.getSeq(), CommandTracker.Result.DISCONNECTED);
             }
-            uartChar = null;
+            // 전송은 됐지만 응답을 못 받은 명령. 큐에 남은 명령은 재연결 후 전송된다.
+            tracker.completeSent(CommandTracker.Result.DISCONNECTED);
+            uartFound = false;
+            uartReady = false;
+            mtu = DEFAULT_ATT_MTU;
+            lastSentPower = null;
+            handshakeTimeout.cancel();
+            binaryMode = false;
+            decoder.reset();
+            heartbeatPing.cancel();
+            heartbeat.remove(key);
+            failSafeTimeoutMs = DEFAULT_FAILSAFE_TIMEOUT_MS;
+            rssiSample.cancel();
+            deviceQueueSize = -1;
+            deviceQueueDepth = 0;
+        }
+
+        void sendHeartbeat() {
+            // 이전 PING 이 아직 큐에 있으면 또 쌓지 않음 (같은 레인의 RSSI 읽기는 상관없다)
+            if (isReady() && !opQueue.contains(GattOperation.KEY_PING)) {
+                metrics.onHeartbeat();
+                send("PING\n", GattOperation.KEY_PING, heartbeatResult);
+            }
+        }
+
+        // 다음 샘플은 결과가 오면 다시 잡지만, 응답이 없을 때를 위해 여기서도 잡아 둔다
+        private void sampleRssi() {
+            if (!isReady()) return;
+            // 쓰기가 밀려 있는 동안 읽기를 쌓지 않는다 (대기 중인 하나로 충분)
+            if (!opQueue.contains(GattOperation.KEY_RSSI)) {
+                opQueue.offer(GattOperation.readRssi());
+                drainQueue();
+            }
+            rssiSample.schedule(presence.sampleIntervalMs(key));
+        }
+
+        // 재전송까지 PONG 이 없으면 하트비트를 놓친 것
+        private void onHeartbeatResult(String command, CommandTracker.Result result, long rttMs) {
+            if (result == CommandTracker.Result.TIMEOUT) metrics.onHeartbeatMissed();
         }
 
         void send(String msg) {
-            if (gatt == null || uartChar == null) {
-                Log.w(TAG, "send: not ready for mac=" + mac);
+            send(msg, null, null);
+        }
+
+        // 사용자가 이 기기를 조작함: 연결 대기/재시도 대기 중이면 먼저 연결한다
+        void touchByUser() {
+            lastUserActionAt = SystemClock.uptimeMillis();
+            if (connectScheduler.isQueued(key)) {
+                requestConnect(ConnectionScheduler.PRIORITY_USER);
+            } else if (!isReady() && reconnect.isPending()) {
+                // 재시도 대기(또는 쉬는 중)인 기기는 기다리지 않고 바로 시도
+                connect(ConnectionScheduler.PRIORITY_USER);
+            }
+        }
+
+        // 전원 명령은 병합 경로로, 나머지는 그대로 큐에. READY 전이면 큐에서 기다린다.
+        void sendOrQueue(String msg, CommandTracker.Callback callback) {
+            Boolean power = parsePowerCommand(msg);
+            if (power != null) {
+                requestPower(power, callback);
+            } else {
+                send(msg, null, callback);
+            }
+        }
+
+        void send(String msg, String coalesceKey, CommandTracker.Callback callback) {
+            if (userRequestedClose) {
+                Log.w(TAG, "send: closed by user, mac=" + mac);
                 broadcastLog(mac, "Write failed: not connected or UART not ready.");
+                if (callback != null) {
+                    callback.onCommandComplete(msg.trim(), CommandTracker.Result.FAILED, -1);
+                }
                 return;
             }
 
-            uartChar.setWriteType(BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
-            uartChar.setValue(msg.getBytes());
-            boolean ok = gatt.writeCharacteristic(uartChar);
+            String command = msg.trim();
+            txSeq = (txSeq + 1) & 0xFF;
+            if (tracker.isTracked(txSeq)) {
+                // 256개가 밀려 있을 일은 없지만, 같은 seq 가 살아 있으면 이전 것을 정리
+                tracker.complete(txSeq, CommandTracker.Result.TIMEOUT);
+            }
 
-            broadcastLog(mac, "TX: \"" + msg.trim() + "\" result=" + ok);
+            CommandTracker.Callback cb = callback;
+            if (GattOperation.KEY_POWER.equals(coalesceKey)) {
+                cb = (cmd, result, rttMs) -> {
+                    journal(mac, EventJournal.TYPE_COMMAND, result.ordinal(), (int) rttMs, cmd);
+                    // 결과를 모르는 전원 명령은 "마지막으로 보낸 상태" 로 믿지 않는다
+                    if (result == CommandTracker.Result.TIMEOUT
+                            || result == CommandTracker.Result.FAILED) {
+                        lastSentPower = null;
+                    }
+                    if (callback != null) callback.onCommandComplete(cmd, result, rttMs);
+                };
+            }
+            if (CommandTracker.expectsReply(command)) {
+                tracker.register(txSeq, command,
+                        deviceQueueSize > 0 ? 0 : processingTimeFor(command), cb);
+            } else if (cb != null) {
+                // 응답이 없는 명령은 추적하지 않는다
+                cb.onCommandComplete(command, CommandTracker.Result.ACKED, -1);
+            }
 
-            if (!ok) {
-                Log.w(TAG, "writeCharacteristic failed for mac=" + mac);
+            byte[] payload = UartCodec.encodeCommand(command, txSeq, binaryMode);
+            GattOperation op = GattOperation.write(command, payload, priorityFor(msg))
+                    .coalesceBy(coalesceKey)
+                    .withSeq(txSeq);
+            if (isIdempotent(msg)) {
+                op.withoutResponse();
             }
+            opQueue.offer(op);
+
+            if (!isReady()) {
+                broadcastLog(mac, "TX 대기: \"" + msg.trim() + "\" (UART 준비 전, queued="
+                        + opQueue.size() + ")");
+            }
+            drainQueue();
         }
 
-        // ───────────── BluetoothGattCallback 구현 ─────────────
+        // ───────────── 전원 명령 병합 (last-writer-wins) ─────────────
+
+        void requestPower(boolean on, CommandTracker.Callback callback) {
+            if (userRequestedClose) {
+                broadcastLog(mac, "Write failed: not connected or UART not ready.");
+                if (callback != null) {
+                    callback.onCommandComplete(on ? "ON" : "OFF",
+                            CommandTracker.Result.FAILED, -1);
+                }
+                return;
+            }
+
+            if (pendingPower != null) {
+                supersededPower++;
+                notifyPendingPower(CommandTracker.Result.SUPERSEDED);
+            }
+            for (GattOperation cancelled : opQueue.cancel(GattOperation.KEY_POWER)) {
+                supersededPower++;
+                tracker.complete(cancelled.getSeq(), CommandTracker.Result.SUPERSEDED);
+            }
+            pendingPower = on;
+            pendingPowerCallback = callback;
+
+            // 마지막 토글 후 POWER_SETTLE_MS, 그리고 직전 서보 동작이 끝난 뒤에 전송
+            long now = SystemClock.uptimeMillis();
+            long servoFreeAt = deviceQueueSize > 0 ? 0 : lastPowerTxAt + SERVO_PRESS_MS;
+            long delay = Math.max(POWER_SETTLE_MS, servoFreeAt - now);
+            powerFlush.schedule(delay);
+        }
+
+        private void flushPower() {
+            Boolean on = pendingPower;
+            int superseded = supersededPower;
+            CommandTracker.Callback callback = pendingPowerCallback;
+            pendingPower = null;
+            supersededPower = 0;
+            pendingPowerCallback = null;
+            if (on == null) return;
+
+            String command = on ? "ON" : "OFF";
+
+            // 토글이 왕복해서 결국 직전에 보낸 상태로 돌아왔다면 서보를 누를 필요 없음
+            if (superseded > 0 && on.equals(lastSentPower)) {
+                broadcastLog(mac, "전원 명령 " + (superseded + 1) + "건 병합 → 변화 없음, 전송 생략");
+                // 직전 명령의 응답을 아직 기다리는 중이면 그 결과를 같이 받는다
+                if (callback != null && !tracker.attach(command, callback)) {
+                    callback.onCommandComplete(command, CommandTracker.Result.ACKED, 0);
+                }
+                return;
+            }
+            if (superseded > 0) {
+                broadcastLog(mac, "전원 명령 " + (superseded + 1) + "건 병합 → " + command);
+            }
+
+            // 응답 대기 중인 이전 전원 명령은 더 이상 재전송하지 않는다
+            tracker.completeCommand("ON", CommandTracker.Result.SUPERSEDED);
+            tracker.completeCommand("OFF", CommandTracker.Result.SUPERSEDED);
+
+            send(command + "\n", GattOperation.KEY_POWER, callback);
+        }
+
+        private void notifyPendingPower(CommandTracker.Result result) {
+            CommandTracker.Callback callback = pendingPowerCallback;
+            pendingPowerCallback = null;
+            if (callback != null && pendingPower != null) {
+                callback.onCommandComplete(pendingPower ? "ON" : "OFF", result, -1);
+            }
+        }
+
+        // ───────────── 응답 매칭 / 재전송 ─────────────
+
+        private void onReply(int seq, String reply) {
+            long rtt = tracker.onReply(seq, reply, SystemClock.uptimeMillis());
+            if (rtt >= 0) {
+                if (!"PONG".equals(reply)) {
+                    RttEstimator est = tracker.getRtt();
+                    broadcastLog(mac, reply + " rtt=" + rtt + "ms (srtt=" + est.getSrttMs()
+                            + "ms, rto=" + est.getRtoMs() + "ms)");
+                }
+                scheduleRetransmitCheck();
+            }
+        }
+
+        private void scheduleRetransmitCheck() {
+            long deadline = tracker.nextDeadlineMs();
+            if (deadline < 0) {
+                retransmitCheck.cancel();
+                return;
+            }
+            retransmitCheck.scheduleAt(deadline);
+        }
+
+        private void checkRetransmits() {
+            for (CommandTracker.Entry e : tracker.collectExpired(SystemClock.uptimeMillis())) {
+                String command = e.getCommand();
+                broadcastLog(mac, "응답 없음 → 재전송 \"" + command + "\" (#"
+                        + (e.getTransmissions() + 1) + ", rto="
+                        + tracker.getRtt().getRtoMs() + "ms)");
+                // 같은 seq 로 다시 보내서 늦게 온 응답도 매칭되게 한다
+                byte[] payload = UartCodec.encodeCommand(command, e.getSeq(), binaryMode);
+                GattOperation op = GattOperation.write(command, payload, priorityFor(command))
+                        .withSeq(e.getSeq());
+                if (parsePowerCommand(command) != null) {
+                    op.coalesceBy(GattOperation.KEY_POWER);
+                }
+                if (isIdempotent(command)) {
+                    op.withoutResponse();
+                }
+                opQueue.offer(op);
+            }
+            drainQueue();
+            scheduleRetransmitCheck();
+        }
+
+        // ───────────── GATT 요청 큐 처리 (한 번에 하나) ─────────────
+
+        private void drainQueue() {
+            if (link == null || !uartFound) return;
+
+            GattOperation op = opQueue.startNext(!uartReady, mtu - ATT_WRITE_OVERHEAD);
+            if (op == null) return;
+
+            if (execute(op)) {
+                opTimeout.schedule(op.getTimeoutMs());
+            } else {
+                opQueue.complete(op);
+                retryOrDrop(op, "GATT busy");
+            }
+        }
+
+        private boolean execute(GattOperation op) {
+            switch (op.getType()) {
+                case WRITE: {
+                    boolean noResponse = !op.isWithResponse() && link.supportsWriteWithoutResponse();
+                    boolean ok = link.write(op.getPayload(), noResponse);
+                    broadcastLog(mac, "TX: " + op.describe() + (noResponse ? " (no-rsp)" : "")
+                            + " result=" + ok);
+                    if (ok) {
+                        long now = SystemClock.uptimeMillis();
+                        // 기기 타이머는 무엇을 받든 리셋되므로 이번 쓰기가 PING 을 대신한다
+                        heartbeat.onTransmit(key, now);
+                        for (GattOperation part : op.getParts()) {
+                            tracker.onTransmitted(part.getSeq(), now);
+                            if (GattOperation.KEY_POWER.equals(part.getCoalesceKey())) {
+                                lastSentPower = parsePowerCommand(part.getCommand());
+                                lastPowerTxAt = now;
+                            }
+                        }
+                        scheduleRetransmitCheck();
+                    }
+                    return ok;
+                }
+                case REQUEST_MTU:
+                    return link.requestMtu(op.getMtu());
+                case READ_RSSI:
+                    return link.readRssi();
+                case ENABLE_NOTIFICATION: {
+                    boolean ok = link.enableNotifications();
+                    broadcastLog(mac, "writeDescriptor(CCCD): " + ok);
+                    return ok;
+                }
+                default:
+                    return false;
+            }
+        }
+
+        private void onOperationComplete(GattOperation.Type type, int status) {
+            GattOperation op = opQueue.getInFlight();
+            if (op == null || op.getType() != type) return;
+
+            opTimeout.cancel();
+            opQueue.complete(op);
+
+            if (status != BleTransport.STATUS_SUCCESS) {
+                retryOrDrop(op, "status=" + status);
+                return;
+            }
+            if (type == GattOperation.Type.WRITE) {
+                metrics.onWrite(true);
+            }
+
+            if (type == GattOperation.Type.ENABLE_NOTIFICATION) {
+                markUartReady();
+            }
+            drainQueue();
+        }
+
+        private void onOperationTimeout() {
+            GattOperation op = opQueue.getInFlight();
+            if (op == null) return;
+
+            opQueue.complete(op);
+            Log.w(TAG, "GATT op timeout mac=" + mac + " op=" + op.describe());
+            retryOrDrop(op, "timeout " + op.getTimeoutMs() + "ms");
+        }
+
+        private void retryOrDrop(GattOperation op, String reason) {
+            if (op.getType() == GattOperation.Type.REQUEST_MTU) {
+                // MTU 협상 실패는 치명적이지 않음: 기본 MTU 로 계속
+                broadcastLog(mac, "MTU 협상 실패 (" + reason + "), MTU=" + mtu + " 사용");
+                drainQueue();
+                return;
+            }
+            if (op.getType() == GattOperation.Type.READ_RSSI) {
+                // 다음 주기에 다시 읽는다
+                drainQueue();
+                return;
+            }
+            if (op.getType() == GattOperation.Type.WRITE) {
+                metrics.onWrite(false);
+            }
+
+            if (op.incrementAttempts() < MAX_OP_ATTEMPTS) {
+                opQueue.pushFront(op);
+                broadcastLog(mac, "재시도 " + op.describe() + " (" + reason
+                        + ", attempt=" + op.getAttempts() + ")");
+                drainLater.schedule(OP_RETRY_DELAY_MS);
+                return;
+            }
+
+            Log.w(TAG, "GATT op dropped mac=" + mac + " op=" + op.describe() + " " + reason);
+            broadcastLog(mac, "Write failed: " + op.describe() + " (" + reason + ")");
+            for (GattOperation part : op.getParts()) {
+                tracker.complete(part.getSeq(), CommandTracker.Result.FAILED);
+            }
+
+            if (op.getType() == GattOperation.Type.ENABLE_NOTIFICATION) {
+                // 알림 설정이 끝내 실패해도 쓰기는 가능하므로 READY 로 진행
+                markUartReady();
+            }
+            drainQueue();
+        }
+
+        private void markUartReady() {
+            if (uartReady) return;
+            uartReady = true;
+            metrics.onReady(SystemClock.uptimeMillis());
+            reconnect.onSuccess();
+            releaseConnectSlot();
+            setPhase(ConnectionState.Phase.READY);
+            broadcastState(mac, "READY");
+            broadcastLog(mac, "UART ready for " + mac);
+            heartbeat.add(key, heartbeatIntervalFor(failSafeTimeoutMs), SystemClock.uptimeMillis());
+            rescheduleHeartbeat();
+            // 끊겨서 DEPARTED 였어도 다시 처음(UNKNOWN)부터: 첫 판단은 departDbm 만 넘으면 PRESENT
+            presence.reset(key);
+            rssiSample.schedule(presence.sampleIntervalMs(key));
+            startHandshake();
+            // 집을 떠나서 꺼 둔 상태면 RSSI 로 돌아온 게 확인될 때 복원한다
+            if (departureOffActive) {
+                broadcastLog(mac, "부재 중 재연결 → 재실 확인 후 상태 동기화");
+            } else {
+                syncPowerState();
+            }
+        }
+
+        // 재연결 후 기기를 등록된 상태(사용자가 마지막으로 고른 ON/OFF)로 맞춘다
+        // 멀티탭 목록은 메인 스레드 소유라서 거기서 읽고 다시 넘어온다
+        private void syncPowerState() {
+            mainHandler.post(() -> {
+                SmartStrip strip = registry != null ? registry.get(mac) : null;
+                if (strip == null) {
+                    broadcastLog(mac, "등록되지 않은 기기 (상태 동기화 생략)");
+                    return;
+                }
+                boolean on = strip.isOn();
+                broadcastLog(mac, "재연결 후 상태 동기화: " + strip.getName()
+                        + " → " + (on ? "ON" : "OFF"));
+                worker.execute(() -> {
+                    if (!isReady()) return;
+                    // 이미 보낼 전원 명령(예: 모두 끄기)이 있으면 그게 더 최신이다
+                    if (pendingPower != null || opQueue.contains(GattOperation.KEY_POWER)) return;
+                    requestPower(on, null);
+                });
+            });
+        }
+
+        // ───────────── 프로토콜 핸드셰이크 (텍스트 → 바이너리) ─────────────
+
+        private void startHandshake() {
+            String hello = UartCodec.HELLO_TEXT;
+            opQueue.offer(GattOperation.write(hello, (hello + "\n").getBytes(),
+                    GattOperation.Priority.SETUP).withoutResponse());
+            handshakeTimeout.schedule(HANDSHAKE_TIMEOUT_MS);
+        }
+
+        private void onHandshakeTimeout() {
+            broadcastLog(mac, "CAPS 응답 없음 → 텍스트 모드 유지");
+        }
+
+        // CAPS 에 실린 타임아웃으로 하트비트 주기를 정한다. 값이 없으면 기본값 그대로.
+        private void onCaps(String capsLine) {
+            enableBinaryMode();
+            int queueSize = UartCodec.parseCapsQueueSize(capsLine);
+            if (queueSize != deviceQueueSize) {
+                deviceQueueSize = queueSize;
+                if (queueSize > 0) broadcastLog(mac, "기기 명령 큐 " + queueSize + "개 (서보 동작 중에도 바로 ACK)");
+            }
+            long timeoutMs = UartCodec.parseCapsTimeoutMs(capsLine);
+            if (timeoutMs <= 0 || timeoutMs == failSafeTimeoutMs) return;
+            failSafeTimeoutMs = timeoutMs;
+            heartbeat.setInterval(key, heartbeatIntervalFor(timeoutMs));
+            rescheduleHeartbeat();
+            broadcastLog(mac, "fail-safe 타임아웃 " + timeoutMs + "ms → 하트비트 "
+                    + heartbeatIntervalFor(timeoutMs) + "ms");
+        }
+
+        private void enableBinaryMode() {
+            handshakeTimeout.cancel();
+            if (binaryMode) return;
+            binaryMode = true;
+            broadcastLog(mac, "바이너리 프레임 모드 (v" + UartCodec.VERSION + ")");
+        }
+
+        // 기기 큐가 꽉 차서 명령을 받지 못함. 응답이 없으니 RTO 뒤 재전송으로 다시 시도된다.
+        private void onDeviceBusy(String reply) {
+            broadcastLog(mac, reply + " (기기 큐 " + deviceQueueDepth + ") → 재전송으로 다시 시도");
+        }
+
+        // ───────────── UartStreamDecoder.Listener ─────────────
+
+        @Override
+        public void onFrame(int opcode, int seq, byte[] payload, int payloadLen) {
+            String text = UartCodec.toText(opcode, payload, payloadLen);
+            if (opcode == UartCodec.OP_CAPS) {
+                onCaps(text);
+            }
+            int depth = UartCodec.queueDepthOf(opcode, payload, payloadLen);
+            if (depth >= 0) deviceQueueDepth = depth;
+            if (opcode == UartCodec.OP_BUSY) onDeviceBusy(text);
+            onReply(seq, text);
+            broadcastMessage(mac, text);
+        }
+
+        @Override
+        public void onLine(String line) {
+            if (UartCodec.isCapsLine(line)) {
+                onCaps(line);
+            } else if (line.startsWith("BUSY")) {
+                onDeviceBusy(line);
+            }
+            // 텍스트 응답에는 seq 가 없으므로 FIFO 로 매칭
+            onReply(-1, line);
+            broadcastMessage(mac, line);
+        }
+
+        // ───────────── BleTransport.Callback 구현 (BLE 작업 스레드로 넘긴다) ─────────────
 
         @Override
-        public void onConnectionStateChange(BluetoothGatt gatt,
-                                            int status,
-                                            int newState) {
-            super.onConnectionStateChange(gatt, status, newState);
-            Log.d(TAG, "onConnectionStateChange mac=" + mac
-                    + " status=" + status
-                    + " newState=" + newState);
-
-            if (newState == BluetoothProfile.STATE_CONNECTED) {
+        public void onConnectionStateChanged(BleTransport transport, int status, boolean connected) {
+            worker.execute(() -> handleConnectionStateChange(transport, status, connected));
+        }
+
+        private void handleConnectionStateChange(BleTransport transport, int status,
+                                                 boolean connected) {
+            // 이미 닫고 새로 연결한 이전 링크의 늦은 콜백
+            if (transport != link) return;
+
+            if (status != BleTransport.STATUS_SUCCESS) {
+                journal(mac, EventJournal.TYPE_GATT_STATUS, status, connected
+                        ? BluetoothProfile.STATE_CONNECTED : BluetoothProfile.STATE_DISCONNECTED, null);
+            }
+
+            if (connected) {
+                long now = SystemClock.uptimeMillis();
+                metrics.onConnected(now);
                 broadcastLog(mac, "Connected to GATT. Discovering services...");
+                setPhase(ConnectionState.Phase.CONNECTED);
                 broadcastState(mac, "CONNECTED");
-                if (!gatt.discoverServices()) {
+                if (link.discoverServices()) {
+                    metrics.onDiscoveryStarted(now);
+                    setPhase(ConnectionState.Phase.DISCOVERING);
+                } else {
                     broadcastLog(mac, "discoverServices() 실패");
                 }
-            } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
-                uartChar = null;
+            } else {
+                metrics.onDisconnected(status);
+                resetLink();
+                releaseConnectSlot();
                 broadcastLog(mac, "Disconnected from GATT server.");
+                setPhase(ConnectionState.Phase.DISCONNECTED);
                 broadcastState(mac, "DISCONNECTED");
 
                 if (!userRequestedClose) {
+                    presence.onLinkLost(key);
                     scheduleReconnect();
                 }
             }
         }
 
         @Override
-        public void onServicesDiscovered(BluetoothGatt gatt, int status) {
-            super.onServicesDiscovered(gatt, status);
-            Log.d(TAG, "onServicesDiscovered mac=" + mac + " status=" + status);
+        public void onServicesDiscovered(BleTransport transport, int status,
+                                         boolean hasUart, boolean hasCccd) {
+            worker.execute(() -> handleServicesDiscovered(transport, status, hasUart, hasCccd));
+        }
 
-            if (status != BluetoothGatt.GATT_SUCCESS) {
+        private void handleServicesDiscovered(BleTransport transport, int status,
+                                              boolean hasUart, boolean hasCccd) {
+            if (transport != link) return;
+
+            if (status != BleTransport.STATUS_SUCCESS) {
                 broadcastLog(mac, "Service discovery failed: " + status);
                 return;
             }
+            metrics.onServicesDiscovered(SystemClock.uptimeMillis());
 
-            BluetoothGattService uartService = gatt.getService(UART_SERVICE_UUID);
-            if (uartService == null) {
+            if (!hasUart) {
                 broadcastLog(mac, "UART service not found.");
                 return;
             }
+            uartFound = true;
 
-            uartChar = uartService.getCharacteristic(UART_CHAR_UUID);
-            if (uartChar == null) {
-                broadcastLog(mac, "UART characteristic not found.");
-                return;
-            }
-
-            boolean notifSet = gatt.setCharacteristicNotification(uartChar, true);
-            broadcastLog(mac, "setCharacteristicNotification: " + notifSet);
-
-            BluetoothGattDescriptor descriptor = uartChar.getDescriptor(CCCD_UUID);
-            if (descriptor != null) {
-                descriptor.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
-                boolean descWrite = gatt.writeDescriptor(descriptor);
-                broadcastLog(mac, "writeDescriptor(CCCD): " + descWrite);
+            if (hasCccd) {
+                // MTU 협상 → CCCD 쓰기. CCCD 가 끝나야(onNotificationsEnabled) READY 로 전환
+                opQueue.offer(GattOperation.requestMtu(REQUESTED_MTU));
+                opQueue.offer(GattOperation.enableNotification());
+                drainQueue();
             } else {
                 broadcastLog(mac, "CCCD descriptor not found. Notifications may not work.");
+                opQueue.offer(GattOperation.requestMtu(REQUESTED_MTU));
+                markUartReady();
+                drainQueue();
             }
+        }
 
-            reconnectAttempts = 0;
-            broadcastState(mac, "READY");
-            broadcastLog(mac, "UART ready for " + mac);
+        @Override
+        public void onWriteComplete(BleTransport transport, int status) {
+            worker.execute(() -> {
+                if (transport != link) return;
+                onOperationComplete(GattOperation.Type.WRITE, status);
+            });
         }
 
         @Override
-        public void onCharacteristicChanged(BluetoothGatt gatt,
-                                            BluetoothGattCharacteristic characteristic) {
-            super.onCharacteristicChanged(gatt, characteristic);
-            if (UART_CHAR_UUID.equals(characteristic.getUuid())) {
-                String received = new String(characteristic.getValue());
-                Log.d(TAG, "onCharacteristicChanged mac=" + mac + " msg=" + received);
-                broadcastMessage(mac, received);
-            }
+        public void onMtuChanged(BleTransport transport, int mtu, int status) {
+            worker.execute(() -> {
+                if (transport != link) return;
+                if (status == BleTransport.STATUS_SUCCESS) {
+                    this.mtu = mtu;
+                    broadcastLog(mac, "MTU 협상 완료: " + mtu
+                            + " (write 최대 " + (mtu - ATT_WRITE_OVERHEAD) + "B)");
+                }
+                onOperationComplete(GattOperation.Type.REQUEST_MTU, status);
+            });
+        }
+
+        @Override
+        public void onNotificationsEnabled(BleTransport transport, int status) {
+            worker.execute(() -> {
+                if (transport != link) return;
+                onOperationComplete(GattOperation.Type.ENABLE_NOTIFICATION, status);
+            });
+        }
+
+        @Override
+        public void onReceived(BleTransport transport, byte[] data) {
+            Log.d(TAG, "onReceived mac=" + mac + " bytes=" + data.length);
+            worker.execute(() -> {
+                if (transport != link) return;
+                connectionStates.update(mac, s -> s.seen(System.currentTimeMillis()));
+                decoder.feed(data);
+            });
+        }
+
+        @Override
+        public void onRssiRead(BleTransport transport, int rssi, int status) {
+            worker.execute(() -> {
+                if (transport != link) return;
+                if (status == BleTransport.STATUS_SUCCESS) {
+                    connectionStates.update(mac,
+                            s -> s.withRssi(rssi, System.currentTimeMillis()));
+                    presence.onSample(key, rssi, SystemClock.uptimeMillis());
+                    rssiSample.schedule(presence.sampleIntervalMs(key));
+                }
+                onOperationComplete(GattOperation.Type.READ_RSSI, status);
+            });
+        }
+
+        private void setPhase(ConnectionState.Phase phase) {
+            connectionStates.update(mac, s -> s.withPhase(phase));
         }
 
         // ───────────── 자동 재연결 스케줄링 ─────────────
@@ -417,41 +1756,109 @@ public class BleForegroundService extends Service {
                 return;
             }
 
-            reconnectAttempts++;
+            cancelReconnect();
+            long delay = reconnect.onFailure();
+            int failures = reconnect.getFailures();
+            final int token = reconnect.schedule();
+
+            journal(mac, EventJournal.TYPE_RECONNECT, failures, (int) delay, null);
+            connectionStates.update(mac, s -> s.backoff(failures));
+            if (reconnect.getState() == ReconnectPolicy.State.OPEN) {
+                broadcastLog(mac, "재연결 " + failures + "회 연속 실패 → "
+                        + (delay / 60000) + "분 쉬고 다시 시도");
+            } else {
+                broadcastLog(mac, "Schedule reconnect #" + failures +
+                        " in " + (delay / 1000f) + "s");
+            }
+
+            reconnectTimeout = timers.schedule(delay, () -> onReconnectDue(token));
+            // 쉬는 중에는 스캔도 하지 않는다 (밤새 배터리 소모 방지)
+            if (reconnect.getState() != ReconnectPolicy.State.OPEN) {
+                watchForAdvertising(token, delay);
+            }
+        }
+
+        private void onReconnectDue(int token) {
+            // 그사이 취소되었거나 새로 예약된 경우 무시
+            if (!reconnect.fire(token)) return;
+            cancelReconnectTimeout();
+            metrics.onReconnectAttempt();
+            requestConnect(ConnectionScheduler.PRIORITY_BACKGROUND);
+        }
+
+        private void cancelReconnect() {
+            reconnect.cancel();
+            cancelReconnectTimeout();
+            mainHandler.post(this::stopWatchingAdvertising);
+        }
 
-            long delay = baseDelayMs * reconnectAttempts;
-            if (delay > maxDelayMs) {
-                delay = maxDelayMs;
+        private void cancelReconnectTimeout() {
+            if (reconnectTimeout != null) {
+                reconnectTimeout.cancel();
+                reconnectTimeout = null;
             }
+        }
 
-            broadcastLog(mac, "Schedule reconnect #" + reconnectAttempts +
-                    " in " + (delay / 1000f) + "s");
+        // 기다리는 동안 이 기기의 광고가 보이면 타이머를 기다리지 않고 바로 연결한다.
+        // 스캐너는 공유 구독이라 기기 추가 화면이나 다른 기기의 재연결 대기와 같은 스캔을 쓴다.
+        // 방금 다른 구독 덕분에 광고가 보였다면 스캔 없이 캐시만 보고 바로 연결한다.
+        // 스캐너와 advertisingWatch 는 메인 스레드에서만, 결과만 worker 로 돌아온다.
+        private void watchForAdvertising(int token, long windowMs) {
+            mainHandler.post(() -> {
+                if (scanner.getSeenWithin(mac, ADVERTISEMENT_FRESH_MS) != null) {
+                    worker.execute(() -> reconnectOnAdvertisement(token, "캐시"));
+                    return;
+                }
+                stopWatchingAdvertising();
+                advertisingWatch = scanner.subscribe(mac, windowMs, new BleScanner.Listener() {
+                    @Override
+                    public void onScanResults(List<ScanResultCache.Entry> results) {
+                    }
 
-            mainHandler.postDelayed(this::startConnect, delay);
+                    @Override
+                    public void onScanStopped(int reason) {
+                        if (reason != BleScanner.STOP_FOUND) return;
+                        worker.execute(() -> reconnectOnAdvertisement(token, "스캔"));
+                    }
+                });
+            });
+        }
+
+        private void stopWatchingAdvertising() {
+            if (advertisingWatch != null) {
+                advertisingWatch.close();
+                advertisingWatch = null;
+            }
+        }
+
+        private void reconnectOnAdvertisement(int token, String source) {
+            if (!reconnect.isPending()) return;
+            broadcastLog(mac, "광고 감지(" + source + ") → 바로 재연결");
+            onReconnectDue(token);
         }
 
     }
 
-    // ───────────────────── MainActivity에 알리는 Broadcast들 ─────────────────────
+    // ───────────────────── 리스너(MainActivity 등)에 알리는 이벤트들 ─────────────────────
+
+    private void journal(String mac, byte type, int arg1, int arg2, String text) {
+        EventJournal j = journal;
+        if (j != null) {
+            j.append(System.currentTimeMillis(), mac, type, arg1, arg2, text);
+        }
+    }
 
     private void broadcastState(String mac, String state) {
-        Intent i = new Intent("BLE_CONNECTION_STATE");
-        i.putExtra("mac", mac);
-        i.putExtra("state", state);
-        sendBroadcast(i);
+        journal(mac, EventJournal.TYPE_STATE, 0, 0, state);
+        eventBus.publish(BleEvent.Type.STATE, mac, state, System.currentTimeMillis());
     }
 
     private void broadcastLog(String mac, String log) {
-        Intent i = new Intent("BLE_LOG");
-        i.putExtra("mac", mac);
-        i.putExtra("log", log);
-        sendBroadcast(i);
+        eventBus.publish(BleEvent.Type.LOG, mac, log, System.currentTimeMillis());
     }
 
     private void broadcastMessage(String mac, String msg) {
-        Intent i = new Intent("BLE_MESSAGE");
-        i.putExtra("mac", mac);
-        i.putExtra("msg", msg);
-        sendBroadcast(i);
+        journal(mac, EventJournal.TYPE_RX, 0, 0, msg);
+        eventBus.publish(BleEvent.Type.MESSAGE, mac, msg, System.currentTimeMillis());
     }
 }
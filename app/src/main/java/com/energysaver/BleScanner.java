@@ -0,0 +1,308 @@
+package com.energysaver;
+
+import android.Manifest;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanRecord;
+import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelUuid;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.energysaver.core.MacUtils;
+import com.energysaver.core.ScanResultCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+// 서비스가 가진 BLE 스캐너 하나. 메인 스레드에서만 사용한다.
+//
+// - 여러 곳(기기 추가 화면, 기기별 재연결 대기 등)이 subscribe 하면 하드웨어 스캔은 하나만 돌고,
+//   마지막 구독이 끝나면 멈춘다 (참조 카운트). 구독마다 시간/찾는 기기가 따로 있다.
+// - UART 서비스(FFE0)를 광고하는 기기만 하드웨어 필터로 받는다
+// - 컨트롤러가 지원하면 결과를 모아서(setReportDelay) 받는다
+// - 광고는 한 번만 풀어서 ScanResultCache(LRU) 에 남긴다. 등록/재연결은 스캔 없이 캐시를 먼저 본다.
+// - 리스너 호출은 한 프레임에 한 번으로 묶는다
+public class BleScanner {
+
+    private static final String TAG = "BleScanner";
+
+    public static final UUID UART_SERVICE_UUID =
+            UUID.fromString("0000FFE0-0000-1000-8000-00805F9B34FB");
+
+    public static final long DEFAULT_SCAN_MS = 10000;
+    private static final long CACHE_TTL_MS = 60000;
+    private static final int CACHE_CAPACITY = 64;
+    // 컨트롤러 배치 주기. 사람이 보는 목록이라 이 정도 지연은 티가 안 난다.
+    private static final long REPORT_DELAY_MS = 250;
+
+    public static final int STOP_TIMEOUT = 0;     // 구독 시간이 다 됨
+    public static final int STOP_FOUND = 1;       // 찾던 기기를 봄
+    public static final int STOP_CANCELLED = 2;   // close() 또는 stopAll()
+    public static final int STOP_FAILED = 3;      // onScanFailed
+
+    public interface Listener {
+        // 지금까지의 결과 전체 (캐시 포함). 한 프레임에 최대 한 번
+        void onScanResults(List<ScanResultCache.Entry> results);
+
+        // 이 구독이 끝남. 이후로는 불리지 않는다.
+        void onScanStopped(int reason);
+    }
+
+    // subscribe 가 돌려주는 구독 하나
+    public final class Subscription {
+        private final Listener listener;
+        private final String targetMac;    // null 이면 시간이 다 될 때까지
+        private final Runnable timeout = () -> finish(this, STOP_TIMEOUT);
+        private boolean active = true;
+
+        private Subscription(Listener listener, String targetMac) {
+            this.listener = listener;
+            this.targetMac = targetMac;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        // 이미 끝났으면 아무 일도 하지 않는다
+        public void close() {
+            finish(this, STOP_CANCELLED);
+        }
+    }
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ScanResultCache cache = new ScanResultCache(CACHE_TTL_MS, CACHE_CAPACITY);
+    private final ArrayList<Subscription> subscriptions = new ArrayList<>();
+
+    private BluetoothLeScanner scanner;
+    private boolean scanning = false;
+    private int hardwareStarts = 0;
+
+    private boolean framePosted = false;
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> {
+        framePosted = false;
+        dispatchResults();
+    };
+
+    public BleScanner(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public boolean isScanning() {
+        return scanning;
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    // 하드웨어 스캔을 실제로 시작한 횟수 (구독 수와 비교용)
+    public int getHardwareStartCount() {
+        return hardwareStarts;
+    }
+
+    // 최근 TTL 안에 본 기기들. 스캔 중이 아니어도 된다.
+    public List<ScanResultCache.Entry> getCachedResults() {
+        return cache.snapshot(SystemClock.elapsedRealtime());
+    }
+
+    // TTL 안에 본 적 있으면 그 기기의 마지막 광고, 없으면 null
+    @Nullable
+    public ScanResultCache.Entry getCached(String mac) {
+        return cache.getRecent(mac, SystemClock.elapsedRealtime(), CACHE_TTL_MS);
+    }
+
+    // maxAgeMs 안에 광고가 보였던 기기만
+    @Nullable
+    public ScanResultCache.Entry getSeenWithin(String mac, long maxAgeMs) {
+        return cache.getRecent(mac, SystemClock.elapsedRealtime(), maxAgeMs);
+    }
+
+    // 구독을 하나 추가한다. 하드웨어 스캔이 이미 돌고 있으면 그대로 같이 쓴다
+    // (짧은 시간에 start/stop 을 반복하면 OS 가 스캔을 막는다).
+    // 권한/블루투스 문제로 시작할 수 없으면 null.
+    @Nullable
+    public Subscription subscribe(@Nullable String targetMac, long durationMs, Listener listener) {
+        if (listener == null) return null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+                && ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_SCAN)
+                != PackageManager.PERMISSION_GRANTED) {
+            Log.w(TAG, "BLUETOOTH_SCAN 권한 없음");
+            return null;
+        }
+        if (!scanning && !startHardware()) return null;
+
+        Subscription sub = new Subscription(listener,
+                targetMac != null ? MacUtils.normalize(targetMac) : null);
+        subscriptions.add(sub);
+        mainHandler.postDelayed(sub.timeout, durationMs);
+        Log.d(TAG, "subscribe target=" + targetMac + " subscribers=" + subscriptions.size());
+
+        // 캐시에 이미 있는 것부터 바로 보여준다
+        scheduleDispatch();
+        return sub;
+    }
+
+    // 모든 구독을 끝내고 스캔을 멈춘다 (서비스 종료, 블루투스 꺼짐)
+    public void stopAll() {
+        finishAll(STOP_CANCELLED);
+    }
+
+    private boolean startHardware() {
+        BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+        if (adapter == null || !adapter.isEnabled()) return false;
+        scanner = adapter.getBluetoothLeScanner();
+        if (scanner == null) return false;
+
+        ScanFilter filter = new ScanFilter.Builder()
+                .setServiceUuid(new ParcelUuid(UART_SERVICE_UUID))
+                .build();
+        ScanSettings settings = new ScanSettings.Builder()
+                .setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY)
+                .setReportDelay(adapter.isOffloadedScanBatchingSupported()
+                        ? REPORT_DELAY_MS : 0)
+                .build();
+
+        cache.beginSession();
+        scanner.startScan(Collections.singletonList(filter), settings, scanCallback);
+        scanning = true;
+        hardwareStarts++;
+        Log.d(TAG, "scan started");
+        return true;
+    }
+
+    private void stopHardware() {
+        if (!scanning) return;
+        scanning = false;
+        if (scanner != null) {
+            try {
+                scanner.stopScan(scanCallback);
+            } catch (IllegalStateException e) {
+                // 블루투스가 이미 꺼진 경우
+                Log.w(TAG, "stopScan 실패", e);
+            }
+            scanner = null;
+        }
+        if (framePosted) {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+            framePosted = false;
+        }
+        Log.d(TAG, "scan stopped");
+    }
+
+    private void finish(Subscription sub, int reason) {
+        if (!sub.active) return;
+        sub.active = false;
+        subscriptions.remove(sub);
+        mainHandler.removeCallbacks(sub.timeout);
+        // 마지막 구독이면 리스너를 부르기 전에 멈춘다 (리스너가 바로 다시 구독할 수 있게)
+        if (subscriptions.isEmpty()) stopHardware();
+
+        sub.listener.onScanResults(getCachedResults());
+        sub.listener.onScanStopped(reason);
+    }
+
+    private void finishAll(int reason) {
+        for (Subscription sub : new ArrayList<>(subscriptions)) {
+            finish(sub, reason);
+        }
+        stopHardware();
+    }
+
+    private void scheduleDispatch() {
+        if (framePosted) return;
+        framePosted = true;
+        Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+
+    private void dispatchResults() {
+        if (subscriptions.isEmpty()) return;
+        List<ScanResultCache.Entry> results = getCachedResults();
+        for (Subscription sub : new ArrayList<>(subscriptions)) {
+            if (sub.active) sub.listener.onScanResults(results);
+        }
+    }
+
+    // 찾던 기기가 보인 구독을 끝낸다
+    private void finishTargets(String mac) {
+        for (int i = subscriptions.size() - 1; i >= 0; i--) {
+            if (i >= subscriptions.size()) continue;    // 리스너가 다른 구독을 닫은 경우
+            Subscription sub = subscriptions.get(i);
+            if (sub.targetMac != null && sub.targetMac.equalsIgnoreCase(mac)) {
+                finish(sub, STOP_FOUND);
+            }
+        }
+    }
+
+    private final ScanCallback scanCallback = new ScanCallback() {
+        // 캐시에 넣고 MAC 을 돌려준다
+        @Nullable
+        private String handleResult(ScanResult result) {
+            BluetoothDevice device = result.getDevice();
+            if (device == null) return null;
+            String mac = device.getAddress();
+            if (mac == null) return null;
+
+            // 이름은 광고 데이터에서 먼저 찾는다 (getName 은 CONNECT 권한이 필요할 수 있음).
+            // 광고 바이트가 지난번과 같으면 캐시가 다시 풀지 않는다.
+            ScanRecord record = result.getScanRecord();
+            byte[] bytes = record != null ? record.getBytes() : null;
+            String fallbackName = null;
+            ScanResultCache.Entry known = cache.get(mac);
+            if (known == null || known.getName() == null) {
+                try {
+                    fallbackName = device.getName();
+                } catch (SecurityException ignored) {
+                }
+            }
+
+            long now = SystemClock.elapsedRealtime();
+            if (cache.update(mac, bytes, fallbackName, result.getRssi(), now)) {
+                scheduleDispatch();
+            }
+            return mac;
+        }
+
+        @Override
+        public void onScanResult(int callbackType, ScanResult result) {
+            if (!scanning) return;
+            String mac = handleResult(result);
+            if (mac != null) finishTargets(mac);
+        }
+
+        @Override
+        public void onBatchScanResults(List<ScanResult> results) {
+            if (!scanning) return;
+            for (ScanResult sr : results) {
+                String mac = handleResult(sr);
+                if (mac != null) finishTargets(mac);
+                if (!scanning) return;
+            }
+        }
+
+        @Override
+        public void onScanFailed(int errorCode) {
+            Log.w(TAG, "scan failed: " + errorCode);
+            // 하드웨어 스캔은 시작되지 않았으므로 stopScan 없이 정리
+            scanner = null;
+            finishAll(STOP_FAILED);
+        }
+    };
+}
@@ -0,0 +1,61 @@
+package com.energysaver;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// BLE 연결 상태를 가진 단일 작업 스레드.
+// DeviceConnection, 요청 큐, 하트비트/재연결/연결 순서 스케줄러는 모두 이 스레드에서만 만진다.
+//
+// GATT 콜백(바인더 스레드)은 execute() 로 넘긴다. 락 없는 큐에 쌓고,
+// 비어 있던 큐에 처음 들어올 때만 핸들러 메시지를 하나 보내서 한 번에 처리한다.
+// 시간이 걸리는 예약(타임아웃, 재연결)은 getHandler() 로 직접 건다.
+public class BleWorker {
+
+    private final HandlerThread thread;
+    private final Handler handler;
+
+    private final ConcurrentLinkedQueue<Runnable> inbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainPosted = new AtomicBoolean(false);
+    private final Runnable drain = this::drainInbox;
+
+    public BleWorker(String name) {
+        thread = new HandlerThread(name, Process.THREAD_PRIORITY_FOREGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    public Handler getHandler() {
+        return handler;
+    }
+
+    public boolean isWorkerThread() {
+        return Looper.myLooper() == thread.getLooper();
+    }
+
+    // 어느 스레드에서나 호출 가능. 넣은 순서대로 작업 스레드에서 실행된다.
+    public void execute(Runnable task) {
+        inbox.offer(task);
+        if (drainPosted.compareAndSet(false, true)) {
+            handler.post(drain);
+        }
+    }
+
+    private void drainInbox() {
+        // 먼저 내려놓아야 처리 중에 들어온 작업이 다음 메시지로 이어진다
+        drainPosted.set(false);
+        Runnable task;
+        while ((task = inbox.poll()) != null) {
+            task.run();
+        }
+    }
+
+    // 이미 넣은 작업까지 처리하고 스레드를 끝낸다
+    public void quit() {
+        thread.quitSafely();
+    }
+}
@@ -17,19 +17,18 @@ import android.bluetooth.BluetoothGattDescriptor;
 import android.bluetooth.BluetoothGattService;
 import android.bluetooth.BluetoothManager;
 import android.bluetooth.BluetoothProfile;
-import android.bluetooth.le.BluetoothLeScanner;
-import android.bluetooth.le.ScanCallback;
-import android.bluetooth.le.ScanResult;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.Build;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 import android.widget.Toast;
 
+import com.energysaver.core.ScanResultCache;
+import com.energysaver.core.UartCodec;
+
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
 
@@ -45,7 +44,6 @@ public class BluetoothHelper {
             UUID.fromString("00002902-0000-1000-8000-00805F9B34FB");
     private static final int REQUEST_BLUETOOTH_PERMISSIONS = 100;
     private static final int REQUEST_ENABLE_BT = 101;
-    private static final long SCAN_PERIOD = 10000L;
 
     public interface Callback {
         void onStatusText(String text);
@@ -60,12 +58,14 @@ public class BluetoothHelper {
     private final Callback callback;
 
     private BluetoothAdapter bluetoothAdapter;
-    private BluetoothLeScanner bluetoothLeScanner;
     private BluetoothGatt bluetoothGatt;
     private BluetoothGattCharacteristic uartCharacteristic;
 
-    private boolean isScanning = false;
-    private final Handler handler = new Handler(Looper.getMainLooper());
+    // 스캔은 직접 하지 않고 서비스의 공유 스캐너를 구독한다 (두 스캔이 라디오를 두고 다투지 않게)
+    private BleScanner scanner;
+    private BleScanner.Subscription scanSubscription;
+    // 이번 스캔에서 이미 알린 기기 (광고마다 onDeviceFound 가 불리지 않게)
+    private final HashSet<String> reportedAddresses = new HashSet<>();
 
     public BluetoothHelper(Activity activity, Callback callback) {
         this.activity = activity;
@@ -180,10 +180,21 @@ public class BluetoothHelper {
         }
     }
 
+    // BleForegroundService.getScanner() 를 넘겨준다. 없으면 스캔하지 않는다.
+    public void setScanner(BleScanner scanner) {
+        if (this.scanner != scanner) stopBleScan();
+        this.scanner = scanner;
+    }
+
     public void startBleScan() {
         if (bluetoothAdapter == null) return;
 
-        if (isScanning) return;
+        if (scanSubscription != null) return;
+
+        if (scanner == null) {
+            if (callback != null) callback.onLog("BLE scan unavailable: service not bound.");
+            return;
+        }
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S &&
                 ActivityCompat.checkSelfPermission(activity,
@@ -195,73 +206,54 @@ public class BluetoothHelper {
             return;
         }
 
-        bluetoothLeScanner = bluetoothAdapter.getBluetoothLeScanner();
-        if (bluetoothLeScanner == null) {
+        reportedAddresses.clear();
+        scanSubscription = scanner.subscribe(null, BleScanner.DEFAULT_SCAN_MS, scanListener);
+        if (scanSubscription == null) {
             Toast.makeText(activity,
-                    "BluetoothLeScanner not available",
+                    "BLE scan could not be started",
                     Toast.LENGTH_SHORT).show();
             return;
         }
 
-        isScanning = true;
         if (callback != null) {
             callback.onStatusText("Scanning BLE devices...");
             callback.onLog("BLE scan started.");
         }
-
-        handler.postDelayed(this::stopBleScan, SCAN_PERIOD);
-        bluetoothLeScanner.startScan(leScanCallback);
     }
 
     public void stopBleScan() {
-        if (!isScanning) return;
-
-        if (bluetoothLeScanner != null) {
-            bluetoothLeScanner.stopScan(leScanCallback);
-        }
-        isScanning = false;
-
-        if (callback != null) {
-            callback.onStatusText("Scan Finished");
-            callback.onLog("BLE scan finished.");
-        }
+        if (scanSubscription == null) return;
+        // scanListener.onScanStopped 에서 마무리
+        scanSubscription.close();
     }
 
-    private final ScanCallback leScanCallback = new ScanCallback() {
-
-        private void handleScanResult(ScanResult result) {
-            BluetoothDevice device = result.getDevice();
-            if (device == null) return;
-
-            String name = device.getName();
-            if (name == null || name.isEmpty()) {
-                name = "Unknown BLE Device";
-            }
-            String addr = device.getAddress();
-            String deviceInfo = name + "\n" + addr;
-
-            if (callback != null) {
-                callback.onDeviceFound(device, deviceInfo);
-            }
-        }
-
-        @Override
-        public void onScanResult(int callbackType, ScanResult result) {
-            handleScanResult(result);
-        }
-
+    private final BleScanner.Listener scanListener = new BleScanner.Listener() {
         @Override
-        public void onBatchScanResults(List<ScanResult> results) {
-            for (ScanResult sr : results) {
-                handleScanResult(sr);
+        public void onScanResults(List<ScanResultCache.Entry> results) {
+            for (ScanResultCache.Entry e : results) {
+                String addr = e.getMac();
+                if (!reportedAddresses.add(addr)) continue;
+
+                String name = e.getName();
+                if (name == null || name.isEmpty()) {
+                    name = "Unknown BLE Device";
+                }
+                if (callback != null) {
+                    callback.onDeviceFound(bluetoothAdapter.getRemoteDevice(addr), name + "\n" + addr);
+                }
             }
         }
 
         @Override
-        public void onScanFailed(int errorCode) {
-            if (callback != null) {
-                callback.onStatusText("Scan failed: " + errorCode);
-                callback.onLog("BLE scan failed: " + errorCode);
+        public void onScanStopped(int reason) {
+            scanSubscription = null;
+            if (callback == null) return;
+            if (reason == BleScanner.STOP_FAILED) {
+                callback.onStatusText("Scan failed");
+                callback.onLog("BLE scan failed.");
+            } else {
+                callback.onStatusText("Scan Finished");
+                callback.onLog("BLE scan finished.");
             }
         }
     };
@@ -305,9 +297,15 @@ public class BluetoothHelper {
             return;
         }
 
-        uartCharacteristic.setWriteType(
-                BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
-        uartCharacteristic.setValue(msg.getBytes());
+        // PING 은 응답 없는 쓰기, 상태를 바꾸는 명령은 응답 있는 쓰기
+        boolean noResponse = "PING".equalsIgnoreCase(msg.trim())
+                && (uartCharacteristic.getProperties()
+                & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) != 0;
+        uartCharacteristic.setWriteType(noResponse
+                ? BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE
+                : BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
+        // 서비스와 같은 텍스트 프레이밍 (줄 끝 \n, ASCII)
+        uartCharacteristic.setValue(UartCodec.encodeCommand(msg.trim(), 0, false));
         boolean ok = bluetoothGatt.writeCharacteristic(uartCharacteristic);
 
         if (callback != null) {
@@ -0,0 +1,119 @@
+package com.energysaver;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.widget.Button;
+import android.widget.TextView;
+
+import com.energysaver.core.SmartStrip;
+import com.energysaver.core.StripRegistry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// 기기별 연결 품질 화면. 서비스의 지표 스냅샷을 1초마다 다시 읽는다.
+public class DiagnosticsActivity extends AppCompatActivity {
+
+    private static final long REFRESH_MS = 1000;
+
+    private TextView tvSummary;
+    private DiagnosticsAdapter adapter;
+
+    private BleForegroundService bleService;
+    private boolean serviceBound = false;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable refreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+            handler.postDelayed(this, REFRESH_MS);
+        }
+    };
+
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            bleService = ((BleForegroundService.LocalBinder) service).getService();
+            serviceBound = true;
+            handler.removeCallbacks(refreshRunnable);
+            handler.post(refreshRunnable);
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            bleService = null;
+            serviceBound = false;
+            handler.removeCallbacks(refreshRunnable);
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_diagnostics);
+
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+
+        tvSummary = findViewById(R.id.tvDiagSummary);
+        RecyclerView rv = findViewById(R.id.rvDiagnostics);
+        rv.setLayoutManager(new LinearLayoutManager(this));
+        adapter = new DiagnosticsAdapter();
+        rv.setAdapter(adapter);
+
+        Button btnReset = findViewById(R.id.btnResetMetrics);
+        btnReset.setOnClickListener(v -> {
+            if (bleService == null) return;
+            bleService.resetMetrics();
+            refresh();
+        });
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        bindService(new Intent(this, BleForegroundService.class), serviceConnection, 0);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        handler.removeCallbacks(refreshRunnable);
+        if (serviceBound) {
+            unbindService(serviceConnection);
+            serviceBound = false;
+            bleService = null;
+        }
+    }
+
+    private void refresh() {
+        BleForegroundService service = bleService;
+        if (service == null) {
+            tvSummary.setText("서비스 연결 안 됨");
+            return;
+        }
+
+        Map<String, String> names = new HashMap<>();
+        StripRegistry registry = service.getRegistry();
+        if (registry != null) {
+            for (SmartStrip strip : registry.getStrips()) {
+                names.put(strip.getMacAddress(), strip.getName());
+            }
+        }
+        adapter.setItems(service.getMetricsSnapshots(), names);
+        tvSummary.setText("연결 진행 " + service.getConnectingCount()
+                + " · 대기 " + service.getConnectQueueDepth()
+                + " · 기기 " + adapter.getItemCount());
+    }
+}
@@ -0,0 +1,110 @@
+package com.energysaver;
+
+import android.graphics.Color;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.energysaver.core.DeviceMetrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// 기기별 연결 품질 카드. 나쁜 링크가 위로 오도록 정렬한다.
+public class DiagnosticsAdapter extends RecyclerView.Adapter<DiagnosticsAdapter.ViewHolder> {
+
+    // 이 이상이면 빨간색으로 표시 (쓰기 실패율 + 하트비트 누락률 + 연결당 끊김)
+    private static final double BAD_LINK_THRESHOLD = 0.5;
+
+    private final List<DeviceMetrics.Snapshot> items = new ArrayList<>();
+    private Map<String, String> names = Collections.emptyMap();
+
+    // names: mac → 사용자가 붙인 이름 (없으면 mac 만 표시)
+    public void setItems(List<DeviceMetrics.Snapshot> snapshots, Map<String, String> names) {
+        items.clear();
+        items.addAll(snapshots);
+        Collections.sort(items, (a, b) -> Double.compare(b.getBadness(), a.getBadness()));
+        this.names = names;
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View v = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_diagnostics, parent, false);
+        return new ViewHolder(v);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        DeviceMetrics.Snapshot s = items.get(position);
+        String name = names.get(s.getMac());
+        holder.tvTitle.setText(name != null ? name + "  " + s.getMac() : s.getMac());
+        holder.tvTitle.setTextColor(s.getBadness() >= BAD_LINK_THRESHOLD
+                ? Color.rgb(0xC6, 0x28, 0x28) : Color.BLACK);
+        holder.tvBody.setText(format(s));
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    static String format(DeviceMetrics.Snapshot s) {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(String.format(Locale.US, "연결 %d/%d회, READY %d회, 끊김 %d회, 재연결 시도 %d회%n",
+                s.getConnects(), s.getConnectAttempts(), s.getReadyCount(),
+                s.getDisconnects(), s.getReconnectAttempts()));
+        sb.append("연결 ").append(percentiles(s.connectPercentileMs(50), s.connectPercentileMs(90)))
+                .append(" · 탐색 ").append(percentiles(s.discoveryPercentileMs(50),
+                        s.discoveryPercentileMs(90)))
+                .append(" · READY ").append(percentiles(s.readyPercentileMs(50),
+                        s.readyPercentileMs(90)))
+                .append('\n');
+        sb.append(String.format(Locale.US, "쓰기 성공 %d / 실패 %d (%.1f%%)%n",
+                s.getWritesOk(), s.getWritesFailed(), s.getWriteFailureRate() * 100));
+        sb.append("ACK ").append(percentiles(s.ackPercentileMs(50), s.ackPercentileMs(90)))
+                .append(String.format(Locale.US, " · 하트비트 누락 %d/%d%n",
+                        s.getHeartbeatMisses(), s.getHeartbeats()));
+
+        int[] statuses = s.getDisconnectStatuses();
+        long[] counts = s.getDisconnectCounts();
+        sb.append("끊김 이유:");
+        if (statuses.length == 0) sb.append(" 없음");
+        for (int i = 0; i < statuses.length; i++) {
+            sb.append(' ');
+            if (statuses[i] == DeviceMetrics.Snapshot.STATUS_OTHER) {
+                sb.append("기타");
+            } else {
+                sb.append(String.format(Locale.US, "0x%02X", statuses[i]));
+            }
+            sb.append('×').append(counts[i]);
+        }
+        return sb.toString();
+    }
+
+    // p50/p90 (버킷 상한이라 "이하" 의 의미)
+    private static String percentiles(long p50, long p90) {
+        if (p50 < 0) return "-";
+        return "≤" + p50 + "/" + p90 + "ms";
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvTitle;
+        final TextView tvBody;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvTitle = itemView.findViewById(R.id.tvDiagTitle);
+            tvBody = itemView.findViewById(R.id.tvDiagBody);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.energysaver;
+
+import android.view.Choreographer;
+
+// 한 프레임 동안 들어온 갱신 요청을 모아 다음 Choreographer 프레임에 action 을 한 번만 실행한다.
+// 재연결 폭풍처럼 상태 변화가 몰려도 화면 갱신(과 레이아웃)은 프레임당 한 번.
+// action 실행 중에 들어온 요청은 그 실행에 포함된 것으로 본다. 메인 스레드에서만 사용.
+final class FrameCoalescer implements Choreographer.FrameCallback {
+
+    private final Runnable action;
+    private boolean scheduled = false;
+    private int requests = 0;
+    private int frames = 0;
+
+    FrameCoalescer(Runnable action) {
+        this.action = action;
+    }
+
+    void request() {
+        requests++;
+        if (scheduled) return;
+        scheduled = true;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    void cancel() {
+        if (!scheduled) return;
+        scheduled = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        try {
+            action.run();
+        } finally {
+            scheduled = false;
+            frames++;
+        }
+    }
+
+    // 요청 수 대비 실제 실행 수 (얼마나 모였는지 확인용)
+    int getRequestCount() {
+        return requests;
+    }
+
+    int getFrameCount() {
+        return frames;
+    }
+}
@@ -0,0 +1,190 @@
+package com.energysaver;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothProfile;
+import android.content.Context;
+import android.util.Log;
+
+import com.energysaver.core.BleTransport;
+
+import java.util.UUID;
+
+// 안드로이드 BluetoothGatt 로 구현한 BleTransport (HM-10 UART).
+// 콜백은 바인더 스레드에서 그대로 넘긴다. 받는 쪽(DeviceConnection)이 BLE 작업 스레드로 옮긴다.
+class GattTransport extends BluetoothGattCallback implements BleTransport {
+
+    private static final String TAG = "GattTransport";
+
+    private static final UUID UART_SERVICE_UUID =
+            UUID.fromString("0000FFE0-0000-1000-8000-00805F9B34FB");
+    private static final UUID UART_CHAR_UUID =
+            UUID.fromString("0000FFE1-0000-1000-8000-00805F9B34FB");
+    private static final UUID CCCD_UUID =
+            UUID.fromString("00002902-0000-1000-8000-00805F9B34FB");
+
+    private final String mac;
+    private final Callback callback;
+    private volatile BluetoothGatt gatt;
+    private volatile BluetoothGattCharacteristic uartChar;
+
+    private GattTransport(String mac, Callback callback) {
+        this.mac = mac;
+        this.callback = callback;
+    }
+
+    static BleTransport.Factory factory(Context context) {
+        Context app = context.getApplicationContext();
+        return (mac, callback) -> {
+            BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+            if (adapter == null || !adapter.isEnabled()) {
+                Log.w(TAG, "BluetoothAdapter not ready for connect: " + mac);
+                return null;
+            }
+            BluetoothDevice device;
+            try {
+                device = adapter.getRemoteDevice(mac);
+            } catch (IllegalArgumentException e) {
+                Log.e(TAG, "getRemoteDevice 실패 mac=" + mac, e);
+                return null;
+            }
+            if (device == null) return null;
+
+            Log.d(TAG, "connectGatt() mac=" + mac);
+            GattTransport t = new GattTransport(mac, callback);
+            t.gatt = device.connectGatt(app, false, t);
+            return t.gatt != null ? t : null;
+        };
+    }
+
+    // ───── BleTransport ─────
+
+    @Override
+    public boolean discoverServices() {
+        BluetoothGatt g = gatt;
+        return g != null && g.discoverServices();
+    }
+
+    @Override
+    public boolean requestMtu(int mtu) {
+        BluetoothGatt g = gatt;
+        return g != null && g.requestMtu(mtu);
+    }
+
+    @Override
+    public boolean enableNotifications() {
+        BluetoothGatt g = gatt;
+        BluetoothGattCharacteristic c = uartChar;
+        if (g == null || c == null) return false;
+        boolean notifSet = g.setCharacteristicNotification(c, true);
+        Log.d(TAG, "setCharacteristicNotification mac=" + mac + ": " + notifSet);
+        BluetoothGattDescriptor descriptor = c.getDescriptor(CCCD_UUID);
+        if (descriptor == null) return false;
+        descriptor.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+        return g.writeDescriptor(descriptor);
+    }
+
+    @Override
+    public boolean write(byte[] payload, boolean withoutResponse) {
+        BluetoothGatt g = gatt;
+        BluetoothGattCharacteristic c = uartChar;
+        if (g == null || c == null) return false;
+        c.setWriteType(withoutResponse
+                ? BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE
+                : BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT);
+        c.setValue(payload);
+        return g.writeCharacteristic(c);
+    }
+
+    @Override
+    public boolean supportsWriteWithoutResponse() {
+        BluetoothGattCharacteristic c = uartChar;
+        return c != null
+                && (c.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) != 0;
+    }
+
+    @Override
+    public boolean readRssi() {
+        BluetoothGatt g = gatt;
+        return g != null && g.readRemoteRssi();
+    }
+
+    @Override
+    public void close() {
+        BluetoothGatt g = gatt;
+        gatt = null;
+        uartChar = null;
+        if (g != null) {
+            try {
+                g.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    // ───── BluetoothGattCallback ─────
+
+    @Override
+    public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
+        Log.d(TAG, "onConnectionStateChange mac=" + mac
+                + " status=" + status
+                + " newState=" + newState);
+        if (newState == BluetoothProfile.STATE_CONNECTED) {
+            callback.onConnectionStateChanged(this, status, true);
+        } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
+            callback.onConnectionStateChanged(this, status, false);
+        }
+    }
+
+    @Override
+    public void onServicesDiscovered(BluetoothGatt gatt, int status) {
+        Log.d(TAG, "onServicesDiscovered mac=" + mac + " status=" + status);
+        BluetoothGattCharacteristic c = null;
+        if (status == BluetoothGatt.GATT_SUCCESS) {
+            BluetoothGattService uartService = gatt.getService(UART_SERVICE_UUID);
+            if (uartService != null) {
+                c = uartService.getCharacteristic(UART_CHAR_UUID);
+            }
+        }
+        uartChar = c;
+        callback.onServicesDiscovered(this, status, c != null,
+                c != null && c.getDescriptor(CCCD_UUID) != null);
+    }
+
+    @Override
+    public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
+        callback.onMtuChanged(this, mtu, status);
+    }
+
+    @Override
+    public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor,
+                                  int status) {
+        callback.onNotificationsEnabled(this, status);
+    }
+
+    @Override
+    public void onCharacteristicWrite(BluetoothGatt gatt,
+                                      BluetoothGattCharacteristic characteristic,
+                                      int status) {
+        callback.onWriteComplete(this, status);
+    }
+
+    @Override
+    public void onReadRemoteRssi(BluetoothGatt gatt, int rssi, int status) {
+        callback.onRssiRead(this, rssi, status);
+    }
+
+    @Override
+    public void onCharacteristicChanged(BluetoothGatt gatt,
+                                        BluetoothGattCharacteristic characteristic) {
+        if (!UART_CHAR_UUID.equals(characteristic.getUuid())) return;
+        byte[] value = characteristic.getValue();
+        if (value == null) return;
+        callback.onReceived(this, value.clone());
+    }
+}
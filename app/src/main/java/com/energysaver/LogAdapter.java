@@ -0,0 +1,127 @@
+package com.energysaver;
+
+import android.graphics.Color;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+// LogStore 를 필터링해서 보여주는 어댑터. 화면에 보이는 줄만 bind 되므로
+// 로그가 아무리 쌓여도 레이아웃 비용은 일정하다.
+public class LogAdapter extends RecyclerView.Adapter<LogAdapter.LogViewHolder>
+        implements LogStore.Listener {
+
+    private final LogStore store;
+
+    // 필터에 맞는 seq 들 (store 와 같은 크기의 링)
+    private final long[] rows;
+    private int first = 0;
+    private int count = 0;
+
+    private String macFilter = null;
+    private LogStore.Level minLevel = LogStore.Level.DEBUG;
+
+    private final SimpleDateFormat timeFormat =
+            new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
+    private final Date date = new Date();
+    private final StringBuilder sb = new StringBuilder(128);
+
+    public LogAdapter(LogStore store) {
+        this.store = store;
+        this.rows = new long[store.getCapacity()];
+        store.setListener(this);
+        rebuild();
+    }
+
+    // mac == null 이면 전체, "" 이면 앱 로그만
+    public void setFilter(String mac, LogStore.Level level) {
+        macFilter = mac;
+        minLevel = level;
+        rebuild();
+        notifyDataSetChanged();
+    }
+
+    private void rebuild() {
+        first = 0;
+        count = 0;
+        for (long seq = store.getOldestSeq(); seq < store.getNextSeq(); seq++) {
+            if (store.matches(seq, macFilter, minLevel)) {
+                rows[count++] = seq;
+            }
+        }
+    }
+
+    @Override
+    public void onAppended(long seq, long oldestSeq) {
+        int evicted = 0;
+        while (count > 0 && rows[first] < oldestSeq) {
+            first = (first + 1) % rows.length;
+            count--;
+            evicted++;
+        }
+        if (evicted > 0) {
+            notifyItemRangeRemoved(0, evicted);
+        }
+        if (store.matches(seq, macFilter, minLevel)) {
+            rows[(first + count) % rows.length] = seq;
+            count++;
+            notifyItemInserted(count - 1);
+        }
+    }
+
+    @Override
+    public void onCleared() {
+        first = 0;
+        count = 0;
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public LogViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View v = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_log, parent, false);
+        return new LogViewHolder(v);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull LogViewHolder holder, int position) {
+        long seq = rows[(first + position) % rows.length];
+
+        date.setTime(store.getTimeMs(seq));
+        sb.setLength(0);
+        sb.append('[').append(timeFormat.format(date)).append("] ");
+        String mac = store.getMac(seq);
+        if (mac != null) {
+            sb.append('[').append(mac).append("] ");
+        }
+        sb.append(store.getMessage(seq));
+        holder.tvLine.setText(sb.toString());
+
+        LogStore.Level level = store.getLevel(seq);
+        holder.tvLine.setTextColor(level == LogStore.Level.WARN ? Color.RED
+                : level == LogStore.Level.DEBUG ? Color.DKGRAY : Color.BLACK);
+    }
+
+    @Override
+    public int getItemCount() {
+        return count;
+    }
+
+    public static class LogViewHolder extends RecyclerView.ViewHolder {
+
+        TextView tvLine;
+
+        public LogViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvLine = itemView.findViewById(R.id.tvLogLine);
+        }
+    }
+}
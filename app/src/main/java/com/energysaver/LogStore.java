@@ -0,0 +1,121 @@
+package com.energysaver;
+
+// 고정 크기 링 버퍼 로그. 가득 차면 가장 오래된 기록을 덮어쓴다.
+// 레코드는 seq(단조 증가)로 가리키고, 시간 문자열은 화면에 그릴 때만 만든다.
+// 메인 스레드에서만 사용.
+public class LogStore {
+
+    public enum Level {
+        DEBUG,   // TX/RX, 하트비트 등 자주 찍히는 것
+        INFO,
+        WARN
+    }
+
+    public interface Listener {
+        // seq 가 추가되었고, oldestSeq 보다 앞의 레코드는 사라졌다.
+        void onAppended(long seq, long oldestSeq);
+
+        void onCleared();
+    }
+
+    public static final int DEFAULT_CAPACITY = 2000;
+
+    private final int capacity;
+    private final long[] timeMs;
+    private final byte[] levels;
+    private final String[] macs;
+    private final String[] messages;
+
+    private long nextSeq = 0;
+    private Listener listener;
+
+    public LogStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LogStore(int capacity) {
+        this.capacity = capacity;
+        timeMs = new long[capacity];
+        levels = new byte[capacity];
+        macs = new String[capacity];
+        messages = new String[capacity];
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public long append(long time, Level level, String mac, String message) {
+        long seq = nextSeq++;
+        int slot = slot(seq);
+        timeMs[slot] = time;
+        levels[slot] = (byte) level.ordinal();
+        macs[slot] = mac;
+        messages[slot] = message;
+        if (listener != null) {
+            listener.onAppended(seq, getOldestSeq());
+        }
+        return seq;
+    }
+
+    public void clear() {
+        for (int i = 0; i < capacity; i++) {
+            macs[i] = null;
+            messages[i] = null;
+        }
+        nextSeq = 0;
+        if (listener != null) {
+            listener.onCleared();
+        }
+    }
+
+    // 아직 남아 있는 가장 오래된 seq
+    public long getOldestSeq() {
+        return Math.max(0, nextSeq - capacity);
+    }
+
+    public long getNextSeq() {
+        return nextSeq;
+    }
+
+    public int size() {
+        return (int) (nextSeq - getOldestSeq());
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean contains(long seq) {
+        return seq >= getOldestSeq() && seq < nextSeq;
+    }
+
+    // mac == null 이면 모든 기기. mac 이 "" 이면 앱 자체 로그만.
+    public boolean matches(long seq, String mac, Level minLevel) {
+        int slot = slot(seq);
+        if (levels[slot] < minLevel.ordinal()) return false;
+        if (mac == null) return true;
+        String m = macs[slot];
+        return mac.isEmpty() ? m == null : mac.equalsIgnoreCase(m);
+    }
+
+    public long getTimeMs(long seq) {
+        return timeMs[slot(seq)];
+    }
+
+    public Level getLevel(long seq) {
+        return Level.values()[levels[slot(seq)]];
+    }
+
+    public String getMac(long seq) {
+        return macs[slot(seq)];
+    }
+
+    public String getMessage(long seq) {
+        return messages[slot(seq)];
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % capacity);
+    }
+}
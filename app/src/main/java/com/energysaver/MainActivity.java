@@ -6,46 +6,61 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.core.content.FileProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import android.Manifest;
+import android.app.TimePickerDialog;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothManager;
 import android.bluetooth.BluetoothProfile;
-import android.bluetooth.le.BluetoothLeScanner;
-import android.bluetooth.le.ScanCallback;
-import android.bluetooth.le.ScanResult;
 import android.content.BroadcastReceiver;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.ServiceConnection;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
+import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ListView;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.text.SimpleDateFormat;
+import com.energysaver.core.CommandTracker;
+import com.energysaver.core.ConnectionState;
+import com.energysaver.core.ConnectionStateModel;
+import com.energysaver.core.GroupCommand;
+import com.energysaver.core.PowerSchedule;
+import com.energysaver.core.ScanResultCache;
+import com.energysaver.core.SmartStrip;
+import com.energysaver.core.StripRegistry;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.Locale;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -55,12 +70,19 @@ public class MainActivity extends AppCompatActivity {
     private RecyclerView rvDevices;
     private TextView tvAddNewDevice;
     private Button btnAllOff;
-    private TextView tvLog;
+    private RecyclerView rvLog;
+    private Spinner spinnerLogDevice;
+    private Spinner spinnerLogLevel;
+
+    // ─────────────────────────── 로그 ───────────────────────────
+    private final LogStore logStore = new LogStore();
+    private LogAdapter logAdapter;
+    // spinnerLogDevice 항목별 필터 (null = 전체, "" = 앱 로그만)
+    private final ArrayList<String> logDeviceFilters = new ArrayList<>();
 
     // ───────────────────── 멀티탭 리스트 관련 ───────────────────
-    private static final String PREFS_NAME = "smart_strips_prefs";
-    private static final String KEY_STRIPS_JSON = "strips_json";
-    private final ArrayList<SmartStrip> strips = new ArrayList<>();
+    // 서비스가 가진 목록을 같이 쓴다 (서비스 연결 전에는 null)
+    private StripRegistry registry;
     private SmartStripAdapter adapter;
 
     // ──────────────────────── BLE / Service ─────────────────────
@@ -70,15 +92,16 @@ public class MainActivity extends AppCompatActivity {
     private static final int REQ_BLE_PERMISSIONS = 100;
     private static final int REQ_ENABLE_BT = 101;
 
-    // BLE 어댑터/스캐너
+    // "모두 끄기" 결과를 기다리는 최대 시간. 그 뒤에 끝나지 않은 기기는 연결되면 꺼진다.
+    private static final long ALL_OFF_TIMEOUT_MS = 15000;
+
+    // BLE 어댑터 (스캔은 서비스의 BleScanner 가 한다)
     private BluetoothAdapter bluetoothAdapter;
-    private BluetoothLeScanner bluetoothLeScanner;
-    private boolean isScanning = false;
-    private static final long SCAN_PERIOD = 10000L; // 10초
+    private BleScanner.Subscription scanSubscription;   // 기기 추가 창의 스캔 구독
     private final Handler handler = new Handler(Looper.getMainLooper());
 
-    // 스캔 결과 리스트
-    private final ArrayList<BluetoothDevice> scannedDevices = new ArrayList<>();
+    // 스캔 결과 리스트 (scannedMacs 와 scannedDeviceInfo 는 같은 순서)
+    private final ArrayList<String> scannedMacs = new ArrayList<>();
     private final ArrayList<String> scannedDeviceInfo = new ArrayList<>();
     private ArrayAdapter<String> scanListAdapter;
     private AlertDialog scanDialog;
@@ -96,60 +119,132 @@ public class MainActivity extends AppCompatActivity {
             bleService = binder.getService();
             serviceBound = true;
 
+            bleService.addEventListener(bleListener,
+                    ContextCompat.getMainExecutor(MainActivity.this));
             appendLog("BLE Service connected.");
 
-            // 이미 등록된 기기들이 있다면 서비스에 연결 요청
-            for (SmartStrip strip : strips) {
-                bleService.connect(strip.getMacAddress());
-            }
+            // 등록된 기기 연결과 재연결 후 상태 동기화는 서비스가 알아서 한다
+            registry = bleService.getRegistry();
+            registry.addListener(stripListener);
+            ConnectionStateModel states = bleService.getConnectionStates();
+            states.addObserver(connectionObserver,
+                    ContextCompat.getMainExecutor(MainActivity.this));
+            pendingStates.putAll(states.snapshot());
+            stripsDirty = true;
+            uiFrame.request();
+            rvDevices.post(MainActivity.this::reportVisibleStrips);
+            refreshLogDeviceFilter();
+            appendLog("등록된 멀티탭 " + registry.size() + "개");
         }
 
         @Override
         public void onServiceDisconnected(ComponentName name) {
+            if (registry != null) {
+                registry.removeListener(stripListener);
+                registry = null;
+            }
+            if (bleService != null) {
+                bleService.getConnectionStates().removeObserver(connectionObserver);
+            }
+            uiFrame.cancel();
+            pendingStates.clear();
+            adapter.submitStrips(Collections.emptyList());
             serviceBound = false;
             bleService = null;
             appendLog("BLE Service disconnected.");
         }
     };
 
-    // ───────────────── BLE 서비스 브로드캐스트 수신 ──────────────
-    private final BroadcastReceiver bleReceiver = new BroadcastReceiver() {
+    // ───────────────── BLE 서비스 이벤트 수신 (메인 스레드) ──────────────
+    private final BleEventBus.Listener bleListener = new BleEventBus.Listener() {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            String action = intent.getAction();
-            if ("BLE_CONNECTION_STATE".equals(action)) {
-                String mac = intent.getStringExtra("mac");
-                String state = intent.getStringExtra("state");
-                appendLog("[" + mac + "] 상태: " + state);
-                tvSubtitle.setText("[" + mac + "] " + state);
-
-                if ("READY".equals(state)) {
-                    SmartStrip strip = findStripByMac(mac);
-                    if (strip != null) {
-                        boolean desiredOn = strip.isOn();
-                        String cmd = desiredOn ? "ON\n" : "OFF\n";
+        public void onBleEvent(BleEvent event) {
+            BleEvent.Type type = event.getType();
+            if (type == BleEvent.Type.STATE) {
+                String mac = event.getMac();
+                String state = event.getText();
+                appendLog(mac, LogStore.Level.INFO, "상태: " + state);
+            } else if (type == BleEvent.Type.LOG) {
+                String mac = event.getMac();
+                String log = event.getText();
+                appendLog(mac, LogStore.Level.DEBUG, log);
+            } else if (type == BleEvent.Type.MESSAGE) {
+                String mac = event.getMac();
+                String msg = event.getText();
+                appendLog(mac, LogStore.Level.DEBUG, "RX: " + msg.trim());
+            }
+        }
+    };
 
-                        if (serviceBound && bleService != null) {
-                            bleService.sendCommand(mac, cmd);
-                            appendLog("재연결 후 상태 동기화: " +
-                                    strip.getName() + " → " + (desiredOn ? "ON" : "OFF"));
-                        } else {
-                            appendLog("재연결 후 동기화 실패(서비스 미연결): " + strip.getName());
-                        }
-                    } else {
-                        appendLog("[" + mac + "] 는 strips 목록에 없음 (동기화 생략)");
-                    }
-                }
-            } else if ("BLE_LOG".equals(action)) {
-                String mac = intent.getStringExtra("mac");
-                String log = intent.getStringExtra("log");
-                appendLog("[" + mac + "] " + log);
-            } else if ("BLE_MESSAGE".equals(action)) {
-                String mac = intent.getStringExtra("mac");
-                String msg = intent.getStringExtra("msg");
-                appendLog("RX(" + mac + "): " + msg.trim());
+    // ───────────────── 멀티탭 목록 / 연결 상태 변경 ──────────────
+    // 목록 변경과 연결 상태 Delta 는 바로 그리지 않고 다음 프레임에 한 번에 적용한다.
+    // ("모두 끄기" 나 여러 대가 한꺼번에 재연결돼도 스냅샷/비교/레이아웃은 프레임당 한 번)
+    private final FrameCoalescer uiFrame = new FrameCoalescer(this::onUiFrame);
+    private boolean stripsDirty = false;
+    // 아직 적용하지 않은 mac → 최신 상태 (같은 기기의 중간 상태는 건너뜀)
+    private final Map<String, ConnectionState> pendingStates = new LinkedHashMap<>();
+
+    private final ConnectionStateModel.Observer connectionObserver = delta -> {
+        pendingStates.put(delta.getMac(), delta.getCurrent());
+        uiFrame.request();
+    };
+
+    private void markStripsDirty() {
+        stripsDirty = true;
+        uiFrame.request();
+    }
+
+    private void onUiFrame() {
+        if (registry == null) {
+            pendingStates.clear();
+            return;
+        }
+        boolean phaseChanged = !pendingStates.isEmpty();
+        for (Map.Entry<String, ConnectionState> e : pendingStates.entrySet()) {
+            registry.setConnectionState(e.getKey(), e.getValue());   // 바뀌면 markStripsDirty
+        }
+        pendingStates.clear();
+        if (stripsDirty) {
+            stripsDirty = false;
+            adapter.submitStrips(registry.getStrips());
+        }
+        if (phaseChanged) updateConnectionSummary();
+    }
+
+    // 부제목: 연결된 멀티탭 수
+    private void updateConnectionSummary() {
+        int ready = 0;
+        int connecting = 0;
+        for (SmartStrip strip : registry.getStrips()) {
+            ConnectionState st = strip.getConnectionState();
+            if (st.isReady()) {
+                ready++;
+            } else if (st.isConnected()
+                    || st.getPhase() == ConnectionState.Phase.CONNECTING) {
+                connecting++;
             }
         }
+        tvSubtitle.setText("연결됨 " + ready + " / " + registry.size()
+                + (connecting > 0 ? " · 연결 중 " + connecting : ""));
+    }
+
+    private final StripRegistry.Listener stripListener = new StripRegistry.Listener() {
+        @Override
+        public void onStripInserted(int position) {
+            markStripsDirty();
+            refreshLogDeviceFilter();
+        }
+
+        @Override
+        public void onStripChanged(int position) {
+            markStripsDirty();
+        }
+
+        @Override
+        public void onStripRemoved(int position) {
+            markStripsDirty();
+            refreshLogDeviceFilter();
+        }
     };
 
     // ───────────────── BOND 상태 변화 브로드캐스트 ──────────────
@@ -207,28 +302,45 @@ public class MainActivity extends AppCompatActivity {
         rvDevices = findViewById(R.id.rvDevices);
         tvAddNewDevice = findViewById(R.id.tvAddNewDevice);
         btnAllOff = findViewById(R.id.btnAllOff);
-        tvLog = findViewById(R.id.tvLog);
+        rvLog = findViewById(R.id.rvLog);
+        spinnerLogDevice = findViewById(R.id.spinnerLogDevice);
+        spinnerLogLevel = findViewById(R.id.spinnerLogLevel);
+
+        setupLogView();
 
         BluetoothManager bluetoothManager =
                 (BluetoothManager) getSystemService(Context.BLUETOOTH_SERVICE);
         bluetoothAdapter = bluetoothManager != null ? bluetoothManager.getAdapter() : null;
 
-        loadStripsFromPrefs();
+        refreshLogDeviceFilter();
 
-        adapter = new SmartStripAdapter(strips,
+        adapter = new SmartStripAdapter(
                 new SmartStripAdapter.OnSmartStripInteractionListener() {
                     @Override
                     public void onToggle(SmartStrip strip, boolean isOn) {
-                        strip.setOn(isOn);
-                        adapter.notifyDataSetChanged();
-
-                        saveStripsToPrefs();
+                        if (registry != null) {
+                            registry.setOn(strip.getMacAddress(), isOn);
+                        }
 
                         String cmd = isOn ? "ON\n" : "OFF\n";
                         if (serviceBound && bleService != null) {
-                            bleService.sendCommand(strip.getMacAddress(), cmd);
+                            bleService.sendCommand(strip.getMacAddress(), cmd,
+                                    (command, result, rttMs) -> {
+                                        if (result == CommandTracker.Result.ACKED) {
+                                            if (rttMs >= 0) {
+                                                appendLog(strip.getMacAddress(),
+                                                        LogStore.Level.INFO, strip.getName()
+                                                                + " " + command + " 확인 ("
+                                                                + rttMs + "ms)");
+                                            }
+                                        } else if (result != CommandTracker.Result.SUPERSEDED) {
+                                            appendLog(strip.getMacAddress(),
+                                                    LogStore.Level.WARN, strip.getName()
+                                                            + " " + command + " 실패: " + result);
+                                        }
+                                    });
                         } else {
-                            appendLog("서비스 연결 안 됨, BLE 명령 전송 불가");
+                            appendLog(null, LogStore.Level.WARN, "서비스 연결 안 됨, BLE 명령 전송 불가");
                         }
 
                         appendLog(strip.getName() + " → " + (isOn ? "ON" : "OFF")
@@ -243,23 +355,31 @@ public class MainActivity extends AppCompatActivity {
 
         rvDevices.setLayoutManager(new LinearLayoutManager(this));
         rvDevices.setAdapter(adapter);
+        rvDevices.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    reportVisibleStrips();
+                }
+            }
+        });
 
         tvAddNewDevice.setOnClickListener(v -> startScanAndShowDialog());
 
         btnAllOff.setOnClickListener(v -> {
-            for (SmartStrip strip : strips) {
-                if (strip.isOn()) {
-                    strip.setOn(false);
-                }
+            if (registry == null || bleService == null) {
+                appendLog(null, LogStore.Level.WARN, "서비스 연결 안 됨, BLE 명령 전송 불가");
+                return;
             }
-            adapter.notifyDataSetChanged();
-
-            if (serviceBound && bleService != null) {
-                for (SmartStrip strip : strips) {
-                    bleService.sendCommand(strip.getMacAddress(), "OFF\n");
-                }
+            List<String> macs = new ArrayList<>();
+            for (SmartStrip strip : registry.getStrips()) {
+                registry.setOn(strip.getMacAddress(), false);
+                macs.add(strip.getMacAddress());
             }
-            appendLog("모든 멀티탭 OFF 명령 전송");
+            if (macs.isEmpty()) return;
+            btnAllOff.setEnabled(false);
+            appendLog("모든 멀티탭 OFF 명령 전송 (" + macs.size() + "대)");
+            bleService.sendGroupCommand(macs, "OFF\n", ALL_OFF_TIMEOUT_MS, this::onAllOffComplete);
         });
 
         appendLog("앱 시작");
@@ -272,6 +392,28 @@ public class MainActivity extends AppCompatActivity {
         checkAndRequestBluetoothPermissions();
     }
 
+    private void onAllOffComplete(GroupCommand.Result result) {
+        btnAllOff.setEnabled(true);
+        int ok = result.count(GroupCommand.Outcome.SUCCEEDED);
+        int failed = result.count(GroupCommand.Outcome.FAILED);
+        int pending = result.count(GroupCommand.Outcome.PENDING);
+        String summary = "모두 끄기: 성공 " + ok + ", 실패 " + failed + ", 대기 " + pending
+                + " (" + result.getElapsedMs() + "ms)";
+        appendLog(null, result.isAllSucceeded() ? LogStore.Level.INFO : LogStore.Level.WARN,
+                summary);
+        for (GroupCommand.Entry e : result.getEntries()) {
+            if (e.getOutcome() == GroupCommand.Outcome.SUCCEEDED) continue;
+            SmartStrip strip = registry != null ? registry.get(e.getMac()) : null;
+            String name = strip != null ? strip.getName() : e.getMac();
+            String reason = e.getOutcome() == GroupCommand.Outcome.PENDING
+                    ? "연결되면 끔" : String.valueOf(e.getDetail());
+            appendLog(e.getMac(), LogStore.Level.WARN, name + " OFF "
+                    + (e.getOutcome() == GroupCommand.Outcome.PENDING ? "대기" : "실패")
+                    + ": " + reason);
+        }
+        Toast.makeText(this, summary, Toast.LENGTH_SHORT).show();
+    }
+
     // ───────────────────── Foreground Service ───────────────────
     private void startAndBindBleService() {
         Intent intent = new Intent(this, BleForegroundService.class);
@@ -282,11 +424,118 @@ public class MainActivity extends AppCompatActivity {
     }
 
     // ───────────────────── 로그 출력 헬퍼 ──────────────────────
+    private void setupLogView() {
+        LinearLayoutManager lm = new LinearLayoutManager(this);
+        lm.setStackFromEnd(true);
+        logAdapter = new LogAdapter(logStore);
+        rvLog.setLayoutManager(lm);
+        rvLog.setAdapter(logAdapter);
+
+        String[] levels = {"전체", "INFO 이상", "WARN"};
+        ArrayAdapter<String> levelAdapter = new ArrayAdapter<>(this,
+                android.R.layout.simple_spinner_item, levels);
+        levelAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerLogLevel.setAdapter(levelAdapter);
+
+        AdapterView.OnItemSelectedListener filterListener =
+                new AdapterView.OnItemSelectedListener() {
+                    @Override
+                    public void onItemSelected(AdapterView<?> parent, View view,
+                                               int position, long id) {
+                        applyLogFilter();
+                    }
+
+                    @Override
+                    public void onNothingSelected(AdapterView<?> parent) {
+                    }
+                };
+        spinnerLogDevice.setOnItemSelectedListener(filterListener);
+        spinnerLogLevel.setOnItemSelectedListener(filterListener);
+    }
+
+    // 멀티탭 목록이 바뀌면 기기 필터 항목도 다시 만든다
+    // 화면에 보이는 멀티탭을 서비스에 알려서 연결 순서를 앞당긴다
+    private void reportVisibleStrips() {
+        if (bleService == null || registry == null) return;
+        LinearLayoutManager lm = (LinearLayoutManager) rvDevices.getLayoutManager();
+        if (lm == null) return;
+        int first = lm.findFirstVisibleItemPosition();
+        int last = lm.findLastVisibleItemPosition();
+        List<SmartStrip> strips = registry.getStrips();
+        ArrayList<String> visible = new ArrayList<>();
+        for (int i = Math.max(0, first); i <= last && i < strips.size(); i++) {
+            visible.add(strips.get(i).getMacAddress());
+        }
+        bleService.setVisibleDevices(visible);
+    }
+
+    private void refreshLogDeviceFilter() {
+        String selected = null;
+        int pos = spinnerLogDevice.getSelectedItemPosition();
+        if (pos > 0 && pos < logDeviceFilters.size()) {
+            selected = logDeviceFilters.get(pos);
+        }
+
+        ArrayList<String> labels = new ArrayList<>();
+        logDeviceFilters.clear();
+        labels.add("모든 기기");
+        logDeviceFilters.add(null);
+        labels.add("앱");
+        logDeviceFilters.add("");
+        if (registry != null) {
+            for (SmartStrip strip : registry.getStrips()) {
+                labels.add(strip.getName());
+                logDeviceFilters.add(strip.getMacAddress());
+            }
+        }
+
+        ArrayAdapter<String> deviceAdapter = new ArrayAdapter<>(this,
+                android.R.layout.simple_spinner_item, labels);
+        deviceAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerLogDevice.setAdapter(deviceAdapter);
+
+        int restore = selected != null ? logDeviceFilters.indexOf(selected) : 0;
+        spinnerLogDevice.setSelection(Math.max(0, restore));
+    }
+
+    private void applyLogFilter() {
+        int devicePos = spinnerLogDevice.getSelectedItemPosition();
+        String mac = devicePos >= 0 && devicePos < logDeviceFilters.size()
+                ? logDeviceFilters.get(devicePos) : null;
+
+        LogStore.Level level;
+        switch (spinnerLogLevel.getSelectedItemPosition()) {
+            case 1: level = LogStore.Level.INFO; break;
+            case 2: level = LogStore.Level.WARN; break;
+            default: level = LogStore.Level.DEBUG; break;
+        }
+        logAdapter.setFilter(mac, level);
+        scrollLogToEnd();
+    }
+
     private void appendLog(String msg) {
-        String time = new SimpleDateFormat("HH:mm:ss", Locale.getDefault())
-                .format(new Date());
-        String line = "[" + time + "] " + msg + "\n";
-        tvLog.append(line);
+        appendLog(null, LogStore.Level.INFO, msg);
+    }
+
+    // mac 이 null 이면 앱 자체 로그
+    private void appendLog(String mac, LogStore.Level level, String msg) {
+        // 사용자가 위로 스크롤해서 보고 있으면 따라 내려가지 않음
+        LinearLayoutManager lm = (LinearLayoutManager) rvLog.getLayoutManager();
+        boolean atEnd = lm == null
+                || lm.findLastVisibleItemPosition() >= logAdapter.getItemCount() - 1;
+
+        logStore.append(System.currentTimeMillis(), level, mac, msg);
+
+        if (atEnd) {
+            scrollLogToEnd();
+        }
+    }
+
+    private void scrollLogToEnd() {
+        int count = logAdapter.getItemCount();
+        if (count > 0) {
+            rvLog.scrollToPosition(count - 1);
+        }
     }
 
     // ───────────────────── 권한 처리 ───────────────────────────
@@ -391,7 +640,12 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        scannedDevices.clear();
+        if (bleService == null) {
+            Toast.makeText(this, "서비스가 아직 연결되지 않았습니다.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        scannedMacs.clear();
         scannedDeviceInfo.clear();
 
         ListView listView = new ListView(this);
@@ -403,9 +657,9 @@ public class MainActivity extends AppCompatActivity {
         listView.setAdapter(scanListAdapter);
 
         listView.setOnItemClickListener((parent, view, position, id) -> {
-            BluetoothDevice device = scannedDevices.get(position);
+            String mac = scannedMacs.get(position);
             stopBleScan();
-            addNewSmartStrip(device);
+            addNewSmartStrip(bluetoothAdapter.getRemoteDevice(mac));
             if (scanDialog != null) {
                 scanDialog.dismiss();
             }
@@ -421,6 +675,8 @@ public class MainActivity extends AppCompatActivity {
                 })
                 .create();
 
+        // 최근 스캔 결과가 남아 있으면 스캔을 기다리지 않고 바로 보여준다
+        showScanResults(bleService.getScanner().getCachedResults());
         scanDialog.show();
 
         appendLog("새 기기 추가 - 스캔 시작");
@@ -428,8 +684,8 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void startBleScan() {
-        if (isScanning) return;
-        if (bluetoothAdapter == null) return;
+        if (scanSubscription != null) return;
+        if (bleService == null) return;
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
             if (ActivityCompat.checkSelfPermission(this,
@@ -442,88 +698,63 @@ public class MainActivity extends AppCompatActivity {
             }
         }
 
-        bluetoothLeScanner = bluetoothAdapter.getBluetoothLeScanner();
-        if (bluetoothLeScanner == null) {
+        // 재연결 대기 중인 기기가 이미 스캔 중이면 그 스캔을 같이 쓴다
+        scanSubscription = bleService.getScanner()
+                .subscribe(null, BleScanner.DEFAULT_SCAN_MS, scanListener);
+        if (scanSubscription == null) {
             Toast.makeText(this,
-                    "BluetoothLeScanner를 사용할 수 없습니다.",
+                    "BLE 스캔을 시작할 수 없습니다.",
                     Toast.LENGTH_SHORT).show();
             return;
         }
 
-        isScanning = true;
         tvSubtitle.setText("BLE 기기 검색 중...");
         appendLog("BLE 스캔 시작");
-
-        handler.postDelayed(this::stopBleScan, SCAN_PERIOD);
-        bluetoothLeScanner.startScan(leScanCallback);
     }
 
     private void stopBleScan() {
-        if (!isScanning) return;
-        if (bluetoothLeScanner != null) {
-            bluetoothLeScanner.stopScan(leScanCallback);
-        }
-        isScanning = false;
-        tvSubtitle.setText("스캔 완료");
-        appendLog("BLE 스캔 종료");
+        if (scanSubscription == null) return;
+        // 이 구독만 끝낸다 (scanListener.onScanStopped 에서 마무리)
+        scanSubscription.close();
     }
 
-    private final ScanCallback leScanCallback = new ScanCallback() {
-        private void handleResult(ScanResult result) {
-            BluetoothDevice device = result.getDevice();
-            if (device == null) return;
-
-            String name = device.getName();
-            if (name == null || name.isEmpty()) {
-                name = "알 수 없는 기기";
-            }
-            String addr = device.getAddress();
-            String info = name + "\n" + addr;
-
-            handleScannedDevice(device, info);
-        }
-
+    private final BleScanner.Listener scanListener = new BleScanner.Listener() {
         @Override
-        public void onScanResult(int callbackType, ScanResult result) {
-            handleResult(result);
+        public void onScanResults(List<ScanResultCache.Entry> results) {
+            showScanResults(results);
         }
 
         @Override
-        public void onBatchScanResults(java.util.List<ScanResult> results) {
-            for (ScanResult sr : results) {
-                handleResult(sr);
+        public void onScanStopped(int reason) {
+            scanSubscription = null;
+            if (reason == BleScanner.STOP_FAILED) {
+                appendLog(null, LogStore.Level.WARN, "BLE 스캔 실패");
+                tvSubtitle.setText("스캔 실패");
+                return;
             }
-        }
-
-        @Override
-        public void onScanFailed(int errorCode) {
-            appendLog("BLE 스캔 실패: " + errorCode);
-            tvSubtitle.setText("스캔 실패: " + errorCode);
+            tvSubtitle.setText("스캔 완료");
+            appendLog("BLE 스캔 종료");
         }
     };
 
-    private void handleScannedDevice(BluetoothDevice device, String displayText) {
-        if (device == null) return;
-        String mac = device.getAddress();
-        if (mac == null) return;
+    // 스캐너가 한 프레임에 한 번만 부르므로 목록 전체를 다시 채워도 된다
+    private void showScanResults(List<ScanResultCache.Entry> results) {
+        if (scanListAdapter == null) return;
 
-        if (isRegisteredDevice(mac)) {
-            appendLog("이미 등록된 기기 스킵: " + displayText);
-            return;
-        }
+        scannedMacs.clear();
+        scannedDeviceInfo.clear();
+        for (ScanResultCache.Entry e : results) {
+            String mac = e.getMac();
+            if (isRegisteredDevice(mac)) continue;
 
-        for (BluetoothDevice d : scannedDevices) {
-            if (mac.equals(d.getAddress())) {
-                return;
+            String name = e.getName();
+            if (name == null || name.isEmpty()) {
+                name = "알 수 없는 기기";
             }
+            scannedMacs.add(mac);
+            scannedDeviceInfo.add(name + "\n" + mac + "  (" + e.getRssi() + " dBm)");
         }
-
-        scannedDevices.add(device);
-        scannedDeviceInfo.add(displayText);
-
-        if (scanListAdapter != null) {
-            scanListAdapter.notifyDataSetChanged();
-        }
+        scanListAdapter.notifyDataSetChanged();
     }
 
     // ───────────────────── 기기 등록 / 페어링 ───────────────────
@@ -552,12 +783,7 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private boolean isRegisteredDevice(String macAddress) {
-        for (SmartStrip strip : strips) {
-            if (strip.getMacAddress().equalsIgnoreCase(macAddress)) {
-                return true;
-            }
-        }
-        return false;
+        return registry != null && registry.contains(macAddress);
     }
 
     private void showPairingPopup(BluetoothDevice device) {
@@ -589,7 +815,7 @@ public class MainActivity extends AppCompatActivity {
                 Toast.makeText(this,
                         "BLUETOOTH_CONNECT 권한이 필요합니다.",
                         Toast.LENGTH_SHORT).show();
-                appendLog("BLUETOOTH_CONNECT 권한 없음으로 페어링 요청 실패");
+                appendLog(null, LogStore.Level.WARN, "BLUETOOTH_CONNECT 권한 없음으로 페어링 요청 실패");
                 return;
             }
         }
@@ -614,7 +840,7 @@ public class MainActivity extends AppCompatActivity {
         boolean started = device.createBond();
 
         if (!started) {
-            appendLog("createBond() 호출 실패");
+            appendLog(null, LogStore.Level.WARN, "createBond() 호출 실패");
             Toast.makeText(this, "페어링을 시작할 수 없습니다.", Toast.LENGTH_SHORT).show();
             if (pairingDialog != null && pairingDialog.isShowing()) {
                 pairingDialog.dismiss();
@@ -632,40 +858,47 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        String name = device.getName();
+        String name = advertisedName(device);
         if (name == null || name.trim().isEmpty()) {
             String macSuffix = mac.length() >= 5 ? mac.substring(mac.length() - 5) : mac;
             name = "멀티탭 (" + macSuffix + ")";
         }
 
-        SmartStrip newStrip = new SmartStrip(name, mac, false);
-        strips.add(newStrip);
-        adapter.notifyItemInserted(strips.size() - 1);
-
-        saveStripsToPrefs();
+        if (registry == null || bleService == null) {
+            appendLog(null, LogStore.Level.WARN, "서비스가 아직 연결되지 않아 등록할 수 없음: " + mac);
+            return;
+        }
 
-        appendLog("새 기기 등록: " + name + " / " + mac);
+        if (!registry.add(new SmartStrip(name, mac, false))) {
+            appendLog(null, LogStore.Level.WARN, "등록 실패 (MAC 형식 확인): " + mac);
+            return;
+        }
+        appendLog(mac, LogStore.Level.INFO, "새 기기 등록: " + name);
         Toast.makeText(this, "새 멀티탭 추가: " + name, Toast.LENGTH_SHORT).show();
 
-        if (serviceBound && bleService != null) {
-            bleService.connect(mac);
-        } else {
-            appendLog("서비스가 아직 연결되지 않아 나중에 자동 연결 필요");
-        }
+        bleService.connect(mac);
     }
 
     private String safeName(BluetoothDevice device) {
         if (device == null) return "알 수 없는 기기";
-        String name = device.getName();
+        String name = advertisedName(device);
         if (name == null || name.trim().isEmpty()) {
             return "알 수 없는 기기";
         }
         return name;
     }
 
-    // ─────────────────── 롱클릭 메뉴: 이름 변경 / 삭제 ─────────────
+    // 스캔 캐시에 남은 광고 이름을 먼저 쓴다 (새로 스캔하지 않음, 페어링 전이면 getName 이 비어 있기도 함)
+    private String advertisedName(BluetoothDevice device) {
+        ScanResultCache.Entry cached = bleService != null
+                ? bleService.getScanner().getCached(device.getAddress()) : null;
+        String name = cached != null ? cached.getName() : null;
+        return name != null && !name.trim().isEmpty() ? name : device.getName();
+    }
+
+    // ─────────────────── 롱클릭 메뉴: 이름 변경 / 예약 / 삭제 ─────────────
     private void showStripContextMenu(SmartStrip strip, int position) {
-        String[] items = {"이름 변경", "삭제", "취소"};
+        String[] items = {"이름 변경", "전원 예약", "삭제", "취소"};
 
         new AlertDialog.Builder(this)
                 .setTitle(strip.getName())
@@ -674,10 +907,13 @@ public class MainActivity extends AppCompatActivity {
                         case 0: // 이름 변경
                             showRenameDialog(strip, position);
                             break;
-                        case 1: // 삭제
+                        case 1: // 전원 예약
+                            showScheduleDialog(strip);
+                            break;
+                        case 2: // 삭제
                             removeStrip(position);
                             break;
-                        case 2: // 취소
+                        case 3: // 취소
                         default:
                             dialog.dismiss();
                             break;
@@ -696,112 +932,164 @@ public class MainActivity extends AppCompatActivity {
                 .setView(editText)
                 .setPositiveButton("저장", (dialog, which) -> {
                     String newName = editText.getText().toString().trim();
-                    if (!newName.isEmpty()) {
-                        strip.setName(newName);
-                        adapter.notifyItemChanged(position);
-                        appendLog("이름 변경: " + newName);
-
-                        saveStripsToPrefs();
+                    if (!newName.isEmpty() && registry != null) {
+                        registry.rename(strip.getMacAddress(), newName);
+                        refreshLogDeviceFilter();
+                        appendLog(strip.getMacAddress(), LogStore.Level.INFO,
+                                "이름 변경: " + newName);
                     }
                 })
                 .setNegativeButton("취소", null)
                 .show();
     }
 
-    private void removeStrip(int position) {
-        if (position < 0 || position >= strips.size()) return;
+    // ─────────────────── 전원 예약 ─────────────
+    private static final long HOUR_MS = 60 * 60 * 1000L;
 
-        SmartStrip removed = strips.get(position);
-        strips.remove(position);
-        adapter.notifyItemRemoved(position);
+    // 위에는 등록된 예약 (누르면 삭제), 아래에는 새 예약 추가
+    private void showScheduleDialog(SmartStrip strip) {
+        if (!serviceBound || bleService == null) {
+            appendLog(null, LogStore.Level.WARN, "서비스 연결 안 됨, 예약 불가");
+            return;
+        }
+        List<PowerSchedule> schedules = bleService.getPowerSchedules(strip.getMacAddress());
+        TimeZone tz = TimeZone.getDefault();
+        List<String> items = new ArrayList<>();
+        for (PowerSchedule p : schedules) {
+            items.add(p.describe(tz) + "  (삭제)");
+        }
+        items.add("매일 끄기 시각 추가");
+        items.add("매일 켜기 시각 추가");
+        items.add("1시간 뒤 끄기");
+        items.add("2시간 뒤 끄기");
 
-        saveStripsToPrefs();
+        new AlertDialog.Builder(this)
+                .setTitle(strip.getName() + " 전원 예약")
+                .setItems(items.toArray(new String[0]), (dialog, which) -> {
+                    int n = schedules.size();
+                    if (which < n) {
+                        bleService.removePowerSchedule(schedules.get(which).getId());
+                    } else if (which == n || which == n + 1) {
+                        pickDailySchedule(strip, which == n + 1);
+                    } else {
+                        long hours = which == n + 2 ? 1 : 2;
+                        addSchedule(strip, PowerSchedule.once(strip.getMacAddress(), false,
+                                System.currentTimeMillis() + hours * HOUR_MS));
+                    }
+                })
+                .setNegativeButton("닫기", null)
+                .show();
+    }
 
-        appendLog("멀티탭 삭제: " + removed.getName() + " (" + removed.getMacAddress() + ")");
-        Toast.makeText(this, "삭제됨: " + removed.getName(), Toast.LENGTH_SHORT).show();
+    private void pickDailySchedule(SmartStrip strip, boolean on) {
+        Calendar now = Calendar.getInstance();
+        new TimePickerDialog(this, (view, hour, minute) ->
+                addSchedule(strip, PowerSchedule.daily(strip.getMacAddress(), on,
+                        hour * 60 + minute)),
+                now.get(Calendar.HOUR_OF_DAY), now.get(Calendar.MINUTE), true).show();
+    }
 
-        if (serviceBound && bleService != null) {
-            bleService.disconnect(removed.getMacAddress());
+    private void addSchedule(SmartStrip strip, PowerSchedule schedule) {
+        if (bleService == null) return;
+        PowerSchedule stored = bleService.addPowerSchedule(schedule);
+        if (stored == null) {
+            appendLog(strip.getMacAddress(), LogStore.Level.WARN, "예약 실패 (등록되지 않은 멀티탭)");
+            return;
         }
+        Toast.makeText(this, strip.getName() + ": " + stored.describe(TimeZone.getDefault()),
+                Toast.LENGTH_SHORT).show();
     }
 
-    // ───────────────────── 기기 저장 관리 ─────────────────────
-    private void loadStripsFromPrefs() {
-        strips.clear();
+    private void removeStrip(int position) {
+        if (registry == null || position < 0 || position >= registry.size()) return;
+        if (!serviceBound || bleService == null) return;
 
-        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-        String json = prefs.getString(KEY_STRIPS_JSON, null);
-        if (json == null || json.isEmpty()) {
-            appendLog("저장된 멀티탭 목록 없음");
-            return;
-        }
+        // 서비스가 예약 알람 취소와 연결 끊기까지 같이 한다
+        SmartStrip removed = bleService.removeStrip(registry.getStrips().get(position).getMacAddress());
+        if (removed == null) return;
 
-        try {
-            JSONArray arr = new JSONArray(json);
-            for (int i = 0; i < arr.length(); i++) {
-                JSONObject obj = arr.getJSONObject(i);
-                SmartStrip strip = SmartStrip.fromJson(obj);
-                strips.add(strip);
-            }
-            appendLog("저장된 멀티탭 " + strips.size() + "개 불러옴");
-        } catch (JSONException e) {
-            appendLog("멀티탭 목록 로드 중 오류: " + e.getMessage());
-        }
-    }
-    private void saveStripsToPrefs() {
-        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-        JSONArray arr = new JSONArray();
-        for (SmartStrip strip : strips) {
-            arr.put(strip.toJson());
-        }
-        prefs.edit().putString(KEY_STRIPS_JSON, arr.toString()).apply();
-        appendLog("멀티탭 목록 저장 (" + strips.size() + "개)");
+        appendLog(removed.getMacAddress(), LogStore.Level.INFO,
+                "멀티탭 삭제: " + removed.getName());
+        Toast.makeText(this, "삭제됨: " + removed.getName(), Toast.LENGTH_SHORT).show();
     }
 
+    // ───────────────────── 진단 기록 내보내기 ─────────────────────
+    private static final long EXPORT_RANGE_MS = 24 * 60 * 60 * 1000L;   // 최근 24시간
 
-    // ───────────────────── 생명주기 처리 ───────────────────────
     @Override
-    protected void onResume() {
-        super.onResume();
-
-        IntentFilter f = new IntentFilter();
-        f.addAction("BLE_CONNECTION_STATE");
-        f.addAction("BLE_LOG");
-        f.addAction("BLE_MESSAGE");
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_main, menu);
+        return true;
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-            registerReceiver(bleReceiver, f, Context.RECEIVER_NOT_EXPORTED);
-        } else {
-            registerReceiver(bleReceiver, f);
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_export_journal) {
+            exportJournal();
+            return true;
+        }
+        if (item.getItemId() == R.id.action_diagnostics) {
+            startActivity(new Intent(this, DiagnosticsActivity.class));
+            return true;
         }
+        return super.onOptionsItemSelected(item);
     }
 
-
-    private SmartStrip findStripByMac(String mac) {
-        if (mac == null) return null;
-        for (SmartStrip strip : strips) {
-            if (mac.equalsIgnoreCase(strip.getMacAddress())) {
-                return strip;
-            }
+    private void exportJournal() {
+        if (!serviceBound || bleService == null) {
+            appendLog(null, LogStore.Level.WARN, "서비스 연결 안 됨, 진단 기록 내보내기 불가");
+            return;
         }
-        return null;
+        final BleForegroundService service = bleService;
+        final long to = System.currentTimeMillis();
+        final File dir = new File(getCacheDir(), "diagnostics");
+        final File file = new File(dir, "byeplug-journal-" + to + ".txt.gz");
+        appendLog("진단 기록 내보내는 중...");
+
+        new Thread(() -> {
+            int count;
+            try {
+                if (!dir.isDirectory() && !dir.mkdirs()) {
+                    throw new IOException("cannot create " + dir);
+                }
+                try (OutputStream out = new FileOutputStream(file)) {
+                    count = service.exportJournal(to - EXPORT_RANGE_MS, to, out);
+                }
+            } catch (IOException e) {
+                handler.post(() -> appendLog(null, LogStore.Level.WARN,
+                        "진단 기록 내보내기 실패: " + e.getMessage()));
+                return;
+            }
+            final int exported = count;
+            handler.post(() -> shareJournal(file, exported));
+        }, "journal-export").start();
     }
 
-    @Override
-    protected void onPause() {
-        super.onPause();
-        try {
-            unregisterReceiver(bleReceiver);
-        } catch (IllegalArgumentException e) {
-            // 이미 해제된 경우 등 무시
-        }
+    private void shareJournal(File file, int count) {
+        appendLog("진단 기록 " + count + "건 (" + file.length() / 1024 + "KB)");
+
+        Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", file);
+        Intent send = new Intent(Intent.ACTION_SEND)
+                .setType("application/gzip")
+                .putExtra(Intent.EXTRA_STREAM, uri)
+                .putExtra(Intent.EXTRA_SUBJECT, "ByePlug 진단 기록")
+                .addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        startActivity(Intent.createChooser(send, "진단 기록 보내기"));
     }
 
+    // ───────────────────── 생명주기 처리 ───────────────────────
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
 
         stopBleScan();
+        uiFrame.cancel();
+
+        if (registry != null) {
+            registry.removeListener(stripListener);
+            registry = null;
+        }
 
         try {
             unregisterReceiver(bondReceiver);
@@ -810,6 +1098,10 @@ public class MainActivity extends AppCompatActivity {
         }
 
         if (serviceBound) {
+            if (bleService != null) {
+                bleService.removeEventListener(bleListener);
+                bleService.getConnectionStates().removeObserver(connectionObserver);
+            }
             unbindService(serviceConnection);
             serviceBound = false;
         }
@@ -7,24 +7,106 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.widget.SwitchCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.energysaver.core.LongHashMap;
+import com.energysaver.core.MacUtils;
+import com.energysaver.core.SmartStrip;
+
+import java.util.ArrayList;
 import java.util.List;
 
-public class SmartStripAdapter extends RecyclerView.Adapter<SmartStripAdapter.StripViewHolder> {
+// 멀티탭 목록. StripRegistry 의 멀티탭은 제자리에서 바뀌므로 행마다 불변 스냅샷(Row)을 만들어
+// 백그라운드에서 이전 목록과 비교하고, 바뀐 행의 바뀐 부분만 다시 그린다 (이름 / 상태 글자 / 스위치).
+// 행 id 는 MAC (MacUtils.toLong) 이라 순서가 바뀌어도 같은 뷰를 쓴다.
+public class SmartStripAdapter extends ListAdapter<SmartStripAdapter.Row, SmartStripAdapter.StripViewHolder> {
 
     public interface OnSmartStripInteractionListener {
         void onToggle(SmartStrip strip, boolean isOn);
         void onItemLongClick(SmartStrip strip, int position, View anchorView);
     }
 
-    private final List<SmartStrip> items;
+    // 부분 갱신 (비트를 OR 해서 넘긴다)
+    static final int PAYLOAD_NAME = 1;
+    static final int PAYLOAD_STATUS = 2;
+    static final int PAYLOAD_SWITCH = 4;
+
+    // 한 행의 그 시점 상태 (불변)
+    static final class Row {
+        final long id;
+        final SmartStrip strip;
+        final String name;
+        final boolean on;
+        final String statusText;
+
+        Row(long id, SmartStrip strip) {
+            this.id = id;
+            this.strip = strip;
+            this.name = strip.getName();
+            this.on = strip.isOn();
+            this.statusText = strip.getStatusText();
+        }
+
+        boolean matches(SmartStrip s) {
+            return on == s.isOn() && name.equals(s.getName())
+                    && statusText.equals(s.getStatusText());
+        }
+    }
+
+    private static final DiffUtil.ItemCallback<Row> DIFF = new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row a, @NonNull Row b) {
+            return a.id == b.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row a, @NonNull Row b) {
+            return a == b || (a.on == b.on && a.name.equals(b.name)
+                    && a.statusText.equals(b.statusText));
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Row a, @NonNull Row b) {
+            int changed = 0;
+            if (!a.name.equals(b.name)) changed |= PAYLOAD_NAME;
+            if (!a.statusText.equals(b.statusText)) changed |= PAYLOAD_STATUS;
+            if (a.on != b.on) changed |= PAYLOAD_SWITCH;
+            return changed;
+        }
+    };
+
     private final OnSmartStripInteractionListener listener;
+    // 마지막으로 만든 행. 바뀌지 않은 멀티탭은 같은 Row 를 다시 넘긴다 (비교가 == 로 끝남)
+    private LongHashMap<Row> rows = new LongHashMap<>();
 
-    public SmartStripAdapter(List<SmartStrip> items,
-                             OnSmartStripInteractionListener listener) {
-        this.items = items;
+    public SmartStripAdapter(OnSmartStripInteractionListener listener) {
+        super(DIFF);
         this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    // 메인 스레드에서 호출. 비교는 백그라운드에서 하고 끝나면 바뀐 행만 알린다.
+    public void submitStrips(List<SmartStrip> strips) {
+        LongHashMap<Row> next = new LongHashMap<>();
+        List<Row> list = new ArrayList<>(strips.size());
+        for (SmartStrip s : strips) {
+            long id = MacUtils.toLong(s.getMacAddress());
+            Row row = rows.get(id);
+            if (row == null || row.strip != s || !row.matches(s)) {
+                row = new Row(id, s);
+            }
+            next.put(id, row);
+            list.add(row);
+        }
+        rows = next;
+        submitList(list);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id;
     }
 
     @NonNull
@@ -32,39 +114,58 @@ public class SmartStripAdapter extends RecyclerView.Adapter<SmartStripAdapter.St
     public StripViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View v = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_smart_strip, parent, false);
-        return new StripViewHolder(v);
-    }
-
-    @Override
-    public void onBindViewHolder(@NonNull StripViewHolder holder, int position) {
-        SmartStrip strip = items.get(position);
-
-        holder.tvName.setText(strip.getName());
-        holder.tvStatus.setText(strip.getStatusText());
-
-        holder.switchPower.setOnCheckedChangeListener(null);
-        holder.switchPower.setChecked(strip.isOn());
+        StripViewHolder holder = new StripViewHolder(v);
 
+        // 리스너는 뷰마다 한 번만. 누른 시점의 행은 위치로 찾는다.
         holder.switchPower.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            if (listener != null) {
-                listener.onToggle(strip, isChecked);
+            if (holder.binding || listener == null) return;
+            int pos = holder.getBindingAdapterPosition();
+            if (pos != RecyclerView.NO_POSITION) {
+                listener.onToggle(getItem(pos).strip, isChecked);
             }
         });
-
-        holder.itemView.setOnLongClickListener(v -> {
-            if (listener != null) {
-                int pos = holder.getAdapterPosition();
-                if (pos != RecyclerView.NO_POSITION) {
-                    listener.onItemLongClick(strip, pos, v);
-                }
+        holder.itemView.setOnLongClickListener(view -> {
+            int pos = holder.getBindingAdapterPosition();
+            if (listener != null && pos != RecyclerView.NO_POSITION) {
+                listener.onItemLongClick(getItem(pos).strip, pos, view);
             }
             return true;
         });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull StripViewHolder holder, int position) {
+        bind(holder, getItem(position), PAYLOAD_NAME | PAYLOAD_STATUS | PAYLOAD_SWITCH);
     }
 
     @Override
-    public int getItemCount() {
-        return items.size();
+    public void onBindViewHolder(@NonNull StripViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        int changed = 0;
+        for (Object p : payloads) {
+            changed |= (Integer) p;
+        }
+        bind(holder, getItem(position), changed);
+    }
+
+    private void bind(StripViewHolder holder, Row row, int parts) {
+        if ((parts & PAYLOAD_NAME) != 0) {
+            holder.tvName.setText(row.name);
+        }
+        if ((parts & PAYLOAD_STATUS) != 0) {
+            holder.tvStatus.setText(row.statusText);
+        }
+        // 사용자가 누른 스위치는 이미 그 상태라 건드리지 않는다
+        if ((parts & PAYLOAD_SWITCH) != 0 && holder.switchPower.isChecked() != row.on) {
+            holder.binding = true;
+            holder.switchPower.setChecked(row.on);
+            holder.binding = false;
+        }
     }
 
     public static class StripViewHolder extends RecyclerView.ViewHolder {
@@ -72,6 +173,7 @@ public class SmartStripAdapter extends RecyclerView.Adapter<SmartStripAdapter.St
         TextView tvName;
         TextView tvStatus;
         SwitchCompat switchPower;
+        boolean binding = false;    // setChecked 로 인한 콜백은 무시
 
         public StripViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -0,0 +1,102 @@
+package com.energysaver;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class BleEventBusTest {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    @Test
+    public void deliversToEveryListenerAndReusesEvents() {
+        BleEventBus bus = new BleEventBus();
+        List<String> a = new ArrayList<>();
+        List<String> b = new ArrayList<>();
+        bus.addListener(e -> a.add(e.getMac() + ":" + e.getText()), DIRECT);
+        bus.addListener(e -> b.add(e.getType().name()), DIRECT);
+
+        for (int i = 0; i < 100; i++) {
+            bus.publish(BleEvent.Type.LOG, "AA", "line" + i, i);
+        }
+
+        assertEquals(100, a.size());
+        assertEquals("AA:line99", a.get(99));
+        assertEquals("LOG", b.get(0));
+        assertEquals(1, bus.getAllocatedCount());
+    }
+
+    @Test
+    public void eventIsRecycledOnlyAfterLastDelivery() {
+        BleEventBus bus = new BleEventBus();
+        List<Runnable> deferred = new ArrayList<>();
+        List<String> seen = new ArrayList<>();
+        bus.addListener(e -> seen.add(e.getText()), deferred::add);
+        bus.addListener(e -> seen.add(e.getText()), DIRECT);
+
+        bus.publish(BleEvent.Type.MESSAGE, "AA", "PONG", 0);
+        bus.publish(BleEvent.Type.MESSAGE, "AA", "ACK ON", 0);
+        assertEquals(2, bus.getAllocatedCount());
+
+        for (Runnable r : deferred) r.run();
+        assertEquals("PONG", seen.get(2));
+        assertEquals("ACK ON", seen.get(3));
+    }
+
+    @Test
+    public void removedListenerGetsNothing() {
+        BleEventBus bus = new BleEventBus();
+        List<String> seen = new ArrayList<>();
+        BleEventBus.Listener l = e -> seen.add(e.getText());
+        bus.addListener(l, DIRECT);
+        bus.removeListener(l);
+
+        bus.publish(BleEvent.Type.STATE, "AA", "READY", 0);
+        assertTrue(seen.isEmpty());
+        assertFalse(bus.hasListeners());
+    }
+
+    @Test
+    public void deliveryPathDoesNotAllocate() {
+        BleEventBus bus = new BleEventBus();
+        int[] count = new int[2];
+        bus.addListener(e -> count[0]++, DIRECT);
+        bus.addListener(e -> count[1] += e.getText().length(), DIRECT);
+
+        // 워밍업 (풀 채우기, JIT)
+        for (int i = 0; i < 20_000; i++) {
+            bus.publish(BleEvent.Type.LOG, "AA", "PONG", i);
+        }
+        int events = bus.getAllocatedCount();
+        int deliveries = bus.getAllocatedDeliveryCount();
+
+        long before = allocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            bus.publish(BleEvent.Type.LOG, "AA", "PONG", i);
+        }
+        long bytes = allocatedBytes() - before;
+
+        assertEquals(120_000, count[0]);
+        assertEquals(events, bus.getAllocatedCount());
+        assertEquals(deliveries, bus.getAllocatedDeliveryCount());
+        assertEquals(1, bus.getAllocatedDeliveryCount());   // 바로 실행되니 하나를 돌려 쓴다
+        // 이벤트마다 배열 복사나 람다를 만들면 수 MB. 측정 자체의 잡음만 허용한다.
+        if (before >= 0) {
+            assertTrue("allocated " + bytes + " bytes", bytes < 64 * 1024);
+        }
+    }
+
+    // 현재 스레드가 할당한 바이트 (지원하지 않는 JVM 이면 -1)
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (!(mx instanceof com.sun.management.ThreadMXBean)) return -1;
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) mx;
+        if (!sun.isThreadAllocatedMemorySupported() || !sun.isThreadAllocatedMemoryEnabled()) return -1;
+        return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
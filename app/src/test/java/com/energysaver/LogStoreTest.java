@@ -0,0 +1,66 @@
+package com.energysaver;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LogStoreTest {
+
+    @Test
+    public void overwritesOldestWhenFull() {
+        LogStore store = new LogStore(4);
+        for (int i = 0; i < 10; i++) {
+            store.append(i, LogStore.Level.INFO, null, "m" + i);
+        }
+
+        assertEquals(4, store.size());
+        assertEquals(6, store.getOldestSeq());
+        assertFalse(store.contains(5));
+        assertEquals("m6", store.getMessage(6));
+        assertEquals("m9", store.getMessage(9));
+        assertEquals(9, store.getTimeMs(9));
+    }
+
+    @Test
+    public void filtersByDeviceAndLevel() {
+        LogStore store = new LogStore(8);
+        long app = store.append(0, LogStore.Level.INFO, null, "앱 시작");
+        long tx = store.append(1, LogStore.Level.DEBUG, "AA:BB", "TX: \"PING\"");
+        long warn = store.append(2, LogStore.Level.WARN, "aa:bb", "Write failed");
+
+        assertTrue(store.matches(tx, null, LogStore.Level.DEBUG));
+        assertFalse(store.matches(tx, null, LogStore.Level.INFO));
+        assertTrue(store.matches(warn, "AA:BB", LogStore.Level.INFO));
+        assertFalse(store.matches(app, "AA:BB", LogStore.Level.DEBUG));
+        assertTrue(store.matches(app, "", LogStore.Level.DEBUG));
+        assertFalse(store.matches(warn, "", LogStore.Level.DEBUG));
+    }
+
+    @Test
+    public void listenerSeesEvictions() {
+        LogStore store = new LogStore(2);
+        long[] last = new long[2];
+        store.setListener(new LogStore.Listener() {
+            @Override
+            public void onAppended(long seq, long oldestSeq) {
+                last[0] = seq;
+                last[1] = oldestSeq;
+            }
+
+            @Override
+            public void onCleared() {
+                last[0] = -1;
+            }
+        });
+
+        store.append(0, LogStore.Level.INFO, null, "a");
+        store.append(0, LogStore.Level.INFO, null, "b");
+        store.append(0, LogStore.Level.INFO, null, "c");
+        assertEquals(2, last[0]);
+        assertEquals(1, last[1]);
+
+        store.clear();
+        assertEquals(-1, last[0]);
+        assertEquals(0, store.size());
+    }
+}
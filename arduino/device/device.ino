@@ -17,18 +17,76 @@ bool isPowerOn = true;
 // 연결 상태 / 타임아웃 관련
 bool isConnected = false;                     // 최근에 메시지 받은 적 있는지
 unsigned long lastMessageTime = 0;           // 마지막으로 유효 명령 받은 시각
-const unsigned long DISCONNECT_TIMEOUT_MS = 10000; // 5초 동안 아무 메시지 없으면 끊긴 걸로 판단
-
-// 수신 버퍼
-String rxBuffer = "";
+// 10초 동안 아무 메시지 없으면 끊긴 걸로 판단. 앱은 CAPS 응답으로 이 값을 받아 하트비트 주기를 정한다.
+const unsigned long DISCONNECT_TIMEOUT_MS = 10000;
+
+// ───────── UART 프로토콜 ─────────
+// 텍스트: "ON\n" 같은 줄 단위 명령 (구형 앱 호환)
+// 바이너리: [0xA5][ver|flags][op][seq][len][payload..][crc8]  (최대 20바이트)
+// 앱이 "HELLO BIN1" 을 보내면 "CAPS BIN1 TO=<타임아웃 ms>" 로 답하고, 이후 이벤트도 프레임으로 보낸다.
+const uint8_t FRAME_SOF      = 0xA5;
+const uint8_t FRAME_VERSION  = 1;
+const uint8_t FRAME_HEADER   = 5;
+const uint8_t FRAME_MAX      = 20;
+const uint8_t FRAME_MAX_PAYLOAD = FRAME_MAX - FRAME_HEADER - 1;
+
+const uint8_t OP_ON           = 0x01;
+const uint8_t OP_OFF          = 0x02;
+const uint8_t OP_PING         = 0x03;
+const uint8_t OP_STATUS       = 0x04;
+const uint8_t OP_ACK          = 0x81;
+const uint8_t OP_PONG         = 0x83;
+const uint8_t OP_STATE        = 0x84;
+const uint8_t OP_RECONNECTED  = 0x85;
+const uint8_t OP_DISCONNECTED = 0x86;
+const uint8_t OP_BUSY         = 0x87;   // 명령 큐가 꽉 참
+const uint8_t OP_CAPS         = 0x90;
+const uint8_t OP_UNKNOWN      = 0xEE;
+
+bool binaryPeer = false;   // 상대가 바이너리 프레임을 지원하는지 (HELLO 로 확인)
+
+// 수신 버퍼 (String 대신 고정 크기 버퍼: UNO 힙 단편화 방지)
+const uint8_t LINE_MAX = 32;
+char lineBuf[LINE_MAX + 1];
+uint8_t lineLen = 0;
+
+uint8_t frameBuf[FRAME_MAX];
+uint8_t frameLen = 0;
+bool inFrame = false;
+
+// ───────── 서보 상태 머신 / 명령 큐 ─────────
+// 서보 동작을 delay() 로 기다리지 않고 loop() 마다 millis() 로 진행한다.
+// 서보가 움직이는 동안에도 수신(PING 등)은 계속 처리되고 SoftwareSerial 버퍼(64바이트)가 넘치지 않는다.
+// ON/OFF 는 큐에 넣는 즉시 ACK 한다 (바이너리 payload: [op, 큐 깊이]).
+// 큐가 꽉 차면 BUSY 로 답하고 명령은 버린다 (앱이 재전송한다).
+const unsigned long SERVO_PRESS_MS   = 400;   // 버튼을 누르고 있는 시간
+const unsigned long SERVO_RELEASE_MS = 400;   // 원위치로 돌아오는 시간
+const uint8_t CMD_QUEUE_SIZE = 4;             // 실행 중인 것 말고 기다릴 수 있는 누름 수
+
+enum ServoState { SERVO_IDLE, SERVO_PRESSING, SERVO_RELEASING };
+ServoState servoState = SERVO_IDLE;
+unsigned long servoSince = 0;
+
+uint8_t cmdQueue[CMD_QUEUE_SIZE];   // OP_ON / OP_OFF
+uint8_t cmdHead = 0;
+uint8_t cmdCount = 0;
 
 // ───────── 함수 선언 ─────────
-void handleOnCommand();
-void handleOffCommand();
-void pressPowerButtonOnce(int servoRest, int servoPress);
+bool handleOnCommand();
+bool handleOffCommand();
+bool enqueuePress(uint8_t op);
+void clearPressQueue();
+uint8_t pendingDepth();
+void updateServo(unsigned long now);
 void handleDisconnectEvent();
 void handleReconnectEvent();
-void processLine(String line);
+void onByte(uint8_t c);
+void processLine(char* line);
+void processFrame(uint8_t op, uint8_t seq, const uint8_t* payload, uint8_t len);
+void handleCommand(uint8_t op, uint8_t seq, bool binary);
+void markMessageReceived();
+void sendFrame(uint8_t op, uint8_t seq, const uint8_t* payload, uint8_t len);
+uint8_t crc8(const uint8_t* data, uint8_t len);
 
 void setup() {
   Serial.begin(9600);
@@ -36,7 +94,7 @@ void setup() {
 
   powerServo.attach(SERVO_PIN);
   powerServo.write(servoRest);
-  delay(500);
+  delay(500);   // setup 에서만 (서보가 자리 잡을 때까지)
 
   Serial.println("HC-06 Smart Power Prototype Ready");
   Serial.println("명령: ON / OFF / PING (/ STATUS 등 확장 가능)");
@@ -46,61 +104,187 @@ void setup() {
 
 void loop() {
   while (BT.available()) {
-    char c = BT.read();
-
-    if (c == '\n' || c == '\r') {
-      if (rxBuffer.length() > 0) {
-        processLine(rxBuffer);
-        rxBuffer = "";
-      }
-    } else {
-      rxBuffer += c;
-    }
+    onByte((uint8_t) BT.read());
   }
 
   unsigned long now = millis();
+  updateServo(now);
+
   if (isConnected && (now - lastMessageTime > DISCONNECT_TIMEOUT_MS)) {
     handleDisconnectEvent();
     isConnected = false;
   }
-
 }
 
-// ───────── 수신 문자열 처리 ─────────
-void processLine(String line) {
-  line.trim();
-  line.toUpperCase();
-  if (line.length() == 0) return;
+// ───────── 수신 바이트 처리 (텍스트 줄 / 바이너리 프레임) ─────────
+void onByte(uint8_t c) {
+  if (inFrame) {
+    frameBuf[frameLen++] = c;
 
-  unsigned long now = millis();
+    if (frameLen == FRAME_HEADER) {
+      if ((frameBuf[1] >> 4) != FRAME_VERSION || frameBuf[4] > FRAME_MAX_PAYLOAD) {
+        inFrame = false;   // 깨진 헤더: 버리고 다음 SOF 를 기다림
+        frameLen = 0;
+        return;
+      }
+    }
+
+    if (frameLen > FRAME_HEADER && frameLen == FRAME_HEADER + frameBuf[4] + 1) {
+      uint8_t len = frameBuf[4];
+      inFrame = false;
+      frameLen = 0;
+      if (crc8(frameBuf + 1, FRAME_HEADER - 1 + len) == frameBuf[FRAME_HEADER + len]) {
+        processFrame(frameBuf[2], frameBuf[3], frameBuf + FRAME_HEADER, len);
+      } else {
+        Serial.println("CRC 오류: 프레임 버림");
+      }
+    }
+    return;
+  }
+
+  if (c == FRAME_SOF) {
+    lineLen = 0;
+    inFrame = true;
+    frameBuf[0] = c;
+    frameLen = 1;
+    return;
+  }
+
+  if (c == '\n' || c == '\r') {
+    if (lineLen > 0) {
+      lineBuf[lineLen] = '\0';
+      processLine(lineBuf);
+      lineLen = 0;
+    }
+    return;
+  }
+
+  if (lineLen < LINE_MAX) {
+    lineBuf[lineLen++] = (char) toupper(c);
+  }
+  // 너무 긴 줄은 잘라서 버림 (개행까지 무시)
+}
+
+void markMessageReceived() {
   bool wasConnected = isConnected;
   isConnected = true;
-  lastMessageTime = now;
+  lastMessageTime = millis();
 
   if (!wasConnected) {
     handleReconnectEvent();
   }
+}
+
+// ───────── 텍스트 명령 처리 ─────────
+void processLine(char* line) {
+  // 앞뒤 공백 제거
+  while (*line == ' ') line++;
+  uint8_t n = strlen(line);
+  while (n > 0 && line[n - 1] == ' ') line[--n] = '\0';
+  if (n == 0) return;
+
+  markMessageReceived();
 
   Serial.print("BT MSG: ");
   Serial.println(line);
 
-  if (line == "ON") {
-    handleOnCommand();
-    BT.println("ACK ON");
-  } else if (line == "OFF") {
-    handleOffCommand();
-    BT.println("ACK OFF");
-  } else if (line == "PING") {
-    BT.println("PONG");
-  } else if (line == "STATUS") {
-    BT.println(isPowerOn ? "ON" : "OFF");
+  if (strcmp(line, "ON") == 0) {
+    handleCommand(OP_ON, 0, false);
+  } else if (strcmp(line, "OFF") == 0) {
+    handleCommand(OP_OFF, 0, false);
+  } else if (strcmp(line, "PING") == 0) {
+    handleCommand(OP_PING, 0, false);
+  } else if (strcmp(line, "STATUS") == 0) {
+    handleCommand(OP_STATUS, 0, false);
+  } else if (strcmp(line, "HELLO BIN1") == 0) {
+    binaryPeer = true;
+    BT.print("CAPS BIN1 TO=");
+    BT.print(DISCONNECT_TIMEOUT_MS);
+    BT.print(" Q=");
+    BT.println(CMD_QUEUE_SIZE);
   } else {
     Serial.println("알 수 없는 명령");
   }
 }
 
+// ───────── 바이너리 프레임 처리 ─────────
+void processFrame(uint8_t op, uint8_t seq, const uint8_t* payload, uint8_t len) {
+  markMessageReceived();
+  binaryPeer = true;
+
+  Serial.print("BT FRAME op=0x");
+  Serial.print(op, HEX);
+  Serial.print(" seq=");
+  Serial.println(seq);
+
+  if (op == OP_ON || op == OP_OFF || op == OP_PING || op == OP_STATUS) {
+    handleCommand(op, seq, true);
+  } else {
+    sendFrame(OP_UNKNOWN, seq, &op, 1);
+  }
+}
+
+// 텍스트/바이너리 공통 명령 처리. 응답은 요청과 같은 형식으로 보낸다.
+// 텍스트 응답은 구형 앱 호환을 위해 그대로 두고, 큐 깊이는 바이너리 payload 에만 싣는다.
+void handleCommand(uint8_t op, uint8_t seq, bool binary) {
+  if (op == OP_ON || op == OP_OFF) {
+    bool accepted = (op == OP_ON) ? handleOnCommand() : handleOffCommand();
+    uint8_t reply[2] = { op, pendingDepth() };
+    if (!accepted) {
+      if (binary) {
+        sendFrame(OP_BUSY, seq, reply, 2);
+      } else {
+        BT.println(op == OP_ON ? "BUSY ON" : "BUSY OFF");
+      }
+      return;
+    }
+    if (binary) sendFrame(OP_ACK, seq, reply, 2);
+    else BT.println(op == OP_ON ? "ACK ON" : "ACK OFF");
+  } else if (op == OP_PING) {
+    if (binary) sendFrame(OP_PONG, seq, 0, 0);
+    else BT.println("PONG");
+  } else if (op == OP_STATUS) {
+    uint8_t state[2] = { (uint8_t) (isPowerOn ? 1 : 0), pendingDepth() };
+    if (binary) sendFrame(OP_STATE, seq, state, 2);
+    else BT.println(isPowerOn ? "ON" : "OFF");
+  }
+}
+
+void sendFrame(uint8_t op, uint8_t seq, const uint8_t* payload, uint8_t len) {
+  uint8_t out[FRAME_MAX];
+  if (len > FRAME_MAX_PAYLOAD) len = FRAME_MAX_PAYLOAD;
+
+  out[0] = FRAME_SOF;
+  out[1] = FRAME_VERSION << 4;
+  out[2] = op;
+  out[3] = seq;
+  out[4] = len;
+  for (uint8_t i = 0; i < len; i++) {
+    out[FRAME_HEADER + i] = payload[i];
+  }
+  out[FRAME_HEADER + len] = crc8(out + 1, FRAME_HEADER - 1 + len);
+  BT.write(out, FRAME_HEADER + len + 1);
+}
+
+// CRC-8 (poly 0x07, init 0x00) - 앱의 UartCodec.crc8 과 동일
+uint8_t crc8(const uint8_t* data, uint8_t len) {
+  uint8_t crc = 0;
+  for (uint8_t i = 0; i < len; i++) {
+    crc ^= data[i];
+    for (uint8_t b = 0; b < 8; b++) {
+      crc = (crc & 0x80) ? (uint8_t) ((crc << 1) ^ 0x07) : (uint8_t) (crc << 1);
+    }
+  }
+  return crc;
+}
+
 // ───────── ON / OFF 명령 처리 ─────────
-void handleOnCommand() {
+// 논리 상태는 받는 즉시 바꾸고, 서보 누름은 큐에 넣는다. 큐가 꽉 차면 false (상태도 그대로)
+bool handleOnCommand() {
+  if (cmdCount >= CMD_QUEUE_SIZE) {
+    Serial.println("명령 큐 가득 참: ON 거절");
+    return false;
+  }
   if (!isPowerOn) {
     Serial.println("Power -> ON (논리 상태만 변경)");
     isPowerOn = true;
@@ -108,10 +292,14 @@ void handleOnCommand() {
     Serial.println("이미 ON 상태");
   }
 
-  pressPowerButtonOnce(servoRest, -servoPress);
+  return enqueuePress(OP_ON);
 }
 
-void handleOffCommand() {
+bool handleOffCommand() {
+  if (cmdCount >= CMD_QUEUE_SIZE) {
+    Serial.println("명령 큐 가득 참: OFF 거절");
+    return false;
+  }
   if (isPowerOn) {
     Serial.println("Power -> OFF, 서보로 버튼 눌러서 끄기");
     isPowerOn = false;
@@ -119,15 +307,59 @@ void handleOffCommand() {
     Serial.println("이미 OFF 상태지만 버튼 한 번 더 눌러줌");
   }
 
-  pressPowerButtonOnce(servoRest, servoPress);
+  return enqueuePress(OP_OFF);
 }
 
-// ───────── 서보로 버튼 한 번 누르기 ─────────
-void pressPowerButtonOnce(int servoRest, int servoPress) {
-  powerServo.write(servoRest + servoPress);
-  delay(400);
-  powerServo.write(servoRest);
-  delay(400);
+// ───────── 서보 누름 큐 ─────────
+bool enqueuePress(uint8_t op) {
+  if (cmdCount >= CMD_QUEUE_SIZE) return false;
+  cmdQueue[(cmdHead + cmdCount) % CMD_QUEUE_SIZE] = op;
+  cmdCount++;
+  // 서보가 쉬고 있으면 바로 시작 (ACK 의 큐 깊이에 반영되도록)
+  updateServo(millis());
+  return true;
+}
+
+// 기다리는 누름만 버린다 (이미 움직이는 서보는 끝까지 간다)
+void clearPressQueue() {
+  cmdHead = 0;
+  cmdCount = 0;
+}
+
+// 기다리는 누름 + 실행 중인 누름
+uint8_t pendingDepth() {
+  return cmdCount + (servoState != SERVO_IDLE ? 1 : 0);
+}
+
+// ───────── 서보 상태 머신 (loop 마다 호출, 기다리지 않음) ─────────
+// IDLE → (큐에서 하나 꺼내 누름) PRESSING → (400ms) RELEASING → (400ms) IDLE
+void updateServo(unsigned long now) {
+  switch (servoState) {
+    case SERVO_IDLE:
+      if (cmdCount == 0) return;
+      {
+        uint8_t op = cmdQueue[cmdHead];
+        cmdHead = (cmdHead + 1) % CMD_QUEUE_SIZE;
+        cmdCount--;
+        powerServo.write(servoRest + (op == OP_ON ? -servoPress : servoPress));
+      }
+      servoState = SERVO_PRESSING;
+      servoSince = now;
+      break;
+
+    case SERVO_PRESSING:
+      if (now - servoSince < SERVO_PRESS_MS) return;
+      powerServo.write(servoRest);
+      servoState = SERVO_RELEASING;
+      servoSince = now;
+      break;
+
+    case SERVO_RELEASING:
+      if (now - servoSince < SERVO_RELEASE_MS) return;
+      servoState = SERVO_IDLE;
+      // 다음 누름은 다음 loop 에서 시작
+      break;
+  }
 }
 
 // ───────── 연결 끊김/재연결 이벤트 처리 ─────────
@@ -137,17 +369,26 @@ void handleDisconnectEvent() {
   Serial.println("Fail-safe: 전원을 OFF 상태로 만들기");
 
   if (isPowerOn) {
+    // 아직 못 누른 명령보다 fail-safe OFF 가 우선
+    clearPressQueue();
     handleOffCommand();
   } else {
     //TODO: 이미 OFF 상태일 때
   }
 
-  BT.println("DISCONNECTED");
+  if (binaryPeer) {
+    sendFrame(OP_DISCONNECTED, 0, 0, 0);
+  } else {
+    BT.println("DISCONNECTED");
+  }
+  // 다음 연결에서 앱이 다시 HELLO 로 협상한다
+  binaryPeer = false;
 }
 
 void handleReconnectEvent() {
   Serial.println("==== Bluetooth 재연결 감지 ====");
 
+  // 재연결 직후 첫 메시지는 보통 HELLO 이므로 아직 텍스트로 알린다
   BT.print("RECONNECTED:");
   BT.println(isPowerOn ? "ON" : "OFF");
 }
@@ -0,0 +1,67 @@
+// :core 의 JMH 벤치마크. 안드로이드 없이 일반 JVM 에서 돈다.
+//
+//   ./gradlew :benchmarks:jmh                 실행 (결과: build/results/jmh/results.json)
+//   ./gradlew :benchmarks:jmhCompare          실행 후 baselines/baseline.json 과 비교, 15% 넘게 나빠지면 실패
+//   ./gradlew :benchmarks:jmhUpdateBaseline   마지막 결과를 새 기준값으로 저장 (같은 기계에서 잰 값끼리만 비교할 것)
+//   ./gradlew :benchmarks:simLoadTest -Pstrips=500 -Ploss=0.02
+//                                             시뮬레이터 멀티탭으로 부하 테스트 (READY 까지 시간, 명령 처리량)
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    implementation(project(":core"))
+    jmhImplementation(project(":core"))
+    implementation(libs.gson)
+}
+
+val jmhResults = layout.buildDirectory.file("results/jmh/results.json")
+val baselineFile = layout.projectDirectory.file("baselines/baseline.json")
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    resultFormat.set("JSON")
+    resultsFile.set(jmhResults)
+    fork.set(1)
+    warmupIterations.set(3)
+    warmup.set("1s")
+    iterations.set(5)
+    timeOnIteration.set("1s")
+}
+
+tasks.register<JavaExec>("jmhCompare") {
+    group = "benchmark"
+    description = "Runs JMH and compares the results with baselines/baseline.json"
+    dependsOn("jmh")
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.energysaver.benchmarks.BaselineCheck")
+    args(baselineFile.asFile.path, jmhResults.get().asFile.path,
+        (project.findProperty("tolerance") ?: "15").toString())
+}
+
+tasks.register<Copy>("jmhUpdateBaseline") {
+    group = "benchmark"
+    description = "Stores the last JMH results as baselines/baseline.json"
+    from(jmhResults)
+    into(baselineFile.asFile.parentFile)
+    rename { "baseline.json" }
+}
+
+tasks.register<JavaExec>("simLoadTest") {
+    group = "benchmark"
+    description = "Load-tests simulated strips in virtual time (time-to-READY, command throughput)"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.energysaver.benchmarks.SimLoadTest")
+    args(listOf("strips", "seconds", "loss", "connectFail", "dropMeanSec", "maxConnects",
+        "thinkMs", "seed").mapNotNull { key -> project.findProperty(key)?.let { "$key=$it" } })
+}
@@ -0,0 +1,83 @@
+package com.energysaver.benchmarks;
+
+import com.energysaver.core.ConnectionScheduler;
+import com.energysaver.core.GattOperation;
+import com.energysaver.core.GattOperationQueue;
+import com.energysaver.core.HeartbeatScheduler;
+import com.energysaver.core.UartCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// BLE 작업 스레드에서 도는 스케줄러들의 한 번 처리 비용
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SchedulerBenchmark {
+
+    @Param({"8", "64"})
+    public int devices;
+
+    private HeartbeatScheduler heartbeat;
+    private long now;
+
+    private ConnectionScheduler connections;
+    private int nextKey;
+
+    private GattOperationQueue opQueue;
+    private byte[] onPayload;
+
+    @Setup
+    public void setup() {
+        heartbeat = new HeartbeatScheduler(1000, 20, 30, new Random(1));
+        for (int i = 0; i < devices; i++) {
+            // 주기가 서로 다르게 흩어진 기기들
+            heartbeat.add(i, 5000 + i * 37, i * 11);
+        }
+        now = 0;
+
+        // 시작하자마자 끝나는 연결: 큐에 넣고 빼는 비용만 남는다
+        connections = new ConnectionScheduler(2, key -> { });
+        onPayload = UartCodec.encodeCommand("ON", 1, true);
+        opQueue = new GattOperationQueue();
+    }
+
+    // 100ms 씩 시간을 흘리면서 깨어날 때마다의 poll
+    @Benchmark
+    public long heartbeatPoll(Blackhole bh) {
+        now += 100;
+        return heartbeat.poll(now, (key, delayMs) -> bh.consume(key));
+    }
+
+    @Benchmark
+    public int connectRequestAndFinish() {
+        int key = nextKey;
+        nextKey = (nextKey + 1) % devices;
+        connections.request(key, ConnectionScheduler.PRIORITY_BACKGROUND, 0);
+        connections.onFinished(key);
+        return connections.getQueueDepth();
+    }
+
+    // 전원 명령 병합 포함: offer → cancel → offer → 시작 → 완료
+    @Benchmark
+    public GattOperation powerCommandRoundTrip() {
+        opQueue.offer(GattOperation.write("ON", onPayload, GattOperation.Priority.COMMAND)
+                .coalesceBy(GattOperation.KEY_POWER));
+        opQueue.cancel(GattOperation.KEY_POWER);
+        opQueue.offer(GattOperation.write("OFF", onPayload, GattOperation.Priority.SAFETY)
+                .coalesceBy(GattOperation.KEY_POWER));
+        GattOperation op = opQueue.startNext(false);
+        opQueue.complete(op);
+        return op;
+    }
+}
@@ -0,0 +1,61 @@
+package com.energysaver.benchmarks;
+
+import com.energysaver.core.MacUtils;
+import com.energysaver.core.SmartStrip;
+import com.energysaver.core.StripRegistry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// 응답/상태 수신마다 하는 mac → 멀티탭 조회
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StripRegistryBenchmark {
+
+    @Param({"8", "64"})
+    public int strips;
+
+    private StripRegistry registry;
+    private String[] macs;
+    private long[] keys;
+    private int next;
+
+    @Setup
+    public void setup() {
+        registry = new StripRegistry(null);
+        List<SmartStrip> list = new ArrayList<>();
+        macs = new String[strips];
+        keys = new long[strips];
+        for (int i = 0; i < strips; i++) {
+            // 소문자로 넣어서 정규화 경로도 같이 잰다
+            macs[i] = String.format(Locale.US, "a4:c1:38:00:%02x:%02x", i >> 8, i & 0xFF);
+            keys[i] = MacUtils.toLong(macs[i]);
+            list.add(new SmartStrip("멀티탭 " + i, macs[i].toUpperCase(Locale.US), false));
+        }
+        registry.load(list);
+    }
+
+    @Benchmark
+    public SmartStrip getByString() {
+        next = (next + 1) % strips;
+        return registry.get(macs[next]);
+    }
+
+    @Benchmark
+    public SmartStrip getByKey() {
+        next = (next + 1) % strips;
+        return registry.get(keys[next]);
+    }
+}
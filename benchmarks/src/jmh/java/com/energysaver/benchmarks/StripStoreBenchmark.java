@@ -0,0 +1,83 @@
+package com.energysaver.benchmarks;
+
+import com.energysaver.core.SmartStrip;
+import com.energysaver.core.StripStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// 멀티탭 목록 저장: 토글 하나를 디스크까지 반영, 앱 시작 시 전체 읽기
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StripStoreBenchmark {
+
+    private static final int STRIPS = 32;
+
+    private File dir;
+    private StripStore store;
+    private SmartStrip[] strips;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("strip-bench").toFile();
+        store = new StripStore(new File(dir, "strips"));
+        store.load();   // 앱과 같이 읽은 다음부터 쓴다
+        strips = new SmartStrip[STRIPS];
+        for (int i = 0; i < STRIPS; i++) {
+            strips[i] = new SmartStrip("거실 멀티탭 " + i,
+                    String.format(Locale.US, "A4:C1:38:00:00:%02X", i), false);
+            store.put(strips[i]);
+        }
+        store.sync();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    // 슬롯 인코딩 + write + force
+    @Benchmark
+    public void toggleAndSync() throws IOException {
+        SmartStrip s = strips[next];
+        next = (next + 1) % STRIPS;
+        s.setOn(!s.isOn());
+        store.put(s);
+        store.sync();
+    }
+
+    // 버퍼에 반영만 (group commit 전)
+    @Benchmark
+    public void toggleBuffered() {
+        SmartStrip s = strips[next];
+        next = (next + 1) % STRIPS;
+        s.setOn(!s.isOn());
+        store.put(s);
+    }
+
+    @Benchmark
+    public List<SmartStrip> load() throws IOException {
+        return store.load();
+    }
+}
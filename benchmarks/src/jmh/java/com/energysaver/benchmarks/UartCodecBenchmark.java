@@ -0,0 +1,78 @@
+package com.energysaver.benchmarks;
+
+import com.energysaver.core.UartCodec;
+import com.energysaver.core.UartStreamDecoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// 명령 한 개 인코딩, 알림 한 번(여러 프레임/줄) 디코딩
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UartCodecBenchmark {
+
+    private byte[] binaryNotification;
+    private byte[] textNotification;
+    private UartStreamDecoder decoder;
+    private Blackhole sink;
+    private int seq;
+    // 상수로 두면 JIT 가 결과를 접어 버린다
+    private String command = "ON";
+
+    @Setup
+    public void setup(Blackhole bh) {
+        sink = bh;
+        // 기기가 한 번에 보내는 정도: ACK + STATE + PONG
+        byte[] ack = UartCodec.encode(UartCodec.OP_ACK, 1, "ON".getBytes(StandardCharsets.US_ASCII));
+        byte[] state = UartCodec.encode(UartCodec.OP_STATE, 2, new byte[]{1});
+        byte[] pong = UartCodec.encode(UartCodec.OP_PONG, 3, null);
+        binaryNotification = new byte[ack.length + state.length + pong.length];
+        System.arraycopy(ack, 0, binaryNotification, 0, ack.length);
+        System.arraycopy(state, 0, binaryNotification, ack.length, state.length);
+        System.arraycopy(pong, 0, binaryNotification, ack.length + state.length, pong.length);
+        textNotification = "ACK ON\nSTATE ON\nPONG\n".getBytes(StandardCharsets.US_ASCII);
+
+        decoder = new UartStreamDecoder(new UartStreamDecoder.Listener() {
+            @Override
+            public void onFrame(int opcode, int seq, byte[] payload, int payloadLen) {
+                sink.consume(opcode);
+            }
+
+            @Override
+            public void onLine(String line) {
+                sink.consume(line);
+            }
+        });
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        seq = (seq + 1) & 0xFF;
+        return UartCodec.encodeCommand(command, seq, true);
+    }
+
+    @Benchmark
+    public byte[] encodeText() {
+        return UartCodec.encodeCommand(command, 0, false);
+    }
+
+    @Benchmark
+    public void decodeBinary() {
+        decoder.feed(binaryNotification);
+    }
+
+    @Benchmark
+    public void decodeText() {
+        decoder.feed(textNotification);
+    }
+}
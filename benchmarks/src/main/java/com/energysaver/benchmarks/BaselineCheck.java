@@ -0,0 +1,111 @@
+package com.energysaver.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// JMH 결과(JSON)를 저장해 둔 기준값과 비교한다.
+// 사용법: BaselineCheck <baseline.json> <results.json> [허용 퍼센트]
+// 기준보다 허용치 이상 나빠진 벤치마크가 있으면 1 로 끝난다.
+public final class BaselineCheck {
+
+    private static final double DEFAULT_TOLERANCE_PERCENT = 15;
+
+    private BaselineCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BaselineCheck <baseline.json> <results.json> [tolerance%]");
+            System.exit(2);
+        }
+        Path baselinePath = Paths.get(args[0]);
+        Path resultsPath = Paths.get(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE_PERCENT;
+
+        if (!Files.exists(baselinePath)) {
+            System.err.println("기준값 없음: " + baselinePath + " (jmhUpdateBaseline 으로 만든다)");
+            System.exit(2);
+        }
+        Map<String, Score> baseline = read(baselinePath);
+        Map<String, Score> results = read(resultsPath);
+
+        int regressions = 0;
+        for (Map.Entry<String, Score> e : results.entrySet()) {
+            Score now = e.getValue();
+            Score base = baseline.get(e.getKey());
+            if (base == null) {
+                System.out.printf(Locale.US, "  NEW   %-70s %12.3f %s%n",
+                        e.getKey(), now.value, now.unit);
+                continue;
+            }
+            // avgt/ss/sample 은 작을수록, thrpt 는 클수록 좋다
+            double change = (now.value - base.value) / base.value * 100;
+            double worse = "thrpt".equals(now.mode) ? -change : change;
+            String mark = worse > tolerance ? "WORSE" : worse < -tolerance ? "BETTER" : "ok";
+            if (worse > tolerance) regressions++;
+            System.out.printf(Locale.US, "  %-5s %-70s %12.3f -> %12.3f %s (%+.1f%%)%n",
+                    mark, e.getKey(), base.value, now.value, now.unit, change);
+        }
+        for (String key : baseline.keySet()) {
+            if (!results.containsKey(key)) {
+                System.out.printf(Locale.US, "  GONE  %s%n", key);
+            }
+        }
+
+        if (regressions > 0) {
+            System.err.printf(Locale.US, "%d benchmark(s) regressed more than %.0f%%%n",
+                    regressions, tolerance);
+            System.exit(1);
+        }
+    }
+
+    private static final class Score {
+        final String mode;
+        final double value;
+        final String unit;
+
+        Score(String mode, double value, String unit) {
+            this.mode = mode;
+            this.value = value;
+            this.unit = unit;
+        }
+    }
+
+    // "클래스.메서드 {param=값, ...}" → 점수
+    private static Map<String, Score> read(Path path) throws IOException {
+        Map<String, Score> out = new TreeMap<>();
+        try (Reader r = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            JsonArray runs = JsonParser.parseReader(r).getAsJsonArray();
+            for (JsonElement el : runs) {
+                JsonObject run = el.getAsJsonObject();
+                String name = run.get("benchmark").getAsString();
+                name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+                if (run.has("params")) {
+                    Map<String, String> params = new TreeMap<>();
+                    for (Map.Entry<String, JsonElement> p
+                            : run.getAsJsonObject("params").entrySet()) {
+                        params.put(p.getKey(), p.getValue().getAsString());
+                    }
+                    name += " " + params;
+                }
+                JsonObject metric = run.getAsJsonObject("primaryMetric");
+                out.put(name, new Score(run.get("mode").getAsString(),
+                        metric.get("score").getAsDouble(),
+                        metric.get("scoreUnit").getAsString()));
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,388 @@
+package com.energysaver.benchmarks;
+
+import com.energysaver.core.BleTransport;
+import com.energysaver.core.ConnectionScheduler;
+import com.energysaver.core.LatencyHistogram;
+import com.energysaver.core.LongHashMap;
+import com.energysaver.core.MacUtils;
+import com.energysaver.core.ReconnectPolicy;
+import com.energysaver.core.SimulatedStrip;
+import com.energysaver.core.StripSimulator;
+import com.energysaver.core.UartCodec;
+import com.energysaver.core.UartStreamDecoder;
+import com.energysaver.core.VirtualClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+// 시뮬레이터 멀티탭 수백 대를 가상 시간으로 돌려 READY 까지 걸린 시간과 명령 처리량을 잰다.
+// 앱과 같은 순서로 연결한다: ConnectionScheduler 로 동시 연결 제한 → 탐색 → MTU → CCCD → READY
+// → HELLO/CAPS 로 바이너리 전환 → ON/OFF 를 번갈아 보내고 ACK 를 기다림. 끊기면 ReconnectPolicy.
+// 스레드 하나에서 이벤트 순서대로 돌아가므로 같은 시드면 같은 결과가 나온다.
+//
+// 사용법: SimLoadTest [strips=300] [seconds=600] [loss=0.01] [connectFail=0.05]
+//                     [dropMeanSec=300] [maxConnects=2] [thinkMs=2000] [seed=1]
+public final class SimLoadTest {
+
+    // 앱(BleForegroundService)과 같은 값
+    private static final long CONNECT_SLOT_TIMEOUT_MS = 15000;
+    private static final long RECONNECT_BASE_MS = 2000;
+    private static final long RECONNECT_CAP_MS = 60000;
+    private static final int RECONNECT_FAILURE_THRESHOLD = 8;
+    private static final long RECONNECT_PARK_MS = 10 * 60 * 1000L;
+    private static final long RECONNECT_MAX_PARK_MS = 60 * 60 * 1000L;
+    private static final long HANDSHAKE_TIMEOUT_MS = 2000;
+    private static final long ACK_TIMEOUT_MS = 2500;    // 서보 800ms + 왕복
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final VirtualClock clock = new VirtualClock();
+    private final StripSimulator sim;
+    private final ConnectionScheduler scheduler;
+    private final LongHashMap<Client> clients = new LongHashMap<>();
+    private final Random random;
+    private final long thinkMs;
+
+    // 결과
+    private final LatencyHistogram readyFromRequest = new LatencyHistogram();
+    private final LatencyHistogram readyFromStart = new LatencyHistogram();
+    private final LatencyHistogram ackRtt = new LatencyHistogram();
+    private long commandsAcked = 0;
+    private long commandsFailed = 0;
+    private long retransmits = 0;
+    private long connectAttempts = 0;
+    private long connectFailures = 0;
+    private long disconnects = 0;
+    private long binarySessions = 0;
+    private int readyCount = 0;
+    private long allReadyAtMs = -1;    // 처음으로 모든 기기가 READY 가 된 시각 (히스토그램은 65초까지라 따로)
+
+    private SimLoadTest(StripSimulator.Config config, int maxConnects, long thinkMs, long seed) {
+        this.sim = new StripSimulator(clock, config, seed);
+        this.scheduler = new ConnectionScheduler(maxConnects, this::startConnect);
+        this.random = new Random(seed + 1);
+        this.thinkMs = thinkMs;
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq <= 0) {
+                System.err.println("usage: SimLoadTest [strips=N] [seconds=N] [loss=P] [connectFail=P]"
+                        + " [dropMeanSec=N] [maxConnects=N] [thinkMs=N] [seed=N]");
+                System.exit(2);
+            }
+            opts.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+        int strips = Integer.parseInt(opts.getOrDefault("strips", "300"));
+        long seconds = Long.parseLong(opts.getOrDefault("seconds", "600"));
+        double loss = Double.parseDouble(opts.getOrDefault("loss", "0.01"));
+        double connectFail = Double.parseDouble(opts.getOrDefault("connectFail", "0.05"));
+        long dropMeanSec = Long.parseLong(opts.getOrDefault("dropMeanSec", "300"));
+        int maxConnects = Integer.parseInt(opts.getOrDefault("maxConnects", "2"));
+        long thinkMs = Long.parseLong(opts.getOrDefault("thinkMs", "2000"));
+        long seed = Long.parseLong(opts.getOrDefault("seed", "1"));
+
+        StripSimulator.Config config = new StripSimulator.Config()
+                .lossRate(loss)
+                .connectFailureRate(connectFail)
+                .meanTimeBetweenDrops(dropMeanSec * 1000);
+
+        SimLoadTest test = new SimLoadTest(config, maxConnects, thinkMs, seed);
+        System.out.printf(Locale.US, "strips=%d seconds=%d loss=%.3f connectFail=%.3f"
+                        + " dropMeanSec=%d maxConnects=%d thinkMs=%d seed=%d%n",
+                strips, seconds, loss, connectFail, dropMeanSec, maxConnects, thinkMs, seed);
+
+        long wallStart = System.nanoTime();
+        test.run(strips, seconds * 1000);
+        long wallMs = (System.nanoTime() - wallStart) / 1_000_000;
+        test.report(seconds, wallMs);
+    }
+
+    private void run(int strips, long durationMs) {
+        for (int i = 0; i < strips; i++) {
+            long key = 0xC0FFEE000000L + i;
+            String mac = MacUtils.toString(key);
+            sim.addStrip(mac);
+            Client c = new Client(key, mac);
+            clients.put(key, c);
+        }
+        // 서비스 시작: 등록된 기기를 모두 백그라운드 우선순위로 요청
+        for (int i = 0; i < strips; i++) {
+            clients.get(0xC0FFEE000000L + i).requestConnect();
+        }
+        clock.runFor(durationMs);
+    }
+
+    private void startConnect(long key) {
+        Client c = clients.get(key);
+        if (c != null) c.startConnect();
+    }
+
+    private void report(long seconds, long wallMs) {
+        int ready = 0;
+        for (Client c : clientList()) {
+            if (c.ready) ready++;
+        }
+        int failSafeOffs = 0;
+        int rxOverflows = 0;
+        for (SimulatedStrip s : sim.getStrips()) {
+            failSafeOffs += s.getFailSafeOffs();
+            rxOverflows += s.getRxOverflows();
+        }
+
+        System.out.printf(Locale.US, "READY now        %d / %d, all READY first at %s%n", ready,
+                clients.size(), allReadyAtMs < 0 ? "-" : (allReadyAtMs / 1000.0) + "s");
+        System.out.printf(Locale.US, "time-to-READY    %s (요청부터, 연결 대기 포함)%n",
+                percentiles(readyFromRequest));
+        System.out.printf(Locale.US, "                 %s (connect 시작부터)%n",
+                percentiles(readyFromStart));
+        System.out.printf(Locale.US, "ACK RTT          %s%n", percentiles(ackRtt));
+        System.out.printf(Locale.US, "commands         %d acked, %d failed, %d retransmits"
+                        + " → %.1f cmd/s (simulated)%n",
+                commandsAcked, commandsFailed, retransmits, commandsAcked / (double) seconds);
+        System.out.printf(Locale.US, "connects         %d attempts, %d failed, %d disconnects,"
+                        + " %d binary sessions%n",
+                connectAttempts, connectFailures, disconnects, binarySessions);
+        System.out.printf(Locale.US, "firmware         %d fail-safe OFF, %d rx overflows%n",
+                failSafeOffs, rxOverflows);
+        System.out.printf(Locale.US, "wall             %d ms, %d events (%.0f events/s)%n",
+                wallMs, clock.getExecutedCount(),
+                clock.getExecutedCount() * 1000.0 / Math.max(1, wallMs));
+    }
+
+    private static String percentiles(LatencyHistogram h) {
+        if (h.getTotalCount() == 0) return "-";
+        return String.format(Locale.US, "n=%d p50≤%dms p90≤%dms p99≤%dms", h.getTotalCount(),
+                h.percentileMs(50), h.percentileMs(90), h.percentileMs(99));
+    }
+
+    private List<Client> clientList() {
+        List<Client> out = new ArrayList<>(clients.size());
+        clients.forEach((key, c) -> out.add(c));
+        return out;
+    }
+
+    // ───── 앱 한 대분의 연결 (DeviceConnection 을 줄인 것) ─────
+
+    private final class Client implements BleTransport.Callback, UartStreamDecoder.Listener {
+
+        private final long key;
+        private final String mac;
+        private final ReconnectPolicy reconnect = new ReconnectPolicy(RECONNECT_BASE_MS,
+                RECONNECT_CAP_MS, RECONNECT_FAILURE_THRESHOLD, RECONNECT_PARK_MS,
+                RECONNECT_MAX_PARK_MS, random);
+        private final UartStreamDecoder decoder = new UartStreamDecoder(this);
+
+        private BleTransport link;
+        private int session = 0;          // 늦게 도착한 타이머/콜백 구분
+        private boolean ready = false;
+        private boolean binary = false;
+        private long requestedAt = -1;
+        private long startedAt;
+
+        // 명령 하나씩: 보내고 ACK 를 기다린 뒤 thinkMs 쉬고 다음
+        private boolean nextOn = false;
+        private int seq = 0;
+        private int attempts = 0;
+        private long sentAt;
+        private boolean awaitingAck = false;
+        private int cccdAttempts = 0;
+
+        Client(long key, String mac) {
+            this.key = key;
+            this.mac = mac;
+        }
+
+        void requestConnect() {
+            if (requestedAt < 0) requestedAt = clock.nowMs();
+            scheduler.request(key, ConnectionScheduler.PRIORITY_BACKGROUND, 0);
+        }
+
+        void startConnect() {
+            closeLink();
+            connectAttempts++;
+            startedAt = clock.nowMs();
+            link = sim.connect(mac, this);
+            int s = session;
+            clock.schedule(CONNECT_SLOT_TIMEOUT_MS, () -> {
+                if (s == session && !ready) scheduler.onFinished(key);
+            });
+        }
+
+        private void closeLink() {
+            if (ready) readyCount--;
+            session++;
+            if (link != null) link.close();
+            link = null;
+            ready = false;
+            binary = false;
+            awaitingAck = false;
+            decoder.reset();
+        }
+
+        private void onLinkLost(boolean wasReady) {
+            closeLink();
+            if (!wasReady) {
+                connectFailures++;
+                scheduler.onFinished(key);
+            } else {
+                disconnects++;
+            }
+            long delay = reconnect.onFailure();
+            int token = reconnect.schedule();
+            clock.schedule(delay, () -> {
+                if (reconnect.fire(token)) requestConnect();
+            });
+        }
+
+        private void onReady() {
+            ready = true;
+            long now = clock.nowMs();
+            if (++readyCount == clients.size() && allReadyAtMs < 0) allReadyAtMs = now;
+            readyFromRequest.record(now - requestedAt);
+            readyFromStart.record(now - startedAt);
+            requestedAt = -1;
+            reconnect.onSuccess();
+            scheduler.onFinished(key);
+
+            write((UartCodec.HELLO_TEXT + "\n").getBytes());
+            int s = session;
+            clock.schedule(HANDSHAKE_TIMEOUT_MS, () -> {
+                if (s == session && !binary) sendCommand();   // 텍스트 모드로 계속
+            });
+        }
+
+        private void write(byte[] payload) {
+            if (link != null && !link.write(payload, true)) {
+                // 앞의 쓰기가 아직 끝나지 않음: 조금 뒤에 다시
+                int s = session;
+                clock.schedule(20, () -> {
+                    if (s == session) write(payload);
+                });
+            }
+        }
+
+        private void sendCommand() {
+            if (!ready || awaitingAck) return;
+            seq = (seq + 1) & 0xFF;
+            attempts = 0;
+            transmit();
+        }
+
+        private void transmit() {
+            attempts++;
+            if (attempts > 1) retransmits++;
+            awaitingAck = true;
+            sentAt = clock.nowMs();
+            write(UartCodec.encodeCommand(nextOn ? "ON" : "OFF", seq, binary));
+
+            int s = session;
+            int sq = seq;
+            int at = attempts;
+            clock.schedule(ACK_TIMEOUT_MS, () -> {
+                if (s != session || !awaitingAck || sq != seq || at != attempts) return;
+                if (attempts < MAX_ATTEMPTS) {
+                    transmit();
+                } else {
+                    commandsFailed++;
+                    awaitingAck = false;
+                    scheduleNext();
+                }
+            });
+        }
+
+        private void onAck() {
+            if (!awaitingAck) return;
+            awaitingAck = false;
+            commandsAcked++;
+            ackRtt.record(clock.nowMs() - sentAt);
+            nextOn = !nextOn;
+            scheduleNext();
+        }
+
+        private void scheduleNext() {
+            int s = session;
+            clock.schedule(thinkMs, () -> {
+                if (s == session) sendCommand();
+            });
+        }
+
+        // ───── BleTransport.Callback (시뮬레이터 스레드 = 이 스레드) ─────
+
+        @Override
+        public void onConnectionStateChanged(BleTransport transport, int status, boolean connected) {
+            if (transport != link) return;
+            if (connected) {
+                link.discoverServices();
+            } else {
+                onLinkLost(ready);
+            }
+        }
+
+        @Override
+        public void onServicesDiscovered(BleTransport transport, int status,
+                                         boolean hasUart, boolean hasCccd) {
+            if (transport != link) return;
+            if (status != BleTransport.STATUS_SUCCESS || !hasUart) return;
+            link.requestMtu(247);
+        }
+
+        @Override
+        public void onMtuChanged(BleTransport transport, int mtu, int status) {
+            if (transport != link) return;
+            link.enableNotifications();
+        }
+
+        @Override
+        public void onNotificationsEnabled(BleTransport transport, int status) {
+            if (transport != link) return;
+            if (status != BleTransport.STATUS_SUCCESS) {
+                // 앱처럼 한 번 더 시도하고, 그래도 안 되면 쓰기만이라도 되니 READY
+                if (cccdAttempts++ < 1) {
+                    link.enableNotifications();
+                    return;
+                }
+            }
+            cccdAttempts = 0;
+            onReady();
+        }
+
+        @Override
+        public void onWriteComplete(BleTransport transport, int status) {
+            // 응답 없는 쓰기만 쓰므로 실패는 ACK 타임아웃으로 잡힌다
+        }
+
+        @Override
+        public void onReceived(BleTransport transport, byte[] data) {
+            if (transport != link) return;
+            decoder.feed(data);
+        }
+
+        // ───── UartStreamDecoder.Listener ─────
+
+        @Override
+        public void onLine(String line) {
+            if (UartCodec.isCapsLine(line)) {
+                if (!binary) {
+                    binary = true;
+                    binarySessions++;
+                    sendCommand();
+                }
+            } else if (line.startsWith("ACK ")) {
+                onAck();
+            }
+        }
+
+        @Override
+        public void onFrame(int opcode, int frameSeq, byte[] payload, int length) {
+            if (opcode == UartCodec.OP_ACK && frameSeq == seq) {
+                onAck();
+            }
+        }
+    }
+}
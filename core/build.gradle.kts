@@ -0,0 +1,20 @@
+// 안드로이드 없이 도는 로직: 기기 모델, UART 코덱, 멀티탭 목록/저장소, 재연결·하트비트 정책, 명령 큐.
+// :app 이 이 위에 올라가고, :benchmarks 가 일반 JVM 에서 측정한다.
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    // @Nullable 만 쓴다 (앱에는 이미 들어 있음)
+    compileOnly(libs.androidx.annotation)
+    testImplementation(libs.junit)
+}
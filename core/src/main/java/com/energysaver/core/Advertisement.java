@@ -0,0 +1,145 @@
+package com.energysaver.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+// BLE 광고 데이터(AD 구조 [len][type][data...] 의 나열)를 한 번 풀어 둔 것 (불변).
+// 이름, 서비스 UUID, 제조사 데이터만 본다. 길이가 맞지 않는 뒷부분은 버린다.
+public final class Advertisement {
+
+    static final int TYPE_UUID16_INCOMPLETE = 0x02;
+    static final int TYPE_UUID16_COMPLETE = 0x03;
+    static final int TYPE_UUID128_INCOMPLETE = 0x06;
+    static final int TYPE_UUID128_COMPLETE = 0x07;
+    static final int TYPE_NAME_SHORT = 0x08;
+    static final int TYPE_NAME_COMPLETE = 0x09;
+    static final int TYPE_MANUFACTURER = 0xFF;
+
+    public static final int NO_MANUFACTURER = -1;
+
+    public static final Advertisement EMPTY =
+            new Advertisement(new byte[0], null, Collections.emptyList(), NO_MANUFACTURER, new byte[0]);
+
+    // 16비트 UUID 를 붙이는 Bluetooth 기본 UUID (0000xxxx-0000-1000-8000-00805F9B34FB)
+    private static final long BASE_UUID_LSB = 0x800000805F9B34FBL;
+    private static final long BASE_UUID_MSB = 0x0000000000001000L;
+
+    private final byte[] raw;
+    private final String name;
+    private final List<UUID> serviceUuids;
+    private final int manufacturerId;
+    private final byte[] manufacturerData;
+
+    private Advertisement(byte[] raw, String name, List<UUID> serviceUuids,
+                          int manufacturerId, byte[] manufacturerData) {
+        this.raw = raw;
+        this.name = name;
+        this.serviceUuids = serviceUuids;
+        this.manufacturerId = manufacturerId;
+        this.manufacturerData = manufacturerData;
+    }
+
+    // null 이나 빈 배열이면 EMPTY
+    public static Advertisement parse(byte[] record) {
+        if (record == null || record.length == 0) return EMPTY;
+
+        String shortName = null;
+        String completeName = null;
+        List<UUID> uuids = new ArrayList<>(2);
+        int manufacturerId = NO_MANUFACTURER;
+        byte[] manufacturerData = EMPTY.manufacturerData;
+        int end = record.length;
+
+        int i = 0;
+        while (i < end) {
+            int len = record[i] & 0xFF;
+            if (len == 0) break;                  // 나머지는 0 으로 채운 부분
+            if (i + 1 + len > end) break;         // 잘린 구조
+            int type = record[i + 1] & 0xFF;
+            int from = i + 2;
+            int dataLen = len - 1;
+
+            switch (type) {
+                case TYPE_UUID16_INCOMPLETE:
+                case TYPE_UUID16_COMPLETE:
+                    for (int p = from; p + 2 <= from + dataLen; p += 2) {
+                        int short16 = (record[p] & 0xFF) | (record[p + 1] & 0xFF) << 8;
+                        uuids.add(new UUID(BASE_UUID_MSB | (long) short16 << 32, BASE_UUID_LSB));
+                    }
+                    break;
+                case TYPE_UUID128_INCOMPLETE:
+                case TYPE_UUID128_COMPLETE:
+                    for (int p = from; p + 16 <= from + dataLen; p += 16) {
+                        // 광고에서는 리틀 엔디언
+                        uuids.add(new UUID(readLongLe(record, p + 8), readLongLe(record, p)));
+                    }
+                    break;
+                case TYPE_NAME_SHORT:
+                    shortName = utf8(record, from, dataLen);
+                    break;
+                case TYPE_NAME_COMPLETE:
+                    completeName = utf8(record, from, dataLen);
+                    break;
+                case TYPE_MANUFACTURER:
+                    if (dataLen >= 2 && manufacturerId == NO_MANUFACTURER) {
+                        manufacturerId = (record[from] & 0xFF) | (record[from + 1] & 0xFF) << 8;
+                        manufacturerData = Arrays.copyOfRange(record, from + 2, from + dataLen);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            i += 1 + len;
+        }
+
+        String name = completeName != null ? completeName : shortName;
+        return new Advertisement(record.clone(), name,
+                uuids.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(uuids),
+                manufacturerId, manufacturerData);
+    }
+
+    private static long readLongLe(byte[] b, int off) {
+        long v = 0;
+        for (int k = 7; k >= 0; k--) {
+            v = v << 8 | (b[off + k] & 0xFF);
+        }
+        return v;
+    }
+
+    private static String utf8(byte[] b, int off, int len) {
+        if (len <= 0) return null;
+        return new String(b, off, len, StandardCharsets.UTF_8);
+    }
+
+    // 같은 광고를 다시 받았는지 (그렇다면 다시 풀 필요 없음)
+    public boolean sameBytes(byte[] record) {
+        return record != null && Arrays.equals(raw, record);
+    }
+
+    // 광고에 이름이 없으면 null
+    public String getName() {
+        return name;
+    }
+
+    public List<UUID> getServiceUuids() {
+        return serviceUuids;
+    }
+
+    public boolean hasService(UUID uuid) {
+        return serviceUuids.contains(uuid);
+    }
+
+    // 제조사 데이터가 없으면 NO_MANUFACTURER
+    public int getManufacturerId() {
+        return manufacturerId;
+    }
+
+    // 회사 id 뒤의 바이트 (복사본)
+    public byte[] getManufacturerData() {
+        return manufacturerData.clone();
+    }
+}
@@ -0,0 +1,63 @@
+package com.energysaver.core;
+
+import androidx.annotation.Nullable;
+
+// 기기 하나와의 BLE UART 링크 (HM-10: FFE0 서비스, FFE1 특성, 2902 CCCD).
+// 서비스의 DeviceConnection 은 BluetoothGatt 대신 이것만 보고 동작한다.
+// 구현: 앱의 GattTransport (안드로이드 GATT), StripSimulator 가 만드는 SimulatedTransport.
+//
+// 요청 메서드가 false 를 돌려주면 그 요청의 콜백은 오지 않는다.
+// 콜백은 구현의 스레드에서 오므로 받는 쪽이 자기 스레드로 넘겨서 처리한다.
+// 한 번 연결하고 close 하면 끝. 재연결은 Factory.connect 로 새로 만든다.
+public interface BleTransport {
+
+    // 안드로이드 BluetoothGatt 의 status 값과 같다
+    int STATUS_SUCCESS = 0;
+    int STATUS_CONNECTION_TIMEOUT = 0x08;   // 링크 감시 타임아웃 (범위 밖)
+    int STATUS_TERMINATED_BY_PEER = 0x13;
+    int STATUS_GATT_ERROR = 0x85;           // 133: 연결 실패의 대부분
+
+    interface Callback {
+        void onConnectionStateChanged(BleTransport transport, int status, boolean connected);
+
+        // hasUart: FFE0/FFE1 이 있음. hasCccd: 알림을 켤 수 있음
+        void onServicesDiscovered(BleTransport transport, int status,
+                                  boolean hasUart, boolean hasCccd);
+
+        void onMtuChanged(BleTransport transport, int mtu, int status);
+
+        void onNotificationsEnabled(BleTransport transport, int status);
+
+        void onWriteComplete(BleTransport transport, int status);
+
+        // data 는 받는 쪽이 가져도 되는 복사본
+        void onReceived(BleTransport transport, byte[] data);
+
+        // readRssi 의 결과 (dBm)
+        default void onRssiRead(BleTransport transport, int rssi, int status) {
+        }
+    }
+
+    interface Factory {
+        // 연결을 시작한다. 시작조차 할 수 없으면 (블루투스 꺼짐, 잘못된 주소) null
+        @Nullable
+        BleTransport connect(String mac, Callback callback);
+    }
+
+    boolean discoverServices();
+
+    boolean requestMtu(int mtu);
+
+    // 알림 등록 + CCCD 쓰기. 끝나면 onNotificationsEnabled
+    boolean enableNotifications();
+
+    boolean write(byte[] payload, boolean withoutResponse);
+
+    boolean supportsWriteWithoutResponse();
+
+    // 연결된 링크의 신호 세기. 다른 GATT 요청과 같이 한 번에 하나만 된다. 끝나면 onRssiRead
+    boolean readRssi();
+
+    // 콜백은 더 오지 않는다
+    void close();
+}
@@ -0,0 +1,234 @@
+package com.energysaver.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// 기기 하나에 대해 보낸 명령과 응답(ACK/PONG/상태)을 짝지어
+// 왕복시간을 재고, 응답이 없으면 재전송 시점을 알려준다.
+//
+// 바이너리 모드: 응답 프레임의 seq 로 매칭
+// 텍스트 모드: seq 가 없으므로 같은 명령 중 가장 오래된 것과 매칭 (FIFO)
+public class CommandTracker {
+
+    public enum Result {
+        ACKED,          // 기기가 응답함
+        SUPERSEDED,     // 더 최신 명령으로 대체되어 취소됨
+        TIMEOUT,        // 재전송까지 했지만 응답 없음
+        FAILED,         // 쓰기 자체가 실패
+        DISCONNECTED    // 응답 전에 연결이 끊김
+    }
+
+    public interface Callback {
+        void onCommandComplete(String command, Result result, long rttMs);
+    }
+
+    public static final int MAX_TRANSMISSIONS = 3;   // 최초 1회 + 재전송 2회
+
+    public static final class Entry {
+        private final int seq;
+        private final String command;
+        private final long processingMs;   // 기기가 응답 전에 소비하는 시간 (서보 등)
+        private final List<Callback> callbacks = new ArrayList<>(1);
+        private long sentAtMs = -1;
+        private int transmissions = 0;
+
+        Entry(int seq, String command, long processingMs) {
+            this.seq = seq;
+            this.command = command;
+            this.processingMs = processingMs;
+        }
+
+        public int getSeq() {
+            return seq;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        public int getTransmissions() {
+            return transmissions;
+        }
+
+        boolean isSent() {
+            return sentAtMs >= 0;
+        }
+    }
+
+    private final ArrayList<Entry> pending = new ArrayList<>();
+    private final RttEstimator rtt = new RttEstimator();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    // 응답 문자열 → 그 응답을 만든 명령
+    public static String requestFor(String reply) {
+        if (reply == null) return null;
+        switch (reply.trim().toUpperCase()) {
+            case "ACK ON": return "ON";
+            case "ACK OFF": return "OFF";
+            case "PONG": return "PING";
+            case "ON":
+            case "OFF": return "STATUS";
+            default: return null;
+        }
+    }
+
+    public static boolean expectsReply(String command) {
+        switch (command.toUpperCase()) {
+            case "ON":
+            case "OFF":
+            case "PING":
+            case "STATUS":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public void register(int seq, String command, long processingMs, Callback callback) {
+        Entry e = new Entry(seq, command.toUpperCase(), processingMs);
+        if (callback != null) e.callbacks.add(callback);
+        pending.add(e);
+    }
+
+    public boolean isTracked(int seq) {
+        return find(seq) != null;
+    }
+
+    public void onTransmitted(int seq, long nowMs) {
+        Entry e = find(seq);
+        if (e == null) return;
+        e.sentAtMs = nowMs;
+        e.transmissions++;
+    }
+
+    // 같은 명령이 이미 대기 중이면 그 결과를 같이 기다린다.
+    public boolean attach(String command, Callback callback) {
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            Entry e = pending.get(i);
+            if (e.command.equalsIgnoreCase(command)) {
+                if (callback != null) e.callbacks.add(callback);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 응답 처리. seq < 0 이면 텍스트 모드(FIFO). 매칭된 명령의 RTT(ms), 없으면 -1
+    public long onReply(int seq, String reply, long nowMs) {
+        String command = requestFor(reply);
+        if (command == null) return -1;
+
+        Entry match = null;
+        for (Entry e : pending) {
+            if (!e.isSent() || !e.command.equals(command)) continue;
+            if (seq < 0 || e.seq == seq) {
+                match = e;
+                break;
+            }
+        }
+        if (match == null) return -1;
+
+        long rttMs = nowMs - match.sentAtMs;
+        histogram.record(rttMs);
+        // Karn: 재전송한 명령은 어느 전송에 대한 응답인지 모르므로 추정에 쓰지 않음
+        if (match.transmissions == 1) {
+            rtt.sample(Math.max(0, rttMs - match.processingMs));
+        }
+        finish(match, Result.ACKED, rttMs);
+        return rttMs;
+    }
+
+    public void complete(int seq, Result result) {
+        Entry e = find(seq);
+        if (e != null) finish(e, result, -1);
+    }
+
+    public void completeCommand(String command, Result result) {
+        for (Entry e : new ArrayList<>(pending)) {
+            if (e.command.equalsIgnoreCase(command)) finish(e, result, -1);
+        }
+    }
+
+    // 이미 전송된(응답 대기 중인) 명령만 정리한다.
+    public void completeSent(Result result) {
+        for (Entry e : new ArrayList<>(pending)) {
+            if (e.isSent()) finish(e, result, -1);
+        }
+    }
+
+    public void completeAll(Result result) {
+        for (Entry e : new ArrayList<>(pending)) {
+            finish(e, result, -1);
+        }
+    }
+
+    // 가장 빠른 재전송 판단 시각. 보낸 명령이 없으면 -1
+    public long nextDeadlineMs() {
+        long next = -1;
+        for (Entry e : pending) {
+            if (!e.isSent()) continue;
+            long d = deadlineOf(e);
+            if (next < 0 || d < next) next = d;
+        }
+        return next;
+    }
+
+    // 시간이 지난 명령 중 다시 보낼 것들. 횟수를 다 쓴 명령은 TIMEOUT 처리된다.
+    public List<Entry> collectExpired(long nowMs) {
+        List<Entry> retransmit = new ArrayList<>();
+        List<Entry> timedOut = new ArrayList<>();
+        for (Entry e : pending) {
+            if (!e.isSent() || deadlineOf(e) > nowMs) continue;
+            if (e.transmissions < MAX_TRANSMISSIONS) {
+                e.sentAtMs = -1;   // 다시 큐에 들어가서 전송될 때까지 대기
+                retransmit.add(e);
+            } else {
+                timedOut.add(e);
+            }
+        }
+        if (!retransmit.isEmpty() || !timedOut.isEmpty()) {
+            rtt.backoff();
+        }
+        for (Entry e : timedOut) {
+            finish(e, Result.TIMEOUT, -1);
+        }
+        return retransmit;
+    }
+
+    private long deadlineOf(Entry e) {
+        return e.sentAtMs + rtt.getRtoMs() + e.processingMs;
+    }
+
+    private Entry find(int seq) {
+        for (Entry e : pending) {
+            if (e.seq == seq) return e;
+        }
+        return null;
+    }
+
+    private void finish(Entry e, Result result, long rttMs) {
+        Iterator<Entry> it = pending.iterator();
+        while (it.hasNext()) {
+            if (it.next() == e) {
+                it.remove();
+                break;
+            }
+        }
+        for (Callback cb : e.callbacks) {
+            cb.onCommandComplete(e.command, result, rttMs);
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public RttEstimator getRtt() {
+        return rtt;
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+}
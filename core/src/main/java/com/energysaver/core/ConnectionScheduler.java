@@ -0,0 +1,123 @@
+package com.energysaver.core;
+
+import java.util.PriorityQueue;
+
+// connectGatt 동시 시도 수를 제한한다. 안드로이드 스택은 동시에 몇 개만 처리하고
+// 나머지는 status 133 으로 실패시키므로, 한꺼번에 부르지 않고 순서대로 들여보낸다.
+//
+// 우선순위: 숫자가 작을수록 먼저. 같으면 최근에 사용자가 건드린 기기, 그다음 요청 순.
+// 시작된 기기가 READY 가 되거나 실패하면 onFinished 로 자리를 돌려준다.
+// 안드로이드 의존성 없음, 한 스레드에서만 사용 (서비스에서는 BLE 작업 스레드).
+public class ConnectionScheduler {
+
+    public static final int PRIORITY_USER = 0;        // 방금 토글/명령한 기기, 직접 추가한 기기
+    public static final int PRIORITY_VISIBLE = 1;     // 화면에 보이는 기기
+    public static final int PRIORITY_BACKGROUND = 2;  // 그 외 (서비스 시작, 재연결)
+
+    public interface Starter {
+        void startConnect(long key);
+    }
+
+    private static final class Request {
+        final long key;
+        int priority;
+        long touchedAt;
+        long order;
+
+        Request(long key) {
+            this.key = key;
+        }
+    }
+
+    private final Starter starter;
+    private int maxInFlight;
+
+    private final PriorityQueue<Request> queue = new PriorityQueue<>(16, (a, b) -> {
+        if (a.priority != b.priority) return Integer.compare(a.priority, b.priority);
+        if (a.touchedAt != b.touchedAt) return Long.compare(b.touchedAt, a.touchedAt);
+        return Long.compare(a.order, b.order);
+    });
+    private final LongHashMap<Request> queued = new LongHashMap<>();
+    private final LongHashMap<Boolean> inFlight = new LongHashMap<>();
+    private long nextOrder = 0;
+
+    public ConnectionScheduler(int maxInFlight, Starter starter) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight < 1");
+        this.maxInFlight = maxInFlight;
+        this.starter = starter;
+    }
+
+    // 이미 대기 중이면 우선순위만 올린다 (낮추지는 않는다). 진행 중이면 무시.
+    // touchedAt 은 사용자가 마지막으로 이 기기를 조작한 시각 (없으면 0)
+    public void request(long key, int priority, long touchedAt) {
+        if (inFlight.containsKey(key)) return;
+
+        Request r = queued.get(key);
+        if (r == null) {
+            r = new Request(key);
+            r.priority = priority;
+            r.touchedAt = touchedAt;
+            r.order = nextOrder++;
+            queued.put(key, r);
+            queue.add(r);
+        } else if (priority < r.priority || touchedAt > r.touchedAt) {
+            queue.remove(r);
+            r.priority = Math.min(r.priority, priority);
+            r.touchedAt = Math.max(r.touchedAt, touchedAt);
+            queue.add(r);
+        }
+        admit();
+    }
+
+    // 시작한 연결이 끝남 (READY, 실패, 시간 초과). 다음 기기를 들여보낸다.
+    public void onFinished(long key) {
+        if (inFlight.remove(key) != null) {
+            admit();
+        }
+    }
+
+    // 대기 중이면 빼고, 진행 중이면 자리를 돌려준다 (사용자가 연결을 끊은 경우 등)
+    public void cancel(long key) {
+        Request r = queued.remove(key);
+        if (r != null) queue.remove(r);
+        onFinished(key);
+    }
+
+    // 블루투스가 꺼졌다 켜지면 진행 중이던 시도는 콜백 없이 사라진다
+    public void resetInFlight() {
+        inFlight.clear();
+        admit();
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight < 1");
+        this.maxInFlight = maxInFlight;
+        admit();
+    }
+
+    public boolean isQueued(long key) {
+        return queued.containsKey(key);
+    }
+
+    public boolean isInFlight(long key) {
+        return inFlight.containsKey(key);
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private void admit() {
+        while (inFlight.size() < maxInFlight && !queue.isEmpty()) {
+            Request r = queue.poll();
+            queued.remove(r.key);
+            inFlight.put(r.key, Boolean.TRUE);
+            // starter 안에서 곧바로 onFinished 가 불려도 된다 (어댑터 꺼짐 등)
+            starter.startConnect(r.key);
+        }
+    }
+}
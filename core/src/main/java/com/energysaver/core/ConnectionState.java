@@ -0,0 +1,114 @@
+package com.energysaver.core;
+
+// 멀티탭 하나의 연결 상태 (불변).
+// DISCONNECTED → CONNECTING → CONNECTED → DISCOVERING → READY, 끊기면 BACKOFF(n) 로 재연결을 기다린다.
+// lastSeenMs 는 마지막으로 기기에서 무언가 받은 시각 (epoch ms), rssi 는 마지막 측정값 (dBm).
+public final class ConnectionState {
+
+    public enum Phase {
+        DISCONNECTED,
+        CONNECTING,
+        CONNECTED,
+        DISCOVERING,
+        READY,
+        BACKOFF
+    }
+
+    public static final int RSSI_UNKNOWN = Integer.MIN_VALUE;
+
+    // lastSeen 을 이보다 자주 바꾸지 않는다 (알림마다 관찰자를 깨우지 않도록)
+    public static final long LAST_SEEN_RESOLUTION_MS = 1000;
+
+    public static final ConnectionState INITIAL =
+            new ConnectionState(Phase.DISCONNECTED, 0, 0, RSSI_UNKNOWN);
+
+    private final Phase phase;
+    private final int backoffAttempt;     // BACKOFF 일 때 몇 번째 재연결을 기다리는지
+    private final long lastSeenMs;        // 0 = 아직 없음
+    private final int rssi;
+
+    private ConnectionState(Phase phase, int backoffAttempt, long lastSeenMs, int rssi) {
+        this.phase = phase;
+        this.backoffAttempt = backoffAttempt;
+        this.lastSeenMs = lastSeenMs;
+        this.rssi = rssi;
+    }
+
+    public ConnectionState withPhase(Phase next) {
+        if (next == Phase.BACKOFF) throw new IllegalArgumentException("use backoff(n)");
+        if (next == phase) return this;
+        return new ConnectionState(next, 0, lastSeenMs, rssi);
+    }
+
+    public ConnectionState backoff(int attempt) {
+        if (phase == Phase.BACKOFF && backoffAttempt == attempt) return this;
+        return new ConnectionState(Phase.BACKOFF, attempt, lastSeenMs, rssi);
+    }
+
+    public ConnectionState seen(long nowMs) {
+        if (nowMs - lastSeenMs < LAST_SEEN_RESOLUTION_MS) return this;
+        return new ConnectionState(phase, backoffAttempt, nowMs, rssi);
+    }
+
+    public ConnectionState withRssi(int dbm, long nowMs) {
+        ConnectionState s = seen(nowMs);
+        if (s.rssi == dbm) return s;
+        return new ConnectionState(phase, backoffAttempt, s.lastSeenMs, dbm);
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public int getBackoffAttempt() {
+        return backoffAttempt;
+    }
+
+    public long getLastSeenMs() {
+        return lastSeenMs;
+    }
+
+    public int getRssi() {
+        return rssi;
+    }
+
+    // 링크가 살아 있음 (READY 전 단계 포함)
+    public boolean isConnected() {
+        return phase == Phase.CONNECTED || phase == Phase.DISCOVERING || phase == Phase.READY;
+    }
+
+    public boolean isReady() {
+        return phase == Phase.READY;
+    }
+
+    // 화면 표시용: "READY", "BACKOFF(3)"
+    public String getLabel() {
+        return phase == Phase.BACKOFF ? "BACKOFF(" + backoffAttempt + ")" : phase.name();
+    }
+
+    // 화면에 보이는 부분(단계, 재시도 횟수)이 같은지
+    public boolean samePhase(ConnectionState o) {
+        return o != null && phase == o.phase && backoffAttempt == o.backoffAttempt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ConnectionState)) return false;
+        ConnectionState s = (ConnectionState) o;
+        return samePhase(s) && lastSeenMs == s.lastSeenMs && rssi == s.rssi;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = phase.hashCode();
+        h = 31 * h + backoffAttempt;
+        h = 31 * h + Long.hashCode(lastSeenMs);
+        return 31 * h + rssi;
+    }
+
+    @Override
+    public String toString() {
+        return getLabel() + (rssi != RSSI_UNKNOWN ? " " + rssi + "dBm" : "");
+    }
+}
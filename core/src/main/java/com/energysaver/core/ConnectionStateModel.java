@@ -0,0 +1,128 @@
+package com.energysaver.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.UnaryOperator;
+
+// 기기별 연결 상태표. BLE 작업 스레드가 바꾸고, 실제로 바뀐 것만 Delta 로 관찰자에게 보낸다.
+// 관찰자는 자기 executor 에서 바뀐 순서대로 받는다 (화면은 받은 Delta 를 프레임마다 모아 적용).
+// 조회는 어느 스레드에서나. 바꾸는 쪽은 한 스레드여야 Delta 순서가 유지된다.
+public final class ConnectionStateModel {
+
+    public interface Observer {
+        void onConnectionStateChanged(Delta delta);
+    }
+
+    // 한 기기의 변화 (불변)
+    public static final class Delta {
+        private final String mac;
+        private final ConnectionState previous;
+        private final ConnectionState current;
+
+        Delta(String mac, ConnectionState previous, ConnectionState current) {
+            this.mac = mac;
+            this.previous = previous;
+            this.current = current;
+        }
+
+        public String getMac() {
+            return mac;
+        }
+
+        public ConnectionState getPrevious() {
+            return previous;
+        }
+
+        public ConnectionState getCurrent() {
+            return current;
+        }
+
+        // lastSeen/RSSI 만 바뀐 게 아님
+        public boolean isPhaseChange() {
+            return !previous.samePhase(current);
+        }
+    }
+
+    private static final class Registration {
+        final Observer observer;
+        final Executor executor;
+
+        Registration(Observer observer, Executor executor) {
+            this.observer = observer;
+            this.executor = executor;
+        }
+    }
+
+    private final LongHashMap<ConnectionState> states = new LongHashMap<>();
+    private final CopyOnWriteArrayList<Registration> observers = new CopyOnWriteArrayList<>();
+
+    public void addObserver(Observer observer, Executor executor) {
+        if (observer == null || executor == null) return;
+        removeObserver(observer);
+        observers.add(new Registration(observer, executor));
+    }
+
+    public void removeObserver(Observer observer) {
+        for (Registration r : observers) {
+            if (r.observer == observer) observers.remove(r);
+        }
+    }
+
+    // 모르는 기기는 INITIAL
+    public ConnectionState get(String mac) {
+        ConnectionState s;
+        synchronized (states) {
+            s = states.get(MacUtils.toLong(mac));
+        }
+        return s != null ? s : ConnectionState.INITIAL;
+    }
+
+    // mac → 상태 (새로 붙은 관찰자가 처음 그릴 때)
+    public Map<String, ConnectionState> snapshot() {
+        Map<String, ConnectionState> out = new LinkedHashMap<>();
+        synchronized (states) {
+            states.forEach((key, s) -> out.put(MacUtils.toString(key), s));
+        }
+        return out;
+    }
+
+    // change 가 다른 상태를 돌려주면 저장하고 알린다. 바뀐 상태를 돌려준다.
+    public ConnectionState update(String mac, UnaryOperator<ConnectionState> change) {
+        long key = MacUtils.toLong(mac);
+        if (key == MacUtils.INVALID) return ConnectionState.INITIAL;
+        ConnectionState previous;
+        ConnectionState current;
+        synchronized (states) {
+            previous = states.get(key);
+            if (previous == null) previous = ConnectionState.INITIAL;
+            current = change.apply(previous);
+            if (current == previous || current.equals(previous)) return previous;
+            states.put(key, current);
+        }
+        publish(new Delta(MacUtils.toString(key), previous, current));
+        return current;
+    }
+
+    // 기기를 지웠을 때. 관찰자에게는 INITIAL 로 바뀐 것으로 알린다.
+    public void remove(String mac) {
+        long key = MacUtils.toLong(mac);
+        ConnectionState previous;
+        synchronized (states) {
+            previous = states.remove(key);
+        }
+        if (previous != null && !previous.equals(ConnectionState.INITIAL)) {
+            publish(new Delta(MacUtils.toString(key), previous, ConnectionState.INITIAL));
+        }
+    }
+
+    private void publish(Delta delta) {
+        for (Registration r : observers) {
+            r.executor.execute(() -> {
+                // 실행 대기 중에 해제된 관찰자에게는 전달하지 않음
+                if (observers.contains(r)) r.observer.onConnectionStateChanged(delta);
+            });
+        }
+    }
+}
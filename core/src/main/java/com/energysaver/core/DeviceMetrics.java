@@ -0,0 +1,239 @@
+package com.energysaver.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 기기 하나의 링크 품질 지표. 어느 멀티탭 연결이 나쁜지, 바꾼 뒤 좋아졌는지 보는 용도.
+//
+// 기록(on*/mark*)은 BLE 작업 스레드에서만 하고, 할당이나 락 없이 카운터만 올린다.
+// snapshot() 은 어느 스레드에서나 부를 수 있다 (카운터끼리 완전히 같은 순간은 아닐 수 있음).
+public class DeviceMetrics {
+
+    // 카운터 인덱스
+    static final int CONNECT_ATTEMPTS = 0;
+    static final int CONNECTS = 1;
+    static final int READY = 2;
+    static final int DISCONNECTS = 3;
+    static final int WRITE_OK = 4;
+    static final int WRITE_FAILED = 5;
+    static final int RECONNECT_ATTEMPTS = 6;
+    static final int HEARTBEATS = 7;
+    static final int HEARTBEAT_MISSES = 8;
+    private static final int COUNTERS = 9;
+
+    // 끊김 이유: GATT status 0..255, 그 밖의 값(GATT_FAILURE=257 등)은 마지막 칸
+    private static final int STATUS_OTHER = 256;
+
+    private final String mac;
+    private final AtomicLongArray counters = new AtomicLongArray(COUNTERS);
+    private final AtomicLongArray disconnectStatus = new AtomicLongArray(STATUS_OTHER + 1);
+
+    private final LatencyHistogram connectTime = new LatencyHistogram();
+    private final LatencyHistogram discoveryTime = new LatencyHistogram();
+    private final LatencyHistogram readyTime = new LatencyHistogram();
+    private final LatencyHistogram ackRtt;
+
+    // 진행 중인 단계의 시작 시각 (0 = 없음). 작업 스레드 전용
+    private long connectStartedAt = 0;
+    private long discoveryStartedAt = 0;
+
+    // ackRtt: CommandTracker 가 이미 기록하는 응답 왕복시간 히스토그램을 같이 쓴다
+    public DeviceMetrics(String mac, LatencyHistogram ackRtt) {
+        this.mac = mac;
+        this.ackRtt = ackRtt;
+    }
+
+    public String getMac() {
+        return mac;
+    }
+
+    // ───────────── 기록 ─────────────
+
+    public void onConnectStarted(long nowMs) {
+        counters.incrementAndGet(CONNECT_ATTEMPTS);
+        connectStartedAt = nowMs;
+        discoveryStartedAt = 0;
+    }
+
+    public void onConnected(long nowMs) {
+        counters.incrementAndGet(CONNECTS);
+        if (connectStartedAt > 0) connectTime.record(nowMs - connectStartedAt);
+    }
+
+    public void onDiscoveryStarted(long nowMs) {
+        discoveryStartedAt = nowMs;
+    }
+
+    public void onServicesDiscovered(long nowMs) {
+        if (discoveryStartedAt > 0) discoveryTime.record(nowMs - discoveryStartedAt);
+        discoveryStartedAt = 0;
+    }
+
+    public void onReady(long nowMs) {
+        counters.incrementAndGet(READY);
+        if (connectStartedAt > 0) readyTime.record(nowMs - connectStartedAt);
+        connectStartedAt = 0;
+    }
+
+    public void onDisconnected(int gattStatus) {
+        counters.incrementAndGet(DISCONNECTS);
+        disconnectStatus.incrementAndGet(statusIndex(gattStatus));
+        connectStartedAt = 0;
+        discoveryStartedAt = 0;
+    }
+
+    public void onWrite(boolean ok) {
+        counters.incrementAndGet(ok ? WRITE_OK : WRITE_FAILED);
+    }
+
+    public void onReconnectAttempt() {
+        counters.incrementAndGet(RECONNECT_ATTEMPTS);
+    }
+
+    // PING 을 보냄 / 재전송까지 PONG 이 없음
+    public void onHeartbeat() {
+        counters.incrementAndGet(HEARTBEATS);
+    }
+
+    public void onHeartbeatMissed() {
+        counters.incrementAndGet(HEARTBEAT_MISSES);
+    }
+
+    // 비교를 위해 처음부터 다시 센다. ACK 히스토그램은 CommandTracker 의 것이라 그대로 둔다.
+    public void reset() {
+        for (int i = 0; i < COUNTERS; i++) counters.set(i, 0);
+        for (int i = 0; i <= STATUS_OTHER; i++) disconnectStatus.set(i, 0);
+        connectTime.reset();
+        discoveryTime.reset();
+        readyTime.reset();
+    }
+
+    static int statusIndex(int gattStatus) {
+        return gattStatus >= 0 && gattStatus < STATUS_OTHER ? gattStatus : STATUS_OTHER;
+    }
+
+    // ───────────── 읽기 ─────────────
+
+    public Snapshot snapshot() {
+        long[] c = new long[COUNTERS];
+        for (int i = 0; i < COUNTERS; i++) c[i] = counters.get(i);
+
+        int n = 0;
+        for (int i = 0; i <= STATUS_OTHER; i++) {
+            if (disconnectStatus.get(i) > 0) n++;
+        }
+        int[] statuses = new int[n];
+        long[] statusCounts = new long[n];
+        int j = 0;
+        for (int i = 0; i <= STATUS_OTHER && j < n; i++) {
+            long count = disconnectStatus.get(i);
+            if (count == 0) continue;
+            statuses[j] = i == STATUS_OTHER ? Snapshot.STATUS_OTHER : i;
+            statusCounts[j] = count;
+            j++;
+        }
+
+        return new Snapshot(mac, c, statuses, statusCounts, connectTime.snapshot(),
+                discoveryTime.snapshot(), readyTime.snapshot(), ackRtt.snapshot());
+    }
+
+    // 한 시점의 값. 화면에서 그대로 쓴다.
+    public static final class Snapshot {
+
+        public static final int STATUS_OTHER = -1;
+
+        private final String mac;
+        private final long[] counters;
+        private final int[] disconnectStatuses;
+        private final long[] disconnectCounts;
+        private final long[] connectHistogram;
+        private final long[] discoveryHistogram;
+        private final long[] readyHistogram;
+        private final long[] ackHistogram;
+
+        Snapshot(String mac, long[] counters, int[] disconnectStatuses, long[] disconnectCounts,
+                 long[] connectHistogram, long[] discoveryHistogram, long[] readyHistogram,
+                 long[] ackHistogram) {
+            this.mac = mac;
+            this.counters = counters;
+            this.disconnectStatuses = disconnectStatuses;
+            this.disconnectCounts = disconnectCounts;
+            this.connectHistogram = connectHistogram;
+            this.discoveryHistogram = discoveryHistogram;
+            this.readyHistogram = readyHistogram;
+            this.ackHistogram = ackHistogram;
+        }
+
+        public String getMac() { return mac; }
+
+        public long getConnectAttempts() { return counters[CONNECT_ATTEMPTS]; }
+
+        public long getConnects() { return counters[CONNECTS]; }
+
+        public long getReadyCount() { return counters[READY]; }
+
+        public long getDisconnects() { return counters[DISCONNECTS]; }
+
+        public long getWritesOk() { return counters[WRITE_OK]; }
+
+        public long getWritesFailed() { return counters[WRITE_FAILED]; }
+
+        public long getReconnectAttempts() { return counters[RECONNECT_ATTEMPTS]; }
+
+        public long getHeartbeats() { return counters[HEARTBEATS]; }
+
+        public long getHeartbeatMisses() { return counters[HEARTBEAT_MISSES]; }
+
+        // 끊김 이유별 횟수. STATUS_OTHER 는 0..255 밖의 status
+        public int[] getDisconnectStatuses() { return disconnectStatuses.clone(); }
+
+        public long[] getDisconnectCounts() { return disconnectCounts.clone(); }
+
+        public long[] getConnectHistogram() { return connectHistogram.clone(); }
+
+        public long[] getDiscoveryHistogram() { return discoveryHistogram.clone(); }
+
+        public long[] getReadyHistogram() { return readyHistogram.clone(); }
+
+        public long[] getAckHistogram() { return ackHistogram.clone(); }
+
+        // 쓰기 실패 비율 (0..1). 쓰기가 없으면 0
+        public double getWriteFailureRate() {
+            long total = getWritesOk() + getWritesFailed();
+            return total == 0 ? 0 : (double) getWritesFailed() / total;
+        }
+
+        public double getHeartbeatMissRate() {
+            return getHeartbeats() == 0 ? 0 : (double) getHeartbeatMisses() / getHeartbeats();
+        }
+
+        // 화면 정렬용 대략적인 "나쁜 정도": 실패 비율 + 연결당 끊김
+        public double getBadness() {
+            double dropsPerReady = getReadyCount() == 0
+                    ? getConnectAttempts()
+                    : (double) getDisconnects() / getReadyCount();
+            return getWriteFailureRate() + getHeartbeatMissRate() + dropsPerReady;
+        }
+
+        public long connectPercentileMs(double p) { return percentileMs(connectHistogram, p); }
+
+        public long discoveryPercentileMs(double p) { return percentileMs(discoveryHistogram, p); }
+
+        public long readyPercentileMs(double p) { return percentileMs(readyHistogram, p); }
+
+        public long ackPercentileMs(double p) { return percentileMs(ackHistogram, p); }
+
+        // LatencyHistogram.percentileMs 와 같은 규칙
+        static long percentileMs(long[] buckets, double p) {
+            long total = 0;
+            for (long c : buckets) total += c;
+            if (total == 0) return -1;
+            long target = (long) Math.ceil(total * p / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= target) return LatencyHistogram.upperBoundMs(i);
+            }
+            return LatencyHistogram.upperBoundMs(buckets.length - 1);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.energysaver.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+// 기기별 이벤트(상태 변화, 재연결, 수신 메시지 ...)를 남기는 append-only 바이너리 저널.
+// 세그먼트 파일을 mmap 해서 고정 크기 레코드를 차례로 쓴다. 세그먼트가 차면 다음 파일로
+// 넘어가고 MAX_SEGMENTS 를 넘는 오래된 파일은 지운다.
+//
+// 레코드 (RECORD_SIZE = 48 바이트, little endian)
+//  [0]  long  timeMs   (0 이면 빈 칸. 마지막에 써서 반쯤 쓴 레코드는 읽히지 않는다)
+//  [8]  long  mac      (MacUtils.toLong)
+//  [16] byte  type
+//  [17] byte  text 길이
+//  [18] short arg1
+//  [20] int   arg2
+//  [24] text  (ASCII, 최대 24 바이트)
+//
+// 페이지 캐시에 바로 쓰는 방식이라 앱 프로세스가 죽어도 기록은 남는다.
+public class EventJournal implements Closeable {
+
+    public static final byte TYPE_STATE = 1;        // text = CONNECTING / READY ...
+    public static final byte TYPE_RX = 2;           // text = 받은 줄
+    public static final byte TYPE_RECONNECT = 3;    // arg1 = 시도 횟수, arg2 = 지연(ms)
+    public static final byte TYPE_GATT_STATUS = 4;  // arg1 = status, arg2 = newState
+    public static final byte TYPE_COMMAND = 5;      // text = 명령, arg1 = Result, arg2 = rtt
+
+    public static final int RECORD_SIZE = 48;
+    public static final int MAX_TEXT = 24;
+    private static final int TEXT_OFFSET = 24;
+
+    public static final int DEFAULT_SEGMENT_RECORDS = 4096;   // 192KB
+    public static final int DEFAULT_MAX_SEGMENTS = 8;
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".bin";
+
+    private final File dir;
+    private final int segmentRecords;
+    private final int maxSegments;
+
+    private FileChannel channel;
+    private MappedByteBuffer buf;
+    private long segmentIndex;
+    private int position;   // 현재 세그먼트 안의 다음 레코드 번호
+
+    public EventJournal(File dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_RECORDS, DEFAULT_MAX_SEGMENTS);
+    }
+
+    public EventJournal(File dir, int segmentRecords, int maxSegments) throws IOException {
+        this.dir = dir;
+        this.segmentRecords = segmentRecords;
+        this.maxSegments = maxSegments;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+
+        long[] existing = listSegments();
+        if (existing.length == 0) {
+            openSegment(0);
+        } else {
+            // 마지막 세그먼트의 빈 칸부터 이어 쓴다
+            openSegment(existing[existing.length - 1]);
+            while (position < segmentRecords && buf.getLong(position * RECORD_SIZE) != 0) {
+                position++;
+            }
+        }
+    }
+
+    public synchronized void append(long timeMs, long mac, byte type,
+                                    int arg1, int arg2, CharSequence text) {
+        if (buf == null) return;
+        if (position == segmentRecords) {
+            try {
+                rotate();
+            } catch (IOException e) {
+                buf = null;   // 디스크 문제면 저널만 멈춘다
+                return;
+            }
+        }
+
+        int base = position * RECORD_SIZE;
+        int len = text != null ? Math.min(text.length(), MAX_TEXT) : 0;
+        buf.putLong(base + 8, mac);
+        buf.put(base + 16, type);
+        buf.put(base + 17, (byte) len);
+        buf.putShort(base + 18, (short) arg1);
+        buf.putInt(base + 20, arg2);
+        for (int i = 0; i < MAX_TEXT; i++) {
+            byte b = 0;
+            if (i < len) {
+                char c = text.charAt(i);
+                b = c < 0x80 ? (byte) c : (byte) '?';
+            }
+            buf.put(base + TEXT_OFFSET + i, b);
+        }
+        buf.putLong(base, timeMs == 0 ? 1 : timeMs);
+        position++;
+    }
+
+    public void append(long timeMs, String mac, byte type, int arg1, int arg2,
+                       CharSequence text) {
+        append(timeMs, MacUtils.toLong(mac), type, arg1, arg2, text);
+    }
+
+    // fromMs ≤ time < toMs 인 레코드를 텍스트로 풀어서 gzip 으로 쓴다. 쓴 레코드 수를 돌려준다.
+    // 백그라운드 스레드에서 호출. out 은 닫지 않는다.
+    public int exportGzip(long fromMs, long toMs, OutputStream out) throws IOException {
+        flush();
+        SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        Date date = new Date();
+        ByteBuffer rec = ByteBuffer.allocate(RECORD_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        byte[] text = new byte[MAX_TEXT];
+        int count = 0;
+
+        GZIPOutputStream gz = new GZIPOutputStream(out, 8192);
+        Writer w = new OutputStreamWriter(gz, StandardCharsets.UTF_8);
+        for (long index : listSegments()) {
+            RandomAccessFile raf;
+            try {
+                raf = new RandomAccessFile(segmentFile(index), "r");
+            } catch (FileNotFoundException e) {
+                continue;   // 목록을 읽은 뒤 append() 의 rotate() 가 지운 오래된 세그먼트
+            }
+            try (FileChannel ch = raf.getChannel()) {
+                for (long off = 0; off + RECORD_SIZE <= ch.size(); off += RECORD_SIZE) {
+                    rec.clear();
+                    ch.read(rec, off);
+                    long time = rec.getLong(0);
+                    if (time == 0) break;
+                    if (time < fromMs || time >= toMs) continue;
+
+                    date.setTime(time);
+                    int len = Math.min(rec.get(17) & 0xFF, MAX_TEXT);
+                    rec.position(TEXT_OFFSET);
+                    rec.get(text, 0, len);
+                    w.write(fmt.format(date));
+                    w.write(' ');
+                    w.write(MacUtils.toString(rec.getLong(8)));
+                    w.write(' ');
+                    w.write(typeName(rec.get(16)));
+                    w.write(' ');
+                    w.write(Short.toString(rec.getShort(18)));
+                    w.write(' ');
+                    w.write(Integer.toString(rec.getInt(20)));
+                    if (len > 0) {
+                        w.write(' ');
+                        w.write(new String(text, 0, len, StandardCharsets.US_ASCII));
+                    }
+                    w.write('\n');
+                    count++;
+                }
+            }
+        }
+        w.flush();
+        gz.finish();
+        return count;
+    }
+
+    public static String typeName(byte type) {
+        switch (type) {
+            case TYPE_STATE: return "STATE";
+            case TYPE_RX: return "RX";
+            case TYPE_RECONNECT: return "RECONNECT";
+            case TYPE_GATT_STATUS: return "GATT";
+            case TYPE_COMMAND: return "CMD";
+            default: return "T" + type;
+        }
+    }
+
+    public synchronized void flush() {
+        if (buf != null) buf.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (buf != null) {
+            buf.force();
+            buf = null;
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void rotate() throws IOException {
+        buf.force();
+        channel.close();
+        openSegment(segmentIndex + 1);
+
+        long[] segments = listSegments();
+        for (int i = 0; i < segments.length - maxSegments; i++) {
+            //noinspection ResultOfMethodCallIgnored
+            segmentFile(segments[i]).delete();
+        }
+    }
+
+    private void openSegment(long index) throws IOException {
+        segmentIndex = index;
+        position = 0;
+        RandomAccessFile raf = new RandomAccessFile(segmentFile(index), "rw");
+        channel = raf.getChannel();
+        buf = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                (long) segmentRecords * RECORD_SIZE);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private File segmentFile(long index) {
+        return new File(dir, PREFIX + String.format(Locale.US, "%08d", index) + SUFFIX);
+    }
+
+    // 세그먼트 번호를 오름차순으로
+    private long[] listSegments() {
+        String[] names = dir.list();
+        if (names == null) return new long[0];
+        long[] out = new long[names.length];
+        int n = 0;
+        for (String name : names) {
+            if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) continue;
+            try {
+                out[n++] = Long.parseLong(
+                        name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        long[] result = Arrays.copyOf(out, n);
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,183 @@
+package com.energysaver.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// GATT 요청 한 건. DeviceConnection 의 큐에서 한 번에 하나씩 실행된다.
+public class GattOperation {
+
+    public enum Type {
+        WRITE,
+        ENABLE_NOTIFICATION,
+        REQUEST_MTU,
+        READ_RSSI
+    }
+
+    // 숫자가 작을수록 먼저 나간다.
+    public enum Priority {
+        SETUP,       // CCCD 등 연결 직후 설정 (READY 전에도 실행)
+        SAFETY,      // OFF 처럼 안전과 직결된 명령
+        COMMAND,     // 일반 명령
+        BACKGROUND   // PING 같은 하트비트
+    }
+
+    public static final long DEFAULT_TIMEOUT_MS = 3000;
+
+    // 같은 키를 가진 대기 요청은 마지막 것만 남긴다 (last-writer-wins)
+    public static final String KEY_POWER = "POWER";
+    public static final String KEY_RSSI = "RSSI";
+    public static final String KEY_PING = "PING";
+
+    private final Type type;
+    private final Priority priority;
+    private final String command;   // 로그/병합 판단용 원래 명령 ("ON" 등)
+    private final byte[] payload;   // 실제로 전송할 바이트 (텍스트 또는 바이너리 프레임)
+    private final long timeoutMs;
+
+    // false 면 write-without-response (PING 처럼 다시 보내도 무해한 요청)
+    private boolean withResponse = true;
+    private int mtu;
+    private int seq = -1;            // CommandTracker 가 응답을 매칭할 때 쓰는 번호
+
+    private String coalesceKey;
+
+    // MTU 까지 여러 명령을 한 번에 쓴 경우 원래 요청들
+    private List<GattOperation> parts;
+
+    private int attempts = 0;
+
+    public GattOperation(Type type, Priority priority, String command, byte[] payload,
+                         long timeoutMs) {
+        this.type = type;
+        this.priority = priority;
+        this.command = command;
+        this.payload = payload;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public static GattOperation write(String command, byte[] payload, Priority priority) {
+        return new GattOperation(Type.WRITE, priority, command, payload, DEFAULT_TIMEOUT_MS);
+    }
+
+    public static GattOperation enableNotification() {
+        return new GattOperation(Type.ENABLE_NOTIFICATION, Priority.SETUP, null, null,
+                DEFAULT_TIMEOUT_MS);
+    }
+
+    public static GattOperation requestMtu(int mtu) {
+        GattOperation op = new GattOperation(Type.REQUEST_MTU, Priority.SETUP, null, null,
+                DEFAULT_TIMEOUT_MS);
+        op.mtu = mtu;
+        return op;
+    }
+
+    // 하트비트와 같이 낮은 우선순위로. 대기 중인 것이 있으면 그것 하나만 남는다.
+    public static GattOperation readRssi() {
+        return new GattOperation(Type.READ_RSSI, Priority.BACKGROUND, null, null,
+                DEFAULT_TIMEOUT_MS).coalesceBy(KEY_RSSI);
+    }
+
+    // 여러 WRITE 를 하나로 합친다. 모두 같은 쓰기 방식이어야 한다.
+    public static GattOperation pack(List<GattOperation> ops) {
+        if (ops.size() == 1) return ops.get(0);
+
+        int size = 0;
+        StringBuilder label = new StringBuilder();
+        for (GattOperation op : ops) {
+            size += op.payload.length;
+            if (label.length() > 0) label.append('+');
+            label.append(op.command);
+        }
+        byte[] merged = new byte[size];
+        int pos = 0;
+        for (GattOperation op : ops) {
+            System.arraycopy(op.payload, 0, merged, pos, op.payload.length);
+            pos += op.payload.length;
+        }
+
+        GattOperation first = ops.get(0);
+        GattOperation packed = new GattOperation(Type.WRITE, first.priority, label.toString(),
+                merged, first.timeoutMs);
+        packed.withResponse = first.withResponse;
+        packed.parts = new ArrayList<>(ops);
+        return packed;
+    }
+
+    public GattOperation coalesceBy(String key) {
+        this.coalesceKey = key;
+        return this;
+    }
+
+    public GattOperation withSeq(int seq) {
+        this.seq = seq;
+        return this;
+    }
+
+    public GattOperation withoutResponse() {
+        this.withResponse = false;
+        return this;
+    }
+
+    public String getCoalesceKey() {
+        return coalesceKey;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public boolean isWithResponse() {
+        return withResponse;
+    }
+
+    public int getSeq() {
+        return seq;
+    }
+
+    public int getMtu() {
+        return mtu;
+    }
+
+    public List<GattOperation> getParts() {
+        return parts != null ? parts : Collections.singletonList(this);
+    }
+
+    public boolean isPacked() {
+        return parts != null;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public int incrementAttempts() {
+        return ++attempts;
+    }
+
+    public String describe() {
+        if (type == Type.WRITE && command != null) {
+            return "\"" + command + "\"";
+        }
+        if (type == Type.REQUEST_MTU) {
+            return "MTU(" + mtu + ")";
+        }
+        return type.name();
+    }
+}
@@ -0,0 +1,169 @@
+package com.energysaver.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// 우선순위 레인별 FIFO 큐. 동시에 진행 중인(in-flight) 요청은 최대 1개.
+public class GattOperationQueue {
+
+    // Priority.ordinal() 순서
+    private final List<ArrayDeque<GattOperation>> lanes;
+
+    private GattOperation inFlight;
+
+    public GattOperationQueue() {
+        int count = GattOperation.Priority.values().length;
+        lanes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lanes.add(new ArrayDeque<>());
+        }
+    }
+
+    public void offer(GattOperation op) {
+        lanes.get(op.getPriority().ordinal()).addLast(op);
+    }
+
+    // 재시도할 요청은 같은 레인의 맨 앞으로 되돌린다.
+    public void pushFront(GattOperation op) {
+        lanes.get(op.getPriority().ordinal()).addFirst(op);
+    }
+
+    // 아직 전송되지 않은 같은 키의 요청을 모두 취소하고 돌려준다. in-flight 는 건드리지 않는다.
+    public List<GattOperation> cancel(String coalesceKey) {
+        List<GattOperation> removed = new ArrayList<>();
+        if (coalesceKey == null) return removed;
+        for (ArrayDeque<GattOperation> lane : lanes) {
+            Iterator<GattOperation> it = lane.iterator();
+            while (it.hasNext()) {
+                GattOperation op = it.next();
+                if (coalesceKey.equals(op.getCoalesceKey())) {
+                    it.remove();
+                    removed.add(op);
+                }
+            }
+        }
+        return removed;
+    }
+
+    // 아직 전송되지 않은 같은 키의 요청이 있는지 (in-flight 제외)
+    public boolean contains(String coalesceKey) {
+        if (coalesceKey == null) return false;
+        for (ArrayDeque<GattOperation> lane : lanes) {
+            for (GattOperation op : lane) {
+                if (coalesceKey.equals(op.getCoalesceKey())) return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isBusy() {
+        return inFlight != null;
+    }
+
+    public GattOperation getInFlight() {
+        return inFlight;
+    }
+
+    // 진행 중인 요청이 없으면 다음 요청을 꺼내 in-flight 로 만든다.
+    // setupOnly 이면 SETUP 레인만 본다 (UART 준비 전).
+    public GattOperation startNext(boolean setupOnly) {
+        return startNext(setupOnly, 0);
+    }
+
+    // maxWriteBytes > 0 이면 뒤따르는 같은 방식의 WRITE 들을 그 크기까지 한 번에 묶는다.
+    public GattOperation startNext(boolean setupOnly, int maxWriteBytes) {
+        if (inFlight != null) return null;
+
+        int last = setupOnly ? GattOperation.Priority.SETUP.ordinal() : lanes.size() - 1;
+        GattOperation head = pollNext(last);
+        if (head == null) return null;
+
+        if (maxWriteBytes > 0 && head.getType() == GattOperation.Type.WRITE
+                && !head.isPacked() && head.getPayload().length < maxWriteBytes) {
+            List<GattOperation> batch = null;
+            int size = head.getPayload().length;
+            GattOperation next;
+            while ((next = peekNext(last)) != null
+                    && next.getType() == GattOperation.Type.WRITE
+                    && !next.isPacked()
+                    && next.isWithResponse() == head.isWithResponse()
+                    && size + next.getPayload().length <= maxWriteBytes) {
+                if (batch == null) {
+                    batch = new ArrayList<>();
+                    batch.add(head);
+                }
+                batch.add(pollNext(last));
+                size += next.getPayload().length;
+            }
+            if (batch != null) {
+                head = GattOperation.pack(batch);
+            }
+        }
+
+        inFlight = head;
+        return head;
+    }
+
+    private GattOperation peekNext(int lastLane) {
+        for (int i = 0; i <= lastLane; i++) {
+            GattOperation op = lanes.get(i).peekFirst();
+            if (op != null) return op;
+        }
+        return null;
+    }
+
+    private GattOperation pollNext(int lastLane) {
+        for (int i = 0; i <= lastLane; i++) {
+            GattOperation op = lanes.get(i).pollFirst();
+            if (op != null) return op;
+        }
+        return null;
+    }
+
+    // 현재 in-flight 요청이 op 이면 완료 처리. 늦게 도착한 콜백은 무시된다.
+    public boolean complete(GattOperation op) {
+        if (op == null || inFlight != op) return false;
+        inFlight = null;
+        return true;
+    }
+
+    public void clearLane(GattOperation.Priority priority) {
+        lanes.get(priority.ordinal()).clear();
+    }
+
+    // 연결이 끊겼을 때: in-flight 와 SETUP/BACKGROUND 는 버리고 명령은 남겨둔다.
+    // 버린 요청들을 돌려준다.
+    public List<GattOperation> resetForReconnect() {
+        List<GattOperation> dropped = new ArrayList<>();
+        if (inFlight != null) {
+            dropped.addAll(inFlight.getParts());
+            inFlight = null;
+        }
+        dropped.addAll(lanes.get(GattOperation.Priority.SETUP.ordinal()));
+        dropped.addAll(lanes.get(GattOperation.Priority.BACKGROUND.ordinal()));
+        clearLane(GattOperation.Priority.SETUP);
+        clearLane(GattOperation.Priority.BACKGROUND);
+        return dropped;
+    }
+
+    public void clear() {
+        inFlight = null;
+        for (ArrayDeque<GattOperation> lane : lanes) {
+            lane.clear();
+        }
+    }
+
+    public int laneSize(GattOperation.Priority priority) {
+        return lanes.get(priority.ordinal()).size();
+    }
+
+    public int size() {
+        int n = 0;
+        for (ArrayDeque<GattOperation> lane : lanes) {
+            n += lane.size();
+        }
+        return n;
+    }
+}
@@ -0,0 +1,209 @@
+package com.energysaver.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 여러 기기에 같은 명령을 한꺼번에 보낸 결과를 모은다 ("모두 끄기").
+// 기기마다 명령은 따로 나가고, 결과가 하나씩 들어오면 onResult 로 알려준다.
+// 모든 기기가 끝나거나 마감 시각이 지나면 끝. 마감까지 못 끝낸 기기는 PENDING 으로 남는다.
+// 응답 전에 연결이 끊긴 기기는 마감 전이면 다시 보내도록 알려준다 (기기당 maxAttempts 까지).
+// 안드로이드 의존성 없음, 한 스레드에서만 사용 (서비스에서는 BLE 작업 스레드).
+public final class GroupCommand {
+
+    public enum Outcome {
+        PENDING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    public interface Listener {
+        void onGroupComplete(Result result);
+    }
+
+    private static final class Target {
+        Outcome outcome = Outcome.PENDING;
+        CommandTracker.Result detail;      // 마지막으로 받은 결과 (없으면 null)
+        long rttMs = -1;
+        int attempts = 1;
+    }
+
+    private final String command;
+    private final long startedAtMs;
+    private final long deadlineAtMs;
+    private final int maxAttempts;
+    private final Map<String, Target> targets = new LinkedHashMap<>();
+    private int pending;
+    private boolean expired = false;
+    private boolean reported = false;
+
+    public GroupCommand(String command, Collection<String> macs, long startedAtMs,
+                        long timeoutMs, int maxAttempts) {
+        if (timeoutMs <= 0) throw new IllegalArgumentException("timeoutMs <= 0");
+        if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts < 1");
+        this.command = command;
+        this.startedAtMs = startedAtMs;
+        this.deadlineAtMs = startedAtMs + timeoutMs;
+        this.maxAttempts = maxAttempts;
+        for (String mac : macs) {
+            targets.put(mac, new Target());
+        }
+        this.pending = targets.size();
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public List<String> getMacs() {
+        return new ArrayList<>(targets.keySet());
+    }
+
+    public long getDeadlineAtMs() {
+        return deadlineAtMs;
+    }
+
+    // 기기 하나의 결과. true 면 같은 명령을 다시 보내야 한다 (아직 끝나지 않음)
+    public boolean onResult(String mac, CommandTracker.Result result, long rttMs, long nowMs) {
+        Target t = targets.get(mac);
+        if (t == null || t.outcome != Outcome.PENDING || expired) return false;
+        t.detail = result;
+
+        if (result == CommandTracker.Result.DISCONNECTED
+                && nowMs < deadlineAtMs && t.attempts < maxAttempts) {
+            t.attempts++;
+            return true;
+        }
+
+        t.outcome = result == CommandTracker.Result.ACKED ? Outcome.SUCCEEDED : Outcome.FAILED;
+        t.rttMs = rttMs;
+        pending--;
+        return false;
+    }
+
+    // 마감: 남은 기기는 PENDING 그대로 두고 끝낸다
+    public void expire() {
+        expired = true;
+    }
+
+    public boolean isFinished() {
+        return expired || pending == 0;
+    }
+
+    // 끝났고 아직 알리지 않았으면 true. 결과 콜백을 한 번만 부르려고 쓴다.
+    public boolean takeCompletion() {
+        if (!isFinished() || reported) return false;
+        reported = true;
+        return true;
+    }
+
+    public Result snapshot(long nowMs) {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for (Map.Entry<String, Target> e : targets.entrySet()) {
+            Target t = e.getValue();
+            entries.put(e.getKey(), new Entry(e.getKey(), t.outcome, t.detail, t.rttMs, t.attempts));
+        }
+        return new Result(command, entries, nowMs - startedAtMs, expired && pending > 0);
+    }
+
+    // 기기 하나의 결과 (불변)
+    public static final class Entry {
+        private final String mac;
+        private final Outcome outcome;
+        private final CommandTracker.Result detail;
+        private final long rttMs;
+        private final int attempts;
+
+        Entry(String mac, Outcome outcome, CommandTracker.Result detail, long rttMs, int attempts) {
+            this.mac = mac;
+            this.outcome = outcome;
+            this.detail = detail;
+            this.rttMs = rttMs;
+            this.attempts = attempts;
+        }
+
+        public String getMac() {
+            return mac;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        // 실패/대기 이유 (SUPERSEDED, TIMEOUT, DISCONNECTED ...). 아직 아무 결과도 없으면 null
+        public CommandTracker.Result getDetail() {
+            return detail;
+        }
+
+        public long getRttMs() {
+            return rttMs;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+    }
+
+    // 전체 결과 (불변, 다른 스레드로 넘겨도 된다)
+    public static final class Result {
+        private final String command;
+        private final Map<String, Entry> entries;
+        private final long elapsedMs;
+        private final boolean timedOut;
+
+        Result(String command, Map<String, Entry> entries, long elapsedMs, boolean timedOut) {
+            this.command = command;
+            this.entries = Collections.unmodifiableMap(entries);
+            this.elapsedMs = elapsedMs;
+            this.timedOut = timedOut;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        public Entry get(String mac) {
+            return entries.get(mac);
+        }
+
+        public Collection<Entry> getEntries() {
+            return entries.values();
+        }
+
+        public List<String> getMacs(Outcome outcome) {
+            List<String> out = new ArrayList<>();
+            for (Entry e : entries.values()) {
+                if (e.outcome == outcome) out.add(e.mac);
+            }
+            return out;
+        }
+
+        public int count(Outcome outcome) {
+            int n = 0;
+            for (Entry e : entries.values()) {
+                if (e.outcome == outcome) n++;
+            }
+            return n;
+        }
+
+        public int size() {
+            return entries.size();
+        }
+
+        public boolean isAllSucceeded() {
+            return count(Outcome.SUCCEEDED) == entries.size();
+        }
+
+        // 마감 때문에 끝났는지 (PENDING 이 남음)
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.energysaver.core;
+
+import java.util.Random;
+
+// 기기별 하트비트(PING) 시점 계산. 안드로이드 의존성 없음, 한 스레드에서만 사용.
+//
+// - 기기 펌웨어는 앱에서 받은 아무 메시지로나 fail-safe 타이머를 리셋하므로
+//   최근에 다른 명령을 보낸 기기는 PING 을 건너뛴다.
+// - 깨어날 때는 가장 급한 기기 기준으로 한 번만 깨어나고, alignWindowMs 안에
+//   도래할 기기들도 같이 보낸다 (조금 일찍 보내는 것은 안전하다).
+// - 같이 보내는 기기들은 spacingMs + 작은 jitter 만큼 벌려서 한꺼번에 몰리지 않게 한다.
+//
+// PING 을 받는 쪽이 알아야 하는 것은 "마지막 전송 이후 intervalMs 안에 무엇이든 보낸다" 뿐이다.
+// 수신(RX)은 기기 쪽 타이머를 리셋하지 않으므로 건너뛸 근거가 되지 않는다.
+public class HeartbeatScheduler {
+
+    public interface Sink {
+        // delayMs 뒤에 key 기기로 PING 을 보낸다
+        void ping(long key, long delayMs);
+    }
+
+    private static final class Slot {
+        long intervalMs;
+        long lastTxMs;
+    }
+
+    private final long alignWindowMs;
+    private final long spacingMs;
+    private final long jitterMs;
+    private final Random random;
+
+    private final LongHashMap<Slot> slots = new LongHashMap<>();
+
+    // poll 중 재사용 (forEach 안에서 값을 돌려받기 위한 상태)
+    private long pollNow;
+    private long pollHorizon;
+    private int pollCount;
+    private Sink pollSink;
+    private long minDue;
+
+    public HeartbeatScheduler(long alignWindowMs, long spacingMs, long jitterMs, Random random) {
+        this.alignWindowMs = alignWindowMs;
+        this.spacingMs = spacingMs;
+        this.jitterMs = jitterMs;
+        this.random = random;
+    }
+
+    // 연결이 READY 가 되었을 때. 지금 막 무언가를 보낸 것으로 본다.
+    public void add(long key, long intervalMs, long nowMs) {
+        Slot s = slots.get(key);
+        if (s == null) {
+            s = new Slot();
+            slots.put(key, s);
+        }
+        s.intervalMs = intervalMs;
+        s.lastTxMs = nowMs;
+    }
+
+    public void remove(long key) {
+        slots.remove(key);
+    }
+
+    public void setInterval(long key, long intervalMs) {
+        Slot s = slots.get(key);
+        if (s != null) s.intervalMs = intervalMs;
+    }
+
+    public long getInterval(long key) {
+        Slot s = slots.get(key);
+        return s != null ? s.intervalMs : -1;
+    }
+
+    // 기기로 무언가를 썼을 때 (PING 포함)
+    public void onTransmit(long key, long nowMs) {
+        Slot s = slots.get(key);
+        if (s != null && nowMs > s.lastTxMs) s.lastTxMs = nowMs;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    // 지금 보낼 PING 들을 sink 로 넘기고, 다음에 깨어날 시각을 돌려준다 (기기가 없으면 -1).
+    public long poll(long nowMs, Sink sink) {
+        if (slots.isEmpty()) return -1;
+
+        // 이미 도래했거나 창 안에 도래할 기기
+        pollNow = nowMs;
+        pollHorizon = nowMs + alignWindowMs;
+        pollCount = 0;
+        pollSink = sink;
+        slots.forEach((key, s) -> {
+            if (s.lastTxMs + s.intervalMs > pollHorizon) return;
+            long delay = pollCount * spacingMs + (jitterMs > 0 ? random.nextInt((int) jitterMs + 1) : 0);
+            pollCount++;
+            // 보낼 예정인 시각을 전송으로 기록해서 다음 poll 에서 다시 고르지 않게 한다
+            s.lastTxMs = pollNow + delay;
+            pollSink.ping(key, delay);
+        });
+        pollSink = null;
+
+        return nextDueMs();
+    }
+
+    // 가장 먼저 PING 이 필요한 시각
+    public long nextDueMs() {
+        if (slots.isEmpty()) return -1;
+        minDue = Long.MAX_VALUE;
+        slots.forEach((key, s) -> {
+            long due = s.lastTxMs + s.intervalMs;
+            if (due < minDue) minDue = due;
+        });
+        return minDue;
+    }
+}
@@ -0,0 +1,66 @@
+package com.energysaver.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 2의 거듭제곱(ms) 경계를 갖는 지연시간 히스토그램.
+// 버킷 i 는 (2^(i-1), 2^i] ms, 마지막 버킷은 그 이상 전부.
+public class LatencyHistogram {
+
+    public static final int BUCKETS = 17;   // ~ 1ms .. 65s
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long millis) {
+        counts.incrementAndGet(bucketFor(millis));
+    }
+
+    static int bucketFor(long millis) {
+        if (millis <= 1) return 0;
+        int b = 64 - Long.numberOfLeadingZeros(millis - 1);
+        return Math.min(b, BUCKETS - 1);
+    }
+
+    // 버킷 i 의 상한 (ms)
+    public static long upperBoundMs(int bucket) {
+        return 1L << bucket;
+    }
+
+    public long getCount(int bucket) {
+        return counts.get(bucket);
+    }
+
+    public long getTotalCount() {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            n += counts.get(i);
+        }
+        return n;
+    }
+
+    // 백분위수 근사치: 해당 버킷의 상한을 돌려준다. 기록이 없으면 -1
+    public long percentileMs(double p) {
+        long total = getTotalCount();
+        if (total == 0) return -1;
+        long target = (long) Math.ceil(total * p / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) return upperBoundMs(i);
+        }
+        return upperBoundMs(BUCKETS - 1);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    public long[] snapshot() {
+        long[] out = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            out[i] = counts.get(i);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,47 @@
+package com.energysaver.core;
+
+// "AA:BB:CC:DD:EE:FF" ↔ 48비트 long. 저널/맵 키처럼 자주 쓰는 곳에서 문자열을 피하려고 쓴다.
+public final class MacUtils {
+
+    public static final long INVALID = -1L;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private MacUtils() {
+    }
+
+    // 객체를 만들지 않는다. 형식이 틀리면 INVALID
+    public static long toLong(CharSequence mac) {
+        if (mac == null || mac.length() != 17) return INVALID;
+        long v = 0;
+        for (int i = 0; i < 17; i++) {
+            char c = mac.charAt(i);
+            if (i % 3 == 2) {
+                if (c != ':') return INVALID;
+                continue;
+            }
+            int d = Character.digit(c, 16);
+            if (d < 0) return INVALID;
+            v = (v << 4) | d;
+        }
+        return v;
+    }
+
+    // 대문자 "AA:BB:..." 형태로. 형식이 틀리면 null
+    public static String normalize(String mac) {
+        long v = toLong(mac);
+        return v != INVALID ? toString(v) : null;
+    }
+
+    public static String toString(long mac) {
+        if (mac == INVALID) return "??:??:??:??:??:??";
+        char[] out = new char[17];
+        for (int i = 0; i < 6; i++) {
+            int b = (int) (mac >>> (40 - i * 8)) & 0xFF;
+            out[i * 3] = HEX[b >>> 4];
+            out[i * 3 + 1] = HEX[b & 0x0F];
+            if (i < 5) out[i * 3 + 2] = ':';
+        }
+        return new String(out);
+    }
+}
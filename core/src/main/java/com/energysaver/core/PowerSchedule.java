@@ -0,0 +1,128 @@
+package com.energysaver.core;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+// 사용자가 정한 전원 예약 ("매일 23:00 끄기", "2시간 뒤 끄기").
+// 한 번(ONCE)은 절대 시각(epoch ms), 매일(DAILY)은 하루 중 몇 번째 분(0..1439)으로 둔다.
+// 서비스가 다음 실행 시각에 타이밍 휠로 깨어나 보통 명령과 같은 경로로 보낸다. 불변.
+public final class PowerSchedule {
+
+    public enum Repeat {
+        ONCE,
+        DAILY
+    }
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final long id;               // 0 = 아직 등록 전 (StripRegistry 가 붙인다)
+    private final String macAddress;
+    private final boolean on;
+    private final Repeat repeat;
+    private final long value;            // ONCE: epoch ms, DAILY: minute of day
+
+    private PowerSchedule(long id, String macAddress, boolean on, Repeat repeat, long value) {
+        this.id = id;
+        this.macAddress = macAddress;
+        this.on = on;
+        this.repeat = repeat;
+        this.value = value;
+    }
+
+    public static PowerSchedule once(String macAddress, boolean on, long atEpochMs) {
+        return new PowerSchedule(0, macAddress, on, Repeat.ONCE, atEpochMs);
+    }
+
+    public static PowerSchedule daily(String macAddress, boolean on, int minuteOfDay) {
+        if (minuteOfDay < 0 || minuteOfDay >= MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("minuteOfDay out of range: " + minuteOfDay);
+        }
+        return new PowerSchedule(0, macAddress, on, Repeat.DAILY, minuteOfDay);
+    }
+
+    // 저장소에서 읽을 때
+    static PowerSchedule restore(long id, String macAddress, boolean on, Repeat repeat,
+                                 long value) {
+        return new PowerSchedule(id, macAddress, on, repeat, value);
+    }
+
+    PowerSchedule withId(long id, String macAddress) {
+        return new PowerSchedule(id, macAddress, on, repeat, value);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getMacAddress() {
+        return macAddress;
+    }
+
+    public boolean isOn() {
+        return on;
+    }
+
+    public String getCommand() {
+        return on ? "ON" : "OFF";
+    }
+
+    public Repeat getRepeat() {
+        return repeat;
+    }
+
+    // ONCE 의 실행 시각
+    public long getAtEpochMs() {
+        return repeat == Repeat.ONCE ? value : -1;
+    }
+
+    // DAILY 의 시각 (분)
+    public int getMinuteOfDay() {
+        return repeat == Repeat.DAILY ? (int) value : -1;
+    }
+
+    long getValue() {
+        return value;
+    }
+
+    // nowEpochMs 이후 다음 실행 시각. ONCE 는 이미 지났어도 그 시각 그대로 (밀린 예약은 바로 실행).
+    // DAILY 는 그 시간대의 달력 기준이라 서머타임이 바뀌는 날에도 벽시계 시각이 같다.
+    public long nextFireAfter(long nowEpochMs, TimeZone tz) {
+        if (repeat == Repeat.ONCE) return value;
+
+        Calendar c = Calendar.getInstance(tz);
+        c.setTimeInMillis(nowEpochMs);
+        setTimeOfDay(c);
+        if (c.getTimeInMillis() <= nowEpochMs) {
+            c.add(Calendar.DAY_OF_MONTH, 1);
+            setTimeOfDay(c);
+        }
+        return c.getTimeInMillis();
+    }
+
+    private void setTimeOfDay(Calendar c) {
+        c.set(Calendar.HOUR_OF_DAY, (int) value / 60);
+        c.set(Calendar.MINUTE, (int) value % 60);
+        c.set(Calendar.SECOND, 0);
+        c.set(Calendar.MILLISECOND, 0);
+    }
+
+    // "매일 23:00 OFF", "10-18 01:30 ON"
+    public String describe(TimeZone tz) {
+        if (repeat == Repeat.DAILY) {
+            return String.format(Locale.US, "매일 %02d:%02d %s",
+                    value / 60, value % 60, getCommand());
+        }
+        Calendar c = Calendar.getInstance(tz);
+        c.setTimeInMillis(value);
+        return String.format(Locale.US, "%02d-%02d %02d:%02d %s",
+                c.get(Calendar.MONTH) + 1, c.get(Calendar.DAY_OF_MONTH),
+                c.get(Calendar.HOUR_OF_DAY), c.get(Calendar.MINUTE), getCommand());
+    }
+
+    @Override
+    public String toString() {
+        return "PowerSchedule{" + id + " " + macAddress + " " + getCommand() + " "
+                + repeat + "=" + value + "}";
+    }
+}
@@ -0,0 +1,237 @@
+package com.energysaver.core;
+
+// RSSI 로 "사용자가 집을 떠났는지" 판단한다. 안드로이드 의존성 없음, 한 스레드에서만 사용.
+//
+// 멀티탭마다 RSSI 를 EWMA 로 고르게 만든 뒤 두 문턱으로 판단한다 (히스테리시스).
+//   departDbm 아래로 departHoldMs 동안 계속 있으면 DEPARTED,
+//   returnDbm 이상으로 returnHoldMs 동안 있으면 다시 PRESENT.
+//   잠깐 떨어지는 신호나 문턱 근처의 흔들림으로는 바뀌지 않는다.
+// 연결이 끊긴 멀티탭은 바로 DEPARTED 로 센다.
+// 집 전체: 하나라도 PRESENT 면 PRESENT, 아는 멀티탭이 모두 DEPARTED 면 DEPARTED.
+// 등록된 멀티탭은 track() 으로 미리 넣어 둔다. 아직 연결을 기다리며 보고하지 않은 멀티탭이 있으면
+// 집 전체는 UNKNOWN 으로 남는다 (먼저 연결된 먼 방의 약한 멀티탭 하나로 DEPARTED 가 되지 않게).
+// 신호가 약하거나 판단 중일 때는 자주(fastSampleMs), 충분히 강하면 드물게(slowSampleMs) 읽으라고 알려준다.
+// 같은 샘플을 같은 순서로 넣으면 항상 같은 결과가 나온다.
+public class PresenceDetector {
+
+    public enum Presence {
+        UNKNOWN,     // 아직 샘플 없음
+        PRESENT,
+        DEPARTED
+    }
+
+    public interface Listener {
+        void onPresenceChanged(long key, Presence presence);
+
+        void onHomePresenceChanged(Presence presence);
+    }
+
+    // 판단 기준 (불변)
+    public static final class Config {
+        public static final Config DEFAULT =
+                new Config(0.3, -88, -80, 6000, 2000, 1000, 10000, 6);
+
+        final double alpha;          // EWMA 가중치 (0..1, 클수록 새 샘플을 많이 믿음)
+        final int departDbm;
+        final int returnDbm;
+        final long departHoldMs;
+        final long returnHoldMs;
+        final long fastSampleMs;
+        final long slowSampleMs;
+        final int marginDb;          // returnDbm + marginDb 보다 약하면 자주 읽는다
+
+        public Config(double alpha, int departDbm, int returnDbm, long departHoldMs,
+                      long returnHoldMs, long fastSampleMs, long slowSampleMs, int marginDb) {
+            if (alpha <= 0 || alpha > 1) throw new IllegalArgumentException("alpha must be in (0, 1]");
+            if (returnDbm <= departDbm) {
+                throw new IllegalArgumentException("returnDbm must be above departDbm");
+            }
+            if (fastSampleMs <= 0 || slowSampleMs < fastSampleMs) {
+                throw new IllegalArgumentException("0 < fastSampleMs <= slowSampleMs");
+            }
+            this.alpha = alpha;
+            this.departDbm = departDbm;
+            this.returnDbm = returnDbm;
+            this.departHoldMs = departHoldMs;
+            this.returnHoldMs = returnHoldMs;
+            this.fastSampleMs = fastSampleMs;
+            this.slowSampleMs = slowSampleMs;
+            this.marginDb = marginDb;
+        }
+
+        public int getDepartDbm() {
+            return departDbm;
+        }
+
+        public int getReturnDbm() {
+            return returnDbm;
+        }
+
+        public long getDepartHoldMs() {
+            return departHoldMs;
+        }
+    }
+
+    private static final class Track {
+        Presence presence = Presence.UNKNOWN;
+        boolean hasSample = false;
+        double filtered;
+        long crossedAt = -1;     // 반대쪽 문턱을 넘은 시각 (-1 = 넘지 않음)
+    }
+
+    private final Listener listener;
+    private Config config;
+    private final LongHashMap<Track> tracks = new LongHashMap<>();
+    private Presence home = Presence.UNKNOWN;
+
+    public PresenceDetector(Config config, Listener listener) {
+        this.config = config;
+        this.listener = listener;
+    }
+
+    // 이미 판단된 상태는 그대로 두고 다음 샘플부터 새 기준을 쓴다
+    public void setConfig(Config config) {
+        this.config = config;
+        tracks.forEach((key, t) -> t.crossedAt = -1);
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    public void onSample(long key, int rssi, long nowMs) {
+        Track t = tracks.get(key);
+        if (t == null) {
+            t = new Track();
+            tracks.put(key, t);
+        }
+        if (t.hasSample) {
+            t.filtered += config.alpha * (rssi - t.filtered);
+        } else {
+            t.filtered = rssi;
+            t.hasSample = true;
+        }
+
+        switch (t.presence) {
+            case UNKNOWN:
+                // 연결된 상태에서 첫 판단: 약하지만 않으면 바로 PRESENT
+                if (t.filtered >= config.departDbm) {
+                    set(key, t, Presence.PRESENT);
+                } else if (held(t, nowMs, config.departHoldMs)) {
+                    set(key, t, Presence.DEPARTED);
+                }
+                break;
+            case PRESENT:
+                if (t.filtered >= config.departDbm) {
+                    t.crossedAt = -1;
+                } else if (held(t, nowMs, config.departHoldMs)) {
+                    set(key, t, Presence.DEPARTED);
+                }
+                break;
+            case DEPARTED:
+                if (t.filtered < config.returnDbm) {
+                    t.crossedAt = -1;
+                } else if (held(t, nowMs, config.returnHoldMs)) {
+                    set(key, t, Presence.PRESENT);
+                }
+                break;
+        }
+    }
+
+    // 등록된 멀티탭: 아직 샘플이 없어도 판단 대상에 넣는다 (UNKNOWN). 이미 있으면 그대로.
+    public void track(long key) {
+        if (tracks.get(key) != null) return;
+        tracks.put(key, new Track());
+        updateHome();
+    }
+
+    // 예전 판단을 버리고 UNKNOWN 부터 다시 (블루투스가 다시 켜졌을 때 등)
+    public void reset(long key) {
+        Track t = tracks.get(key);
+        if (t == null) {
+            track(key);
+            return;
+        }
+        t.hasSample = false;
+        t.crossedAt = -1;
+        if (t.presence != Presence.UNKNOWN) set(key, t, Presence.UNKNOWN);
+    }
+
+    // 연결이 끊김: 신호를 읽을 수 없으니 떠난 것으로 본다. 다시 연결되면 reset() 으로 처음부터
+    // (안 그러면 돌아오는 문턱 returnDbm 을 넘어야 해서, 그보다 약한 자리의 멀티탭은 계속 DEPARTED).
+    public void onLinkLost(long key) {
+        Track t = tracks.get(key);
+        if (t == null) {
+            t = new Track();
+            tracks.put(key, t);
+        }
+        t.hasSample = false;
+        if (t.presence != Presence.DEPARTED) {
+            set(key, t, Presence.DEPARTED);
+        }
+    }
+
+    // 사용자가 연결을 끊었거나 멀티탭을 지움: 판단 대상에서 뺀다
+    public void remove(long key) {
+        if (tracks.remove(key) != null) updateHome();
+    }
+
+    public Presence getPresence(long key) {
+        Track t = tracks.get(key);
+        return t != null ? t.presence : Presence.UNKNOWN;
+    }
+
+    public Presence getHomePresence() {
+        return home;
+    }
+
+    // 고른 RSSI (샘플이 없으면 ConnectionState.RSSI_UNKNOWN)
+    public int getFilteredRssi(long key) {
+        Track t = tracks.get(key);
+        return t != null && t.hasSample ? (int) Math.round(t.filtered) : ConnectionState.RSSI_UNKNOWN;
+    }
+
+    // 다음 RSSI 를 읽기까지 기다릴 시간
+    public long sampleIntervalMs(long key) {
+        Track t = tracks.get(key);
+        if (t == null || !t.hasSample || t.crossedAt >= 0 || t.presence != Presence.PRESENT) {
+            return config.fastSampleMs;
+        }
+        return t.filtered < config.returnDbm + config.marginDb
+                ? config.fastSampleMs : config.slowSampleMs;
+    }
+
+    public int size() {
+        return tracks.size();
+    }
+
+    private static boolean held(Track t, long nowMs, long holdMs) {
+        if (t.crossedAt < 0) t.crossedAt = nowMs;
+        return nowMs - t.crossedAt >= holdMs;
+    }
+
+    private void set(long key, Track t, Presence presence) {
+        t.presence = presence;
+        t.crossedAt = -1;
+        listener.onPresenceChanged(key, presence);
+        updateHome();
+    }
+
+    private void updateHome() {
+        final boolean[] any = new boolean[3];     // Presence.ordinal() 별로 하나라도 있는지
+        tracks.forEach((key, t) -> any[t.presence.ordinal()] = true);
+
+        Presence next;
+        if (any[Presence.PRESENT.ordinal()]) {
+            next = Presence.PRESENT;
+        } else if (any[Presence.DEPARTED.ordinal()] && !any[Presence.UNKNOWN.ordinal()]) {
+            next = Presence.DEPARTED;
+        } else {
+            next = Presence.UNKNOWN;
+        }
+        if (next != home) {
+            home = next;
+            listener.onHomePresenceChanged(next);
+        }
+    }
+}
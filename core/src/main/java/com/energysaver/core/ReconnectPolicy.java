@@ -0,0 +1,113 @@
+package com.energysaver.core;
+
+import java.util.Random;
+
+// 기기 하나의 재연결 간격과 circuit breaker. 안드로이드 의존성 없음, 한 스레드에서만 사용.
+//
+// 간격: decorrelated jitter (다음 = min(cap, random(base, 이전 x 3))).
+//   여러 기기가 같이 끊겨도 재시도 시각이 흩어진다.
+// 연속 실패가 failureThreshold 에 닿으면 OPEN: parkMs 동안 시도하지 않는다.
+//   시간이 지나면 HALF_OPEN 으로 한 번만 시도해 보고, 또 실패하면 쉬는 시간을 두 배로 (최대 maxParkMs).
+// 재시도 예약은 토큰으로 구분한다. 새로 예약하거나 취소하면 이전 토큰은 무효가 된다.
+public class ReconnectPolicy {
+
+    public enum State {
+        CLOSED,      // 보통 재시도
+        OPEN,        // 계속 실패해서 쉬는 중
+        HALF_OPEN    // 쉬고 나서 한 번 시험 중
+    }
+
+    private final long baseMs;
+    private final long capMs;
+    private final int failureThreshold;
+    private final long initialParkMs;
+    private final long maxParkMs;
+    private final Random random;
+
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long prevDelayMs;
+    private long parkMs;
+
+    private int generation = 0;
+    private int pendingToken = 0;    // 0 = 예약 없음
+
+    public ReconnectPolicy(long baseMs, long capMs, int failureThreshold,
+                           long parkMs, long maxParkMs, Random random) {
+        this.baseMs = baseMs;
+        this.capMs = capMs;
+        this.failureThreshold = failureThreshold;
+        this.initialParkMs = parkMs;
+        this.maxParkMs = maxParkMs;
+        this.random = random;
+        this.prevDelayMs = baseMs;
+        this.parkMs = parkMs;
+    }
+
+    // 연결이 끊겼거나 시도가 실패함. 다음 시도까지 기다릴 시간을 돌려준다.
+    public long onFailure() {
+        failures++;
+
+        if (state == State.HALF_OPEN) {
+            parkMs = Math.min(maxParkMs, parkMs * 2);
+            state = State.OPEN;
+            return parkMs;
+        }
+        if (failures >= failureThreshold) {
+            state = State.OPEN;
+            return parkMs;
+        }
+
+        long upper = Math.min(capMs, prevDelayMs * 3);
+        long delay = upper > baseMs ? baseMs + (long) (random.nextDouble() * (upper - baseMs)) : baseMs;
+        prevDelayMs = delay;
+        return delay;
+    }
+
+    // READY 까지 감
+    public void onSuccess() {
+        reset();
+    }
+
+    // 사용자가 직접 연결을 요청했거나 블루투스가 다시 켜짐: 처음부터
+    public void reset() {
+        state = State.CLOSED;
+        failures = 0;
+        prevDelayMs = baseMs;
+        parkMs = initialParkMs;
+        cancel();
+    }
+
+    // 새 예약. 이전에 받은 토큰은 더 이상 유효하지 않다.
+    public int schedule() {
+        generation++;
+        if (generation == 0) generation = 1;
+        pendingToken = generation;
+        return pendingToken;
+    }
+
+    public void cancel() {
+        pendingToken = 0;
+    }
+
+    public boolean isPending() {
+        return pendingToken != 0;
+    }
+
+    // 예약한 시각이 됨. 최신 예약이면 true 를 돌려주고 소비한다.
+    // 쉬는 중이었다면 이번 시도는 HALF_OPEN 시험이 된다.
+    public boolean fire(int token) {
+        if (token == 0 || token != pendingToken) return false;
+        pendingToken = 0;
+        if (state == State.OPEN) state = State.HALF_OPEN;
+        return true;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+}
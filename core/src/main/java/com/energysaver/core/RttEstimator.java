@@ -0,0 +1,53 @@
+package com.energysaver.core;
+
+// TCP(RFC 6298) 방식의 왕복시간 추정. srtt/rttvar 는 EWMA, RTO 는 srtt + 4*rttvar.
+// 갱신은 한 스레드(BLE 작업 스레드)에서만 하고, 값은 어느 스레드에서나 읽을 수 있다.
+public class RttEstimator {
+
+    public static final long INITIAL_RTO_MS = 1500;
+    public static final long MIN_RTO_MS = 300;
+    public static final long MAX_RTO_MS = 10000;
+
+    private volatile long srttMs = -1;
+    private volatile long rttvarMs = 0;
+    private volatile long rtoMs = INITIAL_RTO_MS;
+    private volatile long samples = 0;
+
+    public void sample(long rttMs) {
+        if (rttMs < 0) return;
+
+        if (srttMs < 0) {
+            srttMs = rttMs;
+            rttvarMs = rttMs / 2;
+        } else {
+            // beta = 1/4, alpha = 1/8
+            rttvarMs = (3 * rttvarMs + Math.abs(srttMs - rttMs)) / 4;
+            srttMs = (7 * srttMs + rttMs) / 8;
+        }
+        samples++;
+
+        long rto = srttMs + Math.max(1, 4 * rttvarMs);
+        rtoMs = Math.max(MIN_RTO_MS, Math.min(MAX_RTO_MS, rto));
+    }
+
+    // 재전송 후에도 응답이 없으면 RTO 를 두 배로 (다음 샘플에서 다시 계산됨)
+    public void backoff() {
+        rtoMs = Math.min(MAX_RTO_MS, rtoMs * 2);
+    }
+
+    public long getSrttMs() {
+        return srttMs;
+    }
+
+    public long getRttvarMs() {
+        return rttvarMs;
+    }
+
+    public long getRtoMs() {
+        return rtoMs;
+    }
+
+    public long getSampleCount() {
+        return samples;
+    }
+}
@@ -0,0 +1,216 @@
+package com.energysaver.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// 최근 스캔 결과 (MAC, 광고 내용, RSSI). 스캔이 끝나도 ttlMs 동안 남아서
+// "새 기기 추가" 창을 다시 열거나 재연결할 때 새로 스캔하지 않고 바로 쓸 수 있다.
+// 최대 capacity 개까지, 넘치면 가장 오래전에 본 기기부터 지운다 (LRU).
+// 광고 바이트가 지난번과 같으면 다시 풀지 않는다.
+// 같은 스캔(session) 안에서는 MAC 당 한 번만 새 기기로 센다. 스레드 안전하지 않음.
+public class ScanResultCache {
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    public static final class Entry {
+        private final long key;
+        private final String mac;
+        private String name;
+        private Advertisement advertisement = Advertisement.EMPTY;
+        private int rssi;
+        private long lastSeenMs;
+        private final long order;     // 처음 본 순서 (목록이 뒤섞이지 않게)
+        private int session;
+
+        // 본 순서 목록 (head = 가장 오래전에 본 기기)
+        private Entry prev;
+        private Entry next;
+
+        Entry(long key, String mac, long order) {
+            this.key = key;
+            this.mac = mac;
+            this.order = order;
+        }
+
+        public String getMac() {
+            return mac;
+        }
+
+        // 광고 이름, 없으면 시스템이 알려준 이름, 둘 다 없으면 null
+        public String getName() {
+            return name;
+        }
+
+        public Advertisement getAdvertisement() {
+            return advertisement;
+        }
+
+        public int getRssi() {
+            return rssi;
+        }
+
+        public long getLastSeenMs() {
+            return lastSeenMs;
+        }
+    }
+
+    private final long ttlMs;
+    private final int capacity;
+    private final LongHashMap<Entry> entries = new LongHashMap<>();
+    private Entry head;
+    private Entry tail;
+    private long nextOrder = 0;
+    private int session = 0;
+    private long decodes = 0;
+    private long evictions = 0;
+
+    public ScanResultCache(long ttlMs) {
+        this(ttlMs, DEFAULT_CAPACITY);
+    }
+
+    public ScanResultCache(long ttlMs, int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.ttlMs = ttlMs;
+        this.capacity = capacity;
+    }
+
+    // 새 스캔 시작. 이전 결과는 TTL 이 지날 때까지 그대로 남는다.
+    public void beginSession() {
+        session++;
+    }
+
+    // 광고 없이 이름만 아는 경우
+    public boolean update(String mac, String name, int rssi, long nowMs) {
+        return update(mac, null, name, rssi, nowMs);
+    }
+
+    // record 는 광고 원본 바이트 (없으면 null), fallbackName 은 광고에 이름이 없을 때 쓸 이름.
+    // 목록에 보이는 내용이 바뀌었으면 true (이번 스캔에서 처음 봄, 이름/RSSI 변경)
+    public boolean update(String mac, byte[] record, String fallbackName, int rssi, long nowMs) {
+        long key = MacUtils.toLong(mac);
+        if (key == MacUtils.INVALID) return false;
+
+        Entry e = entries.get(key);
+        boolean changed;
+        if (e == null) {
+            e = new Entry(key, MacUtils.toString(key), nextOrder++);
+            entries.put(key, e);
+            changed = true;
+        } else {
+            unlink(e);
+            changed = e.session != session || e.rssi != rssi;
+        }
+        linkLast(e);
+
+        if (record != null && !e.advertisement.sameBytes(record)) {
+            e.advertisement = Advertisement.parse(record);
+            decodes++;
+        }
+        String name = e.advertisement.getName();
+        if (name == null || name.isEmpty()) name = fallbackName;
+        if (name != null && !name.isEmpty() && !name.equals(e.name)) {
+            e.name = name;
+            changed = true;
+        }
+        e.rssi = rssi;
+        e.lastSeenMs = nowMs;
+        e.session = session;
+
+        while (entries.size() > capacity) {
+            removeEntry(head);
+            evictions++;
+        }
+        return changed;
+    }
+
+    public Entry get(String mac) {
+        return entries.get(MacUtils.toLong(mac));
+    }
+
+    // maxAgeMs 안에 본 기기만 (재연결 전에 "방금 광고가 보였나" 확인용)
+    public Entry getRecent(String mac, long nowMs, long maxAgeMs) {
+        Entry e = get(mac);
+        return e != null && nowMs - e.lastSeenMs <= maxAgeMs ? e : null;
+    }
+
+    // 이번 스캔에서 이미 본 기기인지
+    public boolean seenInSession(String mac) {
+        Entry e = get(mac);
+        return e != null && e.session == session;
+    }
+
+    // TTL 안의 결과를 처음 본 순서대로. 오래된 항목은 이때 지운다.
+    public List<Entry> snapshot(long nowMs) {
+        evictExpired(nowMs);
+        if (entries.isEmpty()) return Collections.emptyList();
+        List<Entry> out = new ArrayList<>(entries.size());
+        for (Entry e = head; e != null; e = e.next) {
+            out.add(e);
+        }
+        Collections.sort(out, (a, b) -> Long.compare(a.order, b.order));
+        return out;
+    }
+
+    // 본 순서대로 이어져 있으므로 앞에서부터 TTL 이 지난 것만 지우면 된다
+    public void evictExpired(long nowMs) {
+        while (head != null && nowMs - head.lastSeenMs > ttlMs) {
+            removeEntry(head);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // 광고를 실제로 푼 횟수 (같은 광고 반복은 세지 않음)
+    public long getDecodeCount() {
+        return decodes;
+    }
+
+    // 용량 때문에 밀려난 기기 수
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    public void clear() {
+        entries.clear();
+        head = null;
+        tail = null;
+    }
+
+    private void removeEntry(Entry e) {
+        unlink(e);
+        entries.remove(e.key);
+    }
+
+    private void linkLast(Entry e) {
+        e.prev = tail;
+        e.next = null;
+        if (tail != null) {
+            tail.next = e;
+        } else {
+            head = e;
+        }
+        tail = e;
+    }
+
+    private void unlink(Entry e) {
+        if (e.prev != null) {
+            e.prev.next = e.next;
+        } else {
+            head = e.next;
+        }
+        if (e.next != null) {
+            e.next.prev = e.prev;
+        } else {
+            tail = e.prev;
+        }
+        e.prev = null;
+        e.next = null;
+    }
+}
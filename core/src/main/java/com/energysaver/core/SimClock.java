@@ -0,0 +1,30 @@
+package com.energysaver.core;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 시뮬레이터의 시간과 작업 실행. 시뮬레이터 상태는 이 시계가 작업을 돌리는 스레드만 만진다.
+// 부하 테스트는 VirtualClock (가상 시간, 한 스레드), 실제 시간으로 돌릴 때는 of(executor).
+public interface SimClock {
+
+    long nowMs();
+
+    // delayMs 뒤에 실행. 0 이면 지금 실행 중인 작업이 끝난 다음.
+    void schedule(long delayMs, Runnable task);
+
+    // 실제 시간. 작업 순서를 지키려면 단일 스레드 executor 를 넘길 것
+    static SimClock of(ScheduledExecutorService executor) {
+        final long origin = System.nanoTime();
+        return new SimClock() {
+            @Override
+            public long nowMs() {
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - origin);
+            }
+
+            @Override
+            public void schedule(long delayMs, Runnable task) {
+                executor.schedule(task, Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+            }
+        };
+    }
+}
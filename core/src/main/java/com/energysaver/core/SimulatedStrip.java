@@ -0,0 +1,410 @@
+package com.energysaver.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+// arduino/device/device.ino 를 JVM 에서 그대로 흉내 내는 멀티탭 펌웨어.
+//  - 텍스트 줄 명령 (ON/OFF/PING/STATUS/HELLO BIN1) 과 바이너리 프레임, 같은 형식으로 응답
+//  - 메시지를 받지 못하다가 처음 받으면 "RECONNECTED:ON|OFF"
+//  - 마지막 메시지 후 10초가 지나면 fail-safe: 켜져 있으면 끄고 DISCONNECTED
+//  - ON/OFF 는 명령 큐(4개)에 넣고 바로 ACK (바이너리 payload 에 큐 깊이), 꽉 차면 BUSY.
+//    서보는 millis() 상태 머신으로 800ms 씩 차례로 누르고, 그동안에도 수신은 계속된다.
+//  - commandQueueSize 0 은 예전 펌웨어: 서보를 누르는 800ms 동안 loop() 가 멈추고 (응답도 그 뒤),
+//    멈춘 동안 들어온 바이트는 SoftwareSerial 수신 버퍼(64바이트)에 쌓이고 넘치면 버려진다
+// 펌웨어는 BLE 링크를 모른다. HM-10 이 연결되어 있지 않으면 출력은 사라진다 (SimulatedTransport).
+// SimClock 스레드에서만 사용.
+public final class SimulatedStrip {
+
+    public interface Output {
+        // BT.print / BT.write 로 나간 바이트
+        void onUartOutput(byte[] data);
+    }
+
+    public static final long FAILSAFE_TIMEOUT_MS = 10000;   // DISCONNECT_TIMEOUT_MS
+    public static final long SERVO_PRESS_MS = 800;          // SERVO_PRESS_MS + SERVO_RELEASE_MS
+    public static final int COMMAND_QUEUE_SIZE = 4;         // CMD_QUEUE_SIZE
+    public static final int LEGACY_BLOCKING = 0;            // 큐 없이 delay() 로 멈추는 예전 펌웨어
+
+    static final int RX_BUFFER_SIZE = 64;                   // _SS_MAX_RX_BUFF
+    private static final int LINE_MAX = 32;
+
+    private final String mac;
+    private final SimClock clock;
+    private final long failSafeTimeoutMs;
+    private final long servoPressMs;
+    private final int commandQueueSize;
+    private Output output;
+
+    // 펌웨어 전역 변수
+    private boolean powerOn = true;
+    private boolean connected = false;       // isConnected: 최근에 메시지를 받았는지
+    private long lastMessageTime;
+    private boolean binaryPeer = false;
+
+    private final byte[] lineBuf = new byte[LINE_MAX];
+    private int lineLen = 0;
+    private final byte[] frameBuf = new byte[UartCodec.MAX_FRAME_SIZE];
+    private int frameLen = 0;
+    private boolean inFrame = false;
+
+    // SoftwareSerial 수신 링 버퍼
+    private final byte[] rx = new byte[RX_BUFFER_SIZE];
+    private int rxHead = 0;
+    private int rxCount = 0;
+
+    // delay() 로 멈춰 있는 중 (예전 펌웨어의 서보)
+    private boolean blocked = false;
+
+    // 서보 누름 큐 (cmdQueue) 와 상태 머신이 IDLE 이 아닌지
+    private final int[] pressQueue;
+    private int pressHead = 0;
+    private int pressCount = 0;
+    private boolean servoMoving = false;
+
+    private int servoPresses = 0;
+    private int commands = 0;
+    private int failSafeOffs = 0;
+    private int rxOverflows = 0;
+    private int busyReplies = 0;
+    private int maxQueueDepth = 0;
+
+    public SimulatedStrip(String mac, SimClock clock) {
+        this(mac, clock, FAILSAFE_TIMEOUT_MS, SERVO_PRESS_MS, COMMAND_QUEUE_SIZE);
+    }
+
+    public SimulatedStrip(String mac, SimClock clock, long failSafeTimeoutMs, long servoPressMs,
+                          int commandQueueSize) {
+        this.mac = mac;
+        this.clock = clock;
+        this.failSafeTimeoutMs = failSafeTimeoutMs;
+        this.servoPressMs = servoPressMs;
+        this.commandQueueSize = commandQueueSize;
+        this.pressQueue = new int[Math.max(commandQueueSize, 1)];
+        this.lastMessageTime = clock.nowMs();   // setup()
+    }
+
+    public void setOutput(Output output) {
+        this.output = output;
+    }
+
+    // HM-10 이 받은 바이트를 UART 로 넘긴다
+    public void receive(byte[] data) {
+        for (byte b : data) {
+            if (rxCount == RX_BUFFER_SIZE) {
+                rxOverflows++;
+                continue;
+            }
+            rx[(rxHead + rxCount) % RX_BUFFER_SIZE] = b;
+            rxCount++;
+        }
+        loop();
+    }
+
+    // ───── loop() ─────
+
+    private void loop() {
+        while (!blocked && rxCount > 0) {
+            byte b = rx[rxHead];
+            rxHead = (rxHead + 1) % RX_BUFFER_SIZE;
+            rxCount--;
+            onByte(b & 0xFF);
+        }
+        if (blocked) return;
+
+        long now = clock.nowMs();
+        if (connected && now - lastMessageTime > failSafeTimeoutMs) {
+            // 펌웨어는 handleDisconnectEvent 가 끝난 뒤에 내리지만 그동안 loop 가 멈춰 있어서 같다
+            connected = false;
+            handleDisconnectEvent();
+        }
+    }
+
+    // 예전 펌웨어의 delay(): 서보를 누르는 동안 멈췄다가 then 을 실행하고 loop 로 돌아간다
+    private void pressPowerButton(Runnable then) {
+        servoPresses++;
+        blocked = true;
+        clock.schedule(servoPressMs, () -> {
+            blocked = false;
+            then.run();
+            loop();
+        });
+    }
+
+    // ───── 서보 누름 큐 / 상태 머신 ─────
+
+    private boolean isQueued() {
+        return commandQueueSize > LEGACY_BLOCKING;
+    }
+
+    private boolean enqueuePress(int op) {
+        if (pressCount >= commandQueueSize) return false;
+        pressQueue[(pressHead + pressCount) % commandQueueSize] = op;
+        pressCount++;
+        updateServo();
+        maxQueueDepth = Math.max(maxQueueDepth, pendingDepth());
+        return true;
+    }
+
+    private int pendingDepth() {
+        return pressCount + (servoMoving ? 1 : 0);
+    }
+
+    // IDLE 이면 다음 누름을 시작. 누름(+복귀)이 끝나면 다음 loop 에서 이어서.
+    private void updateServo() {
+        if (servoMoving || pressCount == 0) return;
+        pressHead = (pressHead + 1) % commandQueueSize;
+        pressCount--;
+        servoPresses++;
+        servoMoving = true;
+        clock.schedule(servoPressMs, () -> {
+            servoMoving = false;
+            updateServo();
+            loop();
+        });
+    }
+
+    // ───── 수신 바이트 처리 (텍스트 줄 / 바이너리 프레임) ─────
+
+    private void onByte(int c) {
+        if (inFrame) {
+            frameBuf[frameLen++] = (byte) c;
+            if (frameLen == UartCodec.HEADER_SIZE) {
+                if ((frameBuf[1] & 0xFF) >> 4 != UartCodec.VERSION
+                        || (frameBuf[4] & 0xFF) > UartCodec.MAX_PAYLOAD) {
+                    inFrame = false;
+                    frameLen = 0;
+                    return;
+                }
+            }
+            int len = frameBuf[4] & 0xFF;
+            if (frameLen > UartCodec.HEADER_SIZE && frameLen == UartCodec.HEADER_SIZE + len + 1) {
+                inFrame = false;
+                frameLen = 0;
+                int crc = UartCodec.crc8(frameBuf, 1, UartCodec.HEADER_SIZE - 1 + len);
+                if (crc == (frameBuf[UartCodec.HEADER_SIZE + len] & 0xFF)) {
+                    processFrame(frameBuf[2] & 0xFF, frameBuf[3] & 0xFF);
+                }
+            }
+            return;
+        }
+
+        if (c == UartCodec.SOF) {
+            lineLen = 0;
+            inFrame = true;
+            frameBuf[0] = (byte) c;
+            frameLen = 1;
+            return;
+        }
+
+        if (c == '\n' || c == '\r') {
+            if (lineLen > 0) {
+                String line = new String(lineBuf, 0, lineLen, StandardCharsets.US_ASCII);
+                lineLen = 0;
+                processLine(line);
+            }
+            return;
+        }
+
+        // 너무 긴 줄은 잘라서 버림
+        if (lineLen < LINE_MAX) {
+            lineBuf[lineLen++] = (byte) Character.toUpperCase((char) c);
+        }
+    }
+
+    private void markMessageReceived() {
+        boolean wasConnected = connected;
+        connected = true;
+        lastMessageTime = clock.nowMs();
+        // 이 시각 + 타임아웃 이후의 첫 loop() 에서 fail-safe 를 검사한다
+        clock.schedule(failSafeTimeoutMs + 1, this::loop);
+
+        if (!wasConnected) {
+            print("RECONNECTED:" + (powerOn ? "ON" : "OFF"));
+        }
+    }
+
+    private void processLine(String raw) {
+        String line = raw.trim();
+        if (line.isEmpty()) return;
+
+        markMessageReceived();
+
+        switch (line) {
+            case "ON":
+                handleCommand(UartCodec.OP_ON, 0, false);
+                break;
+            case "OFF":
+                handleCommand(UartCodec.OP_OFF, 0, false);
+                break;
+            case "PING":
+                handleCommand(UartCodec.OP_PING, 0, false);
+                break;
+            case "STATUS":
+                handleCommand(UartCodec.OP_STATUS, 0, false);
+                break;
+            default:
+                if (line.equals(UartCodec.HELLO_TEXT)) {
+                    binaryPeer = true;
+                    print(UartCodec.CAPS_TEXT + " TO=" + failSafeTimeoutMs
+                            + (isQueued() ? " Q=" + commandQueueSize : ""));
+                }
+                // 알 수 없는 명령은 무시
+                break;
+        }
+    }
+
+    private void processFrame(int op, int seq) {
+        markMessageReceived();
+        binaryPeer = true;
+
+        if (op == UartCodec.OP_ON || op == UartCodec.OP_OFF
+                || op == UartCodec.OP_PING || op == UartCodec.OP_STATUS) {
+            handleCommand(op, seq, true);
+        } else {
+            sendFrame(UartCodec.OP_UNKNOWN, seq, new byte[]{(byte) op});
+        }
+    }
+
+    private void handleCommand(int op, int seq, boolean binary) {
+        commands++;
+        if ((op == UartCodec.OP_ON || op == UartCodec.OP_OFF) && !isQueued()) {
+            powerOn = op == UartCodec.OP_ON;
+            String name = powerOn ? "ON" : "OFF";
+            pressPowerButton(() -> {
+                if (binary) sendFrame(UartCodec.OP_ACK, seq, new byte[]{(byte) op});
+                else print("ACK " + name);
+            });
+        } else if (op == UartCodec.OP_ON || op == UartCodec.OP_OFF) {
+            String name = op == UartCodec.OP_ON ? "ON" : "OFF";
+            if (pressCount >= commandQueueSize) {
+                busyReplies++;
+                if (binary) sendFrame(UartCodec.OP_BUSY, seq, new byte[]{(byte) op, (byte) pendingDepth()});
+                else print("BUSY " + name);
+                return;
+            }
+            powerOn = op == UartCodec.OP_ON;
+            enqueuePress(op);
+            if (binary) sendFrame(UartCodec.OP_ACK, seq, new byte[]{(byte) op, (byte) pendingDepth()});
+            else print("ACK " + name);
+        } else if (op == UartCodec.OP_PING) {
+            if (binary) sendFrame(UartCodec.OP_PONG, seq, new byte[0]);
+            else print("PONG");
+        } else if (op == UartCodec.OP_STATUS) {
+            byte state = (byte) (powerOn ? 1 : 0);
+            if (binary) {
+                sendFrame(UartCodec.OP_STATE, seq, isQueued()
+                        ? new byte[]{state, (byte) pendingDepth()} : new byte[]{state});
+            } else {
+                print(powerOn ? "ON" : "OFF");
+            }
+        }
+    }
+
+    // ───── 연결 끊김 (fail-safe) ─────
+
+    private void handleDisconnectEvent() {
+        failSafeOffs++;
+        if (!powerOn) {
+            reportDisconnected();
+        } else if (isQueued()) {
+            // 아직 못 누른 명령보다 fail-safe OFF 가 우선. 서보를 기다리지 않고 바로 알린다.
+            powerOn = false;
+            pressHead = 0;
+            pressCount = 0;
+            enqueuePress(UartCodec.OP_OFF);
+            reportDisconnected();
+        } else {
+            powerOn = false;
+            pressPowerButton(this::reportDisconnected);
+        }
+    }
+
+    private void reportDisconnected() {
+        if (binaryPeer) {
+            sendFrame(UartCodec.OP_DISCONNECTED, 0, new byte[0]);
+        } else {
+            print("DISCONNECTED");
+        }
+        // 다음 연결에서 앱이 다시 HELLO 로 협상한다
+        binaryPeer = false;
+    }
+
+    // ───── 출력 ─────
+
+    // BT.println: 줄 끝은 CRLF
+    private void print(String line) {
+        emit((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void sendFrame(int op, int seq, byte[] payload) {
+        emit(UartCodec.encode(op, seq, payload));
+    }
+
+    private void emit(byte[] data) {
+        Output out = output;
+        if (out != null) out.onUartOutput(data);
+    }
+
+    // ───── 조회 ─────
+
+    public String getMac() {
+        return mac;
+    }
+
+    public boolean isPowerOn() {
+        return powerOn;
+    }
+
+    // 펌웨어가 앱과 연결되어 있다고 믿는지 (isConnected)
+    public boolean isPeerConnected() {
+        return connected;
+    }
+
+    public boolean isBinaryPeer() {
+        return binaryPeer;
+    }
+
+    public boolean isBlocked() {
+        return blocked;
+    }
+
+    // 서보가 움직이는 중 (큐 펌웨어)
+    public boolean isServoMoving() {
+        return servoMoving;
+    }
+
+    // 기다리는 누름 + 실행 중인 누름
+    public int getQueueDepth() {
+        return pendingDepth();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public int getBusyReplies() {
+        return busyReplies;
+    }
+
+    public int getServoPresses() {
+        return servoPresses;
+    }
+
+    public int getCommandCount() {
+        return commands;
+    }
+
+    public int getFailSafeOffs() {
+        return failSafeOffs;
+    }
+
+    public int getRxOverflows() {
+        return rxOverflows;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "SimulatedStrip{%s %s%s}", mac,
+                powerOn ? "ON" : "OFF", connected ? " connected" : "");
+    }
+}
@@ -0,0 +1,177 @@
+package com.energysaver.core;
+
+import java.util.Arrays;
+
+// StripSimulator 의 기기 하나와의 BLE 링크. 안드로이드 GATT 처럼 동작한다.
+//  - 연결: 광고가 보이지 않거나 HM-10 이 이미 다른 중앙 장치와 연결되어 있으면 타임아웃 뒤 133
+//  - 요청은 한 번에 하나 (진행 중이면 false), 결과는 지연 뒤 콜백
+//  - 쓰기/알림은 Config.lossRate 로 사라진다. 응답 있는 쓰기는 133 으로, 응답 없는 쓰기는 조용히.
+//  - 기기 출력은 HM-10 처럼 20바이트씩 알림으로 나뉘어 순서대로 온다
+// 요청 메서드는 아무 스레드에서나 불러도 된다. 실제 일과 콜백은 SimClock 에서.
+final class SimulatedTransport implements BleTransport {
+
+    private static final int HM10_NOTIFY_SIZE = 20;
+
+    private final StripSimulator sim;
+    private final StripSimulator.Device device;   // 없는 주소면 null (연결은 타임아웃)
+    private final Callback callback;
+
+    private volatile boolean closed = false;
+    private volatile boolean connected = false;
+    private volatile boolean busy = false;         // GATT 요청 진행 중
+    private boolean notifying = false;
+    private long lastNotifyAt = 0;                 // 알림 순서 유지
+
+    SimulatedTransport(StripSimulator sim, StripSimulator.Device device, Callback callback) {
+        this.sim = sim;
+        this.device = device;
+        this.callback = callback;
+    }
+
+    void start() {
+        sim.clock.schedule(sim.latency(sim.config.connectLatencyMs), this::onConnectDue);
+    }
+
+    private void onConnectDue() {
+        if (closed) return;
+        if (device == null || !device.inRange || device.attached != null) {
+            long waited = sim.config.connectLatencyMs;
+            sim.clock.schedule(Math.max(0, sim.config.connectTimeoutMs - waited), () -> {
+                if (!closed) callback.onConnectionStateChanged(this, STATUS_GATT_ERROR, false);
+            });
+            return;
+        }
+        if (sim.config.connectFailureRate > 0
+                && sim.random.nextDouble() < sim.config.connectFailureRate) {
+            callback.onConnectionStateChanged(this, STATUS_GATT_ERROR, false);
+            return;
+        }
+
+        device.attached = this;
+        connected = true;
+        callback.onConnectionStateChanged(this, STATUS_SUCCESS, true);
+
+        long drop = sim.nextDropDelay();
+        if (drop >= 0) {
+            sim.clock.schedule(drop, () -> dropLink(STATUS_CONNECTION_TIMEOUT));
+        }
+    }
+
+    // 링크가 끊김: 기기 쪽은 바로, 앱은 감시 타임아웃 뒤에 안다
+    void dropLink(int status) {
+        if (!connected) return;
+        connected = false;
+        detach();
+        sim.clock.schedule(sim.config.supervisionTimeoutMs, () -> {
+            if (!closed) callback.onConnectionStateChanged(this, status, false);
+        });
+    }
+
+    private void detach() {
+        if (device != null && device.attached == this) {
+            device.attached = null;
+        }
+        notifying = false;
+    }
+
+    // ───── GATT 요청 ─────
+
+    // 연결되어 있고 다른 요청이 없으면 지연 뒤 op 실행
+    private boolean request(long latency, Runnable op) {
+        if (closed || !connected || busy) return false;
+        busy = true;
+        sim.clock.schedule(latency, () -> {
+            busy = false;
+            if (closed) return;
+            op.run();
+        });
+        return true;
+    }
+
+    @Override
+    public boolean discoverServices() {
+        return request(sim.latency(sim.config.discoveryLatencyMs), () -> {
+            if (!connected) {
+                callback.onServicesDiscovered(this, STATUS_GATT_ERROR, false, false);
+                return;
+            }
+            callback.onServicesDiscovered(this, STATUS_SUCCESS, true, true);
+        });
+    }
+
+    @Override
+    public boolean requestMtu(int mtu) {
+        // HM-10 은 교환을 거절하지 않고 기본값으로 답한다
+        return request(sim.latency(sim.config.linkLatencyMs), () ->
+                callback.onMtuChanged(this, Math.min(mtu, sim.config.attMtu),
+                        connected ? STATUS_SUCCESS : STATUS_GATT_ERROR));
+    }
+
+    @Override
+    public boolean enableNotifications() {
+        return request(sim.latency(sim.config.linkLatencyMs), () -> {
+            if (!connected || sim.lost()) {
+                callback.onNotificationsEnabled(this, STATUS_GATT_ERROR);
+                return;
+            }
+            notifying = true;
+            callback.onNotificationsEnabled(this, STATUS_SUCCESS);
+        });
+    }
+
+    @Override
+    public boolean write(byte[] payload, boolean withoutResponse) {
+        if (payload.length > sim.config.attMtu - 3) return false;
+        final byte[] data = payload.clone();
+        return request(sim.latency(sim.config.linkLatencyMs), () -> {
+            if (!connected) {
+                callback.onWriteComplete(this, STATUS_GATT_ERROR);
+                return;
+            }
+            if (sim.lost()) {
+                callback.onWriteComplete(this, withoutResponse ? STATUS_SUCCESS : STATUS_GATT_ERROR);
+                return;
+            }
+            device.strip.receive(data);
+            callback.onWriteComplete(this, STATUS_SUCCESS);
+        });
+    }
+
+    @Override
+    public boolean readRssi() {
+        return request(sim.latency(sim.config.linkLatencyMs), () ->
+                callback.onRssiRead(this, device.rssi,
+                        connected ? STATUS_SUCCESS : STATUS_GATT_ERROR));
+    }
+
+    @Override
+    public boolean supportsWriteWithoutResponse() {
+        return true;   // FFE1: READ | WRITE_NO_RESPONSE | WRITE | NOTIFY
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        sim.clock.schedule(0, () -> {
+            connected = false;
+            detach();
+        });
+    }
+
+    // ───── 기기 → 앱 알림 ─────
+
+    void notifyFromDevice(byte[] data) {
+        for (int off = 0; off < data.length; off += HM10_NOTIFY_SIZE) {
+            byte[] chunk = Arrays.copyOfRange(data, off,
+                    Math.min(data.length, off + HM10_NOTIFY_SIZE));
+            if (!notifying || sim.lost()) continue;
+
+            long now = sim.clock.nowMs();
+            long at = Math.max(now + sim.latency(sim.config.linkLatencyMs), lastNotifyAt);
+            lastNotifyAt = at;
+            sim.clock.schedule(at - now, () -> {
+                if (!closed && connected) callback.onReceived(this, chunk);
+            });
+        }
+    }
+}
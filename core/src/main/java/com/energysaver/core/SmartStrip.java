@@ -0,0 +1,61 @@
+package com.energysaver.core;
+
+public class SmartStrip {
+
+    private String name;
+
+    private String macAddress;
+
+    private boolean isOn;
+
+    // 연결 상태 (저장하지 않음, 서비스의 ConnectionStateModel 에서 받는다)
+    private ConnectionState connectionState = ConnectionState.INITIAL;
+
+    // getStatusText() 캐시. 목록을 그릴 때마다 만들지 않도록 상태가 바뀔 때만 비운다.
+    private String statusText;
+
+    public SmartStrip(String name, String macAddress, boolean isOn) {
+        this.name = name;
+        this.macAddress = macAddress;
+        this.isOn = isOn;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {   // 이름 변경용
+        this.name = name;
+    }
+
+    public String getMacAddress() {
+        return macAddress;
+    }
+
+    public boolean isOn() {
+        return isOn;
+    }
+
+    public void setOn(boolean on) {
+        if (isOn != on) statusText = null;
+        isOn = on;
+    }
+
+    public ConnectionState getConnectionState() {
+        return connectionState;
+    }
+
+    public void setConnectionState(ConnectionState state) {
+        if (!connectionState.samePhase(state)) statusText = null;
+        connectionState = state;
+    }
+
+    public String getStatusText() {
+        if (statusText == null) {
+            statusText = "MAC: " + macAddress + " · 상태: " + (isOn ? "ON" : "OFF")
+                    + " · " + connectionState.getLabel();
+        }
+        return statusText;
+    }
+
+}
@@ -0,0 +1,225 @@
+package com.energysaver.core;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+// 등록된 멀티탭 목록. 서비스가 소유하고 화면은 LocalBinder 로 받아서 같이 쓴다.
+// MAC 은 정규화해서 long 키로 찾고(O(1)), 목록 순서는 등록 순서 그대로 유지한다.
+// 키마다 목록 위치도 들고 있어서 토글/연결 상태 알림도 O(1). 위치는 추가/삭제 때만 고친다.
+// 바뀐 멀티탭만 StripStore 에 저장한다. 메인 스레드에서만 사용.
+// 멀티탭별 전원 예약도 여기서 들고 같이 저장한다. 멀티탭을 지우면 그 예약도 지워진다.
+public class StripRegistry {
+
+    public interface Listener {
+        void onStripInserted(int position);
+
+        void onStripChanged(int position);
+
+        void onStripRemoved(int position);
+    }
+
+    // 멀티탭과 목록에서의 위치
+    private static final class Entry {
+        final SmartStrip strip;
+        int position;
+
+        Entry(SmartStrip strip, int position) {
+            this.strip = strip;
+            this.position = position;
+        }
+    }
+
+    private final ArrayList<SmartStrip> strips = new ArrayList<>();
+    private final List<SmartStrip> readOnly = Collections.unmodifiableList(strips);
+    private final LongHashMap<Entry> byMac = new LongHashMap<>();
+    private final ArrayList<Listener> listeners = new ArrayList<>();
+    // 예약 id → 예약 (등록 순서)
+    private final LinkedHashMap<Long, PowerSchedule> schedules = new LinkedHashMap<>();
+    private long nextScheduleId = 1;
+
+    @Nullable
+    private final StripStore store;
+
+    public StripRegistry(@Nullable StripStore store) {
+        this.store = store;
+    }
+
+    public void addListener(Listener l) {
+        if (!listeners.contains(l)) listeners.add(l);
+    }
+
+    public void removeListener(Listener l) {
+        listeners.remove(l);
+    }
+
+    // 저장소에서 읽은 목록으로 채운다 (저장하지 않음).
+    public void load(List<SmartStrip> loaded) {
+        load(loaded, Collections.emptyList());
+    }
+
+    // 등록되지 않은 멀티탭의 예약은 버린다
+    public void load(List<SmartStrip> loaded, List<PowerSchedule> loadedSchedules) {
+        strips.clear();
+        byMac.clear();
+        schedules.clear();
+        nextScheduleId = 1;
+        for (SmartStrip s : loaded) {
+            SmartStrip n = normalized(s);
+            if (n == null || byMac.containsKey(MacUtils.toLong(n.getMacAddress()))) continue;
+            byMac.put(MacUtils.toLong(n.getMacAddress()), new Entry(n, strips.size()));
+            strips.add(n);
+        }
+        for (PowerSchedule p : loadedSchedules) {
+            SmartStrip s = get(p.getMacAddress());
+            if (s == null || p.getId() <= 0) continue;
+            schedules.put(p.getId(), p.withId(p.getId(), s.getMacAddress()));
+            nextScheduleId = Math.max(nextScheduleId, p.getId() + 1);
+        }
+    }
+
+    // 화면에 그대로 넘겨도 되는 읽기 전용 목록 (순서 고정)
+    public List<SmartStrip> getStrips() {
+        return readOnly;
+    }
+
+    public int size() {
+        return strips.size();
+    }
+
+    @Nullable
+    public SmartStrip get(String mac) {
+        return get(MacUtils.toLong(mac));
+    }
+
+    @Nullable
+    public SmartStrip get(long mac) {
+        Entry e = byMac.get(mac);
+        return e != null ? e.strip : null;
+    }
+
+    // 목록에서의 위치, 없으면 -1
+    public int indexOf(String mac) {
+        Entry e = byMac.get(MacUtils.toLong(mac));
+        return e != null ? e.position : -1;
+    }
+
+    public boolean contains(String mac) {
+        return byMac.containsKey(MacUtils.toLong(mac));
+    }
+
+    // 이미 있거나 MAC 형식이 틀리면 false
+    public boolean add(SmartStrip strip) {
+        SmartStrip n = normalized(strip);
+        if (n == null) return false;
+        long key = MacUtils.toLong(n.getMacAddress());
+        if (byMac.containsKey(key)) return false;
+
+        byMac.put(key, new Entry(n, strips.size()));
+        strips.add(n);
+        if (store != null) store.put(n);
+        for (Listener l : listeners) l.onStripInserted(strips.size() - 1);
+        return true;
+    }
+
+    public boolean setOn(String mac, boolean on) {
+        Entry e = byMac.get(MacUtils.toLong(mac));
+        if (e == null) return false;
+        if (e.strip.isOn() == on) return true;
+        e.strip.setOn(on);
+        changed(e);
+        return true;
+    }
+
+    // 연결 상태는 저장하지 않는다. 화면에 보이는 부분(단계)이 바뀔 때만 알린다.
+    public boolean setConnectionState(String mac, ConnectionState state) {
+        Entry e = byMac.get(MacUtils.toLong(mac));
+        if (e == null) return false;
+        boolean visible = !e.strip.getConnectionState().samePhase(state);
+        e.strip.setConnectionState(state);
+        if (visible) {
+            for (Listener l : listeners) l.onStripChanged(e.position);
+        }
+        return true;
+    }
+
+    public boolean rename(String mac, String name) {
+        Entry e = byMac.get(MacUtils.toLong(mac));
+        if (e == null) return false;
+        e.strip.setName(name);
+        changed(e);
+        return true;
+    }
+
+    @Nullable
+    public SmartStrip remove(String mac) {
+        Entry e = byMac.remove(MacUtils.toLong(mac));
+        if (e == null) return null;
+        SmartStrip s = e.strip;
+        int pos = e.position;
+        strips.remove(pos);
+        // 뒤에 있던 멀티탭만 한 칸씩 당긴다
+        for (int i = pos; i < strips.size(); i++) {
+            byMac.get(MacUtils.toLong(strips.get(i).getMacAddress())).position = i;
+        }
+        if (store != null) store.remove(s.getMacAddress());
+        for (PowerSchedule p : getSchedules(s.getMacAddress())) {
+            removeSchedule(p.getId());
+        }
+        for (Listener l : listeners) l.onStripRemoved(pos);
+        return s;
+    }
+
+    // ───── 전원 예약 ─────
+
+    // id 를 붙여 저장한 예약을 돌려준다. 등록되지 않은 멀티탭이면 null
+    @Nullable
+    public PowerSchedule addSchedule(PowerSchedule schedule) {
+        SmartStrip s = get(schedule.getMacAddress());
+        if (s == null) return null;
+        PowerSchedule stored = schedule.withId(nextScheduleId++, s.getMacAddress());
+        schedules.put(stored.getId(), stored);
+        if (store != null) store.putSchedule(stored);
+        return stored;
+    }
+
+    @Nullable
+    public PowerSchedule removeSchedule(long id) {
+        PowerSchedule p = schedules.remove(id);
+        if (p != null && store != null) store.removeSchedule(id);
+        return p;
+    }
+
+    @Nullable
+    public PowerSchedule getSchedule(long id) {
+        return schedules.get(id);
+    }
+
+    public List<PowerSchedule> getSchedules() {
+        return new ArrayList<>(schedules.values());
+    }
+
+    public List<PowerSchedule> getSchedules(String mac) {
+        long key = MacUtils.toLong(mac);
+        List<PowerSchedule> out = new ArrayList<>();
+        for (PowerSchedule p : schedules.values()) {
+            if (MacUtils.toLong(p.getMacAddress()) == key) out.add(p);
+        }
+        return out;
+    }
+
+    private void changed(Entry e) {
+        if (store != null) store.put(e.strip);
+        for (Listener l : listeners) l.onStripChanged(e.position);
+    }
+
+    @Nullable
+    private static SmartStrip normalized(SmartStrip s) {
+        String mac = MacUtils.normalize(s.getMacAddress());
+        if (mac == null) return null;
+        return mac.equals(s.getMacAddress()) ? s : new SmartStrip(s.getName(), mac, s.isOn());
+    }
+}
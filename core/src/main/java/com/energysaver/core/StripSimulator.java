@@ -0,0 +1,187 @@
+package com.energysaver.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 메모리 안의 멀티탭 여러 대. BleTransport.Factory 라서 서비스나 부하 테스트에 그대로 꽂는다.
+// 기기마다 SimulatedStrip(펌웨어) + HM-10 모듈이 있고, 연결은 SimulatedTransport 가 흉내 낸다.
+// 지연, 패킷 손실, 연결 실패, 갑작스러운 끊김은 Config 로 정한다.
+//
+// connect 는 아무 스레드에서나 불러도 되고, 나머지 일은 모두 SimClock 에서 돈다.
+public final class StripSimulator implements BleTransport.Factory {
+
+    // setRssi 전 기본 신호 세기 (같은 방 정도)
+    public static final int DEFAULT_RSSI = -60;
+
+    public static final class Config {
+        long connectLatencyMs = 400;        // connectGatt → 연결됨
+        long discoveryLatencyMs = 300;      // discoverServices → 완료
+        long linkLatencyMs = 30;            // GATT 요청/알림 한 번 (연결 간격 포함)
+        long jitterMs = 20;                 // 위 지연마다 0..jitter 를 더한다
+        double lossRate = 0;                // 쓰기/알림이 사라질 확률
+        double connectFailureRate = 0;      // 연결 시도가 133 으로 실패할 확률
+        long meanTimeBetweenDropsMs = 0;    // 연결 유지 평균 시간 (0 = 끊기지 않음)
+        long connectTimeoutMs = 30000;      // 광고가 안 보일 때 133 까지 걸리는 시간
+        long supervisionTimeoutMs = 2000;   // 링크가 끊기고 앱이 알게 되기까지
+        int attMtu = 23;                    // HM-10 은 MTU 교환을 지원하지 않는다
+        long failSafeTimeoutMs = SimulatedStrip.FAILSAFE_TIMEOUT_MS;
+        long servoPressMs = SimulatedStrip.SERVO_PRESS_MS;
+        int commandQueueSize = SimulatedStrip.COMMAND_QUEUE_SIZE;
+
+        public Config connectLatency(long ms) {
+            connectLatencyMs = ms;
+            return this;
+        }
+
+        public Config discoveryLatency(long ms) {
+            discoveryLatencyMs = ms;
+            return this;
+        }
+
+        public Config linkLatency(long ms, long jitter) {
+            linkLatencyMs = ms;
+            jitterMs = jitter;
+            return this;
+        }
+
+        public Config lossRate(double rate) {
+            lossRate = rate;
+            return this;
+        }
+
+        public Config connectFailureRate(double rate) {
+            connectFailureRate = rate;
+            return this;
+        }
+
+        public Config meanTimeBetweenDrops(long ms) {
+            meanTimeBetweenDropsMs = ms;
+            return this;
+        }
+
+        public Config connectTimeout(long ms) {
+            connectTimeoutMs = ms;
+            return this;
+        }
+
+        public Config supervisionTimeout(long ms) {
+            supervisionTimeoutMs = ms;
+            return this;
+        }
+
+        public Config attMtu(int mtu) {
+            attMtu = mtu;
+            return this;
+        }
+
+        public Config firmware(long failSafeTimeoutMs, long servoPressMs) {
+            this.failSafeTimeoutMs = failSafeTimeoutMs;
+            this.servoPressMs = servoPressMs;
+            return this;
+        }
+
+        // SimulatedStrip.LEGACY_BLOCKING 이면 서보 동안 멈추는 예전 펌웨어
+        public Config commandQueue(int size) {
+            this.commandQueueSize = size;
+            return this;
+        }
+    }
+
+    // 기기 하나: 펌웨어 + HM-10. HM-10 은 연결이 하나 있으면 광고하지 않는다.
+    static final class Device {
+        final SimulatedStrip strip;
+        volatile boolean inRange = true;
+        volatile int rssi = DEFAULT_RSSI;
+        SimulatedTransport attached;
+
+        Device(SimulatedStrip strip) {
+            this.strip = strip;
+            strip.setOutput(data -> {
+                SimulatedTransport t = attached;
+                if (t != null) t.notifyFromDevice(data);
+            });
+        }
+    }
+
+    final SimClock clock;
+    final Config config;
+    final Random random;
+    private final Map<String, Device> devices = new ConcurrentHashMap<>();
+
+    public StripSimulator(SimClock clock, Config config, long seed) {
+        this.clock = clock;
+        this.config = config;
+        this.random = new Random(seed);
+    }
+
+    public SimulatedStrip addStrip(String mac) {
+        String key = MacUtils.normalize(mac);
+        if (key == null) throw new IllegalArgumentException("invalid mac: " + mac);
+        SimulatedStrip strip = new SimulatedStrip(key, clock,
+                config.failSafeTimeoutMs, config.servoPressMs, config.commandQueueSize);
+        devices.put(key, new Device(strip));
+        return strip;
+    }
+
+    public SimulatedStrip getStrip(String mac) {
+        Device d = device(mac);
+        return d != null ? d.strip : null;
+    }
+
+    public List<SimulatedStrip> getStrips() {
+        List<SimulatedStrip> out = new ArrayList<>(devices.size());
+        for (Device d : devices.values()) out.add(d.strip);
+        return out;
+    }
+
+    // 범위 밖으로 나가면 연결 중이던 링크는 감시 타임아웃 뒤에 끊기고, 새 연결은 되지 않는다
+    public void setRssi(String mac, int dbm) {
+        Device d = device(mac);
+        if (d != null) d.rssi = dbm;
+    }
+
+    public void setInRange(String mac, boolean inRange) {
+        Device d = device(mac);
+        if (d == null) return;
+        d.inRange = inRange;
+        if (!inRange) {
+            clock.schedule(0, () -> {
+                SimulatedTransport t = d.attached;
+                if (t != null) t.dropLink(BleTransport.STATUS_CONNECTION_TIMEOUT);
+            });
+        }
+    }
+
+    @Override
+    public BleTransport connect(String mac, BleTransport.Callback callback) {
+        String key = MacUtils.normalize(mac);
+        if (key == null) return null;
+        SimulatedTransport t = new SimulatedTransport(this, devices.get(key), callback);
+        t.start();
+        return t;
+    }
+
+    private Device device(String mac) {
+        String key = MacUtils.normalize(mac);
+        return key != null ? devices.get(key) : null;
+    }
+
+    // ───── SimulatedTransport 가 쓰는 것 (SimClock 스레드) ─────
+
+    long latency(long base) {
+        return base + (config.jitterMs > 0 ? random.nextInt((int) config.jitterMs + 1) : 0);
+    }
+
+    boolean lost() {
+        return config.lossRate > 0 && random.nextDouble() < config.lossRate;
+    }
+
+    // 다음 갑작스러운 끊김까지 (지수분포). 끊기지 않으면 -1
+    long nextDropDelay() {
+        if (config.meanTimeBetweenDropsMs <= 0) return -1;
+        return (long) (-config.meanTimeBetweenDropsMs * Math.log(1 - random.nextDouble()));
+    }
+}
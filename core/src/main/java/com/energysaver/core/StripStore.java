@@ -0,0 +1,400 @@
+package com.energysaver.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// 멀티탭 목록 저장소. 멀티탭 하나가 파일의 슬롯 하나를 차지해서
+// 토글/이름 변경은 그 슬롯만 다시 쓴다. 전원 예약(PowerSchedule)도 하나에 한 슬롯씩 같은 파일에 둔다.
+//
+// 슬롯 (SLOT_SIZE = 256) = 사본 A(128) + 사본 B(128). 쓸 때는 세대가 낮은 쪽을 덮어쓰고,
+// 읽을 때는 CRC 가 맞는 사본 중 세대가 높은 쪽을 쓴다. 쓰다가 죽어도 다른 사본은 남는다.
+// 세대는 commit 할 때 (디스크에 남은 마지막 세대 + 1) 로 붙인다. 그래서 commit 사이에 여러 번
+// 바뀌어도 항상 디스크의 최신 사본이 없는 쪽에 쓴다.
+//
+// 사본 (little endian)
+//  [0]  int   generation (0 = 빈 칸)
+//  [4]  byte  flags (bit0 = 사용 중, bit1 = ON)
+//  [5]  byte  이름 길이 (UTF-8 바이트)
+//  [6]  short 예약
+//  [8]  long  mac (MacUtils.toLong)
+//  [16] long  order (목록 순서)
+//  [24] name  (최대 MAX_NAME_BYTES)
+//  [124] int  CRC32 ([0..124))
+//
+// 예약 사본은 flags 에 bit2 (예약), bit3 (매일) 이 서고, order 자리에 예약 id,
+// [24] long 에 시각 (ONCE: epoch ms, DAILY: 분) 을 둔다. 이름은 없다.
+//
+// put/remove 는 메모리에만 반영하고, 쓰기는 전용 스레드에서 모아서 한 번에 한다 (group commit).
+public class StripStore implements Closeable {
+
+    public static final int SLOT_SIZE = 256;
+    private static final int COPY_SIZE = SLOT_SIZE / 2;
+    public static final int MAX_NAME_BYTES = 100;
+    private static final int NAME_OFFSET = 24;
+    private static final int CRC_OFFSET = COPY_SIZE - 4;
+
+    private static final int FLAG_LIVE = 1;
+    private static final int FLAG_ON = 2;
+    private static final int FLAG_SCHEDULE = 4;
+    private static final int FLAG_DAILY = 8;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final ExecutorService writer;
+
+    // 여기부터는 호출 스레드(메인)에서만
+    private final Map<Long, Integer> slotByMac = new HashMap<>();
+    private final Map<Long, Integer> slotBySchedule = new HashMap<>();
+    private final ArrayList<PowerSchedule> loadedSchedules = new ArrayList<>();
+    private final ArrayList<Integer> freeSlots = new ArrayList<>();
+    // 슬롯별 디스크에 남은(force 까지 끝난) 마지막 세대. writer 와 공유 (this 로 잠금)
+    private int[] generations = new int[0];
+    private final Map<Integer, Long> orderBySlot = new HashMap<>();
+    private int slotCount = 0;
+    private long nextOrder = 0;
+    // load() 가 끝까지 성공했는지. 아니면 슬롯 배치를 모르므로 쓰지 않는다 (읽기 전용).
+    private boolean loaded = false;
+
+    // 아직 디스크에 안 쓴 슬롯 → 쓸 바이트. writer 와 공유
+    private final LinkedHashMap<Integer, byte[]> dirty = new LinkedHashMap<>();
+    private boolean flushScheduled = false;
+
+    private int commits = 0;   // 실제 write+force 횟수
+
+    public StripStore(File file) throws IOException {
+        this(file, Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "strip-store");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    // writer 는 단일 스레드여야 한다 (테스트에서 쓰기 시점을 조절할 때 사용)
+    StripStore(File file, ExecutorService writer) throws IOException {
+        this.file = file;
+        this.writer = writer;
+        this.raf = new RandomAccessFile(file, "rw");
+        this.channel = raf.getChannel();
+    }
+
+    public boolean isEmpty() {
+        return slotByMac.isEmpty();
+    }
+
+    // false 면 put/remove 는 무시된다
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // 파일 전체를 읽어 목록을 만든다. 앱 시작 시 한 번.
+    public List<SmartStrip> load() throws IOException {
+        loaded = false;
+        slotByMac.clear();
+        slotBySchedule.clear();
+        loadedSchedules.clear();
+        freeSlots.clear();
+        orderBySlot.clear();
+        // 마지막 슬롯은 사본 A 만 쓰여 있을 수 있다
+        slotCount = (int) ((channel.size() + SLOT_SIZE - 1) / SLOT_SIZE);
+        int[] gens = new int[Math.max(16, slotCount)];
+        nextOrder = 0;
+
+        ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ArrayList<long[]> orderAndSlot = new ArrayList<>();
+        ArrayList<SmartStrip> bySlot = new ArrayList<>();
+        for (int i = 0; i < slotCount; i++) {
+            slot.clear();
+            Arrays.fill(slot.array(), (byte) 0);
+            channel.read(slot, (long) i * SLOT_SIZE);
+            int best = newerValidCopy(slot);
+            bySlot.add(null);
+            if (best < 0) {
+                freeSlots.add(i);
+                continue;
+            }
+            int base = best * COPY_SIZE;
+            gens[i] = slot.getInt(base);
+            int flags = slot.get(base + 4);
+            if ((flags & FLAG_LIVE) == 0) {
+                freeSlots.add(i);
+                continue;
+            }
+            long mac = slot.getLong(base + 8);
+            long order = slot.getLong(base + 16);
+            if ((flags & FLAG_SCHEDULE) != 0) {
+                PowerSchedule.Repeat repeat = (flags & FLAG_DAILY) != 0
+                        ? PowerSchedule.Repeat.DAILY : PowerSchedule.Repeat.ONCE;
+                loadedSchedules.add(PowerSchedule.restore(order, MacUtils.toString(mac),
+                        (flags & FLAG_ON) != 0, repeat, slot.getLong(base + NAME_OFFSET)));
+                slotBySchedule.put(order, i);
+                orderBySlot.put(i, order);
+                continue;
+            }
+            int nameLen = Math.min(slot.get(base + 5) & 0xFF, MAX_NAME_BYTES);
+            String name = new String(slot.array(), base + NAME_OFFSET, nameLen,
+                    StandardCharsets.UTF_8);
+
+            bySlot.set(i, new SmartStrip(name, MacUtils.toString(mac), (flags & FLAG_ON) != 0));
+            slotByMac.put(mac, i);
+            orderBySlot.put(i, order);
+            orderAndSlot.add(new long[]{order, i});
+            nextOrder = Math.max(nextOrder, order + 1);
+        }
+
+        Collections.sort(orderAndSlot, (a, b) -> Long.compare(a[0], b[0]));
+        Collections.sort(loadedSchedules, (a, b) -> Long.compare(a.getId(), b.getId()));
+        ArrayList<SmartStrip> result = new ArrayList<>(orderAndSlot.size());
+        for (long[] e : orderAndSlot) {
+            result.add(bySlot.get((int) e[1]));
+        }
+        synchronized (this) {
+            generations = gens;
+        }
+        loaded = true;
+        return result;
+    }
+
+    // 새 멀티탭이면 빈 슬롯을, 있던 멀티탭이면 그 슬롯만 다시 쓴다.
+    public void put(SmartStrip strip) {
+        if (!loaded) return;
+        long mac = MacUtils.toLong(strip.getMacAddress());
+        if (mac == MacUtils.INVALID) return;
+
+        Integer slot = slotByMac.get(mac);
+        long order;
+        if (slot == null) {
+            slot = allocateSlot();
+            slotByMac.put(mac, slot);
+            order = nextOrder++;
+        } else {
+            order = -1;   // 기존 순서 유지
+        }
+        write(slot, encode(slot, mac, order, strip));
+    }
+
+    public void remove(String macAddress) {
+        if (!loaded) return;
+        Integer slot = slotByMac.remove(MacUtils.toLong(macAddress));
+        if (slot == null) return;
+        write(slot, encodeFree(slot));
+        freeSlots.add(slot);
+    }
+
+    // load() 가 읽은 예약 (id 순)
+    public List<PowerSchedule> getLoadedSchedules() {
+        return Collections.unmodifiableList(loadedSchedules);
+    }
+
+    // 같은 id 면 그 슬롯만 다시 쓴다
+    public void putSchedule(PowerSchedule schedule) {
+        if (!loaded) return;
+        long mac = MacUtils.toLong(schedule.getMacAddress());
+        if (mac == MacUtils.INVALID || schedule.getId() <= 0) return;
+
+        Integer slot = slotBySchedule.get(schedule.getId());
+        if (slot == null) {
+            slot = allocateSlot();
+            slotBySchedule.put(schedule.getId(), slot);
+        }
+        int flags = FLAG_LIVE | FLAG_SCHEDULE
+                | (schedule.isOn() ? FLAG_ON : 0)
+                | (schedule.getRepeat() == PowerSchedule.Repeat.DAILY ? FLAG_DAILY : 0);
+        byte[] value = new byte[8];
+        ByteBuffer.wrap(value).order(ByteOrder.LITTLE_ENDIAN).putLong(0, schedule.getValue());
+        write(slot, encodeCopy(slot, flags, mac, schedule.getId(), value, value.length, 0));
+    }
+
+    public void removeSchedule(long id) {
+        if (!loaded) return;
+        Integer slot = slotBySchedule.remove(id);
+        if (slot == null) return;
+        write(slot, encodeFree(slot));
+        freeSlots.add(slot);
+    }
+
+    // 대기 중인 쓰기가 끝날 때까지 기다린다 (마이그레이션 등).
+    public void sync() throws IOException {
+        Future<?> f = writer.submit(this::commit);
+        try {
+            f.get();
+        } catch (Exception e) {
+            throw new IOException("strip store sync failed", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.submit(this::commit);
+        writer.shutdown();
+        try {
+            writer.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        raf.close();
+    }
+
+    public synchronized int getCommitCount() {
+        return commits;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // ───────────────────── 내부 ─────────────────────
+
+    private int allocateSlot() {
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.remove(freeSlots.size() - 1);
+        }
+        int slot = slotCount++;
+        synchronized (this) {
+            if (slot >= generations.length) {
+                int[] grown = new int[Math.max(16, generations.length * 2)];
+                System.arraycopy(generations, 0, grown, 0, generations.length);
+                generations = grown;
+            }
+        }
+        return slot;
+    }
+
+    // 이 슬롯에 쓸 사본을 만든다. 세대와 쓸 쪽(A/B)은 commit() 에서 정한다.
+    private byte[] encode(int slot, long mac, long order, SmartStrip strip) {
+        if (order < 0) {
+            Long current = orderBySlot.get(slot);
+            order = current != null ? current : 0;
+        }
+        byte[] name = strip.getName().getBytes(StandardCharsets.UTF_8);
+        int nameLen = Math.min(name.length, MAX_NAME_BYTES);
+        // UTF-8 문자 중간에서 자르지 않는다
+        while (nameLen > 0 && nameLen < name.length && (name[nameLen] & 0xC0) == 0x80) {
+            nameLen--;
+        }
+        int flags = FLAG_LIVE | (strip.isOn() ? FLAG_ON : 0);
+        return encodeCopy(slot, flags, mac, order, name, nameLen, nameLen);
+    }
+
+    private byte[] encodeFree(int slot) {
+        return encodeCopy(slot, 0, 0, 0, new byte[0], 0, 0);
+    }
+
+    // body 는 [24] 부터 들어간다. 이름이 아닌 값(예약)은 lengthField 를 0 으로
+    // 세대와 CRC 는 commit() 에서 채운다
+    private byte[] encodeCopy(int slot, int flags, long mac, long order,
+                              byte[] body, int bodyLen, int lengthField) {
+        orderBySlot.put(slot, order);
+
+        ByteBuffer b = ByteBuffer.allocate(COPY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        b.put(4, (byte) flags);
+        b.put(5, (byte) lengthField);
+        b.putLong(8, mac);
+        b.putLong(16, order);
+        System.arraycopy(body, 0, b.array(), NAME_OFFSET, bodyLen);
+        return b.array();
+    }
+
+    private void write(int slot, byte[] copy) {
+        synchronized (this) {
+            dirty.put(slot, copy);
+            if (flushScheduled) return;
+            flushScheduled = true;
+        }
+        writer.execute(this::commit);
+    }
+
+    // writer 스레드: 모인 슬롯을 모두 쓰고 force 한 번
+    private void commit() {
+        Map<Integer, byte[]> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            if (dirty.isEmpty()) return;
+            batch = new LinkedHashMap<>(dirty);
+            dirty.clear();
+        }
+        int[] gens = new int[batch.size()];
+        try {
+            int n = 0;
+            for (Map.Entry<Integer, byte[]> e : batch.entrySet()) {
+                int slot = e.getKey();
+                int gen;
+                synchronized (this) {
+                    gen = generations[slot] + 1;
+                }
+                if (gen == 0) gen = 1;   // 0 은 빈 칸 표시
+                gens[n++] = gen;
+                byte[] copy = stamp(e.getValue(), gen);
+                // 디스크의 최신 사본(gen - 1)이 없는 쪽: 홀수는 A, 짝수는 B
+                long pos = (long) slot * SLOT_SIZE + ((gen & 1) == 1 ? 0 : COPY_SIZE);
+                ByteBuffer src = ByteBuffer.wrap(copy);
+                while (src.hasRemaining()) {
+                    channel.write(src, pos + src.position());
+                }
+            }
+            channel.force(false);
+            synchronized (this) {
+                n = 0;
+                for (int slot : batch.keySet()) {
+                    generations[slot] = gens[n++];
+                }
+                commits++;
+            }
+        } catch (IOException e) {
+            // 다음 commit 때 다시 시도
+            synchronized (this) {
+                for (Map.Entry<Integer, byte[]> en : batch.entrySet()) {
+                    if (!dirty.containsKey(en.getKey())) dirty.put(en.getKey(), en.getValue());
+                }
+            }
+        }
+    }
+
+    // 세대를 붙이고 CRC 를 다시 계산한다 (writer 스레드, batch 의 배열이라 그대로 고쳐도 된다)
+    private static byte[] stamp(byte[] copy, int gen) {
+        ByteBuffer b = ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(0, gen);
+        CRC32 crc = new CRC32();
+        crc.update(copy, 0, CRC_OFFSET);
+        b.putInt(CRC_OFFSET, (int) crc.getValue());
+        return copy;
+    }
+
+    // 두 사본 중 CRC 가 맞고 세대가 높은 쪽 (0 = A, 1 = B). 둘 다 없으면 -1
+    private static int newerValidCopy(ByteBuffer slot) {
+        int best = -1;
+        int bestGen = 0;
+        for (int c = 0; c < 2; c++) {
+            int base = c * COPY_SIZE;
+            int gen = slot.getInt(base);
+            if (gen == 0) continue;
+            CRC32 crc = new CRC32();
+            crc.update(slot.array(), base, CRC_OFFSET);
+            if ((int) crc.getValue() != slot.getInt(base + CRC_OFFSET)) continue;
+            if (best < 0 || gen - bestGen > 0) {
+                best = c;
+                bestGen = gen;
+            }
+        }
+        return best;
+    }
+}
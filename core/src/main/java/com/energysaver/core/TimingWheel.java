@@ -0,0 +1,253 @@
+package com.energysaver.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+// 해시 타이밍 휠. 서비스의 짧은 타이머(하트비트, 재연결, GATT 타임아웃, 전원 명령 병합)를 한곳에서 돈다.
+//
+// 시간을 tickMs 단위 칸으로 나누고, 만료 틱 % wheelSize 번째 칸의 이중 연결 리스트에 넣는다.
+// 추가/취소는 O(1). 칸마다 가장 이른 만료 틱을 들고 있어서, 깨어날 시각은 만료할 타이머가 있는
+// 다음 틱 하나뿐이다 (타이머가 몇 개든, 몇 시간 뒤든 빈 틱에는 깨지 않는다).
+// 깨울 시각이 앞당겨지면 Waker 로 알려준다. 호출하는 쪽은 그 시각에 advance() 만 부르면 된다.
+//
+// 타이머는 만료 시각보다 일찍 실행되지 않는다 (틱 단위로 올림). 같은 틱 안에서는 넣은 순서대로.
+// 한 바퀴 이상 잠들었다 깨면 지난 타이머를 칸 순서로 한꺼번에 실행한다.
+// 안드로이드 의존성 없음, 한 스레드에서만 사용 (서비스에서는 BLE 작업 스레드).
+public final class TimingWheel {
+
+    public interface Waker {
+        // atMs (clock 기준) 에 advance() 를 불러 달라. 이전 요청은 대체된다.
+        void wakeAt(long atMs);
+    }
+
+    public interface Timeout {
+        // 아직 실행 전이었으면 취소하고 true
+        boolean cancel();
+
+        boolean isPending();
+    }
+
+    private static final long NONE = Long.MAX_VALUE;
+
+    private static final class Node implements Timeout {
+        final TimingWheel wheel;
+        final Runnable task;
+        long deadlineTick;
+        int bucket = -1;     // -1 = 휠에 없음
+        Node prev;
+        Node next;
+
+        Node(TimingWheel wheel, Runnable task) {
+            this.wheel = wheel;
+            this.task = task;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (bucket < 0) return false;
+            wheel.unlink(this);
+            return true;
+        }
+
+        @Override
+        public boolean isPending() {
+            return bucket >= 0;
+        }
+    }
+
+    // 같은 작업을 다시 예약하는 타이머 (handler.removeCallbacks + postDelayed 대신)
+    public final class Timer {
+        private final Runnable task;
+        private Timeout node;
+
+        private Timer(Runnable task) {
+            this.task = task;
+        }
+
+        // 예약되어 있던 것은 취소하고 delayMs 뒤로
+        public void schedule(long delayMs) {
+            cancel();
+            node = TimingWheel.this.schedule(delayMs, task);
+        }
+
+        public void scheduleAt(long atMs) {
+            schedule(atMs - clock.getAsLong());
+        }
+
+        public boolean cancel() {
+            Timeout n = node;
+            node = null;
+            return n != null && n.cancel();
+        }
+
+        public boolean isPending() {
+            return node != null && node.isPending();
+        }
+    }
+
+    private final long tickMs;
+    private final int mask;
+    private final Node[] heads;
+    private final Node[] tails;
+    private final long[] bucketMin;      // 칸의 가장 이른 만료 틱 (취소 후에는 하한값일 수 있음)
+    private final LongSupplier clock;
+    private final Waker waker;
+    private final long origin;
+
+    private long processedTick = 0;      // 여기까지의 틱은 처리함
+    private long armedTick = NONE;       // Waker 에 마지막으로 요청한 틱
+    private boolean advancing = false;
+    private int size = 0;
+    private long wakeups = 0;
+
+    public TimingWheel(long tickMs, int wheelSize, LongSupplier clock, Waker waker) {
+        if (tickMs < 1) throw new IllegalArgumentException("tickMs < 1");
+        if (wheelSize < 1 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two");
+        }
+        this.tickMs = tickMs;
+        this.mask = wheelSize - 1;
+        this.heads = new Node[wheelSize];
+        this.tails = new Node[wheelSize];
+        this.bucketMin = new long[wheelSize];
+        Arrays.fill(bucketMin, NONE);
+        this.clock = clock;
+        this.waker = waker;
+        this.origin = clock.getAsLong();
+    }
+
+    public Timer newTimer(Runnable task) {
+        return new Timer(task);
+    }
+
+    public Timeout schedule(long delayMs, Runnable task) {
+        Node n = new Node(this, task);
+        long deadlineMs = clock.getAsLong() + Math.max(0, delayMs);
+        // 올림: 만료 시각보다 일찍 실행하지 않는다
+        long tick = (deadlineMs - origin + tickMs - 1) / tickMs;
+        n.deadlineTick = Math.max(tick, processedTick + 1);
+        link(n);
+
+        if (!advancing && n.deadlineTick < armedTick) {
+            arm(n.deadlineTick);
+        }
+        return n;
+    }
+
+    // 지금까지 만료된 타이머를 실행하고 다음 깨울 시각을 다시 잡는다. 실행한 개수를 돌려준다.
+    public int advance() {
+        long nowTick = (clock.getAsLong() - origin) / tickMs;
+        if (nowTick <= processedTick) {
+            if (armedTick <= processedTick) rearm();
+            return 0;
+        }
+        wakeups++;
+        advancing = true;
+        int fired = 0;
+        try {
+            if (nowTick - processedTick > mask) {
+                // 한 바퀴 넘게 밀림: 모든 칸을 한 번씩만 본다
+                processedTick = nowTick;
+                for (int b = 0; b <= mask; b++) {
+                    fired += expireBucket(b, nowTick);
+                }
+            } else {
+                while (processedTick < nowTick) {
+                    processedTick++;
+                    fired += expireBucket((int) (processedTick & mask), processedTick);
+                }
+            }
+        } finally {
+            advancing = false;
+        }
+        rearm();
+        return fired;
+    }
+
+    // 칸에서 limitTick 까지 만료된 것을 떼어 낸 뒤 실행한다 (실행 중에 새로 넣어도 안전)
+    private int expireBucket(int b, long limitTick) {
+        if (heads[b] == null || bucketMin[b] > limitTick) return 0;
+        List<Node> expired = null;
+        long min = NONE;
+        for (Node n = heads[b]; n != null; ) {
+            Node next = n.next;
+            if (n.deadlineTick <= limitTick) {
+                unlink(n);
+                if (expired == null) expired = new ArrayList<>();
+                expired.add(n);
+            } else if (n.deadlineTick < min) {
+                min = n.deadlineTick;
+            }
+            n = next;
+        }
+        bucketMin[b] = heads[b] == null ? NONE : min;
+        if (expired == null) return 0;
+        for (Node n : expired) {
+            n.task.run();
+        }
+        return expired.size();
+    }
+
+    private void rearm() {
+        long next = NONE;
+        for (int b = 0; b <= mask; b++) {
+            if (bucketMin[b] < next) next = bucketMin[b];
+        }
+        armedTick = NONE;
+        if (next != NONE) arm(next);
+    }
+
+    private void arm(long tick) {
+        armedTick = tick;
+        waker.wakeAt(origin + tick * tickMs);
+    }
+
+    private void link(Node n) {
+        int b = (int) (n.deadlineTick & mask);
+        n.bucket = b;
+        n.prev = tails[b];
+        n.next = null;
+        if (tails[b] != null) tails[b].next = n;
+        else heads[b] = n;
+        tails[b] = n;
+        if (n.deadlineTick < bucketMin[b]) bucketMin[b] = n.deadlineTick;
+        size++;
+    }
+
+    private void unlink(Node n) {
+        int b = n.bucket;
+        if (n.prev != null) n.prev.next = n.next;
+        else heads[b] = n.next;
+        if (n.next != null) n.next.prev = n.prev;
+        else tails[b] = n.prev;
+        n.prev = null;
+        n.next = null;
+        n.bucket = -1;
+        if (heads[b] == null) bucketMin[b] = NONE;
+        size--;
+    }
+
+    // 전부 취소 (서비스 종료)
+    public void clear() {
+        for (int b = 0; b <= mask; b++) {
+            while (heads[b] != null) unlink(heads[b]);
+        }
+        armedTick = NONE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // advance 가 실제로 틱을 처리한 횟수
+    public long getWakeups() {
+        return wakeups;
+    }
+
+    // 다음에 깨울 시각. 타이머가 없으면 -1
+    public long nextWakeupMs() {
+        return armedTick == NONE ? -1 : origin + armedTick * tickMs;
+    }
+}
@@ -0,0 +1,180 @@
+package com.energysaver.core;
+
+import java.nio.charset.StandardCharsets;
+
+// UART 링크용 바이너리 프레임 코덱 (안드로이드 의존성 없음).
+//
+//  [0] SOF 0xA5
+//  [1] version(상위 4비트) | flags(하위 4비트)
+//  [2] opcode
+//  [3] seq
+//  [4] payload 길이 (0..14)
+//  [5..] payload
+//  [끝] CRC8 (poly 0x07, [1] 부터 payload 끝까지)
+//
+// 프레임 하나가 항상 20바이트(기본 ATT MTU 23 - 3) 안에 들어간다.
+// 0xA5 는 ASCII 범위 밖이라 기존 텍스트 줄과 한 스트림에 섞여도 구분된다.
+public final class UartCodec {
+
+    public static final int SOF = 0xA5;
+    public static final int VERSION = 1;
+
+    public static final int HEADER_SIZE = 5;
+    public static final int MAX_FRAME_SIZE = 20;
+    public static final int MAX_PAYLOAD = MAX_FRAME_SIZE - HEADER_SIZE - 1;
+
+    // 앱 → 기기
+    public static final int OP_ON = 0x01;
+    public static final int OP_OFF = 0x02;
+    public static final int OP_PING = 0x03;
+    public static final int OP_STATUS = 0x04;
+    public static final int OP_HELLO = 0x10;
+
+    // 기기 → 앱
+    public static final int OP_ACK = 0x81;
+    public static final int OP_PONG = 0x83;
+    public static final int OP_STATE = 0x84;
+    public static final int OP_RECONNECTED = 0x85;
+    public static final int OP_DISCONNECTED = 0x86;
+    public static final int OP_BUSY = 0x87;       // 명령 큐가 꽉 참 (payload: [op, 큐 깊이])
+    public static final int OP_CAPS = 0x90;
+    public static final int OP_UNKNOWN = 0xEE;
+
+    // 텍스트 모드 핸드셰이크. 구형 펌웨어는 응답하지 않으므로 텍스트 모드로 남는다.
+    public static final String HELLO_TEXT = "HELLO BIN" + VERSION;
+    public static final String CAPS_TEXT = "CAPS BIN" + VERSION;
+
+    // 기기가 CAPS 응답에 자신의 fail-safe 타임아웃과 명령 큐 크기를 붙인다 ("CAPS BIN1 TO=10000 Q=4").
+    // HELLO 는 그대로 두어서 구형 펌웨어도 바이너리 모드로 협상된다.
+    private static final String TIMEOUT_FIELD = " TO=";
+    private static final String QUEUE_FIELD = " Q=";
+
+    public static boolean isCapsLine(String line) {
+        return line != null && line.toUpperCase().startsWith(CAPS_TEXT);
+    }
+
+    // CAPS 줄에서 기기가 확정한 타임아웃(ms). 구형 펌웨어처럼 값이 없으면 -1
+    public static long parseCapsTimeoutMs(String line) {
+        return parseCapsField(line, TIMEOUT_FIELD);
+    }
+
+    // 명령 큐가 있는 펌웨어는 서보가 움직이는 동안에도 명령을 받아 두고 바로 ACK 한다.
+    // 큐 크기, 구형 펌웨어(서보 동작이 끝난 뒤 ACK)는 -1
+    public static int parseCapsQueueSize(String line) {
+        long v = parseCapsField(line, QUEUE_FIELD);
+        return v > 0 && v <= 255 ? (int) v : -1;
+    }
+
+    // 필드 뒤의 숫자 (다음 공백까지). 없거나 숫자가 아니면 -1
+    private static long parseCapsField(String line, String field) {
+        if (!isCapsLine(line)) return -1;
+        String upper = line.toUpperCase();
+        int at = upper.indexOf(field, CAPS_TEXT.length());
+        if (at < 0) return -1;
+        int from = at + field.length();
+        int to = upper.indexOf(' ', from);
+        try {
+            long v = Long.parseLong(line.substring(from, to < 0 ? line.length() : to).trim());
+            return v > 0 ? v : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // ACK / STATE / BUSY 프레임에 실린 기기 명령 큐 깊이 (실행 중인 것 포함). 없으면 -1
+    public static int queueDepthOf(int opcode, byte[] payload, int payloadLen) {
+        if (opcode != OP_ACK && opcode != OP_STATE && opcode != OP_BUSY) return -1;
+        return payloadLen >= 2 ? payload[1] & 0xFF : -1;
+    }
+
+    private UartCodec() {
+    }
+
+    public static byte[] encode(int opcode, int seq, byte[] payload) {
+        int len = payload != null ? payload.length : 0;
+        if (len > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("payload too long: " + len);
+        }
+        byte[] out = new byte[HEADER_SIZE + len + 1];
+        out[0] = (byte) SOF;
+        out[1] = (byte) (VERSION << 4);
+        out[2] = (byte) opcode;
+        out[3] = (byte) seq;
+        out[4] = (byte) len;
+        if (len > 0) {
+            System.arraycopy(payload, 0, out, HEADER_SIZE, len);
+        }
+        out[HEADER_SIZE + len] = (byte) crc8(out, 1, HEADER_SIZE - 1 + len);
+        return out;
+    }
+
+    public static int crc8(byte[] data, int offset, int length) {
+        int crc = 0;
+        for (int i = offset; i < offset + length; i++) {
+            crc ^= data[i] & 0xFF;
+            for (int b = 0; b < 8; b++) {
+                crc = (crc & 0x80) != 0 ? ((crc << 1) ^ 0x07) & 0xFF : (crc << 1) & 0xFF;
+            }
+        }
+        return crc;
+    }
+
+    // "ON" / "OFF" / "PING" / "STATUS" → opcode. 모르는 명령이면 -1
+    public static int opcodeForCommand(String command) {
+        if (command == null) return -1;
+        String cmd = command.trim().toUpperCase();
+        switch (cmd) {
+            case "ON": return OP_ON;
+            case "OFF": return OP_OFF;
+            case "PING": return OP_PING;
+            case "STATUS": return OP_STATUS;
+            default: return -1;
+        }
+    }
+
+    // 바이너리 모드에서 보낼 바이트. 프레임으로 표현할 수 없는 명령은 텍스트 그대로.
+    public static byte[] encodeCommand(String command, int seq, boolean binary) {
+        int op = binary ? opcodeForCommand(command) : -1;
+        if (op < 0) {
+            String line = command.endsWith("\n") ? command : command + "\n";
+            return line.getBytes(StandardCharsets.US_ASCII);
+        }
+        return encode(op, seq, null);
+    }
+
+    // 앱의 나머지 부분은 기존 텍스트 응답("ACK ON", "RECONNECTED:OFF" 등)을 기준으로 동작하므로
+    // 수신한 프레임을 같은 문자열로 바꿔서 넘긴다.
+    public static String toText(int opcode, byte[] payload, int payloadLen) {
+        switch (opcode) {
+            case OP_ACK:
+                return "ACK " + (payloadLen > 0 ? commandName(payload[0] & 0xFF) : "?");
+            case OP_PONG:
+                return "PONG";
+            case OP_STATE:
+                return payloadLen > 0 && payload[0] != 0 ? "ON" : "OFF";
+            case OP_RECONNECTED:
+                return "RECONNECTED:" + (payloadLen > 0 && payload[0] != 0 ? "ON" : "OFF");
+            case OP_DISCONNECTED:
+                return "DISCONNECTED";
+            case OP_BUSY:
+                return "BUSY " + (payloadLen > 0 ? commandName(payload[0] & 0xFF) : "?");
+            case OP_CAPS:
+                return CAPS_TEXT;
+            case OP_UNKNOWN:
+                return "UNKNOWN";
+            default:
+                return commandName(opcode);
+        }
+    }
+
+    public static String commandName(int opcode) {
+        switch (opcode) {
+            case OP_ON: return "ON";
+            case OP_OFF: return "OFF";
+            case OP_PING: return "PING";
+            case OP_STATUS: return "STATUS";
+            case OP_HELLO: return "HELLO";
+            default: return String.format("OP_%02X", opcode);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.energysaver.core;
+
+import java.nio.charset.StandardCharsets;
+
+// 알림(notification)으로 잘려서 들어오는 바이트 스트림에서
+// 바이너리 프레임과 텍스트 줄을 꺼낸다. 버퍼는 고정 크기.
+public class UartStreamDecoder {
+
+    public interface Listener {
+        // payload 배열은 콜백 안에서만 유효하다.
+        void onFrame(int opcode, int seq, byte[] payload, int payloadLen);
+
+        void onLine(String line);
+    }
+
+    private static final int MAX_LINE = 64;
+
+    private final Listener listener;
+
+    private final byte[] frame = new byte[UartCodec.MAX_FRAME_SIZE];
+    private int frameLen = 0;
+    private boolean inFrame = false;
+    // 깨진 프레임에서 다시 훑을 바이트: frame[replayPos..replayEnd).
+    // 다시 훑으며 새로 쌓는 프레임은 항상 읽는 위치보다 앞에 쓰이므로 같은 배열을 그대로 쓴다.
+    private int replayPos = 0;
+    private int replayEnd = 0;
+
+    private final byte[] payload = new byte[UartCodec.MAX_PAYLOAD];
+
+    private final byte[] line = new byte[MAX_LINE];
+    private int lineLen = 0;
+
+    private int crcErrors = 0;
+
+    public UartStreamDecoder(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void feed(byte[] data) {
+        if (data == null) return;
+        feed(data, 0, data.length);
+    }
+
+    public void feed(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            accept(data[i]);
+            while (replayPos < replayEnd) {
+                accept(frame[replayPos++]);
+            }
+        }
+    }
+
+    private void accept(byte b) {
+        int v = b & 0xFF;
+
+        if (inFrame) {
+            frame[frameLen++] = b;
+            if (frameLen == UartCodec.HEADER_SIZE) {
+                int len = frame[4] & 0xFF;
+                if ((frame[1] & 0xF0) >> 4 != UartCodec.VERSION || len > UartCodec.MAX_PAYLOAD) {
+                    resync();
+                    return;
+                }
+            }
+            if (frameLen > UartCodec.HEADER_SIZE
+                    && frameLen == UartCodec.HEADER_SIZE + (frame[4] & 0xFF) + 1) {
+                finishFrame();
+            }
+            return;
+        }
+
+        if (v == UartCodec.SOF) {
+            flushLine();
+            inFrame = true;
+            frame[0] = b;
+            frameLen = 1;
+            return;
+        }
+
+        if (v == '\n' || v == '\r') {
+            flushLine();
+            return;
+        }
+
+        // 텍스트 프로토콜은 출력 가능한 ASCII 만 쓴다. 깨진 프레임 잔여 바이트는 버림
+        if (v < 0x20 || v >= 0x7F) {
+            return;
+        }
+
+        if (lineLen == MAX_LINE) {
+            flushLine();
+        }
+        line[lineLen++] = b;
+    }
+
+    private void finishFrame() {
+        int len = frame[4] & 0xFF;
+        int crc = UartCodec.crc8(frame, 1, UartCodec.HEADER_SIZE - 1 + len);
+        if (crc != (frame[UartCodec.HEADER_SIZE + len] & 0xFF)) {
+            crcErrors++;
+            resync();
+            return;
+        }
+        inFrame = false;
+        frameLen = 0;
+        System.arraycopy(frame, UartCodec.HEADER_SIZE, payload, 0, len);
+        listener.onFrame(frame[2] & 0xFF, frame[3] & 0xFF, payload, len);
+    }
+
+    // 깨진 프레임: SOF 다음 바이트부터 다시 훑는다 (할당 없이, feed 의 루프에서).
+    // 다시 훑던 중에 또 깨졌으면 아직 못 훑은 바이트를 그 프레임 뒤로 당겨 붙인다.
+    private void resync() {
+        int n = frameLen;
+        int rest = replayEnd - replayPos;
+        System.arraycopy(frame, replayPos, frame, n, rest);
+        inFrame = false;
+        frameLen = 0;
+        replayPos = 1;
+        replayEnd = n + rest;
+    }
+
+    private void flushLine() {
+        if (lineLen == 0) return;
+        String s = new String(line, 0, lineLen, StandardCharsets.US_ASCII).trim();
+        lineLen = 0;
+        if (!s.isEmpty()) {
+            listener.onLine(s);
+        }
+    }
+
+    public void reset() {
+        inFrame = false;
+        frameLen = 0;
+        lineLen = 0;
+        replayPos = 0;
+        replayEnd = 0;
+    }
+
+    public int getCrcErrors() {
+        return crcErrors;
+    }
+}
@@ -0,0 +1,62 @@
+package com.energysaver.core;
+
+import java.util.PriorityQueue;
+
+// 가상 시간 이벤트 스케줄러. 기다리지 않고 다음 이벤트 시각으로 바로 건너뛰므로
+// 수백 대의 멀티탭 몇 분치를 한 스레드에서 몇 초 만에 돌린다. 같은 시드면 결과도 같다.
+// 스레드 안전하지 않음: run* 을 부르는 스레드(와 그 작업들)에서만 사용.
+public final class VirtualClock implements SimClock {
+
+    private static final class Event {
+        final long at;
+        final long order;
+        final Runnable task;
+
+        Event(long at, long order, Runnable task) {
+            this.at = at;
+            this.order = order;
+            this.task = task;
+        }
+    }
+
+    private final PriorityQueue<Event> events = new PriorityQueue<>(256, (a, b) -> {
+        if (a.at != b.at) return Long.compare(a.at, b.at);
+        return Long.compare(a.order, b.order);
+    });
+    private long now = 0;
+    private long nextOrder = 0;
+    private long executed = 0;
+
+    @Override
+    public long nowMs() {
+        return now;
+    }
+
+    @Override
+    public void schedule(long delayMs, Runnable task) {
+        events.add(new Event(now + Math.max(0, delayMs), nextOrder++, task));
+    }
+
+    // untilMs 까지의 이벤트를 모두 실행하고 시각을 untilMs 로 맞춘다
+    public void runUntil(long untilMs) {
+        while (!events.isEmpty() && events.peek().at <= untilMs) {
+            Event e = events.poll();
+            now = e.at;
+            executed++;
+            e.task.run();
+        }
+        now = Math.max(now, untilMs);
+    }
+
+    public void runFor(long durationMs) {
+        runUntil(now + durationMs);
+    }
+
+    public int getPendingCount() {
+        return events.size();
+    }
+
+    public long getExecutedCount() {
+        return executed;
+    }
+}
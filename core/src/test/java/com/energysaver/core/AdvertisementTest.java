@@ -0,0 +1,60 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class AdvertisementTest {
+
+    private static final UUID UART = UUID.fromString("0000FFE0-0000-1000-8000-00805F9B34FB");
+
+    private static byte[] bytes(int... v) {
+        byte[] b = new byte[v.length];
+        for (int i = 0; i < v.length; i++) b[i] = (byte) v[i];
+        return b;
+    }
+
+    @Test
+    public void decodesNameServicesAndManufacturerData() {
+        byte[] record = bytes(
+                0x02, 0x01, 0x06,                          // flags
+                0x03, 0x03, 0xE0, 0xFF,                    // 16비트 UUID FFE0
+                0x08, 0x09, 'B', 'y', 'e', 'P', 'l', 'u', 'g',
+                0x05, 0xFF, 0x4C, 0x00, 0x01, 0x02,        // 회사 0x004C + 2바이트
+                0x00, 0x00, 0x00);                         // 남는 0
+
+        Advertisement ad = Advertisement.parse(record);
+        assertEquals("ByePlug", ad.getName());
+        assertTrue(ad.hasService(UART));
+        assertEquals(0x004C, ad.getManufacturerId());
+        assertArrayEquals(bytes(0x01, 0x02), ad.getManufacturerData());
+        assertTrue(ad.sameBytes(record.clone()));
+    }
+
+    @Test
+    public void completeNameWinsAndUuid128IsLittleEndian() {
+        // 6E400001-B5A3-F393-E0A9-E50E24DCCA9E (Nordic UART)
+        byte[] record = bytes(
+                0x04, 0x08, 'B', 'y', 'e',
+                0x11, 0x07, 0x9E, 0xCA, 0xDC, 0x24, 0x0E, 0xE5, 0xA9, 0xE0,
+                0x93, 0xF3, 0xA3, 0xB5, 0x01, 0x00, 0x40, 0x6E,
+                0x05, 0x09, 'P', 'l', 'u', 'g');
+
+        Advertisement ad = Advertisement.parse(record);
+        assertEquals("Plug", ad.getName());
+        assertEquals(UUID.fromString("6E400001-B5A3-F393-E0A9-E50E24DCCA9E"),
+                ad.getServiceUuids().get(0));
+        assertEquals(Advertisement.NO_MANUFACTURER, ad.getManufacturerId());
+    }
+
+    @Test
+    public void truncatedStructureIsIgnored() {
+        byte[] record = bytes(0x03, 0x03, 0xE0, 0xFF, 0x09, 0x09, 'x');
+        Advertisement ad = Advertisement.parse(record);
+        assertTrue(ad.hasService(UART));
+        assertNull(ad.getName());
+        assertSame(Advertisement.EMPTY, Advertisement.parse(null));
+    }
+}
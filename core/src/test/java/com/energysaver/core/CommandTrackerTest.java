@@ -0,0 +1,69 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CommandTrackerTest {
+
+    @Test
+    public void binaryReplyMatchesBySeqAndSubtractsProcessingTime() {
+        CommandTracker t = new CommandTracker();
+        List<CommandTracker.Result> results = new ArrayList<>();
+        t.register(7, "ON", 800, (cmd, r, rtt) -> results.add(r));
+        t.onTransmitted(7, 1000);
+
+        assertEquals(-1, t.onReply(8, "ACK ON", 1900));
+        assertEquals(900, t.onReply(7, "ACK ON", 1900));
+        assertEquals(1, results.size());
+        assertEquals(CommandTracker.Result.ACKED, results.get(0));
+        assertEquals(100, t.getRtt().getSrttMs());
+        assertEquals(0, t.getPendingCount());
+    }
+
+    @Test
+    public void textReplyMatchesOldestSentCommand() {
+        CommandTracker t = new CommandTracker();
+        t.register(1, "PING", 0, null);
+        t.register(2, "PING", 0, null);
+        t.onTransmitted(1, 0);
+        t.onTransmitted(2, 50);
+
+        assertEquals(120, t.onReply(-1, "PONG", 120));
+        assertFalse(t.isTracked(1));
+        assertTrue(t.isTracked(2));
+    }
+
+    @Test
+    public void retransmitsUntilLimitThenTimesOut() {
+        CommandTracker t = new CommandTracker();
+        List<CommandTracker.Result> results = new ArrayList<>();
+        t.register(3, "OFF", 0, (cmd, r, rtt) -> results.add(r));
+
+        long now = 0;
+        for (int i = 1; i < CommandTracker.MAX_TRANSMISSIONS; i++) {
+            t.onTransmitted(3, now);
+            now = t.nextDeadlineMs();
+            assertEquals(1, t.collectExpired(now).size());
+        }
+        t.onTransmitted(3, now);
+        assertTrue(t.collectExpired(t.nextDeadlineMs()).isEmpty());
+        assertEquals(CommandTracker.Result.TIMEOUT, results.get(0));
+    }
+
+    @Test
+    public void retransmittedReplyIsNotSampled() {
+        CommandTracker t = new CommandTracker();
+        t.register(4, "PING", 0, null);
+        t.onTransmitted(4, 0);
+        t.collectExpired(t.nextDeadlineMs());
+        t.onTransmitted(4, 2000);
+
+        assertTrue(t.onReply(4, "PONG", 2100) >= 0);
+        assertEquals(0, t.getRtt().getSampleCount());
+        assertEquals(1, t.getHistogram().getTotalCount());
+    }
+}
@@ -0,0 +1,68 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConnectionSchedulerTest {
+
+    private final List<Long> started = new ArrayList<>();
+
+    @Test
+    public void limitsInFlightAndAdmitsNextOnFinish() {
+        ConnectionScheduler cs = new ConnectionScheduler(2, started::add);
+        for (long k = 1; k <= 5; k++) {
+            cs.request(k, ConnectionScheduler.PRIORITY_BACKGROUND, 0);
+        }
+        assertEquals(Arrays.asList(1L, 2L), started);
+        assertEquals(3, cs.getQueueDepth());
+
+        // 진행 중인 기기를 다시 요청해도 중복 시작하지 않음
+        cs.request(1, ConnectionScheduler.PRIORITY_USER, 0);
+        assertEquals(2, started.size());
+
+        cs.onFinished(2);
+        assertEquals(Arrays.asList(1L, 2L, 3L), started);
+        cs.onFinished(2);   // 두 번 알려도 자리는 한 번만 빈다
+        assertEquals(3, started.size());
+        assertEquals(2, cs.getInFlightCount());
+    }
+
+    @Test
+    public void userAndRecentlyTouchedDevicesGoFirst() {
+        ConnectionScheduler cs = new ConnectionScheduler(1, started::add);
+        cs.request(1, ConnectionScheduler.PRIORITY_BACKGROUND, 0);   // 바로 시작
+        cs.request(2, ConnectionScheduler.PRIORITY_BACKGROUND, 0);
+        cs.request(3, ConnectionScheduler.PRIORITY_VISIBLE, 100);
+        cs.request(4, ConnectionScheduler.PRIORITY_VISIBLE, 500);
+        cs.request(5, ConnectionScheduler.PRIORITY_BACKGROUND, 0);
+        cs.request(5, ConnectionScheduler.PRIORITY_USER, 900);        // 대기 중에 토글
+
+        for (int i = 0; i < 4; i++) {
+            cs.onFinished(started.get(started.size() - 1));
+        }
+        assertEquals(Arrays.asList(1L, 5L, 4L, 3L, 2L), started);
+    }
+
+    @Test
+    public void cancelAndResetFreeSlots() {
+        ConnectionScheduler cs = new ConnectionScheduler(1, started::add);
+        cs.request(1, ConnectionScheduler.PRIORITY_BACKGROUND, 0);
+        cs.request(2, ConnectionScheduler.PRIORITY_BACKGROUND, 0);
+        cs.request(3, ConnectionScheduler.PRIORITY_BACKGROUND, 0);
+
+        cs.cancel(2);
+        assertFalse(cs.isQueued(2));
+        cs.cancel(1);
+        assertEquals(Arrays.asList(1L, 3L), started);
+
+        cs.request(4, ConnectionScheduler.PRIORITY_BACKGROUND, 0);
+        cs.resetInFlight();
+        assertEquals(Arrays.asList(1L, 3L, 4L), started);
+        assertEquals(0, cs.getQueueDepth());
+    }
+}
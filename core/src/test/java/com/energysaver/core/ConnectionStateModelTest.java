@@ -0,0 +1,89 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConnectionStateModelTest {
+
+    private static final String MAC = "AA:BB:CC:DD:EE:01";
+
+    private final ConnectionStateModel model = new ConnectionStateModel();
+    private final List<ConnectionStateModel.Delta> deltas = new ArrayList<>();
+
+    {
+        model.addObserver(deltas::add, Runnable::run);
+    }
+
+    @Test
+    public void publishesOnlyRealChanges() {
+        model.update(MAC, s -> s.withPhase(ConnectionState.Phase.CONNECTING));
+        model.update(MAC, s -> s.withPhase(ConnectionState.Phase.CONNECTING));
+        model.update(MAC, s -> s.withPhase(ConnectionState.Phase.READY));
+
+        assertEquals(2, deltas.size());
+        assertEquals(ConnectionState.Phase.DISCONNECTED, deltas.get(0).getPrevious().getPhase());
+        assertEquals(ConnectionState.Phase.READY, deltas.get(1).getCurrent().getPhase());
+        assertTrue(deltas.get(1).isPhaseChange());
+        assertTrue(model.get(MAC).isReady());
+    }
+
+    @Test
+    public void lastSeenIsRateLimited() {
+        model.update(MAC, s -> s.seen(10_000));
+        model.update(MAC, s -> s.seen(10_500));     // 1초 안: 무시
+        model.update(MAC, s -> s.seen(11_000));
+
+        assertEquals(2, deltas.size());
+        assertFalse(deltas.get(1).isPhaseChange());
+        assertEquals(11_000, model.get(MAC).getLastSeenMs());
+    }
+
+    @Test
+    public void backoffKeepsAttemptInLabel() {
+        model.update(MAC, s -> s.withRssi(-70, 5_000));
+        model.update(MAC, s -> s.backoff(3));
+
+        ConnectionState s = model.get(MAC);
+        assertEquals("BACKOFF(3)", s.getLabel());
+        assertEquals(-70, s.getRssi());
+        assertFalse(s.isConnected());
+        try {
+            s.withPhase(ConnectionState.Phase.BACKOFF);
+            fail("BACKOFF needs an attempt");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void removeAndSnapshot() {
+        model.update(MAC, s -> s.withPhase(ConnectionState.Phase.CONNECTED));
+        Map<String, ConnectionState> snap = model.snapshot();
+        assertEquals(1, snap.size());
+        assertTrue(snap.get(MAC).isConnected());
+
+        model.remove(MAC);
+        assertSame(ConnectionState.INITIAL, deltas.get(deltas.size() - 1).getCurrent());
+        assertSame(ConnectionState.INITIAL, model.get(MAC));
+        assertTrue(model.snapshot().isEmpty());
+    }
+
+    @Test
+    public void removedObserverGetsNothing() {
+        List<ConnectionStateModel.Delta> queued = new ArrayList<>();
+        List<Runnable> pending = new ArrayList<>();
+        ConnectionStateModel.Observer late = queued::add;
+        model.addObserver(late, pending::add);
+
+        model.update(MAC, s -> s.withPhase(ConnectionState.Phase.CONNECTING));
+        model.removeObserver(late);
+        pending.forEach(Runnable::run);
+
+        assertTrue(queued.isEmpty());
+        assertEquals(1, deltas.size());
+    }
+}
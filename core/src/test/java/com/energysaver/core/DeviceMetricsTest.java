@@ -0,0 +1,66 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DeviceMetricsTest {
+
+    @Test
+    public void connectPhasesAreTimedFromConnectStart() {
+        LatencyHistogram ack = new LatencyHistogram();
+        DeviceMetrics m = new DeviceMetrics("AA:BB:CC:DD:EE:01", ack);
+
+        m.onConnectStarted(1000);
+        m.onConnected(1300);           // 300ms
+        m.onDiscoveryStarted(1300);
+        m.onServicesDiscovered(1350);  // 50ms
+        m.onReady(1500);               // 500ms
+        ack.record(40);
+
+        DeviceMetrics.Snapshot s = m.snapshot();
+        assertEquals(1, s.getConnectAttempts());
+        assertEquals(1, s.getConnects());
+        assertEquals(1, s.getReadyCount());
+        assertEquals(512, s.connectPercentileMs(50));
+        assertEquals(64, s.discoveryPercentileMs(50));
+        assertEquals(512, s.readyPercentileMs(50));
+        assertEquals(64, s.ackPercentileMs(50));
+
+        // READY 이후 끊김: 다음 단계 시간이 이전 연결 기준으로 잡히지 않는다
+        m.onDisconnected(8);
+        m.onReady(99999);
+        assertEquals(1, m.snapshot().getReadyHistogram()[LatencyHistogram.bucketFor(500)]);
+    }
+
+    @Test
+    public void countsWritesHeartbeatsAndDisconnectReasons() {
+        DeviceMetrics m = new DeviceMetrics("AA:BB:CC:DD:EE:01", new LatencyHistogram());
+        m.onWrite(true);
+        m.onWrite(true);
+        m.onWrite(true);
+        m.onWrite(false);
+        m.onHeartbeat();
+        m.onHeartbeat();
+        m.onHeartbeatMissed();
+        m.onReconnectAttempt();
+        m.onDisconnected(8);
+        m.onDisconnected(8);
+        m.onDisconnected(0x13);
+        m.onDisconnected(257);        // GATT_FAILURE
+
+        DeviceMetrics.Snapshot s = m.snapshot();
+        assertEquals(0.25, s.getWriteFailureRate(), 1e-9);
+        assertEquals(0.5, s.getHeartbeatMissRate(), 1e-9);
+        assertEquals(1, s.getReconnectAttempts());
+        assertEquals(4, s.getDisconnects());
+        assertArrayEquals(new int[]{8, 0x13, DeviceMetrics.Snapshot.STATUS_OTHER},
+                s.getDisconnectStatuses());
+        assertArrayEquals(new long[]{2, 1, 1}, s.getDisconnectCounts());
+
+        m.reset();
+        s = m.snapshot();
+        assertEquals(0, s.getWritesOk());
+        assertEquals(0, s.getDisconnectStatuses().length);
+    }
+}
@@ -0,0 +1,76 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class EventJournalTest {
+
+    private static final String MAC = "AA:BB:CC:DD:EE:01";
+
+    @Test
+    public void macRoundTrip() {
+        long v = MacUtils.toLong(MAC);
+        assertEquals(0xAABBCCDDEE01L, v);
+        assertEquals(MAC, MacUtils.toString(v));
+        assertEquals(MacUtils.INVALID, MacUtils.toLong("AA:BB"));
+    }
+
+    @Test
+    public void resumesAfterReopenAndExportsRange() throws Exception {
+        File dir = Files.createTempDirectory("journal").toFile();
+        EventJournal j = new EventJournal(dir, 16, 4);
+        j.append(1000, MAC, EventJournal.TYPE_STATE, 0, 0, "READY");
+        j.append(2000, MAC, EventJournal.TYPE_RX, 0, 0, "ACK ON");
+        j.close();
+
+        j = new EventJournal(dir, 16, 4);
+        j.append(3000, MAC, EventJournal.TYPE_RECONNECT, 2, 4000, null);
+
+        List<String> lines = export(j, 1500, 10000);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).endsWith(MAC + " RX 0 0 ACK ON"));
+        assertTrue(lines.get(1).endsWith(MAC + " RECONNECT 2 4000"));
+        j.close();
+    }
+
+    @Test
+    public void rotatesAndDropsOldestSegments() throws Exception {
+        File dir = Files.createTempDirectory("journal").toFile();
+        EventJournal j = new EventJournal(dir, 4, 2);
+        for (int i = 1; i <= 20; i++) {
+            j.append(i, MAC, EventJournal.TYPE_STATE, i, 0, "S");
+        }
+
+        assertEquals(2, dir.list().length);
+        List<String> lines = export(j, 0, Long.MAX_VALUE);
+        assertEquals(8, lines.size());
+        assertTrue(lines.get(0).contains(" STATE 13 "));
+        j.close();
+    }
+
+    private static List<String> export(EventJournal j, long from, long to) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int count = j.exportGzip(from, to, out);
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) lines.add(line);
+        }
+        assertEquals(count, lines.size());
+        return lines;
+    }
+}
@@ -0,0 +1,124 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GattOperationQueueTest {
+
+    private static GattOperation write(String msg, GattOperation.Priority p) {
+        return GattOperation.write(msg.trim(), msg.getBytes(), p);
+    }
+
+    @Test
+    public void onlyOneOperationInFlight() {
+        GattOperationQueue q = new GattOperationQueue();
+        GattOperation a = write("ON\n", GattOperation.Priority.COMMAND);
+        GattOperation b = write("ON\n", GattOperation.Priority.COMMAND);
+        q.offer(a);
+        q.offer(b);
+
+        assertSame(a, q.startNext(false));
+        assertNull(q.startNext(false));
+        assertTrue(q.complete(a));
+        assertSame(b, q.startNext(false));
+    }
+
+    @Test
+    public void safetyJumpsAheadOfHeartbeat() {
+        GattOperationQueue q = new GattOperationQueue();
+        GattOperation ping = write("PING\n", GattOperation.Priority.BACKGROUND);
+        GattOperation on = write("ON\n", GattOperation.Priority.COMMAND);
+        GattOperation off = write("OFF\n", GattOperation.Priority.SAFETY);
+        q.offer(ping);
+        q.offer(on);
+        q.offer(off);
+
+        assertSame(off, q.startNext(false));
+        q.complete(off);
+        assertSame(on, q.startNext(false));
+        q.complete(on);
+        assertSame(ping, q.startNext(false));
+    }
+
+    @Test
+    public void setupOnlyHoldsCommandsUntilReady() {
+        GattOperationQueue q = new GattOperationQueue();
+        GattOperation off = write("OFF\n", GattOperation.Priority.SAFETY);
+        GattOperation cccd = GattOperation.enableNotification();
+        q.offer(off);
+
+        assertNull(q.startNext(true));
+        q.offer(cccd);
+        assertSame(cccd, q.startNext(true));
+        q.complete(cccd);
+        assertSame(off, q.startNext(false));
+    }
+
+    @Test
+    public void staleCompletionIsIgnored() {
+        GattOperationQueue q = new GattOperationQueue();
+        GattOperation a = write("ON\n", GattOperation.Priority.COMMAND);
+        q.offer(a);
+        q.startNext(false);
+        q.resetForReconnect();
+
+        assertFalse(q.complete(a));
+        assertFalse(q.isBusy());
+    }
+
+    @Test
+    public void reconnectKeepsCommandsAndDropsHeartbeats() {
+        GattOperationQueue q = new GattOperationQueue();
+        q.offer(write("PING\n", GattOperation.Priority.BACKGROUND));
+        q.offer(write("OFF\n", GattOperation.Priority.SAFETY));
+        q.resetForReconnect();
+
+        assertEquals(1, q.size());
+        assertEquals(0, q.laneSize(GattOperation.Priority.BACKGROUND));
+    }
+
+    @Test
+    public void cancelRemovesOnlyQueuedOperationsWithKey() {
+        GattOperationQueue q = new GattOperationQueue();
+        GattOperation first = write("ON\n", GattOperation.Priority.COMMAND)
+                .coalesceBy(GattOperation.KEY_POWER);
+        q.offer(first);
+        q.startNext(false);
+        q.offer(write("OFF\n", GattOperation.Priority.SAFETY).coalesceBy(GattOperation.KEY_POWER));
+        q.offer(write("ON\n", GattOperation.Priority.COMMAND).coalesceBy(GattOperation.KEY_POWER));
+        q.offer(write("PING\n", GattOperation.Priority.BACKGROUND));
+
+        assertTrue(q.contains(GattOperation.KEY_POWER));
+        assertEquals(2, q.cancel(GattOperation.KEY_POWER).size());
+        assertSame(first, q.getInFlight());
+        assertEquals(1, q.size());
+        assertFalse(q.contains(GattOperation.KEY_POWER));   // in-flight 는 세지 않음
+    }
+
+    @Test
+    public void packsSameKindWritesUpToLimit() {
+        GattOperationQueue q = new GattOperationQueue();
+        q.offer(write("PING\n", GattOperation.Priority.BACKGROUND).withoutResponse());
+        q.offer(write("STATUS\n", GattOperation.Priority.BACKGROUND).withoutResponse());
+        q.offer(write("PING\n", GattOperation.Priority.BACKGROUND).withoutResponse());
+        q.offer(write("PING\n", GattOperation.Priority.BACKGROUND).withoutResponse());
+
+        GattOperation packed = q.startNext(false, 20);
+        assertTrue(packed.isPacked());
+        assertEquals(3, packed.getParts().size());
+        assertArrayEquals("PING\nSTATUS\nPING\n".getBytes(), packed.getPayload());
+        assertEquals(1, q.size());
+    }
+
+    @Test
+    public void doesNotPackAcknowledgedWithUnacknowledgedWrites() {
+        GattOperationQueue q = new GattOperationQueue();
+        q.offer(write("OFF\n", GattOperation.Priority.SAFETY));
+        q.offer(write("PING\n", GattOperation.Priority.BACKGROUND).withoutResponse());
+
+        GattOperation op = q.startNext(false, 20);
+        assertFalse(op.isPacked());
+        assertEquals("OFF", op.getCommand());
+    }
+}
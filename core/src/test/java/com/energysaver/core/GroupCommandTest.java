@@ -0,0 +1,69 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class GroupCommandTest {
+
+    private static final String A = "AA:BB:CC:DD:EE:01";
+    private static final String B = "AA:BB:CC:DD:EE:02";
+    private static final String C = "AA:BB:CC:DD:EE:03";
+
+    @Test
+    public void finishesWhenEveryTargetReported() {
+        GroupCommand g = new GroupCommand("OFF", Arrays.asList(A, B, C), 1000, 15000, 3);
+
+        assertFalse(g.onResult(A, CommandTracker.Result.ACKED, 900, 1900));
+        assertFalse(g.onResult(B, CommandTracker.Result.TIMEOUT, -1, 5000));
+        assertFalse(g.isFinished());
+        assertFalse(g.takeCompletion());
+        assertFalse(g.onResult(C, CommandTracker.Result.ACKED, 1200, 2200));
+        assertTrue(g.isFinished());
+        assertTrue(g.takeCompletion());
+        assertFalse(g.takeCompletion());   // 한 번만
+
+        GroupCommand.Result r = g.snapshot(5000);
+        assertEquals(4000, r.getElapsedMs());
+        assertFalse(r.isTimedOut());
+        assertEquals(Arrays.asList(A, C), r.getMacs(GroupCommand.Outcome.SUCCEEDED));
+        assertEquals(GroupCommand.Outcome.FAILED, r.get(B).getOutcome());
+        assertEquals(CommandTracker.Result.TIMEOUT, r.get(B).getDetail());
+        assertEquals(900, r.get(A).getRttMs());
+        assertFalse(r.isAllSucceeded());
+    }
+
+    @Test
+    public void disconnectedTargetsAreRetriedUntilLimitOrDeadline() {
+        GroupCommand g = new GroupCommand("OFF", Arrays.asList(A, B), 0, 10000, 2);
+
+        assertTrue(g.onResult(A, CommandTracker.Result.DISCONNECTED, -1, 1000));
+        assertFalse(g.onResult(A, CommandTracker.Result.DISCONNECTED, -1, 2000));   // 2번째
+        assertEquals(GroupCommand.Outcome.FAILED, g.snapshot(2000).get(A).getOutcome());
+        assertEquals(2, g.snapshot(2000).get(A).getAttempts());
+
+        // 마감이 지난 뒤의 끊김은 다시 보내지 않는다
+        assertFalse(g.onResult(B, CommandTracker.Result.DISCONNECTED, -1, 10000));
+        assertTrue(g.isFinished());
+    }
+
+    @Test
+    public void deadlineLeavesUnfinishedTargetsPending() {
+        GroupCommand g = new GroupCommand("OFF", Arrays.asList(A, B), 0, 15000, 3);
+        g.onResult(A, CommandTracker.Result.ACKED, 800, 800);
+        g.expire();
+        assertTrue(g.takeCompletion());
+
+        GroupCommand.Result r = g.snapshot(15000);
+        assertTrue(r.isTimedOut());
+        assertEquals(GroupCommand.Outcome.PENDING, r.get(B).getOutcome());
+        assertNull(r.get(B).getDetail());
+        assertEquals(1, r.count(GroupCommand.Outcome.PENDING));
+
+        // 마감 뒤에 온 응답은 결과를 바꾸지 않는다
+        assertFalse(g.onResult(B, CommandTracker.Result.ACKED, 16000, 16000));
+        assertEquals(GroupCommand.Outcome.PENDING, g.snapshot(16000).get(B).getOutcome());
+    }
+}
@@ -0,0 +1,57 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HeartbeatSchedulerTest {
+
+    private final List<long[]> pings = new ArrayList<>();
+    private final HeartbeatScheduler.Sink sink = (key, delayMs) -> pings.add(new long[]{key, delayMs});
+
+    @Test
+    public void recentTrafficPostponesPing() {
+        HeartbeatScheduler hb = new HeartbeatScheduler(0, 0, 0, new Random(1));
+        hb.add(1, 5000, 0);
+        hb.onTransmit(1, 4000);   // 명령을 보냄
+
+        assertEquals(9000, hb.poll(5000, sink));
+        assertTrue(pings.isEmpty());
+
+        assertEquals(14000, hb.poll(9000, sink));
+        assertEquals(1, pings.size());
+    }
+
+    @Test
+    public void devicesDueWithinWindowShareOneWakeup() {
+        HeartbeatScheduler hb = new HeartbeatScheduler(1000, 20, 10, new Random(7));
+        hb.add(1, 5000, 0);
+        hb.add(2, 5000, 400);
+        hb.add(3, 5000, 3000);
+
+        hb.poll(5000, sink);
+        assertEquals(2, pings.size());
+        long d0 = Math.min(pings.get(0)[1], pings.get(1)[1]);
+        long d1 = Math.max(pings.get(0)[1], pings.get(1)[1]);
+        assertTrue(d0 >= 0 && d0 <= 10);
+        assertTrue(d1 >= 20 && d1 <= 30);
+
+        // 세 번째 기기는 아직 멀어서 다음 깨어남은 그 기기 기준
+        assertEquals(8000, hb.nextDueMs());
+    }
+
+    @Test
+    public void negotiatedIntervalAppliesToNextDeadline() {
+        HeartbeatScheduler hb = new HeartbeatScheduler(0, 0, 0, new Random(1));
+        hb.add(5, 5000, 0);
+        hb.setInterval(5, 15000);
+        assertEquals(15000, hb.nextDueMs());
+        hb.remove(5);
+        assertEquals(-1, hb.poll(20000, sink));
+        assertTrue(pings.isEmpty());
+    }
+}
@@ -0,0 +1,63 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class PowerScheduleTest {
+
+    private static final String MAC = "AA:BB:CC:DD:EE:01";
+
+    private static long at(TimeZone tz, int year, int month, int day, int hour, int minute) {
+        Calendar c = Calendar.getInstance(tz);
+        c.clear();
+        c.set(year, month - 1, day, hour, minute, 0);
+        return c.getTimeInMillis();
+    }
+
+    @Test
+    public void dailyFiresTodayOrTomorrow() {
+        TimeZone seoul = TimeZone.getTimeZone("Asia/Seoul");
+        PowerSchedule p = PowerSchedule.daily(MAC, false, 23 * 60);
+
+        assertEquals(at(seoul, 2026, 10, 18, 23, 0),
+                p.nextFireAfter(at(seoul, 2026, 10, 18, 22, 59), seoul));
+        // 정각에 실행한 뒤에는 다음 날
+        assertEquals(at(seoul, 2026, 10, 19, 23, 0),
+                p.nextFireAfter(at(seoul, 2026, 10, 18, 23, 0), seoul));
+        assertEquals("매일 23:00 OFF", p.describe(seoul));
+    }
+
+    @Test
+    public void dailyKeepsWallClockAcrossDaylightSaving() {
+        TimeZone berlin = TimeZone.getTimeZone("Europe/Berlin");
+        PowerSchedule p = PowerSchedule.daily(MAC, true, 7 * 60 + 30);
+        // 2026-03-29 02:00 → 03:00 (23시간짜리 날)
+        long next = p.nextFireAfter(at(berlin, 2026, 3, 28, 8, 0), berlin);
+        assertEquals(at(berlin, 2026, 3, 29, 7, 30), next);
+        assertEquals(23 * 60 * 60 * 1000L - 30 * 60 * 1000L,
+                next - at(berlin, 2026, 3, 28, 8, 0));
+    }
+
+    @Test
+    public void onceKeepsItsTimeEvenWhenMissed() {
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        long when = at(utc, 2026, 10, 18, 1, 30);
+        PowerSchedule p = PowerSchedule.once(MAC, true, when);
+        assertEquals(when, p.nextFireAfter(when + 60_000, utc));
+        assertEquals("10-18 01:30 ON", p.describe(utc));
+        assertEquals(-1, p.getMinuteOfDay());
+    }
+
+    @Test
+    public void rejectsMinuteOutOfRange() {
+        try {
+            PowerSchedule.daily(MAC, false, PowerSchedule.MINUTES_PER_DAY);
+            fail("1440 is not a minute of day");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PresenceDetectorTest {
+
+    private static final long A = 1;
+    private static final long B = 2;
+
+    // alpha 0.5, 떠남 -85 (3초 유지), 돌아옴 -75 (1초 유지), 샘플 1초/10초, 여유 5dB
+    private static final PresenceDetector.Config CONFIG =
+            new PresenceDetector.Config(0.5, -85, -75, 3000, 1000, 1000, 10000, 5);
+
+    private final List<String> events = new ArrayList<>();
+    private final PresenceDetector detector = new PresenceDetector(CONFIG,
+            new PresenceDetector.Listener() {
+                @Override
+                public void onPresenceChanged(long key, PresenceDetector.Presence presence) {
+                    events.add(key + ":" + presence);
+                }
+
+                @Override
+                public void onHomePresenceChanged(PresenceDetector.Presence presence) {
+                    events.add("home:" + presence);
+                }
+            });
+
+    @Test
+    public void briefDipDoesNotDepart() {
+        detector.onSample(A, -60, 0);
+        assertEquals(PresenceDetector.Presence.PRESENT, detector.getPresence(A));
+
+        // 2초 동안 아주 약함 → 유지 시간(3초) 전에 회복
+        detector.onSample(A, -110, 1000);
+        detector.onSample(A, -110, 2000);
+        detector.onSample(A, -60, 3000);
+        detector.onSample(A, -60, 4000);
+        detector.onSample(A, -60, 6000);
+
+        assertEquals(PresenceDetector.Presence.PRESENT, detector.getPresence(A));
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    public void sustainedWeakSignalDepartsAfterHold() {
+        detector.onSample(A, -60, 0);
+        detector.onSample(A, -100, 1000);     // 고른 값 -80: 아직 떠남 문턱 위
+        detector.onSample(A, -100, 2000);     // -90: 문턱 아래, 여기서부터 3초
+        detector.onSample(A, -100, 4000);
+        assertEquals(PresenceDetector.Presence.PRESENT, detector.getPresence(A));
+        detector.onSample(A, -100, 5000);
+
+        assertEquals(PresenceDetector.Presence.DEPARTED, detector.getPresence(A));
+        assertEquals(PresenceDetector.Presence.DEPARTED, detector.getHomePresence());
+        assertEquals("[1:PRESENT, home:PRESENT, 1:DEPARTED, home:DEPARTED]", events.toString());
+    }
+
+    @Test
+    public void hysteresisNeedsReturnThresholdToComeBack() {
+        detector.onLinkLost(A);
+        assertEquals(PresenceDetector.Presence.DEPARTED, detector.getHomePresence());
+
+        // 떠남 문턱(-85)보다 강하지만 돌아옴 문턱(-75)보다 약함 → 그대로
+        detector.onSample(A, -80, 0);
+        detector.onSample(A, -80, 5000);
+        assertEquals(PresenceDetector.Presence.DEPARTED, detector.getPresence(A));
+
+        detector.onSample(A, -60, 6000);      // -70
+        detector.onSample(A, -60, 7000);
+        assertEquals(PresenceDetector.Presence.PRESENT, detector.getPresence(A));
+        assertEquals(PresenceDetector.Presence.PRESENT, detector.getHomePresence());
+    }
+
+    @Test
+    public void homeDepartsOnlyWhenEveryStripHasDeparted() {
+        detector.onSample(A, -60, 0);
+        detector.onSample(B, -60, 0);
+        detector.onLinkLost(A);
+        assertEquals(PresenceDetector.Presence.PRESENT, detector.getHomePresence());
+
+        detector.onLinkLost(B);
+        assertEquals(PresenceDetector.Presence.DEPARTED, detector.getHomePresence());
+
+        detector.remove(A);
+        detector.remove(B);
+        assertEquals(PresenceDetector.Presence.UNKNOWN, detector.getHomePresence());
+    }
+
+    @Test
+    public void samplesFasterNearThreshold() {
+        assertEquals(1000, detector.sampleIntervalMs(A));        // 아직 모름
+        detector.onSample(A, -50, 0);
+        assertEquals(10000, detector.sampleIntervalMs(A));
+        detector.onSample(A, -92, 1000);                         // -71: 돌아옴 문턱 + 5dB 안
+        assertEquals(1000, detector.sampleIntervalMs(A));
+        assertEquals(-71, detector.getFilteredRssi(A));
+    }
+
+    @Test
+    public void rejectsInvertedThresholds() {
+        try {
+            new PresenceDetector.Config(0.5, -70, -80, 0, 0, 1000, 1000, 0);
+            fail("return threshold below depart threshold");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void oneWeakStripCannotDepartHomeWhileOthersHaveNotReported() {
+        final long c = 3;
+        // 서비스 시작: 세 대 모두 등록, 먼 방의 A 만 먼저 연결됨
+        detector.track(A);
+        detector.track(B);
+        detector.track(c);
+        for (long t = 0; t <= 10000; t += 1000) {
+            detector.onSample(A, -100, t);
+        }
+        assertEquals(PresenceDetector.Presence.DEPARTED, detector.getPresence(A));
+        assertEquals(PresenceDetector.Presence.UNKNOWN, detector.getHomePresence());
+        assertFalse(events.contains("home:DEPARTED"));
+
+        // B 가 연결되어 강하면 집에 있음, C 는 끝내 연결되지 못함
+        detector.onSample(B, -60, 11000);
+        assertEquals(PresenceDetector.Presence.PRESENT, detector.getHomePresence());
+        detector.onLinkLost(c);
+        assertEquals(PresenceDetector.Presence.PRESENT, detector.getHomePresence());
+
+        // 블루투스를 다시 켬: 모두 다시 보고할 때까지 UNKNOWN
+        detector.reset(A);
+        detector.reset(B);
+        detector.reset(c);
+        assertEquals(PresenceDetector.Presence.UNKNOWN, detector.getHomePresence());
+        assertEquals(ConnectionState.RSSI_UNKNOWN, detector.getFilteredRssi(B));
+    }
+
+    @Test
+    public void reconnectAfterLinkLossReevaluatesFromUnknown() {
+        // 기본값: 떠남 -88, 돌아옴 -80
+        List<String> home = new ArrayList<>();
+        PresenceDetector d = new PresenceDetector(PresenceDetector.Config.DEFAULT,
+                new PresenceDetector.Listener() {
+                    @Override
+                    public void onPresenceChanged(long key, PresenceDetector.Presence presence) {
+                    }
+
+                    @Override
+                    public void onHomePresenceChanged(PresenceDetector.Presence presence) {
+                        home.add(presence.name());
+                    }
+                });
+        d.onSample(A, -85, 0);
+        d.onLinkLost(A);
+        assertEquals(PresenceDetector.Presence.DEPARTED, d.getHomePresence());
+
+        // 다시 연결 (서비스는 READY 에서 reset). -85 는 돌아옴 문턱보다 약하지만 집에 있는 자리.
+        d.reset(A);
+        d.onSample(A, -85, 1000);
+        assertEquals(PresenceDetector.Presence.PRESENT, d.getPresence(A));
+        assertEquals(PresenceDetector.Presence.PRESENT, d.getHomePresence());
+        assertEquals("[PRESENT, DEPARTED, UNKNOWN, PRESENT]", home.toString());
+    }
+}
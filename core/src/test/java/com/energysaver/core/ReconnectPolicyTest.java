@@ -0,0 +1,58 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReconnectPolicyTest {
+
+    private ReconnectPolicy newPolicy() {
+        return new ReconnectPolicy(2000, 60000, 5, 600000, 3600000, new Random(3));
+    }
+
+    @Test
+    public void delaysGrowWithinBoundsUntilBreakerOpens() {
+        ReconnectPolicy p = newPolicy();
+        long prev = 2000;
+        for (int i = 0; i < 4; i++) {
+            long d = p.onFailure();
+            assertTrue("delay " + d, d >= 2000 && d <= Math.min(60000, prev * 3));
+            prev = d;
+            assertEquals(ReconnectPolicy.State.CLOSED, p.getState());
+        }
+        assertEquals(600000, p.onFailure());
+        assertEquals(ReconnectPolicy.State.OPEN, p.getState());
+
+        // 쉬고 나서 한 번 시험, 또 실패하면 두 배
+        assertTrue(p.fire(p.schedule()));
+        assertEquals(ReconnectPolicy.State.HALF_OPEN, p.getState());
+        assertEquals(1200000, p.onFailure());
+        assertTrue(p.fire(p.schedule()));
+        p.onFailure();
+        assertTrue(p.fire(p.schedule()));
+        assertEquals(3600000, p.onFailure());
+
+        p.onSuccess();
+        assertEquals(ReconnectPolicy.State.CLOSED, p.getState());
+        assertEquals(0, p.getFailures());
+        assertTrue(p.onFailure() <= 6000);
+    }
+
+    @Test
+    public void onlyLatestScheduleFires() {
+        ReconnectPolicy p = newPolicy();
+        int first = p.schedule();
+        int second = p.schedule();
+        assertFalse(p.fire(first));
+        assertTrue(p.isPending());
+        assertTrue(p.fire(second));
+        assertFalse(p.fire(second));   // 한 번만
+
+        int third = p.schedule();
+        p.cancel();
+        assertFalse(p.isPending());
+        assertFalse(p.fire(third));
+    }
+}
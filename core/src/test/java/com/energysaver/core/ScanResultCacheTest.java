@@ -0,0 +1,85 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ScanResultCacheTest {
+
+    @Test
+    public void repeatedAdvertisementsAreDeduplicated() {
+        ScanResultCache cache = new ScanResultCache(60000);
+        cache.beginSession();
+
+        assertTrue(cache.update("aa:bb:cc:dd:ee:01", "ByePlug", -60, 0));
+        assertFalse(cache.update("AA:BB:CC:DD:EE:01", "ByePlug", -60, 100));
+        assertTrue(cache.update("AA:BB:CC:DD:EE:01", null, -55, 200));   // RSSI 변경
+        assertFalse(cache.update("bad", "x", -40, 200));
+
+        assertEquals(1, cache.size());
+        ScanResultCache.Entry e = cache.get("AA:BB:CC:DD:EE:01");
+        assertEquals("ByePlug", e.getName());
+        assertEquals(-55, e.getRssi());
+        assertTrue(cache.seenInSession("aa:bb:cc:dd:ee:01"));
+    }
+
+    @Test
+    public void resultsSurviveUntilTtlAndKeepFirstSeenOrder() {
+        ScanResultCache cache = new ScanResultCache(1000);
+        cache.beginSession();
+        cache.update("AA:BB:CC:DD:EE:02", "B", -70, 0);
+        cache.update("AA:BB:CC:DD:EE:01", "A", -50, 500);
+        cache.update("AA:BB:CC:DD:EE:02", "B", -65, 600);
+
+        // 다음 스캔: 이전 결과는 남아 있지만 이번 스캔에서 본 것은 아님
+        cache.beginSession();
+        assertFalse(cache.seenInSession("AA:BB:CC:DD:EE:01"));
+        assertTrue(cache.update("AA:BB:CC:DD:EE:01", "A", -50, 700));
+
+        List<ScanResultCache.Entry> snap = cache.snapshot(1000);
+        assertEquals(2, snap.size());
+        assertEquals("AA:BB:CC:DD:EE:02", snap.get(0).getMac());
+        assertEquals("AA:BB:CC:DD:EE:01", snap.get(1).getMac());
+
+        snap = cache.snapshot(1650);
+        assertEquals(1, snap.size());
+        assertEquals("AA:BB:CC:DD:EE:01", snap.get(0).getMac());
+        assertTrue(cache.snapshot(1701).isEmpty());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void leastRecentlySeenIsEvictedAtCapacity() {
+        ScanResultCache cache = new ScanResultCache(60000, 2);
+        cache.beginSession();
+        cache.update("AA:BB:CC:DD:EE:01", "A", -50, 0);
+        cache.update("AA:BB:CC:DD:EE:02", "B", -50, 10);
+        cache.update("AA:BB:CC:DD:EE:01", "A", -51, 20);   // 01 을 다시 봄
+        cache.update("AA:BB:CC:DD:EE:03", "C", -50, 30);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("AA:BB:CC:DD:EE:02"));
+        assertNotNull(cache.get("AA:BB:CC:DD:EE:01"));
+        assertEquals(1, cache.getEvictionCount());
+
+        assertNotNull(cache.getRecent("AA:BB:CC:DD:EE:03", 1030, 1000));
+        assertNull(cache.getRecent("AA:BB:CC:DD:EE:01", 1030, 1000));
+    }
+
+    @Test
+    public void sameAdvertisementIsDecodedOnce() {
+        ScanResultCache cache = new ScanResultCache(60000);
+        cache.beginSession();
+        byte[] record = {0x04, 0x09, 'B', 'y', 'e', 0x03, 0x03, (byte) 0xE0, (byte) 0xFF};
+
+        assertTrue(cache.update("AA:BB:CC:DD:EE:01", record, "system", -60, 0));
+        assertFalse(cache.update("AA:BB:CC:DD:EE:01", record.clone(), null, -60, 100));
+        assertEquals(1, cache.getDecodeCount());
+
+        ScanResultCache.Entry e = cache.get("AA:BB:CC:DD:EE:01");
+        assertEquals("Bye", e.getName());                   // 광고 이름이 우선
+        assertEquals(1, e.getAdvertisement().getServiceUuids().size());
+    }
+}
@@ -0,0 +1,197 @@
+package com.energysaver.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SimulatedStripTest {
+
+    private final VirtualClock clock = new VirtualClock();
+    private final List<String> lines = new ArrayList<>();
+    private final List<int[]> frames = new ArrayList<>();   // {op, seq}
+    private final List<Integer> depths = new ArrayList<>(); // 프레임에 실린 큐 깊이 (-1 = 없음)
+    private SimulatedStrip strip;
+
+    @Before
+    public void setUp() {
+        useFirmware(new SimulatedStrip("AA:BB:CC:DD:EE:01", clock));
+    }
+
+    // 서보 동안 loop() 가 멈추는 예전 펌웨어
+    private void useLegacyFirmware() {
+        useFirmware(new SimulatedStrip("AA:BB:CC:DD:EE:01", clock,
+                SimulatedStrip.FAILSAFE_TIMEOUT_MS, SimulatedStrip.SERVO_PRESS_MS,
+                SimulatedStrip.LEGACY_BLOCKING));
+    }
+
+    private void useFirmware(SimulatedStrip s) {
+        strip = s;
+        UartStreamDecoder decoder = new UartStreamDecoder(new UartStreamDecoder.Listener() {
+            @Override
+            public void onLine(String line) {
+                lines.add(line);
+            }
+
+            @Override
+            public void onFrame(int opcode, int seq, byte[] payload, int length) {
+                frames.add(new int[]{opcode, seq});
+                depths.add(UartCodec.queueDepthOf(opcode, payload, length));
+            }
+        });
+        strip.setOutput(decoder::feed);
+    }
+
+    private void send(String text) {
+        strip.receive(text.getBytes());
+    }
+
+    @Test
+    public void textCommandsReplyAfterServoPress() {
+        useLegacyFirmware();
+        send("ping\n");
+        assertEquals(Arrays.asList("RECONNECTED:ON", "PONG"), lines);
+
+        send("OFF\n");
+        assertTrue(strip.isBlocked());
+        assertFalse(strip.isPowerOn());
+        clock.runFor(SimulatedStrip.SERVO_PRESS_MS - 1);
+        assertEquals(2, lines.size());           // 서보가 누르는 중: 아직 응답 없음
+        clock.runFor(1);
+        assertEquals("ACK OFF", lines.get(2));
+        assertEquals(1, strip.getServoPresses());
+
+        send("STATUS\n");
+        assertEquals("OFF", lines.get(3));
+    }
+
+    @Test
+    public void inputWaitsWhileBlockedAndOverflowsSoftwareSerialBuffer() {
+        useLegacyFirmware();
+        send("ON\n");
+        send("PING\n");
+        assertEquals(1, lines.size());           // RECONNECTED 만
+        clock.runFor(SimulatedStrip.SERVO_PRESS_MS);
+        assertEquals(Arrays.asList("RECONNECTED:ON", "ACK ON", "PONG"), lines);
+
+        send("OFF\n");
+        byte[] flood = new byte[SimulatedStrip.RX_BUFFER_SIZE + 10];
+        Arrays.fill(flood, (byte) ' ');
+        strip.receive(flood);
+        assertEquals(10, strip.getRxOverflows());
+    }
+
+    @Test
+    public void helloSwitchesToBinaryFrames() {
+        useLegacyFirmware();
+        send(UartCodec.HELLO_TEXT + "\n");
+        assertEquals("CAPS BIN1 TO=10000", lines.get(1));
+        assertEquals(10000, UartCodec.parseCapsTimeoutMs(lines.get(1)));
+        assertTrue(strip.isBinaryPeer());
+
+        strip.receive(UartCodec.encodeCommand("PING", 7, true));
+        strip.receive(UartCodec.encodeCommand("OFF", 8, true));
+        clock.runFor(SimulatedStrip.SERVO_PRESS_MS);
+        assertEquals(2, frames.size());
+        assertArrayEquals(new int[]{UartCodec.OP_PONG, 7}, frames.get(0));
+        assertArrayEquals(new int[]{UartCodec.OP_ACK, 8}, frames.get(1));
+    }
+
+    @Test
+    public void failSafeTurnsOffAfterSilenceAndReconnectIsAnnounced() {
+        useLegacyFirmware();
+        send(UartCodec.HELLO_TEXT + "\n");
+        clock.runFor(SimulatedStrip.FAILSAFE_TIMEOUT_MS);
+        assertTrue(strip.isPowerOn());           // 정확히 10초는 아직
+
+        clock.runFor(1);
+        assertFalse(strip.isPowerOn());
+        assertTrue(frames.isEmpty());            // 서보가 끄는 중
+        clock.runFor(SimulatedStrip.SERVO_PRESS_MS);
+        assertEquals(1, frames.size());
+        assertEquals(UartCodec.OP_DISCONNECTED, frames.get(0)[0]);
+        assertFalse(strip.isBinaryPeer());
+        assertFalse(strip.isPeerConnected());
+        assertEquals(1, strip.getFailSafeOffs());
+
+        // 이미 꺼져 있으면 서보를 누르지 않고 텍스트로 알린다 (HELLO 전)
+        send("PING\n");
+        assertEquals("RECONNECTED:OFF", lines.get(lines.size() - 2));
+        clock.runFor(SimulatedStrip.FAILSAFE_TIMEOUT_MS + 1);
+        assertEquals("DISCONNECTED", lines.get(lines.size() - 1));
+        assertEquals(1, strip.getServoPresses());
+    }
+
+    // ───── 명령 큐 펌웨어 ─────
+
+    @Test
+    public void queuedFirmwareAcksImmediatelyAndKeepsReadingWhileServoMoves() {
+        send(UartCodec.HELLO_TEXT + "\n");
+        assertEquals("CAPS BIN1 TO=10000 Q=4", lines.get(1));
+        assertEquals(4, UartCodec.parseCapsQueueSize(lines.get(1)));
+
+        strip.receive(UartCodec.encodeCommand("OFF", 1, true));
+        strip.receive(UartCodec.encodeCommand("PING", 2, true));
+        // 서보가 움직이는 중에도 ACK 와 PONG 이 바로 나간다
+        assertTrue(strip.isServoMoving());
+        assertFalse(strip.isPowerOn());
+        assertEquals(2, frames.size());
+        assertArrayEquals(new int[]{UartCodec.OP_ACK, 1}, frames.get(0));
+        assertEquals(1, (int) depths.get(0));
+        assertArrayEquals(new int[]{UartCodec.OP_PONG, 2}, frames.get(1));
+
+        clock.runFor(SimulatedStrip.SERVO_PRESS_MS);
+        assertFalse(strip.isServoMoving());
+        assertEquals(1, strip.getServoPresses());
+        assertEquals(0, strip.getRxOverflows());
+    }
+
+    @Test
+    public void fullQueueRepliesBusyAndPressesRunInOrder() {
+        send("PING\n");
+        for (int i = 0; i < SimulatedStrip.COMMAND_QUEUE_SIZE + 1; i++) {
+            send(i % 2 == 0 ? "OFF\n" : "ON\n");
+        }
+        assertEquals(SimulatedStrip.COMMAND_QUEUE_SIZE + 1, strip.getQueueDepth());
+        assertFalse(strip.isPowerOn());               // 마지막으로 받은 명령 (OFF)
+
+        send("ON\n");                                // 실행 중 1 + 대기 4: 꽉 참
+        assertEquals("BUSY ON", lines.get(lines.size() - 1));
+        assertEquals(1, strip.getBusyReplies());
+        assertFalse(strip.isPowerOn());               // 거절한 명령은 상태를 바꾸지 않음
+
+        clock.runFor(SimulatedStrip.SERVO_PRESS_MS * (SimulatedStrip.COMMAND_QUEUE_SIZE + 1));
+        assertEquals(SimulatedStrip.COMMAND_QUEUE_SIZE + 1, strip.getServoPresses());
+        assertEquals(0, strip.getQueueDepth());
+        assertEquals(SimulatedStrip.COMMAND_QUEUE_SIZE + 1, strip.getMaxQueueDepth());
+    }
+
+    @Test
+    public void queuedFailSafeDropsPendingPressesAndReportsAtOnce() {
+        // 서보가 밀려 있는 동안 fail-safe 가 오도록 짧은 타임아웃
+        useFirmware(new SimulatedStrip("AA:BB:CC:DD:EE:01", clock, 1000,
+                SimulatedStrip.SERVO_PRESS_MS, SimulatedStrip.COMMAND_QUEUE_SIZE));
+        send(UartCodec.HELLO_TEXT + "\n");
+        send("OFF\n");
+        send("ON\n");
+        send("ON\n");
+        assertTrue(strip.isPowerOn());
+        assertEquals(3, strip.getQueueDepth());
+
+        clock.runFor(1001);
+        // 두 번째 누름이 진행 중, 남은 ON 은 버리고 OFF 를 넣는다. 서보를 기다리지 않고 바로 알림.
+        assertFalse(strip.isPowerOn());
+        assertTrue(strip.isServoMoving());
+        assertEquals(UartCodec.OP_DISCONNECTED, frames.get(frames.size() - 1)[0]);
+        assertEquals(2, strip.getQueueDepth());
+
+        clock.runFor(SimulatedStrip.SERVO_PRESS_MS * 2);
+        assertEquals(0, strip.getQueueDepth());
+        assertEquals(3, strip.getServoPresses());
+        assertEquals(1, strip.getFailSafeOffs());
+    }
+}
@@ -0,0 +1,117 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StripRegistryTest {
+
+    @Test
+    public void longHashMapMatchesReferenceUnderChurn() {
+        LongHashMap<Long> map = new LongHashMap<>();
+        HashMap<Long, Long> ref = new HashMap<>();
+        Random rnd = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            long key = rnd.nextInt(500);
+            if (rnd.nextBoolean()) {
+                assertEquals(ref.put(key, (long) i), map.put(key, (long) i));
+            } else {
+                assertEquals(ref.remove(key), map.remove(key));
+            }
+        }
+        assertEquals(ref.size(), map.size());
+        for (long k = 0; k < 500; k++) {
+            assertEquals(ref.get(k), map.get(k));
+        }
+    }
+
+    @Test
+    public void lookupIgnoresMacCaseAndKeepsOrder() {
+        StripRegistry reg = new StripRegistry(null);
+        reg.load(Arrays.asList(
+                new SmartStrip("거실", "aa:bb:cc:dd:ee:01", false),
+                new SmartStrip("주방", "AA:BB:CC:DD:EE:02", true),
+                new SmartStrip("중복", "AA:BB:CC:DD:EE:01", true)));
+
+        assertEquals(2, reg.size());
+        assertEquals("거실", reg.get("AA:BB:CC:DD:EE:01").getName());
+        assertEquals("AA:BB:CC:DD:EE:01", reg.getStrips().get(0).getMacAddress());
+        assertTrue(reg.contains("aa:bb:cc:dd:ee:02"));
+        assertFalse(reg.add(new SmartStrip("x", "aa:bb:cc:dd:ee:02", false)));
+        assertFalse(reg.add(new SmartStrip("x", "not-a-mac", false)));
+    }
+
+    @Test
+    public void notifiesPositions() {
+        StripRegistry reg = new StripRegistry(null);
+        List<String> events = new ArrayList<>();
+        reg.addListener(new StripRegistry.Listener() {
+            @Override
+            public void onStripInserted(int position) {
+                events.add("+" + position);
+            }
+
+            @Override
+            public void onStripChanged(int position) {
+                events.add("~" + position);
+            }
+
+            @Override
+            public void onStripRemoved(int position) {
+                events.add("-" + position);
+            }
+        });
+
+        reg.add(new SmartStrip("a", "AA:BB:CC:DD:EE:01", false));
+        reg.add(new SmartStrip("b", "AA:BB:CC:DD:EE:02", false));
+        reg.setOn("aa:bb:cc:dd:ee:02", true);
+        reg.setOn("AA:BB:CC:DD:EE:02", true);   // 변화 없음
+        reg.remove("AA:BB:CC:DD:EE:01");
+        reg.rename("AA:BB:CC:DD:EE:02", "b2");
+
+        assertEquals(Arrays.asList("+0", "+1", "~1", "-0", "~0"), events);
+    }
+
+    @Test
+    public void positionIndexFollowsRemovals() {
+        StripRegistry reg = new StripRegistry(null);
+        for (int i = 0; i < 5; i++) {
+            reg.add(new SmartStrip("s" + i, "AA:BB:CC:DD:EE:0" + i, false));
+        }
+        List<Integer> changed = new ArrayList<>();
+        reg.addListener(new StripRegistry.Listener() {
+            @Override
+            public void onStripInserted(int position) {
+            }
+
+            @Override
+            public void onStripChanged(int position) {
+                changed.add(position);
+            }
+
+            @Override
+            public void onStripRemoved(int position) {
+            }
+        });
+
+        reg.remove("AA:BB:CC:DD:EE:01");
+        reg.remove("AA:BB:CC:DD:EE:03");
+        assertEquals(-1, reg.indexOf("AA:BB:CC:DD:EE:01"));
+        for (int i = 0; i < reg.size(); i++) {
+            assertEquals(i, reg.indexOf(reg.getStrips().get(i).getMacAddress()));
+        }
+
+        reg.setOn("aa:bb:cc:dd:ee:04", true);
+        reg.setConnectionState("AA:BB:CC:DD:EE:02",
+                ConnectionState.INITIAL.withPhase(ConnectionState.Phase.CONNECTING));
+        reg.add(new SmartStrip("s5", "AA:BB:CC:DD:EE:05", false));
+        reg.rename("AA:BB:CC:DD:EE:05", "s5b");
+        assertEquals(Arrays.asList(2, 1, 3), changed);
+    }
+}
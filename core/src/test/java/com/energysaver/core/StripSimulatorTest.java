@@ -0,0 +1,150 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StripSimulatorTest {
+
+    private static final String MAC = "AA:BB:CC:DD:EE:01";
+
+    private final VirtualClock clock = new VirtualClock();
+
+    // 콜백을 문자열로 모아 둔다
+    private static final class Recorder implements BleTransport.Callback {
+        final List<String> events = new ArrayList<>();
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        int notifications = 0;
+
+        @Override
+        public void onConnectionStateChanged(BleTransport t, int status, boolean connected) {
+            events.add((connected ? "connected " : "disconnected ") + status);
+        }
+
+        @Override
+        public void onServicesDiscovered(BleTransport t, int status, boolean hasUart,
+                                         boolean hasCccd) {
+            events.add("discovered " + status + " " + hasUart + " " + hasCccd);
+        }
+
+        @Override
+        public void onMtuChanged(BleTransport t, int mtu, int status) {
+            events.add("mtu " + mtu);
+        }
+
+        @Override
+        public void onNotificationsEnabled(BleTransport t, int status) {
+            events.add("notify " + status);
+        }
+
+        @Override
+        public void onWriteComplete(BleTransport t, int status) {
+            events.add("write " + status);
+        }
+
+        @Override
+        public void onReceived(BleTransport t, byte[] data) {
+            notifications++;
+            received.write(data, 0, data.length);
+        }
+
+        String last() {
+            return events.get(events.size() - 1);
+        }
+    }
+
+    private StripSimulator.Config fixedLatency() {
+        return new StripSimulator.Config().connectLatency(100).discoveryLatency(100)
+                .linkLatency(10, 0);
+    }
+
+    @Test
+    public void connectDiscoverAndTalkToFirmware() {
+        StripSimulator sim = new StripSimulator(clock, fixedLatency(), 1);
+        SimulatedStrip strip = sim.addStrip(MAC);
+        Recorder rec = new Recorder();
+
+        BleTransport t = sim.connect(MAC, rec);
+        assertFalse(t.discoverServices());      // 아직 연결 전
+        clock.runFor(100);
+        assertEquals("connected 0", rec.last());
+
+        assertTrue(t.discoverServices());
+        assertFalse(t.requestMtu(247));         // 한 번에 하나
+        clock.runFor(100);
+        assertEquals("discovered 0 true true", rec.last());
+        assertTrue(t.requestMtu(247));
+        clock.runFor(10);
+        assertEquals("mtu 23", rec.last());
+        assertTrue(t.enableNotifications());
+        clock.runFor(10);
+
+        assertFalse(t.write(new byte[21], true));   // MTU 23 → 최대 20바이트
+        assertTrue(t.write((UartCodec.HELLO_TEXT + "\n").getBytes(), true));
+        clock.runFor(100);
+        assertEquals("write 0", rec.last());
+        // "RECONNECTED:ON\r\nCAPS BIN1 TO=10000 Q=4\r\n" (줄마다 출력, 20바이트씩) → 알림 3개
+        assertEquals("RECONNECTED:ON\r\nCAPS BIN1 TO=10000 Q=4\r\n", rec.received.toString());
+        assertEquals(3, rec.notifications);
+        assertTrue(strip.isBinaryPeer());
+
+        t.close();
+        clock.runFor(100);
+        assertTrue(strip.isBinaryPeer());       // 펌웨어는 링크가 끊긴 걸 모른다
+        clock.runFor(SimulatedStrip.FAILSAFE_TIMEOUT_MS + SimulatedStrip.SERVO_PRESS_MS);
+        assertFalse(strip.isPowerOn());
+    }
+
+    @Test
+    public void outOfRangeTimesOutAndDropsLink() {
+        StripSimulator sim = new StripSimulator(clock,
+                fixedLatency().connectTimeout(5000).supervisionTimeout(1000), 1);
+        sim.addStrip(MAC);
+
+        Recorder first = new Recorder();
+        sim.connect(MAC, first);
+        clock.runFor(100);
+        assertEquals("connected 0", first.last());
+
+        // HM-10 은 연결 하나만 받는다
+        Recorder second = new Recorder();
+        sim.connect(MAC, second);
+        clock.runFor(4999);
+        assertTrue(second.events.isEmpty());
+        clock.runFor(1);
+        assertEquals("disconnected " + BleTransport.STATUS_GATT_ERROR, second.last());
+
+        sim.setInRange(MAC, false);
+        clock.runFor(999);
+        assertEquals("connected 0", first.last());
+        clock.runFor(1);
+        assertEquals("disconnected " + BleTransport.STATUS_CONNECTION_TIMEOUT, first.last());
+
+        assertNull(sim.connect("not-a-mac", new Recorder()));
+    }
+
+    @Test
+    public void lossAndRandomDropsFollowConfig() {
+        StripSimulator sim = new StripSimulator(clock,
+                fixedLatency().lossRate(1).meanTimeBetweenDrops(60000), 42);
+        sim.addStrip(MAC);
+        Recorder rec = new Recorder();
+
+        BleTransport t = sim.connect(MAC, rec);
+        clock.runFor(100);
+        assertTrue(t.write("PING\n".getBytes(), false));
+        clock.runFor(10);
+        assertEquals("write " + BleTransport.STATUS_GATT_ERROR, rec.last());
+        assertTrue(t.write("PING\n".getBytes(), true));
+        clock.runFor(10);
+        assertEquals("write 0", rec.last());     // 응답 없는 쓰기는 사라져도 모른다
+        assertFalse(sim.getStrip(MAC).isPeerConnected());
+
+        clock.runFor(60 * 60 * 1000L);
+        assertTrue(rec.last().startsWith("disconnected "));
+    }
+}
@@ -0,0 +1,224 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class StripStoreTest {
+
+    private static File newFile() throws Exception {
+        return new File(Files.createTempDirectory("strips").toFile(), "strips.db");
+    }
+
+    @Test
+    public void keepsOrderAndReusesFreedSlots() throws Exception {
+        File f = newFile();
+        StripStore store = new StripStore(f);
+        store.load();
+        store.put(new SmartStrip("거실", "AA:BB:CC:DD:EE:01", false));
+        store.put(new SmartStrip("주방", "AA:BB:CC:DD:EE:02", true));
+        store.put(new SmartStrip("침실", "AA:BB:CC:DD:EE:03", false));
+        store.remove("AA:BB:CC:DD:EE:01");
+        store.put(new SmartStrip("서재", "AA:BB:CC:DD:EE:04", true));
+        store.close();
+
+        assertTrue(f.length() <= 3 * StripStore.SLOT_SIZE);
+
+        store = new StripStore(f);
+        List<SmartStrip> loaded = store.load();
+        assertEquals(3, loaded.size());
+        assertEquals("주방", loaded.get(0).getName());
+        assertTrue(loaded.get(0).isOn());
+        assertEquals("침실", loaded.get(1).getName());
+        assertEquals("AA:BB:CC:DD:EE:04", loaded.get(2).getMacAddress());
+        store.close();
+    }
+
+    @Test
+    public void addWithoutSuccessfulLoadDoesNotOverwriteRecords() throws Exception {
+        File f = newFile();
+        StripStore store = new StripStore(f);
+        store.load();
+        store.put(new SmartStrip("거실", "AA:BB:CC:DD:EE:01", true));
+        store.close();
+
+        // load() 를 부르지 않았거나 실패한 저장소: 슬롯 배치를 모르니 쓰지 않는다
+        store = new StripStore(f);
+        assertFalse(store.isLoaded());
+        store.put(new SmartStrip("주방", "AA:BB:CC:DD:EE:02", false));
+        store.putSchedule(PowerSchedule.daily("AA:BB:CC:DD:EE:02", false, 23 * 60)
+                .withId(1, "AA:BB:CC:DD:EE:02"));
+        store.remove("AA:BB:CC:DD:EE:01");
+        store.close();
+
+        store = new StripStore(f);
+        List<SmartStrip> loaded = store.load();
+        assertTrue(store.isLoaded());
+        assertEquals(1, loaded.size());
+        assertEquals("거실", loaded.get(0).getName());
+        assertTrue(store.getLoadedSchedules().isEmpty());
+
+        // 처음 잡은 슬롯 표보다 많이 넣어도 자란다
+        for (int i = 0; i < 40; i++) {
+            store.put(new SmartStrip("탭" + i, String.format("AA:BB:CC:DD:EF:%02X", i), false));
+        }
+        store.close();
+        store = new StripStore(f);
+        assertEquals(41, store.load().size());
+        store.close();
+    }
+
+    @Test
+    public void tornWriteAfterBatchedChangesKeepsLastCommittedCopy() throws Exception {
+        File f = newFile();
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        StripStore store = new StripStore(f, writer);
+        store.load();
+        SmartStrip s = new SmartStrip("v1", "AA:BB:CC:DD:EE:01", false);
+        store.put(s);
+        store.sync();
+        s.setName("v2");
+        store.put(s);
+        store.sync();                          // 사본 A = v1, B = v2 (디스크의 최신)
+
+        // 같은 슬롯이 commit 사이에 두 번 바뀐다
+        CountDownLatch busy = new CountDownLatch(1);
+        writer.execute(() -> {
+            try {
+                busy.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        s.setName("v3");
+        store.put(s);
+        s.setName("v4");
+        store.put(s);
+        busy.countDown();
+        store.sync();
+        store.close();
+
+        // 방금 쓴 사본(세대가 높은 쪽)이 찢어졌다고 치면 마지막으로 commit 된 v2 가 남아야 한다
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(0);
+            int genA = Integer.reverseBytes(raf.readInt());
+            raf.seek(StripStore.SLOT_SIZE / 2);
+            int genB = Integer.reverseBytes(raf.readInt());
+            long newest = genA - genB > 0 ? 0 : StripStore.SLOT_SIZE / 2;
+            raf.seek(newest + 30);
+            raf.write(0x5A);
+        }
+        store = new StripStore(f);
+        List<SmartStrip> loaded = store.load();
+        assertEquals(1, loaded.size());
+        assertEquals("v2", loaded.get(0).getName());
+        store.close();
+    }
+
+    @Test
+    public void toggleRewritesOnlyOneSlotAndBatches() throws Exception {
+        File f = newFile();
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        StripStore store = new StripStore(f, writer);
+        store.load();
+        SmartStrip s = new SmartStrip("거실", "AA:BB:CC:DD:EE:01", false);
+        store.put(s);
+        store.sync();
+        int before = store.getCommitCount();
+
+        // writer 가 바쁜 동안 들어온 토글은 한 번에 기록된다
+        CountDownLatch busy = new CountDownLatch(1);
+        writer.execute(() -> {
+            try {
+                busy.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        for (int i = 0; i < 50; i++) {
+            s.setOn(i % 2 == 0);
+            store.put(s);
+        }
+        busy.countDown();
+        store.sync();
+
+        assertEquals(1, store.getCommitCount() - before);
+        assertTrue(f.length() <= StripStore.SLOT_SIZE);
+        store.close();
+
+        store = new StripStore(f);
+        assertFalse(store.load().get(0).isOn());
+        store.close();
+    }
+
+    @Test
+    public void corruptNewestCopyFallsBackToPrevious() throws Exception {
+        File f = newFile();
+        StripStore store = new StripStore(f);
+        store.load();
+        SmartStrip s = new SmartStrip("거실", "AA:BB:CC:DD:EE:01", false);
+        store.put(s);   // 세대 1 → 사본 A
+        store.sync();
+        s.setName("거실 2");
+        store.put(s);   // 세대 2 → 사본 B
+        store.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(StripStore.SLOT_SIZE / 2 + 30);
+            raf.write(0x55);
+        }
+
+        store = new StripStore(f);
+        assertEquals("거실", store.load().get(0).getName());
+        store.close();
+    }
+
+    @Test
+    public void schedulesLiveInTheSameFileAndFollowTheirStrip() throws Exception {
+        File f = newFile();
+        StripStore store = new StripStore(f);
+        StripRegistry reg = new StripRegistry(store);
+        reg.load(store.load(), store.getLoadedSchedules());
+        reg.add(new SmartStrip("히터", "AA:BB:CC:DD:EE:01", true));
+        reg.add(new SmartStrip("거실", "AA:BB:CC:DD:EE:02", false));
+        PowerSchedule nightly = reg.addSchedule(
+                PowerSchedule.daily("aa:bb:cc:dd:ee:01", false, 23 * 60));
+        PowerSchedule once = reg.addSchedule(
+                PowerSchedule.once("AA:BB:CC:DD:EE:02", true, 1_800_000_000_000L));
+        assertNull(reg.addSchedule(PowerSchedule.daily("AA:BB:CC:DD:EE:09", false, 0)));
+        assertEquals("AA:BB:CC:DD:EE:01", nightly.getMacAddress());
+        store.close();
+
+        store = new StripStore(f);
+        reg = new StripRegistry(store);
+        reg.load(store.load(), store.getLoadedSchedules());
+        assertEquals(2, reg.size());
+        assertEquals(2, reg.getSchedules().size());
+        PowerSchedule p = reg.getSchedule(nightly.getId());
+        assertEquals(PowerSchedule.Repeat.DAILY, p.getRepeat());
+        assertEquals(23 * 60, p.getMinuteOfDay());
+        assertFalse(p.isOn());
+        assertEquals(1_800_000_000_000L, reg.getSchedule(once.getId()).getAtEpochMs());
+
+        // 멀티탭을 지우면 예약도 같이 지워지고, 새 id 는 겹치지 않는다
+        reg.remove("AA:BB:CC:DD:EE:01");
+        PowerSchedule next = reg.addSchedule(PowerSchedule.daily("AA:BB:CC:DD:EE:02", false, 60));
+        assertTrue(next.getId() > once.getId());
+        store.close();
+
+        store = new StripStore(f);
+        reg = new StripRegistry(store);
+        reg.load(store.load(), store.getLoadedSchedules());
+        assertEquals(1, reg.size());
+        assertNull(reg.getSchedule(nightly.getId()));
+        assertEquals(2, reg.getSchedules("AA:BB:CC:DD:EE:02").size());
+        assertTrue(f.length() <= 4 * StripStore.SLOT_SIZE);
+        store.close();
+    }
+}
@@ -0,0 +1,131 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelTest {
+
+    private long now = 0;
+    private long wakeAt = -1;
+    private int wakeRequests = 0;
+
+    private TimingWheel newWheel(long tickMs, int size) {
+        return new TimingWheel(tickMs, size, () -> now, at -> {
+            wakeAt = at;
+            wakeRequests++;
+        });
+    }
+
+    // 핸들러처럼 요청된 시각에만 깨어난다
+    private void runUntil(TimingWheel wheel, long untilMs) {
+        while (wakeAt >= 0 && wakeAt <= untilMs) {
+            now = Math.max(now, wakeAt);
+            wakeAt = -1;
+            wheel.advance();
+        }
+        now = untilMs;
+    }
+
+    @Test
+    public void firesInDeadlineOrderAndNeverEarly() {
+        TimingWheel wheel = newWheel(10, 8);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(25, () -> fired.add("b@" + now));
+        wheel.schedule(5, () -> fired.add("a@" + now));
+        wheel.schedule(25, () -> fired.add("c@" + now));     // 같은 틱은 넣은 순서
+        wheel.schedule(1000, () -> fired.add("d@" + now));   // 여러 바퀴 뒤
+
+        assertEquals(10, wakeAt);
+        runUntil(wheel, 2000);
+        assertEquals(List.of("a@10", "b@30", "c@30", "d@1000"), fired);
+        assertEquals(0, wheel.size());
+        assertEquals(-1, wheel.nextWakeupMs());
+    }
+
+    @Test
+    public void cancelIsImmediateAndTimerReplacesPrevious() {
+        TimingWheel wheel = newWheel(10, 16);
+        int[] runs = new int[1];
+        TimingWheel.Timeout t = wheel.schedule(50, () -> runs[0]++);
+        assertTrue(t.isPending());
+        assertTrue(t.cancel());
+        assertFalse(t.cancel());
+        assertEquals(0, wheel.size());
+
+        TimingWheel.Timer timer = wheel.newTimer(() -> runs[0] += 10);
+        timer.schedule(100);
+        timer.schedule(300);     // 다시 예약하면 이전 것은 취소
+        assertEquals(1, wheel.size());
+        runUntil(wheel, 299);
+        assertEquals(0, runs[0]);
+        runUntil(wheel, 300);
+        assertEquals(10, runs[0]);
+        assertFalse(timer.isPending());
+    }
+
+    @Test
+    public void tasksMayRescheduleFromInsideAdvance() {
+        TimingWheel wheel = newWheel(10, 4);
+        List<Long> at = new ArrayList<>();
+        TimingWheel.Timer[] self = new TimingWheel.Timer[1];
+        self[0] = wheel.newTimer(() -> {
+            at.add(now);
+            if (at.size() < 3) self[0].schedule(0);   // 0 이어도 다음 틱
+        });
+        self[0].schedule(20);
+        runUntil(wheel, 1000);
+        assertEquals(List.of(20L, 30L, 40L), at);
+    }
+
+    @Test
+    public void oversleptWheelCatchesUpInOnePass() {
+        TimingWheel wheel = newWheel(10, 8);
+        int[] runs = new int[1];
+        for (int i = 1; i <= 20; i++) {
+            wheel.schedule(i * 25, () -> runs[0]++);
+        }
+        wheel.schedule(10_000, () -> runs[0] += 100);
+        now = 600;     // 여러 바퀴를 건너뜀
+        assertEquals(20, wheel.advance());
+        assertEquals(1, wheel.size());
+        assertEquals(10_000, wheel.nextWakeupMs());
+    }
+
+    @Test
+    public void thousandsOfTimersNeedOneWakeupPerDistinctDeadline() {
+        TimingWheel wheel = newWheel(20, 512);
+        Random rnd = new Random(7);
+        int[] runs = new int[1];
+        List<TimingWheel.Timeout> handles = new ArrayList<>();
+        // 10,000 개를 1초 간격 60칸 (1분) 에 흩어 놓는다
+        for (int i = 0; i < 10_000; i++) {
+            handles.add(wheel.schedule(1000L * (1 + rnd.nextInt(60)), () -> runs[0]++));
+        }
+        // 절반 취소
+        int cancelled = 0;
+        for (int i = 0; i < handles.size(); i += 2) {
+            if (handles.get(i).cancel()) cancelled++;
+        }
+        assertEquals(10_000 - cancelled, wheel.size());
+
+        runUntil(wheel, 120_000);
+        assertEquals(10_000 - cancelled, runs[0]);
+        // 만료가 있는 60개의 틱에만 깨어났다 (빈 틱 2,940 개는 건너뜀)
+        assertEquals(60, wheel.getWakeups());
+    }
+
+    @Test
+    public void clearDropsEverything() {
+        TimingWheel wheel = newWheel(10, 8);
+        TimingWheel.Timeout t = wheel.schedule(10, () -> fail("cleared"));
+        wheel.clear();
+        assertFalse(t.isPending());
+        now = 100;
+        assertEquals(0, wheel.advance());
+    }
+}
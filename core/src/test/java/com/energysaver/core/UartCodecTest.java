@@ -0,0 +1,134 @@
+package com.energysaver.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UartCodecTest {
+
+    private final List<String> received = new ArrayList<>();
+
+    private final UartStreamDecoder decoder = new UartStreamDecoder(new UartStreamDecoder.Listener() {
+        @Override
+        public void onFrame(int opcode, int seq, byte[] payload, int payloadLen) {
+            received.add(seq + ":" + UartCodec.toText(opcode, payload, payloadLen));
+        }
+
+        @Override
+        public void onLine(String line) {
+            received.add(line);
+        }
+    });
+
+    @Test
+    public void commandFrameFitsInSingleWrite() {
+        byte[] frame = UartCodec.encodeCommand("OFF", 7, true);
+        assertEquals(UartCodec.HEADER_SIZE + 1, frame.length);
+        assertEquals(UartCodec.SOF, frame[0] & 0xFF);
+        assertEquals(UartCodec.OP_OFF, frame[2] & 0xFF);
+        assertEquals(7, frame[3] & 0xFF);
+
+        byte[] full = UartCodec.encode(UartCodec.OP_ACK, 1, new byte[UartCodec.MAX_PAYLOAD]);
+        assertEquals(UartCodec.MAX_FRAME_SIZE, full.length);
+    }
+
+    @Test
+    public void textModeKeepsNewlineProtocol() {
+        assertArrayEquals("PING\n".getBytes(), UartCodec.encodeCommand("PING", 1, false));
+        assertArrayEquals("HELLO\n".getBytes(), UartCodec.encodeCommand("HELLO", 1, true));
+    }
+
+    @Test
+    public void decodesFramesSplitAcrossNotifications() {
+        byte[] ack = UartCodec.encode(UartCodec.OP_ACK, 42, new byte[]{UartCodec.OP_ON});
+        decoder.feed(ack, 0, 3);
+        decoder.feed(ack, 3, ack.length - 3);
+
+        assertEquals(1, received.size());
+        assertEquals("42:ACK ON", received.get(0));
+    }
+
+    @Test
+    public void decodesMixedTextAndFrames() {
+        byte[] pong = UartCodec.encode(UartCodec.OP_PONG, 3, null);
+        decoder.feed("RECONNECTED:ON\r\n".getBytes());
+        decoder.feed(pong);
+        decoder.feed("CAPS BIN1\r\n".getBytes());
+
+        assertEquals(3, received.size());
+        assertEquals("RECONNECTED:ON", received.get(0));
+        assertEquals("3:PONG", received.get(1));
+        assertEquals(UartCodec.CAPS_TEXT, received.get(2));
+    }
+
+    @Test
+    public void capsCarriesOptionalFailSafeTimeout() {
+        assertEquals(10000, UartCodec.parseCapsTimeoutMs("CAPS BIN1 TO=10000"));
+        assertEquals(-1, UartCodec.parseCapsTimeoutMs("CAPS BIN1"));
+        assertEquals(-1, UartCodec.parseCapsTimeoutMs("CAPS BIN1 TO=abc"));
+        assertEquals(-1, UartCodec.parseCapsTimeoutMs("PONG"));
+        assertTrue(UartCodec.isCapsLine("caps bin1 to=8000"));
+    }
+
+    @Test
+    public void capsQueueSizeAndReplyDepth() {
+        String caps = "CAPS BIN1 TO=10000 Q=4";
+        assertEquals(10000, UartCodec.parseCapsTimeoutMs(caps));
+        assertEquals(4, UartCodec.parseCapsQueueSize(caps));
+        assertEquals(-1, UartCodec.parseCapsQueueSize("CAPS BIN1 TO=10000"));
+
+        byte[] ack = {UartCodec.OP_ON, 2};
+        assertEquals("ACK ON", UartCodec.toText(UartCodec.OP_ACK, ack, ack.length));
+        assertEquals(2, UartCodec.queueDepthOf(UartCodec.OP_ACK, ack, ack.length));
+        assertEquals(-1, UartCodec.queueDepthOf(UartCodec.OP_ACK, ack, 1));     // 구형 펌웨어
+        assertEquals("BUSY OFF", UartCodec.toText(UartCodec.OP_BUSY,
+                new byte[]{UartCodec.OP_OFF, 5}, 2));
+        assertEquals("ON", UartCodec.toText(UartCodec.OP_STATE, new byte[]{1, 0}, 2));
+    }
+
+    @Test
+    public void corruptedFrameIsDroppedAndStreamRecovers() {
+        byte[] bad = UartCodec.encode(UartCodec.OP_STATE, 1, new byte[]{1});
+        bad[bad.length - 1] ^= 0x5A;
+        byte[] good = UartCodec.encode(UartCodec.OP_STATE, 2, new byte[]{0});
+
+        decoder.feed(bad);
+        decoder.feed(good);
+
+        assertEquals(1, decoder.getCrcErrors());
+        assertEquals("2:OFF", received.get(received.size() - 1));
+    }
+
+    @Test
+    public void resyncRescansNestedBrokenFramesInPlace() {
+        byte[] good = UartCodec.encode(UartCodec.OP_STATE, 9, new byte[]{1});
+        // SOF 세 개가 연달아 오고 (버전이 틀린 헤더), 그 안에 좋은 프레임이 숨어 있다
+        byte[] noisy = new byte[3 + good.length];
+        noisy[0] = (byte) UartCodec.SOF;
+        noisy[1] = (byte) UartCodec.SOF;
+        noisy[2] = (byte) UartCodec.SOF;
+        System.arraycopy(good, 0, noisy, 3, good.length);
+        // CRC 가 틀린 프레임의 payload 안에 있는 좋은 프레임도 다시 훑어서 찾는다
+        byte[] carrier = UartCodec.encode(UartCodec.OP_ACK, 1, good);
+        carrier[carrier.length - 1] ^= 0x5A;
+
+        for (int round = 0; round < 2; round++) {
+            received.clear();
+            if (round == 0) {
+                decoder.feed(noisy);
+                decoder.feed(carrier);
+            } else {
+                // 한 바이트씩 잘려 와도 같다
+                for (byte b : noisy) decoder.feed(new byte[]{b});
+                for (byte b : carrier) decoder.feed(new byte[]{b});
+            }
+            decoder.feed("PONG\n".getBytes());
+            assertEquals(Arrays.asList("9:ON", "9:ON", "PONG"), received);
+        }
+        assertEquals(2, decoder.getCrcErrors());
+    }
+}